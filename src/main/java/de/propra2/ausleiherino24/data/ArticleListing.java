@@ -0,0 +1,17 @@
+package de.propra2.ausleiherino24.data;
+
+/**
+ * Columns of an article, which are rendered by the article cards of index.html.
+ */
+public interface ArticleListing {
+
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+
+    String getImage();
+
+    Double getCostPerDay();
+}
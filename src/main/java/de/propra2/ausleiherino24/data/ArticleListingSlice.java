@@ -0,0 +1,24 @@
+package de.propra2.ausleiherino24.data;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One page of article listings, ordered from the newest to the oldest article.
+ */
+@Data
+@AllArgsConstructor
+public class ArticleListingSlice {
+
+    private List<ArticleListing> articles;
+
+    /**
+     * Id to pass as "before" to get the following page. null, if this is the last page.
+     */
+    private Long nextCursor;
+
+    public boolean isLastPage() {
+        return nextCursor == null;
+    }
+}
@@ -1,8 +1,16 @@
 package de.propra2.ausleiherino24.data;
 
+import de.propra2.ausleiherino24.features.category.Category;
 import de.propra2.ausleiherino24.model.Article;
 import de.propra2.ausleiherino24.model.User;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -18,8 +26,14 @@ public interface ArticleRepository extends CrudRepository<Article, Long> {
     @Query("SELECT a FROM Article a WHERE a.owner = :user and a.active = true")
     List<Article> findAllActiveByUser(@Param("user") User user);
 
-    @Query("SELECT a FROM Article a WHERE a.active = true")
-    List<Article> findAllActive();
+    /**
+     * Streams the searchable columns of all active articles. The stream has to be consumed and
+     * closed within a transaction.
+     */
+    @Query("SELECT a.id AS id, a.name AS name, a.description AS description, "
+            + "a.location AS location, a.category AS category FROM Article a "
+            + "WHERE a.active = true")
+    Stream<ArticleSearchFields> streamActiveSearchFields();
 
     @Query("SELECT a FROM Article a "
             + "WHERE a.owner = :user and a.active = true and a.forSale = false")
@@ -29,4 +43,46 @@ public interface ArticleRepository extends CrudRepository<Article, Long> {
     List<Article> findAllActiveForSaleByUser(@Param("user") User user);
 
     List<Article> findByActiveTrueAndNameContainsIgnoreCase(String searchString);
+
+    @EntityGraph(Article.WITH_OWNER)
+    Optional<Article> findWithOwnerById(Long id);
+
+    /**
+     * Finds the article and increments its version when the transaction commits. Concurrent
+     * transactions, which lock the same article, fail with an optimistic locking exception.
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT a FROM Article a WHERE a.id = :id")
+    Optional<Article> findAndLockById(@Param("id") Long id);
+
+    @Query("SELECT a.id FROM Article a WHERE a.owner.id = :id")
+    List<Long> findIdsByOwnerId(@Param("id") Long ownerId);
+
+    /**
+     * Keyset pagination: returns the listings of the newest active rental articles with an id
+     * below the given one. The size of the pageable limits the result.
+     */
+    @Query("SELECT a.id AS id, a.name AS name, a.description AS description, "
+            + "a.image AS image, a.costPerDay AS costPerDay FROM Article a "
+            + "WHERE a.active = true AND a.forRental = true AND a.id < :before "
+            + "ORDER BY a.id DESC")
+    List<ArticleListing> findActiveForRentalListingsBefore(@Param("before") Long before,
+            Pageable pageable);
+
+    /**
+     * Keyset pagination as in {@link #findActiveForRentalListingsBefore(Long, Pageable)},
+     * restricted to one category.
+     */
+    @Query("SELECT a.id AS id, a.name AS name, a.description AS description, "
+            + "a.image AS image, a.costPerDay AS costPerDay FROM Article a "
+            + "WHERE a.active = true AND a.forRental = true AND a.category = :category "
+            + "AND a.id < :before ORDER BY a.id DESC")
+    List<ArticleListing> findActiveForRentalListingsByCategoryBefore(
+            @Param("category") Category category, @Param("before") Long before,
+            Pageable pageable);
+
+    @Query("SELECT a.id AS id, a.name AS name, a.description AS description, "
+            + "a.image AS image, a.costPerDay AS costPerDay FROM Article a "
+            + "WHERE a.id IN :ids")
+    List<ArticleListing> findAllListingsByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,19 @@
+package de.propra2.ausleiherino24.data;
+
+import de.propra2.ausleiherino24.features.category.Category;
+
+/**
+ * Columns of an article, which are indexed by the article search.
+ */
+public interface ArticleSearchFields {
+
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+
+    String getLocation();
+
+    Category getCategory();
+}
@@ -0,0 +1,10 @@
+package de.propra2.ausleiherino24.data;
+
+/**
+ * Projection of a case onto its id and rental period. Used by the availability index, which has
+ * to tell the cases of a merged period apart.
+ */
+public interface CaseInterval extends CaseTimeSpan {
+
+    Long getId();
+}
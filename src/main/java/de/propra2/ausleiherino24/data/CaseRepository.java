@@ -1,9 +1,12 @@
 package de.propra2.ausleiherino24.data;
 
-import de.propra2.ausleiherino24.model.Article;
 import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.User;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -14,6 +17,7 @@ import org.springframework.stereotype.Repository;
 public interface CaseRepository extends CrudRepository<Case, Long> {
 
     @NonNull
+    @EntityGraph(Case.WITH_CONFLICT)
     List<Case> findAll();
 
     @Query("SELECT c FROM Case c WHERE c.receiver = :user")
@@ -22,18 +26,119 @@ public interface CaseRepository extends CrudRepository<Case, Long> {
     @Query("SELECT c FROM #{#entityName} c WHERE c.article.owner = :owner")
     List<Case> findAllByArticleOwner(@Param("owner") User owner);
 
+    @EntityGraph(Case.OVERVIEW)
     @Query("SELECT c FROM #{#entityName} c WHERE c.article.owner.id = :id "
             + "ORDER BY c.requestStatus ASC")
     List<Case> findAllByArticleOwnerId(@Param("id") Long ownerId);
 
+    @Query("SELECT c.id AS id, c.startTime AS startTime, c.endTime AS endTime "
+            + "FROM #{#entityName} c "
+            + "WHERE c.article.id = :articleId AND c.requestStatus = :status")
+    List<CaseInterval> findIntervalsByArticleIdAndRequestStatus(
+            @Param("articleId") Long articleId, @Param("status") int status);
+
+    /**
+     * Uses the index on (requestStatus, endTime).
+     *
+     * @param from inclusive
+     * @param to exclusive
+     */
+    @EntityGraph(Case.WITH_CONFLICT)
     @Query("SELECT c FROM #{#entityName} c "
-            + "WHERE c.article.forSale = false "
-            + "AND c.article = :article "
-            + "AND c.requestStatus in (2,7, 8, 10, 14)")
-    List<Case> findAllByArticleWhereStatusIsGreater7(@Param("article") Article article);
+            + "WHERE c.requestStatus = :status "
+            + "AND c.endTime >= :from "
+            + "AND c.endTime < :to")
+    List<Case> findAllByRequestStatusAndEndTimeInRange(
+            @Param("status") int status,
+            @Param("from") long from,
+            @Param("to") long to);
+
+    /**
+     * Finds the earliest end time of all cases with the given status, which end at or after from.
+     * Uses the index on (requestStatus, endTime).
+     *
+     * @return null, if there is no such case
+     */
+    @Query("SELECT MIN(c.endTime) FROM #{#entityName} c "
+            + "WHERE c.requestStatus = :status "
+            + "AND c.endTime >= :from")
+    Long findNextEndTime(@Param("status") int status, @Param("from") long from);
+
+    /**
+     * Keyset pagination: returns the cases with the given status, which end after the given end
+     * time or at the same time with a greater id, ordered by end time and id. The size of the
+     * pageable limits the result. Uses the index on (requestStatus, endTime, id).
+     */
+    @EntityGraph(Case.WITH_CONFLICT)
+    @Query("SELECT c FROM #{#entityName} c "
+            + "WHERE c.requestStatus = :status "
+            + "AND (c.endTime > :endTime OR (c.endTime = :endTime AND c.id > :id)) "
+            + "ORDER BY c.endTime ASC, c.id ASC")
+    List<Case> findByRequestStatusAfter(
+            @Param("status") int status,
+            @Param("endTime") long endTime,
+            @Param("id") long id,
+            Pageable pageable);
+
+    @Query("SELECT c.requestStatus AS requestStatus, COUNT(c) AS count FROM #{#entityName} c "
+            + "GROUP BY c.requestStatus")
+    List<CaseStatusCount> findStatusCounts();
+
+    @Query("SELECT c.requestStatus AS requestStatus, COUNT(c) AS count FROM #{#entityName} c "
+            + "WHERE c.article.owner.id = :id "
+            + "GROUP BY c.requestStatus")
+    List<CaseStatusCount> findStatusCountsByOwnerId(@Param("id") Long ownerId);
+
+    /**
+     * Loads the given cases together with their article, receiver and transaction.
+     */
+    @EntityGraph(Case.OVERVIEW)
+    List<Case> findAllByIdIn(Collection<Long> ids);
+
+    /**
+     * Counts the cases of the article with the given status, which overlap [from, to].
+     */
+    @Query("SELECT COUNT(c) FROM #{#entityName} c "
+            + "WHERE c.article.id = :articleId "
+            + "AND c.requestStatus = :status "
+            + "AND c.startTime <= :to "
+            + "AND c.endTime >= :from")
+    long countByArticleAndRequestStatusInWindow(
+            @Param("articleId") Long articleId,
+            @Param("status") int status,
+            @Param("from") long from,
+            @Param("to") long to);
+
+    @Query("SELECT c.startTime AS startTime, c.endTime AS endTime FROM #{#entityName} c "
+            + "WHERE c.article.id = :articleId "
+            + "AND c.requestStatus = :status "
+            + "AND c.startTime <= :to "
+            + "AND c.endTime >= :from "
+            + "ORDER BY c.startTime ASC")
+    Stream<CaseTimeSpan> streamTimeSpansByArticleAndRequestStatusInWindow(
+            @Param("articleId") Long articleId,
+            @Param("status") int status,
+            @Param("from") long from,
+            @Param("to") long to);
 
-    List<Case> findAllByArticleAndRequestStatus(Article article, int status);
+    /**
+     * Streams the rental periods of the article with one of the given statuses, which overlap
+     * [from, to], ordered by start time. Articles for sale have no rental periods.
+     */
+    @Query("SELECT c.startTime AS startTime, c.endTime AS endTime FROM #{#entityName} c "
+            + "WHERE c.article.id = :articleId "
+            + "AND c.article.forSale = false "
+            + "AND c.requestStatus IN :statuses "
+            + "AND c.startTime <= :to "
+            + "AND c.endTime >= :from "
+            + "ORDER BY c.startTime ASC")
+    Stream<CaseTimeSpan> streamTimeSpansByArticleAndRequestStatusesInWindow(
+            @Param("articleId") Long articleId,
+            @Param("statuses") Collection<Integer> statuses,
+            @Param("from") long from,
+            @Param("to") long to);
 
+    @EntityGraph(Case.OVERVIEW)
     @Query("SELECT c FROM #{#entityName} c "
             + "WHERE c.article.forSale = false "
             + "AND c.article.owner.id = :id "
@@ -41,23 +146,27 @@ public interface CaseRepository extends CrudRepository<Case, Long> {
             + "AND c.requestStatus in (7, 8, 10, 14)")
     List<Case> findAllExpiredCasesByUserId(@Param("id") Long id, @Param("today") long today);
 
+    @EntityGraph(Case.OVERVIEW)
     @Query("SELECT c FROM #{#entityName} c "
             + "WHERE c.article.forSale = false "
             + "AND c.article.owner.id = :id "
             + "AND c.requestStatus in (1, 2, 4, 12)")
     List<Case> findAllRequestedCasesByUserId(@Param("id") Long id);
 
+    @EntityGraph(Case.OVERVIEW)
     @Query("SELECT c FROM Case c "
             + "WHERE c.receiver.person.id = :id "
             + "AND c.article.forSale = false")
     List<Case> getLendCasesFromPersonReceiver(@Param("id") Long personId);
 
+    @EntityGraph(Case.OVERVIEW)
     @Query("SELECT c FROM Case c "
             + "WHERE c.article.forSale = true "
             + "AND c.article.owner.id = :id "
             + "AND c.requestStatus = 14")
     List<Case> findAllSoldItemsByUserId(@Param("id") Long id);
 
+    @EntityGraph(Case.OVERVIEW)
     @Query("SELECT c FROM #{#entityName} c "
             + "WHERE c.article.forSale = false "
             + "AND c.receiver.id = :id "
@@ -0,0 +1,11 @@
+package de.propra2.ausleiherino24.data;
+
+/**
+ * Projection onto the number of cases with one request status.
+ */
+public interface CaseStatusCount {
+
+    int getRequestStatus();
+
+    long getCount();
+}
@@ -0,0 +1,354 @@
+package de.propra2.ausleiherino24.data;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.model.User;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the cases per request status, in total and per article owner, so that dashboards and
+ * badges don't have to query the cases. The total counters are loaded from the database on first
+ * use, the counters of an owner when they are first requested. Afterwards they are maintained by
+ * Hibernate events, which are delivered after a transaction inserting, updating or deleting a
+ * case was committed. Rolled back changes are not counted.
+ *
+ * <p>The counters are installed before they are loaded. Changes delivered while the database is
+ * queried are recorded as deltas and added to the loaded counts, so no change is lost by a load.
+ * A change committed just before the query, whose event is delivered after the counters were
+ * installed, is counted twice until the next reload.
+ *
+ * <p>The owner of a case is found via its article. The articles of every loaded owner are
+ * remembered, so that the owner is known even if the article of a case isn't loaded. Articles
+ * created later are added by the insert event of the article. The articles are forgotten together
+ * with the counters of their owner.
+ *
+ * <p>Changes made outside of this application, e.g. by bulk updates or by other instances, are
+ * picked up by a periodic reload.
+ */
+@Component
+public class CaseStatusCounters implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CaseStatusCounters.class);
+    private static final String REQUEST_STATUS = "requestStatus";
+    private static final String ARTICLE = "article";
+    private static final String OWNER = "owner";
+    private static final int MAX_OWNERS = 10000;
+    private static final Map<Integer, String> STATUS_NAMES = new LinkedHashMap<>();
+
+    static {
+        STATUS_NAMES.put(Case.REQUESTED, "requested");
+        STATUS_NAMES.put(Case.REQUEST_ACCEPTED, "requestAccepted");
+        STATUS_NAMES.put(Case.RENTAL_NOT_POSSIBLE, "rentalNotPossible");
+        STATUS_NAMES.put(Case.RUNNING, "running");
+        STATUS_NAMES.put(Case.RUNNING_EMAILSENT, "runningEmailSent");
+        STATUS_NAMES.put(Case.OPEN_CONFLICT, "openConflict");
+        STATUS_NAMES.put(Case.REQUEST_DECLINED, "requestDeclined");
+        STATUS_NAMES.put(Case.FINISHED, "finished");
+    }
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final CaseRepository caseRepository;
+    private final ArticleRepository articleRepository;
+    private final Map<Long, StatusCounts> ownerByArticle = new ConcurrentHashMap<>();
+    private final Cache<Long, StatusCounts> ownerCounts = Caffeine.newBuilder()
+            .maximumSize(MAX_OWNERS)
+            .executor(Runnable::run)
+            .removalListener((Long ownerId, StatusCounts removed, RemovalCause cause) -> {
+                if (removed != null) {
+                    removed.articleIds
+                            .forEach(articleId -> ownerByArticle.remove(articleId, removed));
+                }
+            })
+            .build();
+    private volatile StatusCounts counts;
+
+    /**
+     * Autowired constructor.
+     */
+    @Autowired
+    public CaseStatusCounters(final EntityManagerFactory entityManagerFactory,
+            final CaseRepository caseRepository, final ArticleRepository articleRepository) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.caseRepository = caseRepository;
+        this.articleRepository = articleRepository;
+    }
+
+    @PostConstruct
+    void register() {
+        final EventListenerRegistry registry = entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    /**
+     * Returns the number of cases with the given request status.
+     */
+    public long count(final int requestStatus) {
+        return loadedCounts().getOrDefault(requestStatus, 0L);
+    }
+
+    /**
+     * Returns the number of cases per request status, named like the status constants of
+     * {@link Case}.
+     */
+    public Map<String, Long> counts() {
+        return named(loadedCounts());
+    }
+
+    /**
+     * Returns the number of cases of the articles of the given owner per request status, named
+     * like the status constants of {@link Case}.
+     */
+    public Map<String, Long> countsOfOwner(final Long ownerId) {
+        final StatusCounts owner = ownerCounts.get(ownerId, id -> new StatusCounts());
+        return named(owner.current(() -> loadOwner(ownerId, owner)));
+    }
+
+    /**
+     * Reloads the total counters from the database. The counters of the owners are reloaded when
+     * they are requested again.
+     */
+    @Scheduled(fixedDelayString = "${cases.statusCountReloadMillis:600000}",
+            initialDelayString = "${cases.statusCountReloadMillis:600000}")
+    public void reload() {
+        final StatusCounts reloaded = new StatusCounts();
+        counts = reloaded;
+        ownerCounts.invalidateAll();
+        reloaded.current(this::loadTotals);
+    }
+
+    private Map<Integer, Long> loadedCounts() {
+        StatusCounts current = counts;
+        if (current == null) {
+            synchronized (this) {
+                if (counts == null) {
+                    reload();
+                }
+                current = counts;
+            }
+        }
+        return current.current(this::loadTotals);
+    }
+
+    private Map<Integer, Long> loadTotals() {
+        return statusCounts(caseRepository.findStatusCounts());
+    }
+
+    /**
+     * Remembers the articles of the owner before the cases are counted, so that the changes of
+     * cases, whose article isn't loaded, are recorded while counting.
+     */
+    private Map<Integer, Long> loadOwner(final Long ownerId, final StatusCounts owner) {
+        articleRepository.findIdsByOwnerId(ownerId).forEach(articleId -> {
+            owner.articleIds.add(articleId);
+            ownerByArticle.put(articleId, owner);
+        });
+        return statusCounts(caseRepository.findStatusCountsByOwnerId(ownerId));
+    }
+
+    private void add(final EntityPersister persister, final Object[] state, final long delta) {
+        final int requestStatus = (Integer) property(persister, state, REQUEST_STATUS);
+        final StatusCounts total = counts;
+        if (total != null) {
+            total.add(requestStatus, delta);
+        }
+
+        final StatusCounts owner = ownerCountsOf(property(persister, state, ARTICLE));
+        if (owner != null) {
+            owner.add(requestStatus, delta);
+        }
+    }
+
+    private StatusCounts ownerCountsOf(final Object article) {
+        final Long articleId = idOf(article);
+        if (articleId == null) {
+            return null;
+        }
+
+        final StatusCounts owner = ownerByArticle.get(articleId);
+        if (owner != null || article instanceof HibernateProxy) {
+            return owner;
+        }
+        final Long ownerId = idOf(((Article) article).getOwner());
+        return ownerId == null ? null : ownerCounts.getIfPresent(ownerId);
+    }
+
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        if (isArticle(event.getPersister())) {
+            final Long ownerId = idOf(property(event.getPersister(), event.getState(), OWNER));
+            final StatusCounts owner = ownerId == null ? null : ownerCounts.getIfPresent(ownerId);
+            if (owner != null) {
+                owner.articleIds.add((Long) event.getId());
+                ownerByArticle.put((Long) event.getId(), owner);
+            }
+        } else if (isCase(event.getPersister())) {
+            add(event.getPersister(), event.getState(), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        if (!isCase(event.getPersister())) {
+            return;
+        }
+        if (event.getOldState() == null) {
+            LOGGER.debug("Previous status of case {} is unknown, reloading counters.",
+                    event.getId());
+            counts = null;
+            ownerCounts.invalidateAll();
+            return;
+        }
+
+        final Object oldStatus = property(event.getPersister(), event.getOldState(),
+                REQUEST_STATUS);
+        final Object newStatus = property(event.getPersister(), event.getState(), REQUEST_STATUS);
+        if (!oldStatus.equals(newStatus)) {
+            add(event.getPersister(), event.getOldState(), -1);
+            add(event.getPersister(), event.getState(), 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        if (isCase(event.getPersister())) {
+            add(event.getPersister(), event.getDeletedState(), -1);
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(final PostInsertEvent event) {
+        // nothing was counted yet
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(final PostUpdateEvent event) {
+        // nothing was counted yet
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(final PostDeleteEvent event) {
+        // nothing was counted yet
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(final EntityPersister persister) {
+        return isCase(persister) || isArticle(persister);
+    }
+
+    private static boolean isCase(final EntityPersister persister) {
+        return Case.class.equals(persister.getMappedClass());
+    }
+
+    private static boolean isArticle(final EntityPersister persister) {
+        return Article.class.equals(persister.getMappedClass());
+    }
+
+    private static Object property(final EntityPersister persister, final Object[] state,
+            final String name) {
+        return state[persister.getEntityMetamodel().getPropertyIndex(name)];
+    }
+
+    /**
+     * Returns the id of an article or user without loading it, if it is a lazy proxy.
+     */
+    private static Long idOf(final Object entity) {
+        if (entity instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) entity).getHibernateLazyInitializer().getIdentifier();
+        }
+        if (entity instanceof Article) {
+            return ((Article) entity).getId();
+        }
+        return entity instanceof User ? ((User) entity).getId() : null;
+    }
+
+    private static Map<Integer, Long> statusCounts(final List<CaseStatusCount> statusCounts) {
+        final Map<Integer, Long> loaded = new HashMap<>();
+        statusCounts.forEach(statusCount -> loaded
+                .put(statusCount.getRequestStatus(), statusCount.getCount()));
+        return loaded;
+    }
+
+    private static Map<String, Long> named(final Map<Integer, Long> counters) {
+        final Map<String, Long> named = new LinkedHashMap<>();
+        STATUS_NAMES.forEach((status, name) -> named.put(name,
+                counters.getOrDefault(status, 0L)));
+        counters.forEach((status, count) -> {
+            if (!STATUS_NAMES.containsKey(status)) {
+                named.put(String.valueOf(status), count);
+            }
+        });
+        return named;
+    }
+
+    /**
+     * Counts loaded from the database plus the changes recorded since the counts were installed.
+     */
+    private static final class StatusCounts {
+
+        private final Map<Integer, LongAdder> deltas = new ConcurrentHashMap<>();
+
+        /**
+         * Articles of the owner, which are remembered in ownerByArticle. Empty for the totals.
+         */
+        private final Set<Long> articleIds = ConcurrentHashMap.newKeySet();
+
+        private volatile Map<Integer, Long> loaded;
+
+        private void add(final int requestStatus, final long delta) {
+            deltas.computeIfAbsent(requestStatus, status -> new LongAdder()).add(delta);
+        }
+
+        /**
+         * Returns the current counts. The first caller loads the counts, concurrent callers wait
+         * for it.
+         */
+        private Map<Integer, Long> current(final Supplier<Map<Integer, Long>> loader) {
+            Map<Integer, Long> base = loaded;
+            if (base == null) {
+                synchronized (this) {
+                    if (loaded == null) {
+                        loaded = loader.get();
+                    }
+                    base = loaded;
+                }
+            }
+
+            final Map<Integer, Long> current = new HashMap<>(base);
+            deltas.forEach((status, delta) -> current.merge(status, delta.sum(), Long::sum));
+            return current;
+        }
+    }
+}
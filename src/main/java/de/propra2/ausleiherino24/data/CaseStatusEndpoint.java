@@ -0,0 +1,35 @@
+package de.propra2.ausleiherino24.data;
+
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint with the number of cases per request status, in total at
+ * /actuator/casestatus and per article owner at /actuator/casestatus/{ownerId}. The numbers are
+ * read from {@link CaseStatusCounters}, so dashboards polling it don't query the cases.
+ */
+@Component
+@Endpoint(id = "casestatus")
+public class CaseStatusEndpoint {
+
+    private final CaseStatusCounters caseStatusCounters;
+
+    @Autowired
+    public CaseStatusEndpoint(final CaseStatusCounters caseStatusCounters) {
+        this.caseStatusCounters = caseStatusCounters;
+    }
+
+    @ReadOperation
+    public Map<String, Long> counts() {
+        return caseStatusCounters.counts();
+    }
+
+    @ReadOperation
+    public Map<String, Long> countsOfOwner(@Selector final Long ownerId) {
+        return caseStatusCounters.countsOfOwner(ownerId);
+    }
+}
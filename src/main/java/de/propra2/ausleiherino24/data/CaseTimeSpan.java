@@ -0,0 +1,12 @@
+package de.propra2.ausleiherino24.data;
+
+/**
+ * Projection of a case onto its rental period. Used by queries, that only need the start and end
+ * times and should not load the whole case graph.
+ */
+public interface CaseTimeSpan {
+
+    Long getStartTime();
+
+    Long getEndTime();
+}
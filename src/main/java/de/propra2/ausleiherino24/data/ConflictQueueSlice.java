@@ -0,0 +1,32 @@
+package de.propra2.ausleiherino24.data;
+
+import de.propra2.ausleiherino24.model.Case;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One page of cases with open conflicts, ordered by end time, so that the oldest conflicts are
+ * solved first.
+ */
+@Data
+@AllArgsConstructor
+public class ConflictQueueSlice {
+
+    private List<Case> cases;
+
+    /**
+     * End time to pass as "afterEndTime" to get the following page. null, if this is the last
+     * page.
+     */
+    private Long nextEndTime;
+
+    /**
+     * Id to pass as "afterId" to get the following page. null, if this is the last page.
+     */
+    private Long nextId;
+
+    public boolean isLastPage() {
+        return nextId == null;
+    }
+}
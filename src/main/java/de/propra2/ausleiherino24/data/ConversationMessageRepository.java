@@ -0,0 +1,18 @@
+package de.propra2.ausleiherino24.data;
+
+import de.propra2.ausleiherino24.model.ConversationMessage;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ConversationMessageRepository extends CrudRepository<ConversationMessage, Long> {
+
+    Optional<ConversationMessage> findByConversationIdAndSenderAndClientMessageId(
+            Long conversationId, String sender, String clientMessageId);
+
+    List<ConversationMessage> findAllByConversationIdAndIdGreaterThanOrderByIdAsc(
+            Long conversationId, Long afterId, Pageable pageable);
+}
@@ -0,0 +1,35 @@
+package de.propra2.ausleiherino24.data;
+
+import de.propra2.ausleiherino24.model.Conversation;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ConversationRepository extends CrudRepository<Conversation, Long> {
+
+    @EntityGraph(attributePaths = {"conversationCase.article.owner",
+            "conversationCase.receiver"})
+    Optional<Conversation> findByConversationCaseId(Long caseId);
+
+    /**
+     * Moves the acknowledgement of the owner forward. An older acknowledgement, which arrives
+     * late, does not move it back.
+     */
+    @Modifying
+    @Query("UPDATE Conversation c SET c.ownerAckedMessageId = :messageId "
+            + "WHERE c.id = :id AND c.ownerAckedMessageId < :messageId")
+    int acknowledgeByOwner(@Param("id") Long id, @Param("messageId") Long messageId);
+
+    /**
+     * Moves the acknowledgement of the receiver forward.
+     */
+    @Modifying
+    @Query("UPDATE Conversation c SET c.receiverAckedMessageId = :messageId "
+            + "WHERE c.id = :id AND c.receiverAckedMessageId < :messageId")
+    int acknowledgeByReceiver(@Param("id") Long id, @Param("messageId") Long messageId);
+}
@@ -2,6 +2,7 @@ package de.propra2.ausleiherino24.data;
 
 import de.propra2.ausleiherino24.model.CustomerReview;
 import java.util.List;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
@@ -10,5 +11,6 @@ import org.springframework.stereotype.Repository;
 public interface CustomerReviewRepository extends CrudRepository<CustomerReview, Long> {
 
     @NonNull
+    @EntityGraph(attributePaths = "acase.receiver")
     List<CustomerReview> findAll();
 }
@@ -0,0 +1,38 @@
+package de.propra2.ausleiherino24.data;
+
+import de.propra2.ausleiherino24.model.QueuedMail;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface QueuedMailRepository extends CrudRepository<QueuedMail, Long> {
+
+    /**
+     * Finds pending mails, which are due, oldest first.
+     */
+    @Query("SELECT m FROM QueuedMail m "
+            + "WHERE m.status = 1 "
+            + "AND m.nextAttemptAt <= :now "
+            + "ORDER BY m.id ASC")
+    List<QueuedMail> findDueMails(@Param("now") long now, Pageable pageable);
+
+    long countByStatus(int status);
+
+    /**
+     * Claims a due pending mail until leaseUntil. Of several instances polling the queue, only
+     * one claims the mail. If it dies while sending, the mail is due again after the lease.
+     *
+     * @return 1, if the mail was claimed. 0, if it is not pending, not due or claimed already.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE QueuedMail m SET m.nextAttemptAt = :leaseUntil "
+            + "WHERE m.id = :id AND m.status = 1 AND m.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") long now, @Param("leaseUntil") long leaseUntil);
+}
@@ -1,16 +1,17 @@
 package de.propra2.ausleiherino24.features.calendar;
 
 import de.propra2.ausleiherino24.data.CaseRepository;
-import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.data.CaseTimeSpan;
 import de.propra2.ausleiherino24.model.Case;
-import de.propra2.ausleiherino24.service.ArticleService;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * This service is needed to deliver the needed calendar events to the FullCalendar.
@@ -18,39 +19,48 @@ import org.springframework.stereotype.Service;
 @Service
 public class CalendarEventService {
 
+    /**
+     * Cases, whose rental period is shown as booked.
+     */
+    static final List<Integer> BOOKED_STATUSES = Arrays.asList(Case.REQUEST_ACCEPTED,
+            Case.RUNNING, Case.RUNNING_EMAILSENT, Case.OPEN_CONFLICT, Case.FINISHED);
+
     private final CaseRepository caseRepository;
-    private final ArticleService articleService;
 
     /**
      * Autowired all needed repositories and services.
      */
     @Autowired
-    public CalendarEventService(CaseRepository caseRepository, ArticleService articleService) {
+    public CalendarEventService(CaseRepository caseRepository) {
         this.caseRepository = caseRepository;
-        this.articleService = articleService;
-
     }
 
     /**
-     * Search all cases by article, then write them into a new CalendarEvent Object and return as
-     * arrayList. End day need to be set to a time greater than 0:0 because the calendar otherwise
-     * does not mark the last day.
+     * Returns the booked periods of an article within the visible window of the calendar. Only
+     * cases overlapping the window are read from the database, and overlapping or adjacent
+     * periods are merged into one event. End day need to be set to a time greater than 0:0
+     * because the calendar otherwise does not mark the last day.
+     *
+     * @param from first visible day
+     * @param to last visible day
      */
-    public List<CalendarEvent> getAllEventsFromOneArticle(final Long articleId) {
-        final Article article = articleService.findArticleById(articleId);
-        final List<Case> allCases = caseRepository.findAllByArticleWhereStatusIsGreater7(article);
-        final List<CalendarEvent> allCalendarEvents = new ArrayList<>();
-        DateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
-        for (final Case calendarCase : allCases) {
-            final CalendarEvent calendarEvent = new CalendarEvent();
-            Date start = new Date(calendarCase.getStartTime());
-            Date end = new Date(calendarCase.getEndTime());
-            calendarEvent.setStart(formatter.format(start));
-            ;
-            calendarEvent.setEnd(formatter.format(end) + "T23:59:59.008");
-            allCalendarEvents.add(calendarEvent);
+    @Transactional(readOnly = true)
+    public List<CalendarEvent> getEventsFromOneArticle(final Long articleId, final LocalDate from,
+            final LocalDate to) {
+        final ZoneId zone = ZoneId.systemDefault();
+        try (Stream<CaseTimeSpan> timeSpans = caseRepository
+                .streamTimeSpansByArticleAndRequestStatusesInWindow(articleId, BOOKED_STATUSES,
+                        from.atStartOfDay(zone).toInstant().toEpochMilli(),
+                        to.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1)) {
+            return ReservedPeriod.within(timeSpans, from, to, zone).stream()
+                    .map(period -> {
+                        final CalendarEvent calendarEvent = new CalendarEvent();
+                        calendarEvent.setStart(period.getStart().toString());
+                        calendarEvent.setEnd(period.getEnd() + "T23:59:59.008");
+                        return calendarEvent;
+                    })
+                    .collect(Collectors.toList());
         }
-        return allCalendarEvents;
     }
 
 }
@@ -0,0 +1,59 @@
+package de.propra2.ausleiherino24.features.calendar;
+
+import de.propra2.ausleiherino24.data.CaseTimeSpan;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Continuous range of days, in which an article is reserved. Both days are inclusive.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservedPeriod {
+
+    private LocalDate start;
+
+    private LocalDate end;
+
+    /**
+     * Converts time spans into the days they reserve within [from, to]. Overlapping and adjacent
+     * periods are merged and clipped to the window.
+     *
+     * @param timeSpans time spans ordered by start time
+     */
+    public static List<ReservedPeriod> within(final Stream<CaseTimeSpan> timeSpans,
+            final LocalDate from, final LocalDate to, final ZoneId zone) {
+        final List<ReservedPeriod> periods = new ArrayList<>();
+        timeSpans.forEachOrdered(timeSpan -> {
+            final LocalDate start = max(from, Instant.ofEpochMilli(timeSpan.getStartTime())
+                    .atZone(zone).toLocalDate());
+            final LocalDate end = min(to, Instant.ofEpochMilli(timeSpan.getEndTime())
+                    .atZone(zone).toLocalDate());
+            final ReservedPeriod last = periods.isEmpty() ? null
+                    : periods.get(periods.size() - 1);
+
+            if (last != null && !start.isAfter(last.getEnd().plusDays(1))) {
+                last.setEnd(max(last.getEnd(), end));
+            } else {
+                periods.add(new ReservedPeriod(start, end));
+            }
+        });
+        return periods;
+    }
+
+    private static LocalDate min(final LocalDate first, final LocalDate second) {
+        return first.isBefore(second) ? first : second;
+    }
+
+    private static LocalDate max(final LocalDate first, final LocalDate second) {
+        return first.isAfter(second) ? first : second;
+    }
+}
@@ -0,0 +1,82 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Message broker and send buffers of the chat. Without relay, every node has its own in-memory
+ * broker and users can only chat with users connected to the same node.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "chat")
+@EnableConfigurationProperties
+public class ChatConfig {
+
+    /**
+     * Relays subscriptions and messages to an external STOMP broker like RabbitMQ or ActiveMQ,
+     * which is shared by all nodes.
+     */
+    private boolean relayEnabled = false;
+
+    private String relayHost = "localhost";
+
+    private int relayPort = 61613;
+
+    /**
+     * Login of the connections opened for the chat clients.
+     */
+    private String relayClientLogin = "guest";
+
+    private String relayClientPasscode = "guest";
+
+    /**
+     * Login of the shared connection used to send messages from the server.
+     */
+    private String relaySystemLogin = "guest";
+
+    private String relaySystemPasscode = "guest";
+
+    /**
+     * Virtual host of the broker, may be empty.
+     */
+    private String relayVirtualHost;
+
+    /**
+     * Maximum size of a message from a client in bytes.
+     */
+    private int messageSizeLimit = 64 * 1024;
+
+    /**
+     * Maximum size of the messages buffered for one client in bytes.
+     */
+    private int sendBufferSizeLimit = 512 * 1024;
+
+    /**
+     * Maximum time to send one message to a client.
+     */
+    private int sendTimeLimitMillis = 10000;
+
+    /**
+     * What happens to a client, which does not keep up with its messages.
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.CLOSE;
+
+    /**
+     * Number of threads sending buffered messages with {@link OverflowPolicy#DROP}.
+     */
+    private int sendThreads = 8;
+
+    public enum OverflowPolicy {
+        /**
+         * The oldest buffered messages are dropped, the client stays connected.
+         */
+        DROP,
+        /**
+         * The session is closed, the client reconnects and fetches missed conversation messages.
+         */
+        CLOSE
+    }
+}
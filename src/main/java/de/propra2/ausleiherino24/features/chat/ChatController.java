@@ -1,8 +1,5 @@
 package de.propra2.ausleiherino24.features.chat;
 
-import de.propra2.ausleiherino24.model.User;
-import de.propra2.ausleiherino24.service.UserService;
-import java.security.Principal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -17,48 +14,42 @@ import org.springframework.web.servlet.ModelAndView;
 @Controller
 public class ChatController {
 
-    private final UserService userService;
+    private final ChatSenderCache senders;
     private final SimpMessagingTemplate simpMessagingTemplate;
 
     @Autowired
-    public ChatController(final UserService userService,
+    public ChatController(final ChatSenderCache senders,
             final SimpMessagingTemplate simpMessagingTemplate) {
-        this.userService = userService;
+        this.senders = senders;
         this.simpMessagingTemplate = simpMessagingTemplate;
     }
 
     /**
      * sends a chat message.
      *
-     * @param principal user that sends the message
+     * @param headerAccessor SimpleMessageHeaderAccessor of the sender
      * @param chatMessage message that is send
      */
     @MessageMapping("/chat.sendMessage")
     @SendTo("/topic/public")
     public ChatMessage sendMessage(final @Payload ChatMessage chatMessage,
-            final Principal principal) {
-        final User user = userService.findUserByPrincipal(principal);
-        chatMessage.setSender(user.getUsername());
+            final SimpMessageHeaderAccessor headerAccessor) {
+        chatMessage.setSender(senders.senderOf(headerAccessor));
         return chatMessage;
     }
 
     /**
      * adds user to chat.
      *
-     * @param principal user which should be added to chat
      * @param headerAccessor SimpleMessageHeaderAccessor
      * @param chatMessage chat message
      */
     @MessageMapping("/chat.addUser")
     @SendTo("/topic/public")
     public ChatMessage addUser(final @Payload ChatMessage chatMessage,
-            final SimpMessageHeaderAccessor headerAccessor,
-            final Principal principal) {
-        // Add username in web socket session
-        final User user = userService.findUserByPrincipal(principal);
-
-        headerAccessor.getSessionAttributes().put("username", user.getUsername());
-        chatMessage.setSender(user.getUsername());
+            final SimpMessageHeaderAccessor headerAccessor) {
+        // username is kept in web socket session
+        chatMessage.setSender(senders.senderOf(headerAccessor));
         return chatMessage;
     }
 
@@ -77,16 +68,16 @@ public class ChatController {
     /**
      * user chat.
      *
-     * @param principal sender of the message
+     * @param headerAccessor SimpleMessageHeaderAccessor of the sender
      * @param msg message that should be send
      */
     @MessageMapping("/chat.privateMessage")
-    public void sendSpecific(final @Payload ChatMessage msg, final Principal principal) {
-        final User user = userService.findUserByPrincipal(principal);
-        msg.setSender(user.getUsername());
+    public void sendSpecific(final @Payload ChatMessage msg,
+            final SimpMessageHeaderAccessor headerAccessor) {
+        msg.setSender(senders.senderOf(headerAccessor));
 
         simpMessagingTemplate.convertAndSendToUser(
-                msg.getReceiver(), "/user/queue/specific-user", msg);
+                msg.getReceiver(), "/queue/specific-user", msg);
     }
 
 }
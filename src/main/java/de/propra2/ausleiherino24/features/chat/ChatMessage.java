@@ -11,6 +11,21 @@ public class ChatMessage {
     private String receiver;
     private String timestamp;
 
+    /**
+     * Case of the conversation, only for messages of a conversation.
+     */
+    private Long caseId;
+
+    /**
+     * Id of the saved message. Acknowledged by the client, when it has received the message.
+     */
+    private Long messageId;
+
+    /**
+     * Id given by the sender, which is sent back with the saved message.
+     */
+    private String clientMessageId;
+
     public enum MessageType {
         CHAT,
         JOIN,
@@ -0,0 +1,48 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+/**
+ * Gives every web socket session a {@link DroppingWebSocketSession}, which is sent by a shared
+ * pool of threads.
+ */
+@Component
+public class ChatSendBuffers {
+
+    private final ChatConfig config;
+    private final ExecutorService senders;
+
+    @Autowired
+    public ChatSendBuffers(final ChatConfig config) {
+        this.config = config;
+        this.senders = Executors.newFixedThreadPool(config.getSendThreads(),
+                new CustomizableThreadFactory("chat-send-"));
+    }
+
+    /**
+     * Decorates the handler of the web socket endpoint, so that it sends to buffered sessions.
+     */
+    public WebSocketHandler decorate(final WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(final WebSocketSession session)
+                    throws Exception {
+                super.afterConnectionEstablished(new DroppingWebSocketSession(session,
+                        config.getSendBufferSizeLimit(), senders));
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdown();
+    }
+}
@@ -0,0 +1,48 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import de.propra2.ausleiherino24.service.UserService;
+import java.security.Principal;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+
+/**
+ * Keeps the username of the sender in the attributes of the web socket session. The user is
+ * looked up once when the session is connected, so sending a message does not need the database.
+ */
+@Component
+public class ChatSenderCache {
+
+    static final String SENDER = "username";
+
+    private final UserService userService;
+
+    @Autowired
+    public ChatSenderCache(final UserService userService) {
+        this.userService = userService;
+    }
+
+    @EventListener
+    public void onConnect(final SessionConnectEvent event) {
+        senderOf(SimpMessageHeaderAccessor.wrap(event.getMessage()));
+    }
+
+    /**
+     * Username of the sender of a message. Only looked up, if the session has no username yet.
+     */
+    public String senderOf(final SimpMessageHeaderAccessor headerAccessor) {
+        final Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+        if (attributes == null) {
+            return lookUp(headerAccessor.getUser());
+        }
+        return (String) attributes
+                .computeIfAbsent(SENDER, key -> lookUp(headerAccessor.getUser()));
+    }
+
+    private String lookUp(final Principal principal) {
+        return userService.findUserByPrincipal(principal).getUsername();
+    }
+}
@@ -0,0 +1,123 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import de.propra2.ausleiherino24.model.Conversation;
+import de.propra2.ausleiherino24.model.ConversationMessage;
+import java.nio.file.AccessDeniedException;
+import java.security.Principal;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Private chat between owner and receiver of a case.
+ *
+ * <p>A sent message is saved and delivered to both participants on
+ * /user/queue/conversation, so that the sender receives it as acknowledgement together with its
+ * client message id. Clients acknowledge received messages. After a reconnect, they fetch the
+ * messages they have not acknowledged yet.
+ */
+@Controller
+public class ConversationController {
+
+    static final String CONVERSATION_QUEUE = "/queue/conversation";
+
+    private final ConversationService conversationService;
+    private final ChatSenderCache senders;
+    private final SimpMessagingTemplate simpMessagingTemplate;
+
+    /**
+     * Autowired constructor.
+     */
+    @Autowired
+    public ConversationController(final ConversationService conversationService,
+            final ChatSenderCache senders, final SimpMessagingTemplate simpMessagingTemplate) {
+        this.conversationService = conversationService;
+        this.senders = senders;
+        this.simpMessagingTemplate = simpMessagingTemplate;
+    }
+
+    /**
+     * Saves a message of a conversation and sends it to both participants.
+     *
+     * @param msg message with caseId and clientMessageId
+     * @param headerAccessor SimpleMessageHeaderAccessor of the sender
+     */
+    @MessageMapping("/conversation.send")
+    public void send(final @Payload ChatMessage msg,
+            final SimpMessageHeaderAccessor headerAccessor) throws AccessDeniedException {
+        final String sender = senders.senderOf(headerAccessor);
+        final Conversation conversation = conversationService
+                .findConversation(msg.getCaseId(), sender);
+        final ChatMessage saved = toChatMessage(msg.getCaseId(), conversationService
+                .post(conversation, sender, msg.getClientMessageId(), msg.getContent()));
+
+        simpMessagingTemplate.convertAndSendToUser(
+                conversation.getOwnerUsername(), CONVERSATION_QUEUE, saved);
+        simpMessagingTemplate.convertAndSendToUser(
+                conversation.getReceiverUsername(), CONVERSATION_QUEUE, saved);
+    }
+
+    /**
+     * Acknowledges all messages of a conversation up to the given one.
+     *
+     * @param msg message with caseId and messageId
+     * @param headerAccessor SimpleMessageHeaderAccessor of the receiver
+     */
+    @MessageMapping("/conversation.ack")
+    public void acknowledge(final @Payload ChatMessage msg,
+            final SimpMessageHeaderAccessor headerAccessor) throws AccessDeniedException {
+        conversationService.acknowledge(msg.getCaseId(), senders.senderOf(headerAccessor),
+                msg.getMessageId());
+    }
+
+    @MessageExceptionHandler(AccessDeniedException.class)
+    @SendToUser("/queue/errors")
+    public String handleAccessDenied(final AccessDeniedException exception) {
+        return exception.getMessage();
+    }
+
+    /**
+     * Messages of a conversation, which the user has not acknowledged yet or which follow the
+     * given message.
+     *
+     * @param caseId case of the conversation
+     * @param after id of the last message the client has
+     */
+    @GetMapping("/conversations/{caseId}/messages")
+    @ResponseBody
+    public List<ChatMessage> messages(final @PathVariable Long caseId,
+            final @RequestParam(required = false) Long after, final Principal principal) {
+        try {
+            return conversationService.findMessagesAfter(caseId, principal.getName(), after)
+                    .stream().map(message -> toChatMessage(caseId, message))
+                    .collect(Collectors.toList());
+        } catch (AccessDeniedException e) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, e.getMessage());
+        }
+    }
+
+    private ChatMessage toChatMessage(final Long caseId, final ConversationMessage message) {
+        final ChatMessage chatMessage = new ChatMessage();
+        chatMessage.setType(ChatMessage.MessageType.CHAT);
+        chatMessage.setCaseId(caseId);
+        chatMessage.setMessageId(message.getId());
+        chatMessage.setClientMessageId(message.getClientMessageId());
+        chatMessage.setSender(message.getSender());
+        chatMessage.setContent(message.getContent());
+        chatMessage.setTimestamp(String.valueOf(message.getTimestamp()));
+        return chatMessage;
+    }
+}
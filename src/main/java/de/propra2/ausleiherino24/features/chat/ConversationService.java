@@ -0,0 +1,123 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import de.propra2.ausleiherino24.data.ConversationMessageRepository;
+import de.propra2.ausleiherino24.data.ConversationRepository;
+import de.propra2.ausleiherino24.model.Conversation;
+import de.propra2.ausleiherino24.model.ConversationMessage;
+import de.propra2.ausleiherino24.service.CaseService;
+import java.nio.file.AccessDeniedException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Conversations between owner and receiver of a case.
+ */
+@Service
+public class ConversationService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConversationService.class);
+
+    /**
+     * Maximum number of messages returned at once for a client, which catches up.
+     */
+    static final int HISTORY_PAGE_SIZE = 100;
+
+    private final ConversationRepository conversations;
+    private final ConversationMessageRepository messages;
+    private final CaseService caseService;
+
+    /**
+     * Autowired constructor.
+     */
+    @Autowired
+    public ConversationService(final ConversationRepository conversations,
+            final ConversationMessageRepository messages, final CaseService caseService) {
+        this.conversations = conversations;
+        this.messages = messages;
+        this.caseService = caseService;
+    }
+
+    /**
+     * Finds the conversation of a case and creates it, if there is none yet.
+     *
+     * @throws AccessDeniedException if the user is neither owner nor receiver of the case
+     */
+    public Conversation findConversation(final Long caseId, final String username)
+            throws AccessDeniedException {
+        final Conversation conversation = conversations.findByConversationCaseId(caseId)
+                .orElseGet(() -> createConversation(caseId));
+        if (!conversation.isParticipant(username)) {
+            throw new AccessDeniedException("No participant of the conversation of case "
+                    + caseId);
+        }
+        return conversation;
+    }
+
+    /**
+     * Saves a message. If the client sends a message again, because the acknowledgement got
+     * lost, the saved message is returned.
+     */
+    public ConversationMessage post(final Conversation conversation, final String sender,
+            final String clientMessageId, final String content) {
+        if (clientMessageId != null) {
+            final Optional<ConversationMessage> saved = messages
+                    .findByConversationIdAndSenderAndClientMessageId(conversation.getId(), sender,
+                            clientMessageId);
+            if (saved.isPresent()) {
+                return saved.get();
+            }
+        }
+        return messages.save(new ConversationMessage(conversation.getId(), sender,
+                clientMessageId, content, System.currentTimeMillis()));
+    }
+
+    /**
+     * Remembers, that the user has received all messages up to the given one.
+     */
+    @Transactional
+    public void acknowledge(final Long caseId, final String username, final Long messageId)
+            throws AccessDeniedException {
+        final Conversation conversation = findConversation(caseId, username);
+        if (conversation.getOwnerUsername().equals(username)) {
+            conversations.acknowledgeByOwner(conversation.getId(), messageId);
+        } else {
+            conversations.acknowledgeByReceiver(conversation.getId(), messageId);
+        }
+    }
+
+    /**
+     * Messages after the given one. Without a message, the messages the user has not acknowledged
+     * yet are returned.
+     */
+    public List<ConversationMessage> findMessagesAfter(final Long caseId, final String username,
+            final Long afterId) throws AccessDeniedException {
+        final Conversation conversation = findConversation(caseId, username);
+        Long after = afterId;
+        if (after == null) {
+            after = conversation.getOwnerUsername().equals(username)
+                    ? conversation.getOwnerAckedMessageId()
+                    : conversation.getReceiverAckedMessageId();
+        }
+        return messages.findAllByConversationIdAndIdGreaterThanOrderByIdAsc(
+                conversation.getId(), after, PageRequest.of(0, HISTORY_PAGE_SIZE));
+    }
+
+    private Conversation createConversation(final Long caseId) {
+        try {
+            conversations.save(new Conversation(caseService.findCaseById(caseId)));
+        } catch (DataIntegrityViolationException e) {
+            LOGGER.debug("Conversation of case {} was created concurrently.", caseId);
+        }
+        // loaded again with owner and receiver, messages are not sent within a session
+        return conversations.findByConversationCaseId(caseId)
+                .orElseThrow(NoSuchElementException::new);
+    }
+}
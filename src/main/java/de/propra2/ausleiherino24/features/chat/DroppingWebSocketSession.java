@@ -0,0 +1,107 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+/**
+ * Sends the messages of a session from a bounded buffer. Sending returns at once, so a slow
+ * client does not block the broker threads. When the buffer is full, the oldest messages are
+ * dropped. A session gives its thread to other sessions after a few messages, so that the
+ * messages of other sessions are not held back until a slow client has received its buffer.
+ */
+class DroppingWebSocketSession extends WebSocketSessionDecorator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DroppingWebSocketSession.class);
+
+    /**
+     * Messages sent by one task, before the thread is handed to the next session.
+     */
+    static final int MESSAGES_PER_FLUSH = 16;
+
+    private final int bufferSizeLimit;
+    private final Executor executor;
+
+    private final Deque<WebSocketMessage<?>> buffer = new ArrayDeque<>();
+    private int bufferSize;
+    private boolean flushing;
+    private long dropped;
+
+    DroppingWebSocketSession(final WebSocketSession delegate, final int bufferSizeLimit,
+            final Executor executor) {
+        super(delegate);
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.executor = executor;
+    }
+
+    @Override
+    public void sendMessage(final WebSocketMessage<?> message) {
+        synchronized (buffer) {
+            buffer.add(message);
+            bufferSize += message.getPayloadLength();
+            while (bufferSize > bufferSizeLimit && buffer.size() > 1) {
+                bufferSize -= buffer.poll().getPayloadLength();
+                dropped++;
+            }
+            if (flushing) {
+                return;
+            }
+            flushing = true;
+        }
+        executor.execute(this::flush);
+    }
+
+    int getBufferSize() {
+        synchronized (buffer) {
+            return bufferSize;
+        }
+    }
+
+    long getDropped() {
+        synchronized (buffer) {
+            return dropped;
+        }
+    }
+
+    private void flush() {
+        for (int sent = 0; ; sent++) {
+            final WebSocketMessage<?> message;
+            synchronized (buffer) {
+                if (buffer.isEmpty()) {
+                    flushing = false;
+                    return;
+                }
+                if (sent == MESSAGES_PER_FLUSH) {
+                    break;
+                }
+                message = buffer.poll();
+                bufferSize -= message.getPayloadLength();
+            }
+
+            try {
+                if (getDelegate().isOpen()) {
+                    getDelegate().sendMessage(message);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.debug("Closing session {} after failed send: {}", getId(), e.getMessage());
+                closeQuietly();
+            }
+        }
+        executor.execute(this::flush);
+    }
+
+    private void closeQuietly() {
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            LOGGER.debug("Could not close session {}.", getId(), e);
+        }
+    }
+}
@@ -1,24 +1,67 @@
 package de.propra2.ausleiherino24.features.chat;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final ChatConfig config;
+    private final ChatSendBuffers sendBuffers;
+
+    @Autowired
+    public WebSocketConfig(final ChatConfig config, final ChatSendBuffers sendBuffers) {
+        this.config = config;
+        this.sendBuffers = sendBuffers;
+    }
+
     @Override
     public void registerStompEndpoints(final StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").withSockJS();
     }
 
+    /**
+     * Uses the in-memory broker or relays to the broker shared by all nodes. With the relay,
+     * messages to users connected to other nodes are resolved by broadcasting them and the
+     * connected users of all nodes.
+     */
     @Override
     public void configureMessageBroker(final MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/user/queue/specific-user");
+        if (config.isRelayEnabled()) {
+            registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(config.getRelayHost())
+                    .setRelayPort(config.getRelayPort())
+                    .setClientLogin(config.getRelayClientLogin())
+                    .setClientPasscode(config.getRelayClientPasscode())
+                    .setSystemLogin(config.getRelaySystemLogin())
+                    .setSystemPasscode(config.getRelaySystemPasscode())
+                    .setVirtualHost(config.getRelayVirtualHost())
+                    .setUserDestinationBroadcast("/topic/unresolved-user")
+                    .setUserRegistryBroadcast("/topic/user-registry");
+        } else {
+            registry.enableSimpleBroker("/topic", "/queue");
+        }
         registry.setUserDestinationPrefix("/user");
     }
-}
 
+    /**
+     * Limits the messages buffered for a slow client. By default the session is closed, when
+     * the limits are exceeded. With {@link ChatConfig.OverflowPolicy#DROP}, the oldest messages
+     * are dropped instead.
+     */
+    @Override
+    public void configureWebSocketTransport(final WebSocketTransportRegistration registration) {
+        registration.setMessageSizeLimit(config.getMessageSizeLimit())
+                .setSendBufferSizeLimit(config.getSendBufferSizeLimit())
+                .setSendTimeLimit(config.getSendTimeLimitMillis());
+        if (config.getOverflowPolicy() == ChatConfig.OverflowPolicy.DROP) {
+            registration.addDecoratorFactory(sendBuffers::decorate);
+        }
+    }
+}
@@ -2,50 +2,159 @@ package de.propra2.ausleiherino24.features.email;
 
 import de.propra2.ausleiherino24.data.CaseRepository;
 import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.service.CaseStateMachine;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Reminds receivers one day before the end of a running case.
+ *
+ * <p>Instead of polling, the reminder sleeps until the next reminder is due. The due time is
+ * derived from the earliest end time of all running cases, which is read with the index on
+ * (requestStatus, endTime). Which reminders were sent is stored in the request status, so after a
+ * restart the first run sends all reminders still due and schedules the next one. A reminder is
+ * queued in the transaction, which stores its status, so it is queued exactly once.
+ */
 @Service
 public class CaseEndTimeReminder {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CaseEndTimeReminder.class);
+
     private static final Long ONE_DAY = 1L;
+
+    /**
+     * Cases may become running while the reminder sleeps, so it wakes up at least this often.
+     */
+    static final long MAX_SLEEP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * A failed run is repeated after this delay, so that one failure doesn't stop the reminders.
+     */
+    static final long RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
     private final CaseRepository cases;
     private final EmailSender emailSender;
+    private final TaskScheduler taskScheduler;
+    private final CaseStateMachine caseStateMachine;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+
+    private ScheduledFuture<?> nextRun;
 
     @Autowired
-    public CaseEndTimeReminder(final CaseRepository cases, final EmailSender emailSender) {
+    public CaseEndTimeReminder(final CaseRepository cases, final EmailSender emailSender,
+            @Qualifier("reminderTaskScheduler") final TaskScheduler taskScheduler,
+            final CaseStateMachine caseStateMachine,
+            final PlatformTransactionManager transactionManager) {
+        this(cases, emailSender, taskScheduler, caseStateMachine, transactionManager,
+                Clock.systemDefaultZone());
+    }
+
+    CaseEndTimeReminder(final CaseRepository cases, final EmailSender emailSender,
+            final TaskScheduler taskScheduler, final CaseStateMachine caseStateMachine,
+            final PlatformTransactionManager transactionManager, final Clock clock) {
         this.cases = cases;
         this.emailSender = emailSender;
+        this.taskScheduler = taskScheduler;
+        this.caseStateMachine = caseStateMachine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
     }
 
-    @Scheduled(fixedDelay = 5000, initialDelay = 20000)
-    void getRunningCasesOneDayBeforeEndTime() {
-        final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
-        final LocalDateTime currentTime = LocalDate
-                .parse(LocalDateTime.now().format(formatter), formatter).atStartOfDay();
-        final List<Case> activeCases = cases.findAll()
-                .stream()
-                .filter(c -> c.getRequestStatus() == Case.RUNNING)
-                .filter(c -> LocalDate.parse(c.getFormattedEndTime(), formatter).atStartOfDay()
-                        .isEqual(currentTime.plusDays(CaseEndTimeReminder.ONE_DAY)))
-                .collect(Collectors.toList());
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        getRunningCasesOneDayBeforeEndTime();
+    }
+
+    /**
+     * Sends the reminders for all running cases, which end tomorrow, and schedules the next run.
+     * If this fails, the next run is scheduled after {@link #RETRY_DELAY_MILLIS}.
+     */
+    synchronized void getRunningCasesOneDayBeforeEndTime() {
+        long nextDueTime = clock.millis() + RETRY_DELAY_MILLIS;
+        try {
+            final LocalDate today = LocalDate.now(clock);
+            final long tomorrow = startOfDay(today.plusDays(ONE_DAY));
+            final long dayAfterTomorrow = startOfDay(today.plusDays(ONE_DAY + 1));
+
+            final List<Case> activeCases = cases.findAllByRequestStatusAndEndTimeInRange(
+                    Case.RUNNING, tomorrow, dayAfterTomorrow);
+            sendRemindingEmail(activeCases);
 
-        sendRemindingEmail(activeCases);
+            final Long nextEndTime = cases.findNextEndTime(Case.RUNNING, dayAfterTomorrow);
+            nextDueTime = nextEndTime == null ? Long.MAX_VALUE : dueTime(nextEndTime);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Sending end time reminders failed, retrying in {} ms.",
+                    RETRY_DELAY_MILLIS, e);
+        } finally {
+            schedule(nextDueTime);
+        }
+    }
+
+    /**
+     * Schedules the next run at the given time, but not later than {@link #MAX_SLEEP_MILLIS}.
+     */
+    private void schedule(final long dueTime) {
+        final long now = clock.millis();
+        final long runAt = Math.max(now, Math.min(dueTime, now + MAX_SLEEP_MILLIS));
+        if (nextRun != null) {
+            nextRun.cancel(false);
+        }
+
+        nextRun = taskScheduler.schedule(this::getRunningCasesOneDayBeforeEndTime,
+                new Date(runAt));
+        LOGGER.debug("Next end time reminder at {}.", Instant.ofEpochMilli(runAt));
+    }
+
+    /**
+     * Start of the day before the day the case ends.
+     */
+    private long dueTime(final long endTime) {
+        final LocalDate endDay = Instant.ofEpochMilli(endTime).atZone(clock.getZone())
+                .toLocalDate();
+        return startOfDay(endDay.minusDays(ONE_DAY));
+    }
+
+    private long startOfDay(final LocalDate day) {
+        return day.atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
     }
 
     private void sendRemindingEmail(final List<Case> activeCases) {
-        emailSender.configureMailSender();
-        activeCases.forEach(c -> {
-            emailSender.sendRemindingEmail(c);
-            c.setRequestStatus(Case.RUNNING_EMAILSENT);
-            cases.save(c);
-        });
+        activeCases.forEach(this::remind);
+    }
+
+    /**
+     * Marks the reminder of the case as sent and queues it in one transaction. If the case was
+     * changed meanwhile, e.g. returned, neither happens.
+     */
+    private void remind(final Case activeCase) {
+        try {
+            transactionTemplate.execute(status -> {
+                caseStateMachine.transition(activeCase, Case.RUNNING_EMAILSENT);
+                cases.save(activeCase);
+                emailSender.sendRemindingEmails(Collections.singletonList(activeCase));
+                return null;
+            });
+        } catch (OptimisticLockingFailureException e) {
+            LOGGER.debug("Case {} was changed while its reminder was sent.", activeCase.getId());
+        }
     }
 
 }
@@ -1,34 +1,48 @@
 package de.propra2.ausleiherino24.features.email;
 
+import de.propra2.ausleiherino24.data.QueuedMailRepository;
 import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.Conflict;
+import de.propra2.ausleiherino24.model.QueuedMail;
 import de.propra2.ausleiherino24.model.User;
-import java.util.Properties;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.stereotype.Component;
 
+/**
+ * Puts mails into the queue, from which they are delivered by the {@link MailDeliveryWorker}.
+ * Every mail is a new message created from an immutable template, so mails can be sent from
+ * several threads at once.
+ */
 @Component
 public class EmailSender {
 
+    private static final String SERVICE_ADDRESS = "ausleiherino24@gmail.com";
+
+    private static final MailTemplate CONFLICT = new MailTemplate(
+            "Conflicting Case id: {0}",
+            "{1}. | Email sent from: {2}. | Other participant: {3}");
+
+    private static final MailTemplate REMINDER = new MailTemplate(
+            "Reminder: Article: {0} has to be returned tomorrow!",
+            "Please do not forget to return the article on time!");
+
     private final EmailConfig config;
-    private final JavaMailSenderImpl mailSender;
-    private final SimpleMailMessage message;
+    private final QueuedMailRepository mails;
 
     /**
      * Autowired constructor.
      */
     @Autowired
-    public EmailSender(final EmailConfig config, final JavaMailSenderImpl mailSender,
-            final SimpleMailMessage message) {
+    public EmailSender(final EmailConfig config, final QueuedMailRepository mails) {
         this.config = config;
-        this.mailSender = mailSender;
-        this.message = message;
+        this.mails = mails;
     }
 
     /**
-     * Sends an email to the ConflictReporter.
+     * Queues an email to the ConflictReporter.
      */
     public void sendConflictEmail(final Conflict conflict) {
         final User reporter = conflict.getOwner();
@@ -36,38 +50,26 @@ public class EmailSender {
         //GMail does not allow arbitrary from Address
         // therefore we specify the Email-sender in the Email-Body
         //MailTrap does allow arbitrary from Address
-        message.setFrom(reporter.getEmail());
-        message.setTo(
-                "ausleiherino24@gmail.com");
         // FakeEmail -> does not matter what goes in here when using MailTrap
-        message.setSubject("Conflicting Case id: " + conflict.getConflictedCase().getId());
-        message.setText(String.format("%s. | Email sent from: %s. | Other participant: %s",
-                conflict.getConflictDescription(), reporter.getEmail(), reported.getEmail()));
-
-        mailSender.send(message);
+        mails.save(queued(CONFLICT.create(reporter.getEmail(), SERVICE_ADDRESS,
+                conflict.getConflictedCase().getId(), conflict.getConflictDescription(),
+                reporter.getEmail(), reported.getEmail())));
     }
 
-    void sendRemindingEmail(final Case thisCase) {
-        message.setFrom("ausleiherino24@gmail.com");
-        message.setTo(thisCase.getReceiver().getEmail());
-        message.setSubject(
-                "Reminder: Article: " + thisCase.getArticle().getName()
-                        + " has to be returned tomorrow!");
-        message.setText("Please do not forget to return the article on time!");
+    /**
+     * Queues the reminders of several cases at once. The delivery worker sends them together over
+     * one SMTP connection.
+     */
+    void sendRemindingEmails(final List<Case> cases) {
+        mails.saveAll(cases.stream().map(c -> queued(reminder(c))).collect(Collectors.toList()));
+    }
 
-        mailSender.send(message);
+    private SimpleMailMessage reminder(final Case thisCase) {
+        return REMINDER.create(SERVICE_ADDRESS, thisCase.getReceiver().getEmail(),
+                thisCase.getArticle().getName());
     }
 
-    /**
-     * configures the mailSender.
-     */
-    public void configureMailSender() {
-        final Properties properties = new Properties();
-        properties.putAll(config.getProperties());
-        mailSender.setHost(config.getHost());
-        mailSender.setPort(config.getPort());
-        mailSender.setUsername(config.getUsername());
-        mailSender.setPassword(config.getPassword());
-        mailSender.setJavaMailProperties(properties);
+    private QueuedMail queued(final SimpleMailMessage message) {
+        return new QueuedMail(config.getHost(), message, System.currentTimeMillis());
     }
 }
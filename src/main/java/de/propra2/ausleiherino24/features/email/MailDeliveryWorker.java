@@ -0,0 +1,214 @@
+package de.propra2.ausleiherino24.features.email;
+
+import de.propra2.ausleiherino24.data.QueuedMailRepository;
+import de.propra2.ausleiherino24.model.QueuedMail;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.SendFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delivers the mails of the queue with a pool of worker threads.
+ *
+ * <ul>
+ * <li>Up to {@code mailsPerSession} mails are sent over one SMTP connection.</li>
+ * <li>Every mail is claimed in the database before it is sent, so that several instances can
+ * poll the same queue without sending a mail twice.</li>
+ * <li>Every provider has a token bucket, so that rate limited providers are not flooded.
+ * Mails without a token stay in the queue until the next poll. The buckets are kept per
+ * instance, so the configured rate is divided by the number of instances.</li>
+ * <li>Failed mails are retried with exponential backoff, until the maximum number of attempts is
+ * reached. Mails rejected by the server, e.g. for an invalid address, are not retried.</li>
+ * </ul>
+ */
+@Component
+public class MailDeliveryWorker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MailDeliveryWorker.class);
+
+    private final QueuedMailRepository mails;
+    private final EmailConfig emailConfig;
+    private final JavaMailSenderImpl mailSender;
+    private final MailQueueConfig config;
+    private final ExecutorService workers;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Ids of mails, which are currently sent by a worker of this instance.
+     */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Autowired constructor.
+     */
+    @Autowired
+    public MailDeliveryWorker(final QueuedMailRepository mails, final EmailConfig emailConfig,
+            final JavaMailSenderImpl mailSender, final MailQueueConfig config) {
+        this.mails = mails;
+        this.emailConfig = emailConfig;
+        this.mailSender = mailSender;
+        this.config = config;
+        this.workers = Executors.newFixedThreadPool(config.getWorkers(),
+                new CustomizableThreadFactory("mail-delivery-"));
+    }
+
+    /**
+     * configures the mailSender.
+     */
+    @PostConstruct
+    public void configureMailSender() {
+        final Properties properties = new Properties();
+        if (emailConfig.getProperties() != null) {
+            properties.putAll(emailConfig.getProperties());
+        }
+        mailSender.setHost(emailConfig.getHost());
+        if (emailConfig.getPort() != null) {
+            mailSender.setPort(emailConfig.getPort());
+        }
+        mailSender.setUsername(emailConfig.getUsername());
+        mailSender.setPassword(emailConfig.getPassword());
+        mailSender.setJavaMailProperties(properties);
+    }
+
+    /**
+     * Hands all due mails, for which the rate limit of their provider allows it, to the workers.
+     */
+    @Scheduled(fixedDelayString = "${mailqueue.pollMillis:1000}")
+    public void drain() {
+        final Map<String, List<QueuedMail>> dueByProvider = new LinkedHashMap<>();
+        for (final QueuedMail mail : mails.findDueMails(System.currentTimeMillis(),
+                PageRequest.of(0, config.getBatchSize()))) {
+            if (!inFlight.contains(mail.getId())) {
+                dueByProvider.computeIfAbsent(mail.getProvider(), p -> new ArrayList<>())
+                        .add(mail);
+            }
+        }
+
+        dueByProvider.forEach((provider, dueMails) -> {
+            final int granted = bucket(provider).tryAcquire(dueMails.size(), System.nanoTime());
+            for (int from = 0; from < granted; from += config.getMailsPerSession()) {
+                final List<QueuedMail> session = new ArrayList<>(dueMails
+                        .subList(from, Math.min(granted, from + config.getMailsPerSession())));
+                session.forEach(mail -> inFlight.add(mail.getId()));
+                workers.execute(() -> {
+                    try {
+                        final List<QueuedMail> claimed = claim(session);
+                        if (!claimed.isEmpty()) {
+                            deliver(claimed);
+                        }
+                    } finally {
+                        session.forEach(mail -> inFlight.remove(mail.getId()));
+                    }
+                });
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Claims the mails of a session. Mails claimed by another instance in the meantime are
+     * skipped.
+     */
+    private List<QueuedMail> claim(final List<QueuedMail> session) {
+        final long now = System.currentTimeMillis();
+        return session.stream()
+                .filter(mail -> mails.claim(mail.getId(), now, now + config.getLeaseMillis()) == 1)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Sends the given mails over one connection and records the outcome of every mail.
+     */
+    void deliver(final List<QueuedMail> session) {
+        final Map<Object, QueuedMail> byMessage = new IdentityHashMap<>();
+        final SimpleMailMessage[] messages = new SimpleMailMessage[session.size()];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = session.get(i).toMessage();
+            byMessage.put(messages[i], session.get(i));
+        }
+
+        try {
+            mailSender.send(messages);
+            session.forEach(mail -> mail.setStatus(QueuedMail.SENT));
+        } catch (MailSendException e) {
+            session.forEach(mail -> mail.setStatus(QueuedMail.SENT));
+            if (e.getFailedMessages().isEmpty()) {
+                session.forEach(mail -> retryLater(mail, e));
+            }
+            e.getFailedMessages().forEach((message, cause) -> {
+                final QueuedMail mail = byMessage.get(message);
+                if (mail != null) {
+                    if (cause instanceof SendFailedException) {
+                        fail(mail, cause);
+                    } else {
+                        retryLater(mail, cause);
+                    }
+                }
+            });
+        } catch (MailException e) {
+            session.forEach(mail -> retryLater(mail, e));
+        }
+
+        mails.saveAll(session);
+    }
+
+    private void fail(final QueuedMail mail, final Exception cause) {
+        LOGGER.warn("Mail {} to {} was rejected: {}", mail.getId(), mail.getRecipient(),
+                cause.getMessage());
+        mail.setStatus(QueuedMail.FAILED);
+        mail.setLastError(cause.getMessage());
+    }
+
+    private void retryLater(final QueuedMail mail, final Exception cause) {
+        mail.setAttempts(mail.getAttempts() + 1);
+        if (mail.getAttempts() >= config.getMaxAttempts()) {
+            LOGGER.error("Giving up mail {} after {} attempts.", mail.getId(), mail.getAttempts(),
+                    cause);
+            mail.setStatus(QueuedMail.FAILED);
+        } else {
+            LOGGER.warn("Mail {} failed, retrying later: {}", mail.getId(), cause.getMessage());
+            mail.setStatus(QueuedMail.PENDING);
+            mail.setNextAttemptAt(System.currentTimeMillis() + backoffMillis(mail.getAttempts()));
+        }
+        mail.setLastError(cause.getMessage());
+    }
+
+    /**
+     * Delay before the next attempt. Doubled for every failed attempt up to the maximum.
+     */
+    long backoffMillis(final int attempts) {
+        final int exponent = Math.min(attempts - 1, 30);
+        return Math.min(config.getMaxBackoffMillis(),
+                config.getInitialBackoffMillis() << exponent);
+    }
+
+    private TokenBucket bucket(final String provider) {
+        return buckets.computeIfAbsent(String.valueOf(provider), p -> new TokenBucket(
+                config.getBurstPerInstance(), config.getRatePerSecond(p), System.nanoTime()));
+    }
+}
@@ -0,0 +1,91 @@
+package de.propra2.ausleiherino24.features.email;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the delivery of queued mails.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mailqueue")
+@EnableConfigurationProperties
+public class MailQueueConfig {
+
+    /**
+     * Pause between two polls of the queue for due mails.
+     */
+    private long pollMillis = 1000;
+
+    /**
+     * Number of threads sending mails.
+     */
+    private int workers = 2;
+
+    /**
+     * Maximum number of mails fetched by one poll.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Maximum number of mails sent over one SMTP connection.
+     */
+    private int mailsPerSession = 20;
+
+    /**
+     * Mails per second, which may be sent to a provider without its own limit.
+     */
+    private double defaultRatePerSecond = 5;
+
+    /**
+     * Mails per second per SMTP host, e.g. 0.4 for smtp.mailtrap.io.
+     */
+    private Map<String, Double> ratePerSecond = new HashMap<>();
+
+    /**
+     * Number of mails, which may be sent at once after a pause.
+     */
+    private int burst = 10;
+
+    /**
+     * Number of attempts, after which a mail is marked as failed.
+     */
+    private int maxAttempts = 8;
+
+    /**
+     * Delay before the first retry. It is doubled for every further attempt.
+     */
+    private long initialBackoffMillis = 5000;
+
+    private long maxBackoffMillis = 3600000;
+
+    /**
+     * Time an instance may take to send a claimed mail. Afterwards, the mail is due again, in
+     * case the instance died.
+     */
+    private long leaseMillis = 600000;
+
+    /**
+     * Number of instances polling the queue. The rate limits and the burst are shared equally
+     * among them, because every instance keeps its own token buckets.
+     */
+    private int instances = 1;
+
+    /**
+     * Rate of a provider for this instance.
+     */
+    double getRatePerSecond(final String provider) {
+        return ratePerSecond.getOrDefault(provider, defaultRatePerSecond) / instances;
+    }
+
+    /**
+     * Burst of this instance. Every instance may send at least one mail at once.
+     */
+    int getBurstPerInstance() {
+        return Math.max(1, burst / instances);
+    }
+}
@@ -0,0 +1,81 @@
+package de.propra2.ausleiherino24.features.email;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.mail.SimpleMailMessage;
+
+/**
+ * Immutable template of a mail. Subject and text are parsed once into literal parts and
+ * placeholders {0}, {1}, ..., so that a template can be shared by all threads and creating a
+ * message only appends strings.
+ */
+final class MailTemplate {
+
+    private final Text subject;
+    private final Text text;
+
+    MailTemplate(final String subject, final String text) {
+        this.subject = new Text(subject);
+        this.text = new Text(text);
+    }
+
+    /**
+     * Creates a new message. The arguments are inserted for the placeholders of subject and text.
+     */
+    SimpleMailMessage create(final String from, final String to, final Object... args) {
+        final SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(to);
+        message.setSubject(subject.render(args));
+        message.setText(text.render(args));
+        return message;
+    }
+
+    private static final class Text {
+
+        private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\d+)}");
+
+        /**
+         * Literal parts. There is one more literal than placeholders, the literal at index i
+         * stands before the placeholder at index i.
+         */
+        private final String[] literals;
+        private final int[] placeholders;
+        private final int literalLength;
+
+        private Text(final String pattern) {
+            final List<String> literalList = new ArrayList<>();
+            final List<Integer> placeholderList = new ArrayList<>();
+            final Matcher matcher = PLACEHOLDER.matcher(pattern);
+            int end = 0;
+            while (matcher.find()) {
+                literalList.add(pattern.substring(end, matcher.start()));
+                placeholderList.add(Integer.parseInt(matcher.group(1)));
+                end = matcher.end();
+            }
+            literalList.add(pattern.substring(end));
+
+            literals = literalList.toArray(new String[0]);
+            placeholders = placeholderList.stream().mapToInt(Integer::intValue).toArray();
+            literalLength = literalList.stream().mapToInt(String::length).sum();
+        }
+
+        private String render(final Object[] args) {
+            if (placeholders.length == 0) {
+                return literals[0];
+            }
+
+            final StringBuilder result =
+                    new StringBuilder(literalLength + 32 * placeholders.length);
+            for (int i = 0; i < placeholders.length; i++) {
+                if (placeholders[i] >= args.length) {
+                    throw new IllegalArgumentException("Missing argument " + placeholders[i]);
+                }
+                result.append(literals[i]).append(args[placeholders[i]]);
+            }
+            return result.append(literals[placeholders.length]).toString();
+        }
+    }
+}
@@ -1,10 +1,22 @@
 package de.propra2.ausleiherino24.features.email;
 
+import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Component;
 
 @Component
 @EnableScheduling
 public class ScheduledConfig {
 
+    /**
+     * Own scheduler of the {@link CaseEndTimeReminder}. The schedulers of the message broker must
+     * not be blocked by sending mails.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler reminderTaskScheduler() {
+        final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("reminder-");
+        return scheduler;
+    }
 }
@@ -0,0 +1,35 @@
+package de.propra2.ausleiherino24.features.email;
+
+/**
+ * Limits the number of mails sent to one provider. The bucket holds up to {@code capacity}
+ * tokens and is refilled continuously with {@code ratePerSecond} tokens per second.
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double ratePerSecond;
+
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(final int capacity, final double ratePerSecond, final long nanoTime) {
+        this.capacity = capacity;
+        this.ratePerSecond = ratePerSecond;
+        this.tokens = capacity;
+        this.lastRefill = nanoTime;
+    }
+
+    /**
+     * Takes up to {@code requested} tokens.
+     *
+     * @return number of tokens taken, 0 if the bucket is empty
+     */
+    synchronized int tryAcquire(final int requested, final long nanoTime) {
+        tokens = Math.min(capacity, tokens + (nanoTime - lastRefill) * ratePerSecond / 1e9);
+        lastRefill = nanoTime;
+
+        final int granted = (int) Math.min(requested, Math.floor(tokens));
+        tokens -= granted;
+        return granted;
+    }
+}
@@ -0,0 +1,160 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the storage of uploaded images and their thumbnails.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "images")
+@EnableConfigurationProperties
+public class ImageConfig {
+
+    /**
+     * Maximum width and height in pixels of every thumbnail size, e.g. small=320.
+     */
+    private Map<String, Integer> thumbnailSizes = new LinkedHashMap<>();
+
+    /**
+     * JPEG quality used for thumbnails, between 0 and 1.
+     */
+    private float jpegQuality = 0.8f;
+
+    /**
+     * Lowest JPEG quality, which may be used to stay below {@link #maxThumbnailBytes}.
+     */
+    private float minJpegQuality = 0.4f;
+
+    /**
+     * Size cap of a thumbnail. The quality is lowered until the thumbnail is small enough.
+     */
+    private int maxThumbnailBytes = 256 * 1024;
+
+    /**
+     * Number of threads generating thumbnails.
+     */
+    private int thumbnailThreads = 2;
+
+    /**
+     * Total size of the images kept in memory.
+     */
+    private long cacheMaxBytes = 16 * 1024 * 1024;
+
+    /**
+     * Images up to this size are kept in memory. Larger images are read from disk every time.
+     */
+    private int cacheMaxEntryBytes = 64 * 1024;
+
+    /**
+     * Images from this size on are sent by the servlet container with sendfile, if supported.
+     */
+    private int sendfileMinBytes = 48 * 1024;
+
+    /**
+     * How long browsers may cache an image. Images are stored under their content hash and never
+     * change, so this can be long.
+     */
+    private long maxAgeSeconds = 365L * 24 * 60 * 60;
+
+    /**
+     * Whether images stored flat in the upload directory are moved into the sharded layout on
+     * startup.
+     */
+    private boolean rebinOnStartup = false;
+
+    /**
+     * Number of threads moving images into the sharded layout.
+     */
+    private int rebinThreads = 4;
+
+    /**
+     * Number of threads storing images during a bulk import.
+     */
+    private int importThreads = 4;
+
+    /**
+     * Where images are stored.
+     */
+    private Storage storage = Storage.LOCAL;
+
+    /**
+     * Settings of the S3 compatible object storage used with {@link Storage#S3}.
+     */
+    private S3 s3 = new S3();
+
+    public ImageConfig() {
+        thumbnailSizes.put("small", 320);
+        thumbnailSizes.put("medium", 800);
+        thumbnailSizes.put("large", 1600);
+    }
+
+    public enum Storage {
+        /**
+         * Images are stored below uploadDirectoryPath on the disk of this node.
+         */
+        LOCAL,
+        /**
+         * Images are stored in an S3 compatible object storage shared by all nodes.
+         */
+        S3
+    }
+
+    @Data
+    public static class S3 {
+
+        /**
+         * Endpoint of an S3 compatible storage like MinIO. If empty, AWS is used.
+         */
+        private String endpoint = "";
+
+        private String region = "eu-central-1";
+
+        private String bucket = "ausleiherino24-images";
+
+        private String accessKey = "";
+
+        private String secretKey = "";
+
+        /**
+         * Whether the bucket is addressed in the path instead of the host name, as MinIO
+         * requires.
+         */
+        private boolean pathStyleAccess = true;
+
+        /**
+         * How long a presigned download URL is valid. Browsers are redirected to these URLs.
+         */
+        private long presignExpirySeconds = 3600;
+
+        /**
+         * Images from this size on are uploaded in several parts in parallel.
+         */
+        private long multipartThresholdBytes = 16 * 1024 * 1024;
+
+        /**
+         * Size of one part of a multipart upload. S3 requires at least 5 MiB.
+         */
+        private long multipartPartBytes = 8 * 1024 * 1024;
+
+        /**
+         * Whether images are written to a local spool first and uploaded in the background.
+         */
+        private boolean writeBehind = false;
+
+        /**
+         * Number of threads uploading spooled images.
+         */
+        private int writeBehindThreads = 2;
+
+        /**
+         * Delay before a failed upload of a spooled image is retried.
+         */
+        private long writeBehindRetryMillis = 30000;
+    }
+}
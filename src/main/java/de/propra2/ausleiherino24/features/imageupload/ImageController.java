@@ -1,12 +1,11 @@
 package de.propra2.ausleiherino24.features.imageupload;
 
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.net.URL;
+import java.util.Optional;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import org.apache.tomcat.util.http.fileupload.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,10 +19,13 @@ public class ImageController {
 
     private static final String URL = "/imageUpload";
     private final ImageService imageService;
+    private final ImageResponder imageResponder;
 
     @Autowired
-    public ImageController(final ImageService imageService) {
+    public ImageController(final ImageService imageService,
+            final ImageResponder imageResponder) {
         this.imageService = imageService;
+        this.imageResponder = imageResponder;
     }
 
     @GetMapping(URL)
@@ -38,25 +40,46 @@ public class ImageController {
     }
 
     /**
-     * Provides a method to receive images stored by the ImageService. Those are responded using
-     * HttpServletResponse.
+     * Provides a method to receive images stored by the ImageService. Those are responded by the
+     * ImageResponder, or the client is redirected to the object storage. With a size, e.g.
+     * "small", the thumbnail is responded instead, or the original as long as the thumbnail is
+     * not generated yet. The original must not be cached in that case, so that the thumbnail is
+     * requested again.
      */
     @GetMapping("/images/{fileName}")
-    public void getImage(final @PathVariable String fileName, final HttpServletResponse response)
+    public void getImage(final @PathVariable String fileName,
+            final @RequestParam(required = false) String size,
+            final HttpServletRequest request, final HttpServletResponse response)
             throws IOException {
-        final File requestedFile = imageService.getFile(fileName, null);
+        if (size != null) {
+            final File thumbnail = imageService.getThumbnail(fileName, size);
+            if (thumbnail != null) {
+                final String hash = imageService.contentHash(fileName);
+                imageResponder.send(thumbnail, hash == null ? null : hash + "-" + size, true,
+                        request, response);
+                return;
+            }
 
-        if (requestedFile == null) {
-            response.setStatus(404);
-            return;
+            final Optional<URL> thumbnailUrl = imageService.getDownloadUrl(fileName, size);
+            if (thumbnailUrl.isPresent()) {
+                imageResponder.redirect(thumbnailUrl.get(), true, response);
+                return;
+            }
         }
 
-        response.setContentType(Files.probeContentType(requestedFile.toPath()));
+        final File requestedFile = imageService.getFile(fileName, null);
+        if (requestedFile != null) {
+            imageResponder.send(requestedFile, imageService.contentHash(fileName), size == null,
+                    request, response);
+            return;
+        }
 
-        try (DataInputStream dataInputStream = new DataInputStream(
-                new FileInputStream(requestedFile))) {
-            IOUtils.copy(dataInputStream, response.getOutputStream());
+        final Optional<URL> url = imageService.getDownloadUrl(fileName, null);
+        if (url.isPresent()) {
+            imageResponder.redirect(url.get(), size == null, response);
+            return;
         }
 
+        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
     }
 }
@@ -0,0 +1,130 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves images and thumbnails stored flat in their directory into the sharded layout of the
+ * {@link ImageService}. The directories are read as a stream and the files are moved in batches
+ * on several threads. Images can be served while they are moved, as the ImageService looks in
+ * both places. Enabled on startup with images.rebinOnStartup=true.
+ */
+@Component
+public class ImageRebinning {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageRebinning.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ImageService imageService;
+    private final ImageConfig config;
+
+    @Autowired
+    public ImageRebinning(final ImageService imageService, final ImageConfig config) {
+        this.imageService = imageService;
+        this.config = config;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebinOnStartup() throws InterruptedException {
+        if (config.isRebinOnStartup()) {
+            rebin();
+        }
+    }
+
+    /**
+     * Moves all flat files into their shard.
+     *
+     * @return number of moved files
+     */
+    public long rebin() throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        final LongAdder moved = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final ExecutorService executor = Executors.newFixedThreadPool(config.getRebinThreads(),
+                new CustomizableThreadFactory("image-rebin-"));
+
+        try {
+            for (final Path directory : imageService.unshardedDirectories()) {
+                if (Files.isDirectory(directory)) {
+                    submitBatches(directory, executor, moved, failed);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+
+        LOGGER.info("Moved {} images into shards in {} ms, {} failed.", moved.sum(),
+                System.currentTimeMillis() - start, failed.sum());
+        return moved.sum();
+    }
+
+    private void submitBatches(final Path directory, final ExecutorService executor,
+            final LongAdder moved, final LongAdder failed) {
+        List<Path> batch = new ArrayList<>(BATCH_SIZE);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                ImageRebinning::isUnshardedFile)) {
+            for (final Path file : files) {
+                batch.add(file);
+                if (batch.size() == BATCH_SIZE) {
+                    submit(batch, executor, moved, failed);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't list images in {}.", directory, e);
+        }
+        submit(batch, executor, moved, failed);
+    }
+
+    private void submit(final List<Path> batch, final ExecutorService executor,
+            final LongAdder moved, final LongAdder failed) {
+        executor.execute(() -> batch.forEach(file -> {
+            try {
+                move(file);
+                moved.increment();
+            } catch (IOException e) {
+                LOGGER.warn("Couldn't move {} into its shard.", file, e);
+                failed.increment();
+            }
+        }));
+    }
+
+    /**
+     * Moves the file into its shard. Files are named after their content, so if the shard already
+     * contains the file, the flat copy is deleted.
+     */
+    void move(final Path file) throws IOException {
+        final Path target = imageService.shardedPath(file.getParent(),
+                file.getFileName().toString());
+        if (Files.exists(target)) {
+            Files.delete(file);
+            return;
+        }
+
+        Files.createDirectories(target.getParent());
+        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean isUnshardedFile(final Path path) {
+        return Files.isRegularFile(path)
+                && !path.getFileName().toString().endsWith(ImageService.TEMPORARY_EXTENSION);
+    }
+}
@@ -0,0 +1,205 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Writes stored images to the response like static resources.
+ *
+ * <ul>
+ * <li>Responses carry an ETag and Last-Modified, so conditional requests are answered with 304.
+ * </li>
+ * <li>A single byte range is answered with 206. Several ranges are answered with the whole
+ * image, which is allowed by RFC 7233.</li>
+ * <li>Small images are kept in memory. Large images are sent with sendfile, if the servlet
+ * container supports it, and otherwise transferred from the file channel.</li>
+ * </ul>
+ */
+@Component
+public class ImageResponder {
+
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ImageConfig config;
+    private final Cache<File, byte[]> cache;
+
+    /**
+     * Autowired constructor.
+     */
+    @Autowired
+    public ImageResponder(final ImageConfig config) {
+        this.config = config;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getCacheMaxBytes())
+                .<File, byte[]>weigher((file, bytes) -> bytes.length)
+                .build();
+    }
+
+    /**
+     * Writes the image to the response.
+     *
+     * @param file stored image
+     * @param contentHash hash identifying the content of the file, or null if it is unknown
+     * @param immutable whether the file will never change under this URL
+     */
+    public void send(final File file, final String contentHash, final boolean immutable,
+            final HttpServletRequest request, final HttpServletResponse response)
+            throws IOException {
+        final long length = file.length();
+        final String etag = contentHash == null
+                ? "W/\"" + Long.toHexString(length) + "-" + Long.toHexString(file.lastModified())
+                        + "\""
+                : "\"" + contentHash + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable
+                ? CacheControl.maxAge(config.getMaxAgeSeconds(), TimeUnit.SECONDS).cachePublic()
+                .getHeaderValue() + ", immutable"
+                : CacheControl.noCache().getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, file.lastModified())) {
+            return;
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(file.getName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        long start = 0;
+        long count = length;
+        final HttpRange range = requestedRange(request, etag, file.lastModified());
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                count = range.getRangeEnd(length) - start + 1;
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + start + "-" + (start + count - 1) + "/" + length);
+        }
+        response.setContentLengthLong(count);
+
+        if (!HttpMethod.HEAD.matches(request.getMethod())) {
+            write(file, length, start, count, request, response);
+        }
+    }
+
+    /**
+     * Redirects the client to a URL, from which it downloads the image directly. The redirect may
+     * be cached for half of the time the URL is valid.
+     *
+     * @param cacheable whether the URL will always return the same content
+     */
+    public void redirect(final URL url, final boolean cacheable,
+            final HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheable
+                ? CacheControl.maxAge(config.getS3().getPresignExpirySeconds() / 2,
+                TimeUnit.SECONDS).cachePrivate().getHeaderValue()
+                : CacheControl.noCache().getHeaderValue());
+        response.sendRedirect(url.toString());
+    }
+
+    /**
+     * Returns the single range requested, or null if the whole image has to be sent. Ranges are
+     * ignored if they are invalid or If-Range doesn't match the current image.
+     */
+    private HttpRange requestedRange(final HttpServletRequest request, final String etag,
+            final long lastModified) {
+        final String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(request, etag, lastModified)) {
+            return null;
+        }
+
+        try {
+            final List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean ifRangeMatches(final HttpServletRequest request, final String etag,
+            final long lastModified) {
+        final String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range requires a strong comparison
+            return ifRange.equals(etag) && !etag.startsWith("W/");
+        }
+
+        try {
+            return lastModified / 1000 <= request.getDateHeader(HttpHeaders.IF_RANGE) / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void write(final File file, final long length, final long start, final long count,
+            final HttpServletRequest request, final HttpServletResponse response)
+            throws IOException {
+        if (length <= config.getCacheMaxEntryBytes()) {
+            response.getOutputStream().write(cached(file), (int) start, (int) count);
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))
+                && count >= config.getSendfileMinBytes()) {
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            final long end = start + count;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    private byte[] cached(final File file) throws IOException {
+        try {
+            return cache.get(file, key -> {
+                try {
+                    return Files.readAllBytes(key.toPath());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
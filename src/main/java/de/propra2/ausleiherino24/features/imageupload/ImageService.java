@@ -2,88 +2,253 @@ package de.propra2.ausleiherino24.features.imageupload;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+/**
+ * Stores uploaded images under the SHA-256 hash of their content, so that a file uploaded twice
+ * is stored only once. For every image thumbnails are generated in the background. The content
+ * is kept by the configured {@link ImageStorage}.
+ *
+ * <p>Images without binningId are sharded into two levels of directories named after the first
+ * four hex digits of their file name, e.g. ab/cd/abcd....jpg, so that no directory gets too
+ * large. Images stored flat in the upload directory before are still found there, until they are
+ * moved by {@link ImageRebinning}.
+ */
 @Service
 public class ImageService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ImageService.class);
 
     private static final int NR_OF_BINS = 100;
+    private static final String THUMBNAIL_DIRECTORY = "thumbnails";
+    private static final String THUMBNAIL_EXTENSION = ".jpg";
+    static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("([0-9a-f]{64})(\\..*)?");
+    private static final Pattern SHARD_PREFIX = Pattern.compile("[0-9a-f]{4}");
+    private static final int SHARD_DIGITS = 2;
+    private static final int HASH_BUFFER_BYTES = 64 * 1024;
+
     private final String uploadDirectoryPath;
+    private final ImageConfig config;
+    private final ThumbnailGenerator thumbnailGenerator;
+    private final ImageStorage storage;
 
+    /**
+     * Autowired constructor.
+     */
     @Autowired
-    public ImageService(final @Value("${uploadDirectoryPath}") String uploadDirectoryPath) {
+    public ImageService(final @Value("${uploadDirectoryPath}") String uploadDirectoryPath,
+            final ImageConfig config, final ThumbnailGenerator thumbnailGenerator,
+            final ImageStorage storage) {
         this.uploadDirectoryPath = uploadDirectoryPath;
+        this.config = config;
+        this.thumbnailGenerator = thumbnailGenerator;
+        this.storage = storage;
         createUploadDirectoryIfNotExists();
     }
 
     /**
      * Stores an image.
      *
-     * @return FileName
+     * @return FileName, or null if the file couldn't be stored
      */
     public String store(final MultipartFile file, final Long binningId) {
         if (file == null) {
             return null;
         }
 
-        final String prefix = ensureBinning(binningId);
-
-        final String extension = getFileExtension(file.getOriginalFilename());
-        final File dest = new File(generateFilePath(prefix, extension));
-
-        try {
-            file.transferTo(dest);
+        try (InputStream inputStream = file.getInputStream()) {
+            return store(inputStream, getFileExtension(file.getOriginalFilename()), binningId);
         } catch (IOException e) {
-            LOGGER.warn("Couldn't move file {} to desired destination '{}'.", file.getName(),
-                    dest.getAbsolutePath());
+            LOGGER.warn("Couldn't store uploaded file {}.", file.getName(), e);
+            return null;
         }
-
-        return dest.getName();
     }
 
     /**
-     * Stores an image inputted as File.
+     * Stores an image inputted as File. The file is hashed first, so that it is only copied, if
+     * its content isn't stored yet. The copy is done by the kernel via
+     * {@link FileChannel#transferTo}.
      *
-     * @return FileName
+     * @return FileName, or null if the file couldn't be stored
      */
     public String storeFile(final File inputFile, final Long binningId) {
         if (inputFile == null) {
             return null;
         }
 
-        final String prefix = ensureBinning(binningId);
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(),
+                StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final String fileName = buildFilename(hash(channel),
+                    getFileExtension(inputFile.getName()));
+            final String key = storageKey(fileName, binningId);
+            if (storage.exists(key)) {
+                LOGGER.debug("{} is already stored.", fileName);
+            } else {
+                final Path temporary = createTemporaryFile();
+                try {
+                    copy(channel, size, temporary);
+                    storage.store(key, temporary);
+                } finally {
+                    Files.deleteIfExists(temporary);
+                }
+            }
 
-        final String extension = getFileExtension(inputFile.getName());
-        final File destinationFile = new File(generateFilePath(prefix, extension));
+            generateThumbnails(fileName, key);
+            return fileName;
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't store file {}.", inputFile.getName(), e);
+            return null;
+        }
+    }
 
-        try (FileOutputStream outputStream = new FileOutputStream(destinationFile)) {
-            try (FileInputStream inputStream = new FileInputStream(inputFile)) {
+    /**
+     * Stores all files in a directory concurrently on {@link ImageConfig#getImportThreads()}
+     * threads. Subdirectories are not imported.
+     *
+     * @return stored FileNames by the names of the imported files. Files, which couldn't be
+     *     stored, are missing.
+     */
+    public Map<String, String> importDirectory(final Path directory, final Long binningId)
+            throws IOException, InterruptedException {
+        final List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
 
-                final byte[] buffer = new byte[1024];
+        final long start = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool(config.getImportThreads(),
+                new CustomizableThreadFactory("image-import-"));
+        try {
+            final Map<String, Future<String>> pending = new LinkedHashMap<>();
+            files.forEach(file -> pending.put(file.getFileName().toString(),
+                    executor.submit(() -> storeFile(file.toFile(), binningId))));
+
+            final Map<String, String> stored = new LinkedHashMap<>();
+            for (final Map.Entry<String, Future<String>> entry : pending.entrySet()) {
+                final String fileName = entry.getValue().get();
+                if (fileName != null) {
+                    stored.put(entry.getKey(), fileName);
+                }
+            }
 
-                int length = inputStream.read(buffer);
+            LOGGER.info("Imported {} of {} images from {} in {} ms.", stored.size(),
+                    files.size(), directory, System.currentTimeMillis() - start);
+            return stored;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Couldn't import images from " + directory,
+                    e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                while (length > 0) {
-                    outputStream.write(buffer, 0, length);
-                    length = inputStream.read(buffer);
-                }
+    /**
+     * Copies the content to a temporary file while hashing it. The temporary file is stored under
+     * the hash, unless a file with the same content already exists.
+     */
+    private String store(final InputStream inputStream, final String extension,
+            final Long binningId) throws IOException {
+        final Path temporary = createTemporaryFile();
+
+        try {
+            final MessageDigest digest = sha256();
+            try (InputStream hashingStream = new DigestInputStream(inputStream, digest)) {
+                Files.copy(hashingStream, temporary, StandardCopyOption.REPLACE_EXISTING);
             }
-        } catch (IOException e) {
-            LOGGER.warn("Couldn't store uploaded file in database.", e);
+
+            final String fileName = buildFilename(toHex(digest.digest()), extension);
+            final String key = storageKey(fileName, binningId);
+            if (storage.exists(key)) {
+                LOGGER.debug("{} is already stored.", fileName);
+            } else {
+                storage.store(key, temporary);
+            }
+
+            generateThumbnails(fileName, key);
+            return fileName;
+        } finally {
+            Files.deleteIfExists(temporary);
         }
+    }
 
-        return destinationFile.getName();
+    private Path createTemporaryFile() throws IOException {
+        return Files.createTempFile(Paths.get(getUploadDirectoryPath()), "upload",
+                TEMPORARY_EXTENSION);
+    }
+
+    private String storageKey(final String fileName, final Long binningId) {
+        return binningId == null ? shardKey(fileName) : ensureBinning(binningId) + "/" + fileName;
+    }
+
+    private void generateThumbnails(final String fileName, final String key) {
+        thumbnailGenerator.generateAsync(fileName, () -> storage.open(key),
+                thumbnailTargets(fileName));
+    }
+
+    private static String hash(final FileChannel channel) throws IOException {
+        final MessageDigest digest = sha256();
+        final ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_BYTES);
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Copies the first bytes of the channel to the target file. Fails, if the file got shorter
+     * since it was hashed.
+     */
+    private static void copy(final FileChannel source, final long size, final Path target)
+            throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            while (position < size) {
+                final long transferred = source.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    throw new IOException("File changed while it was stored.");
+                }
+                position += transferred;
+            }
+        }
     }
 
     /**
@@ -92,6 +257,13 @@ public class ImageService {
      * @return requested File, if exists. Else, null
      */
     File getFile(final String fileName, final Long binningId) {
+        if (binningId == null) {
+            final Optional<File> sharded = storage.localFile(shardKey(fileName));
+            if (sharded.isPresent()) {
+                return sharded.get();
+            }
+        }
+
         final String binName = binningId == null ? "" : resolveBin(binningId).toString();
 
         final File file = new File(buildPath(fileName, binName));
@@ -100,20 +272,102 @@ public class ImageService {
     }
 
     /**
-     * Generates the Path for a file.
+     * Gets the thumbnail of the given size of an image stored without binningId. If it doesn't
+     * exist yet, e.g. for images stored before thumbnails were introduced, it is generated in
+     * the background.
      *
-     * @param prefix file prefix
-     * @param fileEnding file suffix
-     * @return generated path.
+     * @return requested thumbnail, if exists. Else, null
      */
-    String generateFilePath(final String prefix, final String fileEnding) {
-        String uniqueFilepath = buildPath(buildFilename(fileEnding), prefix);
+    File getThumbnail(final String fileName, final String size) {
+        if (!config.getThumbnailSizes().containsKey(size)) {
+            return null;
+        }
+
+        final String key = thumbnailKey(fileName, size);
+        final Optional<File> thumbnail = storage.localFile(key);
+        if (thumbnail.isPresent() || storage.exists(key)) {
+            return thumbnail.orElse(null);
+        }
+
+        final String originalKey = shardKey(fileName);
+        if (storage.exists(originalKey)) {
+            thumbnailGenerator.generateAsync(fileName, () -> storage.open(originalKey),
+                    thumbnailTargets(fileName));
+        } else {
+            final File original = getFile(fileName, null);
+            if (original != null) {
+                thumbnailGenerator.generateAsync(fileName, () -> new FileInputStream(original),
+                        thumbnailTargets(fileName));
+            }
+        }
+        return null;
+    }
 
-        while (fileExists(uniqueFilepath)) {
-            uniqueFilepath = UUID.randomUUID().toString();
+    /**
+     * Returns a URL, from which the image or its thumbnail can be downloaded directly, if the
+     * storage supports it. Without size the original is returned.
+     */
+    Optional<URL> getDownloadUrl(final String fileName, final String size) {
+        if (size != null && !config.getThumbnailSizes().containsKey(size)) {
+            return Optional.empty();
         }
 
-        return uniqueFilepath;
+        final String key = size == null ? shardKey(fileName) : thumbnailKey(fileName, size);
+        return storage.exists(key) ? storage.downloadUrl(key) : Optional.empty();
+    }
+
+    /**
+     * Returns the content hash of a file stored by this service, or null for files stored under a
+     * random name before images were stored by their hash.
+     */
+    String contentHash(final String fileName) {
+        final Matcher matcher = CONTENT_ADDRESSED.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Returns the storage keys of the thumbnails of an image with their maximum width and height.
+     */
+    Map<String, Integer> thumbnailTargets(final String fileName) {
+        final Map<String, Integer> targets = new LinkedHashMap<>();
+        config.getThumbnailSizes()
+                .forEach((size, pixels) -> targets.put(thumbnailKey(fileName, size), pixels));
+        return targets;
+    }
+
+    private String thumbnailKey(final String fileName, final String size) {
+        return THUMBNAIL_DIRECTORY + "/" + size + "/" + shardKey(fileName + THUMBNAIL_EXTENSION);
+    }
+
+    /**
+     * Returns the location of a file in the sharded layout, e.g. ab/cd/abcd....jpg. The shard is
+     * taken from the first four characters of the file name, if they are hex digits like in
+     * content hashes and UUIDs. Other names are sharded by the hash of the name.
+     */
+    String shardKey(final String fileName) {
+        final String key = SHARD_PREFIX.matcher(fileName).lookingAt() ? fileName
+                : toHex(sha256().digest(fileName.getBytes(StandardCharsets.UTF_8)));
+        return key.substring(0, SHARD_DIGITS) + "/"
+                + key.substring(SHARD_DIGITS, 2 * SHARD_DIGITS) + "/" + fileName;
+    }
+
+    /**
+     * Returns the location of a file in the sharded layout below the given directory.
+     */
+    Path shardedPath(final Path directory, final String fileName) {
+        return directory.resolve(shardKey(fileName));
+    }
+
+    /**
+     * Returns the directories, which may still contain files stored before sharding: the upload
+     * directory and the directory of every thumbnail size.
+     */
+    List<Path> unshardedDirectories() {
+        final List<Path> directories = new ArrayList<>();
+        directories.add(Paths.get(getUploadDirectoryPath()));
+        config.getThumbnailSizes().keySet().forEach(size -> directories
+                .add(Paths.get(getUploadDirectoryPath(), THUMBNAIL_DIRECTORY, size)));
+        return directories;
     }
 
     /**
@@ -138,15 +392,40 @@ public class ImageService {
      * Returns absolute path of upload directory.
      */
     String getUploadDirectoryPath() {
+        return uploadDirectory(uploadDirectoryPath).toString();
+    }
+
+    /**
+     * Returns the absolute path of the upload directory, which is relative to the working
+     * directory.
+     */
+    static Path uploadDirectory(final String uploadDirectoryPath) {
         final String rootPath = Paths.get(".").toAbsolutePath().normalize().toString();
-        return Paths.get(rootPath, this.uploadDirectoryPath).toString();
+        return Paths.get(rootPath, uploadDirectoryPath);
     }
 
     /**
-     * Returns and random file name with given file ending.
+     * Returns the file name for the given hash and file ending.
      */
-    private String buildFilename(final String fileEnding) {
-        return UUID.randomUUID() + "." + fileEnding;
+    String buildFilename(final String hash, final String fileEnding) {
+        return fileEnding.isEmpty() ? hash : hash + "." + fileEnding.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+    }
+
+    private static String toHex(final byte[] hash) {
+        final StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (final byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
     }
 
     String ensureBinning(final Long binningId) {
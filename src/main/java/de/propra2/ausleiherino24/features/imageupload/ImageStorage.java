@@ -0,0 +1,42 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Storage of images and thumbnails. Content is addressed by keys like "ab/cd/abcd....jpg", which
+ * are relative paths separated by '/'. Content stored under a key never changes.
+ */
+public interface ImageStorage {
+
+    /**
+     * Stores the content of a local file under the given key. The file may be moved by the
+     * storage; the caller deletes it afterwards, if it still exists.
+     */
+    void store(String key, Path file) throws IOException;
+
+    boolean exists(String key);
+
+    /**
+     * Returns the content as a file on this node, if the storage keeps it on this node.
+     */
+    Optional<File> localFile(String key);
+
+    /**
+     * Returns a URL, from which clients can download the content directly, if the storage
+     * supports it.
+     */
+    Optional<URL> downloadUrl(String key);
+
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Releases the resources of the storage, called when the application stops.
+     */
+    default void shutdown() {
+    }
+}
@@ -0,0 +1,61 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Chooses the {@link ImageStorage} configured with images.storage.
+ */
+@Configuration
+public class ImageStorageConfig {
+
+    static final String SPOOL_DIRECTORY = "spool";
+
+    /**
+     * Creates the image storage. With write behind, images are spooled in the upload directory.
+     */
+    @Bean
+    public ImageStorage imageStorage(
+            @Value("${uploadDirectoryPath}") final String uploadDirectoryPath,
+            final ImageConfig config) throws IOException {
+        final Path uploadDirectory = ImageService.uploadDirectory(uploadDirectoryPath);
+        if (config.getStorage() == ImageConfig.Storage.LOCAL) {
+            return new LocalImageStorage(uploadDirectory);
+        }
+
+        final ImageConfig.S3 settings = config.getS3();
+        final S3ImageStorage s3 = new S3ImageStorage(s3Client(settings), settings,
+                config.getMaxAgeSeconds());
+        if (!settings.isWriteBehind()) {
+            return s3;
+        }
+
+        final WriteBehindImageStorage writeBehind = new WriteBehindImageStorage(
+                new LocalImageStorage(uploadDirectory.resolve(SPOOL_DIRECTORY)), s3,
+                settings.getWriteBehindThreads(), settings.getWriteBehindRetryMillis());
+        writeBehind.resumePending();
+        return writeBehind;
+    }
+
+    static AmazonS3 s3Client(final ImageConfig.S3 settings) {
+        final AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(
+                        new BasicAWSCredentials(settings.getAccessKey(), settings.getSecretKey())))
+                .withPathStyleAccessEnabled(settings.isPathStyleAccess());
+        if (settings.getEndpoint().isEmpty()) {
+            builder.withRegion(settings.getRegion());
+        } else {
+            builder.withEndpointConfiguration(
+                    new EndpointConfiguration(settings.getEndpoint(), settings.getRegion()));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,81 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Stores images as files below a directory of this node. The key is the path of the file
+ * relative to the directory.
+ */
+public class LocalImageStorage implements ImageStorage {
+
+    private final Path root;
+
+    public LocalImageStorage(final Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Moves the file to its place. If the file is on another file system, it is copied next to
+     * its place first, so that the content appears at once.
+     */
+    @Override
+    public void store(final String key, final Path file) throws IOException {
+        final Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            final Path temporary = Files.createTempFile(target.getParent(), "store",
+                    ImageService.TEMPORARY_EXTENSION);
+            try {
+                Files.copy(file, temporary, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(final String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public Optional<File> localFile(final String key) {
+        return exists(key) ? Optional.of(resolve(key).toFile()) : Optional.empty();
+    }
+
+    @Override
+    public Optional<URL> downloadUrl(final String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public InputStream open(final String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the file of a key. Keys must not point outside of the directory.
+     */
+    Path resolve(final String key) {
+        final Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid image key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,123 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+/**
+ * Stores images in a bucket of an S3 compatible object storage, so that all nodes share them.
+ *
+ * <ul>
+ * <li>Large images are uploaded in several parts in parallel by a {@link TransferManager}.</li>
+ * <li>Clients download images directly from the storage with presigned URLs.</li>
+ * <li>Content never changes, so keys known to exist are remembered instead of asking the
+ * storage again.</li>
+ * </ul>
+ */
+public class S3ImageStorage implements ImageStorage {
+
+    private static final int KNOWN_KEYS = 100000;
+
+    private final AmazonS3 client;
+    private final TransferManager transferManager;
+    private final ImageConfig.S3 settings;
+    private final String cacheControl;
+    private final Cache<String, Boolean> knownKeys = Caffeine.newBuilder()
+            .maximumSize(KNOWN_KEYS).build();
+
+    /**
+     * Creates the storage, which uses the given client for the bucket in the settings.
+     */
+    public S3ImageStorage(final AmazonS3 client, final ImageConfig.S3 settings,
+            final long maxAgeSeconds) {
+        this.client = client;
+        this.settings = settings;
+        this.transferManager = TransferManagerBuilder.standard()
+                .withS3Client(client)
+                .withMultipartUploadThreshold(settings.getMultipartThresholdBytes())
+                .withMinimumUploadPartSize(settings.getMultipartPartBytes())
+                .build();
+        this.cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic()
+                .getHeaderValue() + ", immutable";
+    }
+
+    @Override
+    public void store(final String key, final Path file) throws IOException {
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(MediaTypeFactory.getMediaType(key)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        metadata.setCacheControl(cacheControl);
+
+        try {
+            transferManager.upload(new PutObjectRequest(settings.getBucket(), key, file.toFile())
+                    .withMetadata(metadata)).waitForCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload of " + key + " was interrupted.");
+        } catch (AmazonClientException e) {
+            throw new IOException("Couldn't upload " + key + ".", e);
+        }
+        knownKeys.put(key, Boolean.TRUE);
+    }
+
+    @Override
+    public boolean exists(final String key) {
+        if (knownKeys.getIfPresent(key) != null) {
+            return true;
+        }
+
+        final boolean exists = client.doesObjectExist(settings.getBucket(), key);
+        if (exists) {
+            knownKeys.put(key, Boolean.TRUE);
+        }
+        return exists;
+    }
+
+    @Override
+    public Optional<File> localFile(final String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<URL> downloadUrl(final String key) {
+        final Date expiration = new Date(System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(settings.getPresignExpirySeconds()));
+        return Optional.of(client.generatePresignedUrl(settings.getBucket(), key, expiration,
+                HttpMethod.GET));
+    }
+
+    @Override
+    public InputStream open(final String key) throws IOException {
+        try {
+            return client.getObject(settings.getBucket(), key).getObjectContent();
+        } catch (AmazonClientException e) {
+            throw new IOException("Couldn't download " + key + ".", e);
+        }
+    }
+
+    /**
+     * Stops the transfers and the client.
+     */
+    @Override
+    public void shutdown() {
+        transferManager.shutdownNow(true);
+    }
+}
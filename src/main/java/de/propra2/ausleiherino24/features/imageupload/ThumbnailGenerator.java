@@ -0,0 +1,178 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates downscaled JPEG thumbnails of stored images on a background pool, so that uploads do
+ * not wait for the image processing. The thumbnails are put into the {@link ImageStorage}.
+ */
+@Component
+public class ThumbnailGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailGenerator.class);
+
+    private static final float QUALITY_STEP = 0.1f;
+
+    private final ImageConfig config;
+    private final ImageStorage storage;
+    private final ExecutorService executor;
+
+    /**
+     * Images, for which thumbnails are currently generated.
+     */
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ThumbnailGenerator(final ImageConfig config, final ImageStorage storage) {
+        this.config = config;
+        this.storage = storage;
+        this.executor = Executors.newFixedThreadPool(config.getThumbnailThreads(),
+                new CustomizableThreadFactory("thumbnail-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Generates the missing thumbnails of the given image in the background.
+     *
+     * @param fileName name of the stored image
+     * @param original content of the stored image
+     * @param targets storage key of every thumbnail with its maximum width and height in pixels
+     */
+    public void generateAsync(final String fileName, final InputStreamSource original,
+            final Map<String, Integer> targets) {
+        if (!inProgress.add(fileName)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                generate(fileName, original, targets);
+            } finally {
+                inProgress.remove(fileName);
+            }
+        });
+    }
+
+    /**
+     * Generates the missing thumbnails of the given image. Files, which are no images, are
+     * skipped.
+     */
+    void generate(final String fileName, final InputStreamSource original,
+            final Map<String, Integer> targets) {
+        try {
+            final BufferedImage image;
+            try (InputStream inputStream = original.getInputStream()) {
+                image = ImageIO.read(inputStream);
+            }
+            if (image == null) {
+                LOGGER.debug("{} is no image, no thumbnails generated.", fileName);
+                return;
+            }
+
+            for (final Map.Entry<String, Integer> target : targets.entrySet()) {
+                if (!storage.exists(target.getKey())) {
+                    store(encode(scale(image, target.getValue())), target.getKey());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't generate thumbnails of {}.", fileName, e);
+        }
+    }
+
+    /**
+     * Scales the image down to fit into a square of the given size. Smaller images are not
+     * enlarged. Transparent areas become white, as JPEG has no alpha channel.
+     */
+    BufferedImage scale(final BufferedImage image, final int maxSize) {
+        final double factor = Math.min(1.0,
+                (double) maxSize / Math.max(image.getWidth(), image.getHeight()));
+        final int width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        final int height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+
+        final BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Encodes the image as JPEG. The quality is lowered step by step, until the size cap is met
+     * or the minimum quality is reached.
+     */
+    byte[] encode(final BufferedImage image) throws IOException {
+        float quality = config.getJpegQuality();
+        byte[] encoded = encode(image, quality);
+        while (encoded.length > config.getMaxThumbnailBytes()
+                && quality - QUALITY_STEP >= config.getMinJpegQuality()) {
+            quality -= QUALITY_STEP;
+            encoded = encode(image, quality);
+        }
+        return encoded;
+    }
+
+    private byte[] encode(final BufferedImage image, final float quality) throws IOException {
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        final ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the thumbnail to a temporary file, which is put into the storage. So a half written
+     * thumbnail is never served.
+     */
+    private void store(final byte[] thumbnail, final String key) throws IOException {
+        final Path temporary = Files.createTempFile("thumbnail", ImageService.TEMPORARY_EXTENSION);
+        try {
+            Files.write(temporary, thumbnail);
+            storage.store(key, temporary);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
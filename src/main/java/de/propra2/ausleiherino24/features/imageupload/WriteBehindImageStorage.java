@@ -0,0 +1,153 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Writes images to a local spool and uploads them to the remote storage in the background, so
+ * that uploads do not wait for the object storage. Spooled images are served from the spool
+ * until they are uploaded. Images still in the spool when the application stops are uploaded
+ * after the next start.
+ *
+ * <p>Other nodes see an image only after it is uploaded.
+ */
+public class WriteBehindImageStorage implements ImageStorage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindImageStorage.class);
+
+    private static final long SHUTDOWN_SECONDS = 30;
+
+    private final LocalImageStorage spool;
+    private final ImageStorage remote;
+    private final long retryMillis;
+    private final ScheduledExecutorService uploads;
+
+    /**
+     * Keys of spooled images, whose upload is scheduled.
+     */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates the storage.
+     *
+     * @param spool local storage, in which images wait for their upload
+     * @param remote storage, to which images are uploaded
+     * @param threads number of threads uploading images
+     * @param retryMillis delay before a failed upload is retried
+     */
+    public WriteBehindImageStorage(final LocalImageStorage spool, final ImageStorage remote,
+            final int threads, final long retryMillis) {
+        this.spool = spool;
+        this.remote = remote;
+        this.retryMillis = retryMillis;
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads,
+                new CustomizableThreadFactory("image-upload-"));
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.uploads = executor;
+    }
+
+    /**
+     * Schedules the upload of all images left in the spool.
+     */
+    public void resumePending() throws IOException {
+        if (!Files.isDirectory(spool.getRoot())) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(spool.getRoot())) {
+            files.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString()
+                            .endsWith(ImageService.TEMPORARY_EXTENSION))
+                    .map(file -> spool.getRoot().relativize(file).toString()
+                            .replace(File.separatorChar, '/'))
+                    .collect(Collectors.toList())
+                    .forEach(key -> schedule(key, 0));
+        }
+    }
+
+    @Override
+    public void store(final String key, final Path file) throws IOException {
+        spool.store(key, file);
+        schedule(key, 0);
+    }
+
+    @Override
+    public boolean exists(final String key) {
+        return spool.exists(key) || remote.exists(key);
+    }
+
+    @Override
+    public Optional<File> localFile(final String key) {
+        return spool.localFile(key);
+    }
+
+    @Override
+    public Optional<URL> downloadUrl(final String key) {
+        return spool.exists(key) ? Optional.empty() : remote.downloadUrl(key);
+    }
+
+    @Override
+    public InputStream open(final String key) throws IOException {
+        return spool.exists(key) ? spool.open(key) : remote.open(key);
+    }
+
+    /**
+     * Waits for running uploads. Images not uploaded yet stay in the spool and are uploaded
+     * after the next start.
+     */
+    @Override
+    public void shutdown() {
+        uploads.shutdown();
+        try {
+            uploads.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        remote.shutdown();
+    }
+
+    int getPendingUploads() {
+        return pending.size();
+    }
+
+    private void schedule(final String key, final long delayMillis) {
+        if (pending.add(key)) {
+            uploads.schedule(() -> upload(key), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void upload(final String key) {
+        final Path file = spool.resolve(key);
+        if (!Files.exists(file)) {
+            pending.remove(key);
+            return;
+        }
+
+        try {
+            remote.store(key, file);
+            Files.deleteIfExists(file);
+            pending.remove(key);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Couldn't upload image {}, retrying in {} ms.", key, retryMillis, e);
+            pending.remove(key);
+            if (!uploads.isShutdown()) {
+                schedule(key, retryMillis);
+            }
+        }
+    }
+}
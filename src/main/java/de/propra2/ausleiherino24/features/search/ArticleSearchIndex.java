@@ -0,0 +1,353 @@
+package de.propra2.ausleiherino24.features.search;
+
+import de.propra2.ausleiherino24.data.ArticleRepository;
+import de.propra2.ausleiherino24.data.ArticleSearchFields;
+import de.propra2.ausleiherino24.features.category.Category;
+import de.propra2.ausleiherino24.model.Article;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * In-memory inverted index over name, description, category and location of all active articles.
+ * Each term maps to the articles containing it, weighted by the field it occurs in. A query token
+ * matches its exact term, all terms it is a prefix of and, if neither exists, all terms within an
+ * edit distance of one. Results are ranked by the number of matched tokens first and by a tf-idf
+ * score second. Only the hits up to the requested page are kept in order.
+ *
+ * <p>The index is built from the database when the application is ready and kept in sync by
+ * {@link de.propra2.ausleiherino24.service.ArticleService}.
+ */
+@Component
+public class ArticleSearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArticleSearchIndex.class);
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int NAME_WEIGHT = 4;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int LOCATION_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final double PREFIX_FACTOR = 0.5;
+    private static final double FUZZY_FACTOR = 0.25;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MAX_EXPANSIONS = 64;
+
+    private static final Comparator<Hit> RANKING = Comparator
+            .comparingInt((Hit hit) -> hit.matchedTokens).reversed()
+            .thenComparing(Comparator.comparingDouble((Hit hit) -> hit.score).reversed())
+            .thenComparing(Comparator.comparingLong((Hit hit) -> hit.articleId).reversed());
+
+    private final ArticleRepository articleRepository;
+
+    /**
+     * term -> (article id -> weight of the term in the article).
+     */
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    /**
+     * article id -> terms of the article, needed to remove an article from the postings.
+     */
+    private final Map<Long, Set<String>> terms = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public ArticleSearchIndex(final ArticleRepository articleRepository) {
+        this.articleRepository = articleRepository;
+    }
+
+    /**
+     * Replaces the whole index by all active articles in the database. Only the indexed columns
+     * are streamed row by row, so no article entities are loaded. Changes of articles wait until
+     * the rebuild is done and are applied afterwards.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        final int indexed;
+        lock.writeLock().lock();
+        try (Stream<ArticleSearchFields> articles = articleRepository.streamActiveSearchFields()) {
+            postings.clear();
+            terms.clear();
+            articles.forEach(article -> add(article.getId(), article.getName(),
+                    article.getDescription(), article.getLocation(), article.getCategory()));
+            indexed = terms.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Indexed {} articles for search.", indexed);
+    }
+
+    /**
+     * Adds or replaces an article. Inactive articles are removed from the index.
+     */
+    public void index(final Article article) {
+        if (article.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeArticle(article.getId());
+            if (article.isActive()) {
+                add(article.getId(), article.getName(), article.getDescription(),
+                        article.getLocation(), article.getCategory());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an article from the index. Unknown articles are ignored.
+     */
+    public void remove(final Long articleId) {
+        lock.writeLock().lock();
+        try {
+            removeArticle(articleId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches all active articles.
+     *
+     * @param query search string entered by the user.
+     * @param offset number of hits to skip.
+     * @param limit maximum number of returned hits.
+     * @return ids of the matching articles in order of relevance and the total number of hits.
+     */
+    public SearchResult search(final String query, final int offset, final int limit) {
+        final Set<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new SearchResult(Collections.emptyList(), 0);
+        }
+
+        final Map<Long, Hit> hits = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (final String token : tokens) {
+                for (final Entry<Long, Double> score : scoreToken(token).entrySet()) {
+                    hits.computeIfAbsent(score.getKey(), Hit::new).add(score.getValue());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        final List<Hit> ranked = best(hits.values(), (long) Math.max(0, offset) + limit);
+        final List<Long> articleIds = new ArrayList<>();
+        for (int i = Math.max(0, offset); i < ranked.size(); i++) {
+            articleIds.add(ranked.get(i).articleId);
+        }
+        return new SearchResult(articleIds, hits.size());
+    }
+
+    /**
+     * Returns the given number of best ranked hits in order. The hits are passed through a heap of
+     * that size, whose head is the worst hit kept so far, instead of sorting all of them.
+     */
+    private static List<Hit> best(final Collection<Hit> hits, final long count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+
+        final int size = (int) Math.min(count, hits.size());
+        final PriorityQueue<Hit> best = new PriorityQueue<>(Math.max(1, size), RANKING.reversed());
+        for (final Hit hit : hits) {
+            if (best.size() < size) {
+                best.add(hit);
+            } else if (RANKING.compare(hit, best.peek()) < 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+
+        final List<Hit> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        return ranked;
+    }
+
+    /**
+     * Returns the best score of one query token for every article it matches.
+     */
+    private Map<Long, Double> scoreToken(final String token) {
+        final Map<String, Double> candidates = new HashMap<>();
+        if (postings.containsKey(token)) {
+            candidates.put(token, 1.0);
+        }
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            for (final String term : postings
+                    .subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                if (candidates.size() >= MAX_EXPANSIONS) {
+                    break;
+                }
+                candidates.put(term, PREFIX_FACTOR);
+            }
+        }
+        if (candidates.isEmpty() && token.length() >= MIN_FUZZY_LENGTH) {
+            for (final String term : withinOneEdit(token)) {
+                candidates.put(term, FUZZY_FACTOR);
+            }
+        }
+
+        final Map<Long, Double> scores = new HashMap<>();
+        for (final Entry<String, Double> candidate : candidates.entrySet()) {
+            final Map<Long, Integer> articles = postings.get(candidate.getKey());
+            final double idf = Math.log(1.0 + (double) terms.size() / articles.size());
+            for (final Entry<Long, Integer> article : articles.entrySet()) {
+                scores.merge(article.getKey(),
+                        candidate.getValue() * article.getValue() * idf, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Returns the indexed terms, which can be derived from the token by inserting, deleting or
+     * replacing one character. Typos rarely hit the first letter, so it is kept. Instead of
+     * comparing the token with every term, the candidates are generated: for each position only
+     * the characters, which follow the token's prefix in some term, are tried. The work is bounded
+     * by the token length times the size of the alphabet, whatever the size of the index.
+     */
+    private Set<String> withinOneEdit(final String token) {
+        final Set<String> matches = new LinkedHashSet<>();
+        for (int i = 1; i <= token.length() && matches.size() < MAX_EXPANSIONS; i++) {
+            final String prefix = token.substring(0, i);
+            final String tail = token.substring(i);
+            final String tailAfterEdit = i < token.length() ? token.substring(i + 1) : null;
+            if (tailAfterEdit != null) {
+                addIfIndexed(matches, prefix + tailAfterEdit);
+            }
+            for (final char next : nextCharacters(prefix)) {
+                if (tailAfterEdit != null) {
+                    addIfIndexed(matches, prefix + next + tailAfterEdit);
+                }
+                addIfIndexed(matches, prefix + next + tail);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the distinct characters, which follow the prefix in the indexed terms. Every
+     * character costs one lookup in the term map.
+     */
+    private List<Character> nextCharacters(final String prefix) {
+        final List<Character> characters = new ArrayList<>();
+        String term = postings.higherKey(prefix);
+        while (term != null && term.startsWith(prefix)) {
+            final char next = term.charAt(prefix.length());
+            characters.add(next);
+            if (next == Character.MAX_VALUE) {
+                break;
+            }
+            term = postings.ceilingKey(prefix + (char) (next + 1));
+        }
+        return characters;
+    }
+
+    private void addIfIndexed(final Set<String> matches, final String term) {
+        if (matches.size() < MAX_EXPANSIONS && postings.containsKey(term)) {
+            matches.add(term);
+        }
+    }
+
+    private void add(final Long articleId, final String name, final String description,
+            final String location, final Category category) {
+        final Map<String, Integer> weights = new HashMap<>();
+        addField(weights, name, NAME_WEIGHT);
+        addField(weights, description, DESCRIPTION_WEIGHT);
+        addField(weights, location, LOCATION_WEIGHT);
+        if (category != null) {
+            addField(weights, category.getName(), CATEGORY_WEIGHT);
+        }
+
+        for (final Entry<String, Integer> weight : weights.entrySet()) {
+            postings.computeIfAbsent(weight.getKey(), term -> new HashMap<>())
+                    .put(articleId, weight.getValue());
+        }
+        terms.put(articleId, weights.keySet());
+    }
+
+    private void removeArticle(final Long articleId) {
+        final Set<String> articleTerms = terms.remove(articleId);
+        if (articleTerms == null) {
+            return;
+        }
+
+        for (final String term : articleTerms) {
+            final Map<Long, Integer> articles = postings.get(term);
+            articles.remove(articleId);
+            if (articles.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static void addField(final Map<String, Integer> weights, final String text,
+            final int weight) {
+        for (final String token : TOKEN_SEPARATOR.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                weights.merge(token, weight, Integer::sum);
+            }
+        }
+    }
+
+    static Set<String> tokenize(final String text) {
+        final Set<String> tokens = new LinkedHashSet<>();
+        for (final String token : TOKEN_SEPARATOR.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static String normalize(final String text) {
+        return text == null ? "" : text.toLowerCase(Locale.GERMAN);
+    }
+
+    private static final class Hit {
+
+        private final long articleId;
+        private int matchedTokens;
+        private double score;
+
+        private Hit(final Long articleId) {
+            this.articleId = articleId;
+        }
+
+        private void add(final double tokenScore) {
+            matchedTokens++;
+            score += tokenScore;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package de.propra2.ausleiherino24.features.search;
+
+import de.propra2.ausleiherino24.data.ArticleListing;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One page of search results as rendered by index.html.
+ */
+@Data
+@AllArgsConstructor
+public class SearchPage {
+
+    private List<ArticleListing> articles;
+
+    private int page;
+
+    private int totalHits;
+
+    private boolean lastPage;
+
+    public boolean isFirstPage() {
+        return page == 0;
+    }
+}
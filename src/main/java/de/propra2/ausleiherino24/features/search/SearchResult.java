@@ -0,0 +1,20 @@
+package de.propra2.ausleiherino24.features.search;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One page of article ids found by {@link ArticleSearchIndex}, ordered by relevance.
+ */
+@Data
+@AllArgsConstructor
+public class SearchResult {
+
+    private List<Long> articleIds;
+
+    /**
+     * Number of all matching articles, not only of the ones on this page.
+     */
+    private int totalHits;
+}
@@ -13,21 +13,37 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
-import lombok.AllArgsConstructor;
+import javax.persistence.Version;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.OptimisticLock;
+
+/**
+ * Owner and cases are loaded lazily. Views, which render the owner, load the article with the
+ * entity graph {@value #WITH_OWNER}.
+ *
+ * <p>The version is incremented whenever a request for the article is accepted, so that two
+ * overlapping requests can't be accepted concurrently. New cases don't change the version.
+ */
 @Data
 @Entity
+@NamedEntityGraph(name = Article.WITH_OWNER, attributeNodes = @NamedAttributeNode("owner"))
 @NoArgsConstructor
-@AllArgsConstructor
 public class Article {
 
+    public static final String WITH_OWNER = "Article.withOwner";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
+    @Version
+    private long version;
+
     private String name;
 
     @Column(length = 10485760)
@@ -60,15 +76,39 @@ public class Article {
      */
     private boolean forRental;
 
-    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn
     private User owner;
 
     private Category category;
 
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "article")
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "article")
+    @OptimisticLock(excluded = true)
     private List<Case> cases;
 
+    /**
+     * Creates an article with all fields except the version, which is maintained by Hibernate.
+     */
+    public Article(final Long id, final String name, final String description,
+            final String image, final Double deposit, final Double costPerDay,
+            final String location, final boolean forSale, final boolean active,
+            final boolean forRental, final User owner, final Category category,
+            final List<Case> cases) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.image = image;
+        this.deposit = deposit;
+        this.costPerDay = costPerDay;
+        this.location = location;
+        this.forSale = forSale;
+        this.active = active;
+        this.forRental = forRental;
+        this.owner = owner;
+        this.category = category;
+        this.cases = cases;
+    }
+
     /**
      * The addCase methods are necessary to be self-made, so that the article is updated in the case
      * object. See:
@@ -86,10 +126,14 @@ public class Article {
         if (cases == null) {
             cases = new ArrayList<>();
         }
-        if (cases.contains(thisCase)) {
-            cases.set(cases.indexOf(thisCase), thisCase);
-        } else {
-            cases.add(thisCase);
+        // the case history of a loaded article is not read just to add a case to it. The case
+        // owns the relationship, so the list contains the case once it is read after the flush.
+        if (Hibernate.isInitialized(cases)) {
+            if (cases.contains(thisCase)) {
+                cases.set(cases.indexOf(thisCase), thisCase);
+            } else {
+                cases.add(thisCase);
+            }
         }
         if (!repetition) {
             thisCase.setArticle(this, true);
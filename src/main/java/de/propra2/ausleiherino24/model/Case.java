@@ -8,21 +8,58 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
-import lombok.AllArgsConstructor;
+import javax.persistence.Version;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * Receiver, article, conflict, review and transaction are loaded lazily. Repository methods, which
+ * feed a view, name the entity graph of the associations the view renders.
+ *
+ * <p>The request status of a saved case is changed by {@code CaseStateMachine} only. Concurrent
+ * changes of the same case are detected by the version.
+ */
 @Entity
 @Data
-@Table(name = "caseDB")
+@Table(name = "caseDB",
+        indexes = @Index(name = "case_status_end_time", columnList = "requestStatus, endTime, id"))
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Case.OVERVIEW, attributeNodes = {
+                @NamedAttributeNode(value = "article", subgraph = "article.owner"),
+                @NamedAttributeNode("receiver"),
+                @NamedAttributeNode("review"),
+                @NamedAttributeNode("ppTransaction")},
+                subgraphs = @NamedSubgraph(name = "article.owner",
+                        attributeNodes = @NamedAttributeNode("owner"))),
+        @NamedEntityGraph(name = Case.WITH_CONFLICT, attributeNodes = {
+                @NamedAttributeNode(value = "article", subgraph = "article.owner"),
+                @NamedAttributeNode("receiver"),
+                @NamedAttributeNode("conflict")},
+                subgraphs = @NamedSubgraph(name = "article.owner",
+                        attributeNodes = @NamedAttributeNode("owner")))
+})
 @NoArgsConstructor
-@AllArgsConstructor
 public class Case {
 
+    /**
+     * Entity graph for the case lists of myOverview.
+     */
+    public static final String OVERVIEW = "Case.overview";
+
+    /**
+     * Entity graph for the conflict view of the admin and the end time reminder.
+     */
+    public static final String WITH_CONFLICT = "Case.withConflict";
+
     /**
      * Bitte die Werte nicht ändern. Diese dienen zur Sortierung und müssen gegebenefalls in
      * myOverview.html und caseRepository mit angepasst werden.
@@ -40,29 +77,53 @@ public class Case {
     public static final int OPEN_CONFLICT = 10; //Es gibt noch einen offenen Konflikt
     public static final int FINISHED = 14; //Verleih ist beendet
 
-    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     PpTransaction ppTransaction;
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
+    @Version
+    private long version;
     private Long startTime;
     private Long endTime;
     private Double price;
     private Double deposit;
     private int requestStatus;
+    // inverse side of a one-to-one, Hibernate loads it eagerly anyway
     @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "acase")
     private CustomerReview customerReview;
-    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn
     private User receiver;
-    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn
     private Article article;
-    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Conflict conflict;
-    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private CustomerReview review;
 
+    /**
+     * Creates a case with all fields except the version, which is maintained by Hibernate.
+     */
+    public Case(final PpTransaction ppTransaction, final Long id, final Long startTime,
+            final Long endTime, final Double price, final Double deposit, final int requestStatus,
+            final CustomerReview customerReview, final User receiver, final Article article,
+            final Conflict conflict, final CustomerReview review) {
+        this.ppTransaction = ppTransaction;
+        this.id = id;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.price = price;
+        this.deposit = deposit;
+        this.requestStatus = requestStatus;
+        this.customerReview = customerReview;
+        this.receiver = receiver;
+        this.article = article;
+        this.conflict = conflict;
+        this.review = review;
+    }
+
     /**
      * Die Konstruktion ist nötig, damit der Case stets mit geupdatet wird. Analoges ist im Case
      * Siehe
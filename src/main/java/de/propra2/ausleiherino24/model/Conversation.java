@@ -0,0 +1,53 @@
+package de.propra2.ausleiherino24.model;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.OneToOne;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Private chat between owner and receiver of a case.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+public class Conversation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    Long id;
+
+    @OneToOne
+    @JoinColumn(unique = true, nullable = false)
+    Case conversationCase;
+
+    /**
+     * Id of the last message the owner has acknowledged.
+     */
+    Long ownerAckedMessageId = 0L;
+
+    /**
+     * Id of the last message the receiver has acknowledged.
+     */
+    Long receiverAckedMessageId = 0L;
+
+    public Conversation(final Case conversationCase) {
+        this.conversationCase = conversationCase;
+    }
+
+    public String getOwnerUsername() {
+        return conversationCase.getOwner().getUsername();
+    }
+
+    public String getReceiverUsername() {
+        return conversationCase.getReceiver().getUsername();
+    }
+
+    public boolean isParticipant(final String username) {
+        return getOwnerUsername().equals(username) || getReceiverUsername().equals(username);
+    }
+}
@@ -0,0 +1,51 @@
+package de.propra2.ausleiherino24.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Message of a {@link Conversation}. The id given by the client makes sure, that a message sent
+ * again after a missing acknowledgement is saved only once.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(indexes = @Index(columnList = "conversationId, id"),
+        uniqueConstraints = @UniqueConstraint(
+                columnNames = {"conversationId", "sender", "clientMessageId"}))
+public class ConversationMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    Long id;
+
+    Long conversationId;
+
+    String sender;
+
+    String clientMessageId;
+
+    @Size(max = 2048)
+    @Column(length = 2048)
+    String content;
+
+    Long timestamp;
+
+    public ConversationMessage(final Long conversationId, final String sender,
+            final String clientMessageId, final String content, final long timestamp) {
+        this.conversationId = conversationId;
+        this.sender = sender;
+        this.clientMessageId = clientMessageId;
+        this.content = content;
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,80 @@
+package de.propra2.ausleiherino24.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.mail.SimpleMailMessage;
+
+/**
+ * A mail, which is saved when it is requested and delivered later by the MailDeliveryWorker.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(indexes = @Index(columnList = "status, nextAttemptAt"))
+public class QueuedMail {
+
+    public static final int PENDING = 1;
+    public static final int SENT = 2;
+    public static final int FAILED = 3;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    Long id;
+
+    /**
+     * SMTP host the mail is sent with. Every provider has its own rate limit.
+     */
+    String provider;
+
+    String sender;
+
+    String recipient;
+
+    String subject;
+
+    @Column(length = 4096)
+    String text;
+
+    int status;
+
+    int attempts;
+
+    Long nextAttemptAt;
+
+    Long createdAt;
+
+    String lastError;
+
+    /**
+     * Creates a pending mail with a copy of the given message, which is due immediately.
+     */
+    public QueuedMail(final String provider, final SimpleMailMessage message, final long now) {
+        this.provider = provider;
+        this.sender = message.getFrom();
+        this.recipient = message.getTo() == null ? null : String.join(",", message.getTo());
+        this.subject = message.getSubject();
+        this.text = message.getText();
+        this.status = PENDING;
+        this.nextAttemptAt = now;
+        this.createdAt = now;
+    }
+
+    /**
+     * Message to hand to the mail sender.
+     */
+    public SimpleMailMessage toMessage() {
+        final SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(sender);
+        message.setTo(recipient.split(","));
+        message.setSubject(subject);
+        message.setText(text);
+        return message;
+    }
+}
@@ -1,10 +1,32 @@
 package de.propra2.ausleiherino24.propayhandler.data;
 
 import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.propayhandler.model.AccountSummaries;
+import de.propra2.ausleiherino24.propayhandler.model.AccountSummary;
 import de.propra2.ausleiherino24.propayhandler.model.PpAccount;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 
@@ -14,38 +36,55 @@ import org.springframework.web.client.RestTemplate;
 @Service
 public class AccountHandler {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountHandler.class);
+
     private static final String ACCOUNT_DEFAULT = "/{account}";
 
     private final RestTemplate restTemplate;
 
     private final String accountUrl;
 
+    private final ProPayCircuitBreaker circuitBreaker;
+
+    private final ExecutorService bulkExecutor;
+
+    private final long bulkTimeoutMillis;
+
     /**
      * Autowired constructor.
      *
      * @param restTemplate used to send requests to propay
+     * @param circuitBreaker caches the availability of propay
+     * @param config parallelism and timeout of bulk requests
      */
     @Autowired
     public AccountHandler(final RestTemplate restTemplate,
-            @Value("${PP_ACCOUNT_URL}") String accountUrl) {
+            @Value("${PP_ACCOUNT_URL}") String accountUrl,
+            final ProPayCircuitBreaker circuitBreaker, final ProPayConfig config) {
         this.restTemplate = restTemplate;
         this.accountUrl = accountUrl;
+        this.circuitBreaker = circuitBreaker;
+        final CustomizableThreadFactory threadFactory =
+                new CustomizableThreadFactory("propay-bulk-");
+        threadFactory.setDaemon(true);
+        this.bulkExecutor = Executors.newFixedThreadPool(config.getBulkParallelism(),
+                threadFactory);
+        this.bulkTimeoutMillis = config.getBulkTimeoutMillis();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkExecutor.shutdownNow();
     }
 
     /**
      * used to check if Propay is online in order to not have to return status code for all
-     * requests.
+     * requests. Answers from the state cached by the circuit breaker, without asking propay.
      *
      * @return is propay available?
      */
     public boolean checkAvailability() {
-        try {
-            getAccountData("AvailabilityAcc");
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-
+        return circuitBreaker.isAvailable();
     }
 
     /**
@@ -55,8 +94,55 @@ public class AccountHandler {
      * @return returns all data of PropayAccount
      */
     PpAccount getAccountData(final String accountName) {
-        return restTemplate
-                .getForObject(accountUrl + ACCOUNT_DEFAULT, PpAccount.class, accountName);
+        return callProPay(() -> restTemplate
+                .getForObject(accountUrl + ACCOUNT_DEFAULT, PpAccount.class, accountName));
+    }
+
+    /**
+     * Gets the summaries of several accounts. The accounts are requested in parallel, bounded by
+     * the bulk parallelism. Every call is limited by the read timeout of the RestTemplate, the
+     * whole request by the bulk timeout. Accounts, which failed or were not answered in time, are
+     * reported as unavailable, the others are returned anyway.
+     *
+     * @param accountNames accounts to get, duplicates are requested only once
+     * @return summaries of all answered accounts and the names of all others
+     */
+    public AccountSummaries getAccountSummaries(final Collection<String> accountNames) {
+        final Map<String, AccountSummary> summaries = new LinkedHashMap<>();
+        final List<String> unavailableAccounts = new ArrayList<>();
+        if (!checkAvailability()) {
+            unavailableAccounts.addAll(new LinkedHashSet<>(accountNames));
+            return new AccountSummaries(summaries, unavailableAccounts);
+        }
+
+        final Map<String, Future<PpAccount>> calls = new LinkedHashMap<>();
+        for (final String accountName : accountNames) {
+            if (!calls.containsKey(accountName)) {
+                calls.put(accountName, bulkExecutor.submit(() -> getAccountData(accountName)));
+            }
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(bulkTimeoutMillis);
+        for (final Entry<String, Future<PpAccount>> call : calls.entrySet()) {
+            try {
+                final PpAccount account = call.getValue()
+                        .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                summaries.put(call.getKey(), AccountSummary.of(account));
+            } catch (ExecutionException | TimeoutException e) {
+                call.getValue().cancel(true);
+                unavailableAccounts.add(call.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                call.getValue().cancel(true);
+                unavailableAccounts.add(call.getKey());
+            }
+        }
+
+        if (!unavailableAccounts.isEmpty()) {
+            LOGGER.warn("Could not get {} of {} accounts from ProPay.", unavailableAccounts.size(),
+                    calls.size());
+        }
+        return new AccountSummaries(summaries, unavailableAccounts);
     }
 
     /**
@@ -102,8 +188,9 @@ public class AccountHandler {
      */
     public void addFunds(final String username, final Double amount) {
 
-        restTemplate.postForLocation(accountUrl + ACCOUNT_DEFAULT + "?amount=" + amount.toString(),
-                null, username);
+        callProPay(() -> restTemplate
+                .postForLocation(accountUrl + ACCOUNT_DEFAULT + "?amount={amount}", null,
+                        username, amount));
     }
 
     /**
@@ -124,12 +211,28 @@ public class AccountHandler {
      * @param targetUser user to receive Funds
      * @param amount amount to be transfered
      */
-    private void transferFunds(final String sourceUser, final String targetUser,
+    void transferFunds(final String sourceUser, final String targetUser,
             final Double amount) {
 
-        restTemplate.postForLocation(
-                accountUrl + "/{sourceAccount}/transfer/{targetAccount}" + "?amount=" + amount
-                        .toString(), null, sourceUser, targetUser);
+        callProPay(() -> restTemplate.postForLocation(
+                accountUrl + "/{sourceAccount}/transfer/{targetAccount}?amount={amount}", null,
+                sourceUser, targetUser, amount));
+    }
+
+    /**
+     * Reports the outcome of a call to the circuit breaker. Client errors like unknown accounts
+     * do not count as failure. Used by the {@link ReservationHandler} as well, so that failed
+     * reservations open the breaker, too.
+     */
+    <T> T callProPay(final Supplier<T> call) {
+        try {
+            final T result = call.get();
+            circuitBreaker.recordSuccess();
+            return result;
+        } catch (ResourceAccessException | HttpServerErrorException e) {
+            circuitBreaker.recordFailure();
+            throw e;
+        }
     }
 
 }
@@ -0,0 +1,51 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import de.propra2.ausleiherino24.propayhandler.model.PpOutboxEntry;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PpOutboxRepository extends CrudRepository<PpOutboxEntry, Long> {
+
+    boolean existsByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Returns those of the given idempotency keys, which are already enqueued.
+     */
+    @Query("SELECT e.idempotencyKey FROM PpOutboxEntry e WHERE e.idempotencyKey IN :keys")
+    Set<String> findIdempotencyKeysIn(@Param("keys") Collection<String> keys);
+
+    boolean existsByPpTransactionIdAndStatus(Long ppTransactionId, int status);
+
+    /**
+     * Finds pending entries, which are due. Only the oldest pending entry of a case is returned,
+     * so that the calls for one case are sent in the order they were enqueued.
+     */
+    @Query("SELECT e FROM PpOutboxEntry e "
+            + "WHERE e.status = 1 "
+            + "AND e.nextAttemptAt <= :now "
+            + "AND NOT EXISTS (SELECT o FROM PpOutboxEntry o "
+            + "WHERE o.caseId = e.caseId AND o.status = 1 AND o.id < e.id) "
+            + "ORDER BY e.id ASC")
+    List<PpOutboxEntry> findDueEntries(@Param("now") long now, Pageable pageable);
+
+    /**
+     * Claims a due pending entry until leaseUntil. Of several workers, possibly on several
+     * instances, only one claims the entry. If that worker dies, the entry is due again after the
+     * lease.
+     *
+     * @return 1, if the entry was claimed. 0, if it is not pending, not due or claimed already.
+     */
+    @Modifying
+    @Query("UPDATE PpOutboxEntry e "
+            + "SET e.nextAttemptAt = :leaseUntil, e.version = e.version + 1 "
+            + "WHERE e.id = :id AND e.status = 1 AND e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") long now, @Param("leaseUntil") long leaseUntil);
+}
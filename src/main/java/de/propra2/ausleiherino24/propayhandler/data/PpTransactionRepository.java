@@ -2,7 +2,10 @@ package de.propra2.ausleiherino24.propayhandler.data;
 
 import de.propra2.ausleiherino24.propayhandler.model.PpTransaction;
 import java.util.List;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
 
@@ -11,4 +14,15 @@ public interface PpTransactionRepository extends CrudRepository<PpTransaction, L
 
     @NonNull
     List<PpTransaction> findAll();
+
+    /**
+     * Updates only the reservation, so that concurrent changes of the case are not overwritten.
+     */
+    @Modifying
+    @Query("UPDATE PpTransaction t SET t.reservationId = :reservationId WHERE t.id = :id")
+    void updateReservationId(@Param("id") Long id, @Param("reservationId") Long reservationId);
+
+    @Modifying
+    @Query("UPDATE PpTransaction t SET t.paymentStatus = :paymentStatus WHERE t.id = :id")
+    void updatePaymentStatus(@Param("id") Long id, @Param("paymentStatus") int paymentStatus);
 }
@@ -0,0 +1,122 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import de.propra2.ausleiherino24.propayhandler.model.PpAccount;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Caches, whether ProPay is available, so that request threads do not have to ask ProPay and
+ * block while it is slow or down.
+ *
+ * <ul>
+ * <li>CLOSED: ProPay is available. Consecutive failures of probes or of real calls open the
+ * circuit, once they reach the failure threshold.</li>
+ * <li>OPEN: ProPay is unavailable. No probe is sent until the open time has passed.</li>
+ * <li>HALF_OPEN: the next probe decides. Success closes the circuit, failure opens it again.</li>
+ * </ul>
+ *
+ * <p>The probe runs in the background with its own, short timeouts. See {@link ProPayConfig}.
+ */
+@Component
+public class ProPayCircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProPayCircuitBreaker.class);
+
+    private static final String PROBE_ACCOUNT = "AvailabilityAcc";
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final RestTemplate probeTemplate;
+    private final String accountUrl;
+    private final ProPayConfig config;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private int consecutiveFailures;
+
+    /**
+     * Autowired constructor.
+     *
+     * @param restTemplateBuilder used to build a RestTemplate with the probe timeouts
+     */
+    @Autowired
+    public ProPayCircuitBreaker(final RestTemplateBuilder restTemplateBuilder,
+            @Value("${PP_ACCOUNT_URL}") final String accountUrl, final ProPayConfig config) {
+        this.probeTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()))
+                .setReadTimeout(Duration.ofMillis(config.getReadTimeoutMillis()))
+                .build();
+        this.accountUrl = accountUrl;
+        this.config = config;
+    }
+
+    /**
+     * Returns the cached state without any network access.
+     *
+     * @return true: ProPay is available. false: circuit is open or half open.
+     */
+    public boolean isAvailable() {
+        return state == State.CLOSED;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    /**
+     * Asks ProPay for the availability account and updates the state. While the circuit is open,
+     * no probe is sent until the open time has passed.
+     */
+    @Scheduled(fixedDelayString = "${propay.probeIntervalMillis:5000}")
+    public void probe() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < config.getOpenMillis()) {
+                return;
+            }
+            state = State.HALF_OPEN;
+        }
+
+        try {
+            probeTemplate.getForObject(accountUrl + "/{account}", PpAccount.class, PROBE_ACCOUNT);
+            recordSuccess();
+        } catch (RestClientException e) {
+            LOGGER.warn("ProPay health probe failed: {}", e.getMessage());
+            recordFailure();
+        }
+    }
+
+    /**
+     * Has to be called after a call to ProPay succeeded.
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            LOGGER.info("ProPay is available again.");
+            state = State.CLOSED;
+        }
+    }
+
+    /**
+     * Has to be called after a call to ProPay failed, because ProPay could not be reached or
+     * answered with a server error.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || state == State.CLOSED
+                && consecutiveFailures >= config.getFailureThreshold()) {
+            LOGGER.warn("ProPay is unavailable after {} failed calls.", consecutiveFailures);
+            openedAt = System.currentTimeMillis();
+            state = State.OPEN;
+        }
+    }
+}
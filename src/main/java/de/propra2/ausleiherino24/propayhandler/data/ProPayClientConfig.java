@@ -0,0 +1,59 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * HTTP client used by {@link AccountHandler} and {@link ReservationHandler}. Connections to ProPay
+ * are pooled and kept alive, so that a payment does not open a new connection for every request.
+ *
+ * <p>The RestTemplate is built with the RestTemplateBuilder of Spring Boot, which records the
+ * latency of every ProPay endpoint as metric http.client.requests.
+ */
+@Configuration
+public class ProPayClientConfig {
+
+    /**
+     * Pooled HTTP client with the timeouts of {@link ProPayConfig}. Closed on shutdown.
+     */
+    @Bean
+    public CloseableHttpClient proPayHttpClient(final ProPayConfig config) {
+        return createHttpClient(config);
+    }
+
+    @Bean
+    public RestTemplate proPayRestTemplate(final RestTemplateBuilder restTemplateBuilder,
+            final CloseableHttpClient proPayHttpClient) {
+        return restTemplateBuilder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(proPayHttpClient))
+                .build();
+    }
+
+    static CloseableHttpClient createHttpClient(final ProPayConfig config) {
+        final PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(config.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+
+        final RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeoutMillis())
+                .setSocketTimeout(config.getReadTimeoutMillis())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeoutMillis())
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getIdleConnectionMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+}
@@ -0,0 +1,96 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Connection pool, timeouts, circuit breaker and outbox settings for the connection to ProPay.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "propay")
+@EnableConfigurationProperties
+public class ProPayConfig {
+
+    private int connectTimeoutMillis = 1000;
+
+    private int readTimeoutMillis = 2000;
+
+    /**
+     * Maximum time to wait for a free connection of the pool.
+     */
+    private int connectionRequestTimeoutMillis = 500;
+
+    private int maxConnections = 50;
+
+    /**
+     * ProPay is a single route, so this limits the concurrent requests to ProPay.
+     */
+    private int maxConnectionsPerRoute = 20;
+
+    /**
+     * Idle connections are closed after this time, before ProPay closes them on its side.
+     */
+    private long idleConnectionMillis = 30000;
+
+    /**
+     * Pause between two health probes.
+     */
+    private long probeIntervalMillis = 5000;
+
+    /**
+     * Number of consecutive failed calls, after which ProPay is considered unavailable.
+     */
+    private int failureThreshold = 2;
+
+    /**
+     * Time ProPay is considered unavailable, before the next probe is sent.
+     */
+    private long openMillis = 30000;
+
+    /**
+     * Pause between two polls of the outbox for due calls.
+     */
+    private long outboxPollMillis = 1000;
+
+    /**
+     * Number of threads sending the calls of the outbox.
+     */
+    private int outboxWorkers = 4;
+
+    /**
+     * Maximum number of outbox entries fetched by one poll.
+     */
+    private int outboxBatchSize = 50;
+
+    /**
+     * Number of attempts, after which a call is marked as failed.
+     */
+    private int outboxMaxAttempts = 10;
+
+    /**
+     * Delay before the first retry. It is doubled for every further attempt.
+     */
+    private long outboxInitialBackoffMillis = 1000;
+
+    private long outboxMaxBackoffMillis = 300000;
+
+    /**
+     * Time a worker may take for the calls of one entry. Afterwards, the entry is due again, in
+     * case the worker died. Has to be well above the timeouts of the calls.
+     */
+    private long outboxLeaseMillis = 300000;
+
+    /**
+     * Maximum number of concurrent calls of one bulk request for account data.
+     */
+    private int bulkParallelism = 8;
+
+    /**
+     * Time a bulk request waits for all accounts. Accounts, which are not answered until then,
+     * are reported as unavailable.
+     */
+    private long bulkTimeoutMillis = 5000;
+}
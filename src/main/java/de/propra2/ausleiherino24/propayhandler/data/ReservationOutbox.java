@@ -0,0 +1,93 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.propayhandler.model.PpOperation;
+import de.propra2.ausleiherino24.propayhandler.model.PpOutboxEntry;
+import de.propra2.ausleiherino24.propayhandler.model.PpTransaction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Enqueues calls to ProPay in the transaction, which saves the case. The calls are sent by the
+ * {@link ReservationOutboxWorker}, so that a request does not wait for ProPay and a failed call
+ * does not get lost.
+ */
+@Component
+public class ReservationOutbox {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReservationOutbox.class);
+
+    private final PpOutboxRepository outboxRepository;
+
+    @Autowired
+    public ReservationOutbox(final PpOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    /**
+     * Enqueues an operation for the transaction of a case and marks its payment as pending. An
+     * operation, which was already enqueued for the case, is ignored.
+     *
+     * @param aCase saved case
+     * @param operation calls to send
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(final Case aCase, final PpOperation operation) {
+        final PpTransaction ppTransaction = aCase.getPpTransaction();
+        if (ppTransaction == null) {
+            return;
+        }
+        if (outboxRepository
+                .existsByIdempotencyKey(PpOutboxEntry.idempotencyKey(aCase.getId(), operation))) {
+            LOGGER.info("{} for case {} is already enqueued.", operation, aCase.getId());
+            return;
+        }
+
+        outboxRepository.save(new PpOutboxEntry(aCase.getId(), ppTransaction.getId(), operation,
+                System.currentTimeMillis()));
+        ppTransaction.setPaymentStatus(PpTransaction.PAYMENT_PENDING);
+    }
+
+    /**
+     * Enqueues the same operation for several cases, like {@link #enqueue(Case, PpOperation)}.
+     * The operations already enqueued are looked up with one query, so that the new entries are
+     * inserted together on the next flush.
+     *
+     * @param cases saved cases
+     * @param operation calls to send for every case
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(final Collection<Case> cases, final PpOperation operation) {
+        final List<Case> withTransaction = cases.stream()
+                .filter(aCase -> aCase.getPpTransaction() != null)
+                .collect(Collectors.toList());
+        if (withTransaction.isEmpty()) {
+            return;
+        }
+        final Set<String> enqueued = outboxRepository.findIdempotencyKeysIn(withTransaction.stream()
+                .map(aCase -> PpOutboxEntry.idempotencyKey(aCase.getId(), operation))
+                .collect(Collectors.toList()));
+
+        final long now = System.currentTimeMillis();
+        final List<PpOutboxEntry> entries = new ArrayList<>();
+        for (final Case aCase : withTransaction) {
+            if (enqueued.contains(PpOutboxEntry.idempotencyKey(aCase.getId(), operation))) {
+                LOGGER.info("{} for case {} is already enqueued.", operation, aCase.getId());
+                continue;
+            }
+            final PpTransaction ppTransaction = aCase.getPpTransaction();
+            entries.add(new PpOutboxEntry(aCase.getId(), ppTransaction.getId(), operation, now));
+            ppTransaction.setPaymentStatus(PpTransaction.PAYMENT_PENDING);
+        }
+        outboxRepository.saveAll(entries);
+    }
+}
@@ -0,0 +1,304 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import de.propra2.ausleiherino24.data.CaseRepository;
+import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.propayhandler.model.PpOutboxEntry;
+import de.propra2.ausleiherino24.propayhandler.model.PpTransaction;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+/**
+ * Sends the calls of the {@link ReservationOutbox} to ProPay with a pool of worker threads.
+ *
+ * <ul>
+ * <li>Every entry is claimed in the database before its calls are sent, so that several
+ * instances can poll the same outbox without sending an entry twice.</li>
+ * <li>Every completed step of an operation is saved, so that a retry continues with the next
+ * step. A step, which was interrupted before it was saved, is sent again, e.g. after a timeout of
+ * a call ProPay did execute. Calls are therefore delivered at least once, not exactly once.</li>
+ * <li>Failed calls are retried with exponential backoff, until the maximum number of attempts is
+ * reached. Calls refused by ProPay (4xx) are not retried.</li>
+ * <li>While ProPay is unavailable, the outbox is not polled at all.</li>
+ * </ul>
+ */
+@Component
+public class ReservationOutboxWorker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReservationOutboxWorker.class);
+
+    private static final Long NO_RESERVATION = -1L;
+
+    private final PpOutboxRepository outboxRepository;
+    private final PpTransactionRepository ppTransactionRepository;
+    private final CaseRepository caseRepository;
+    private final ReservationHandler reservationHandler;
+    private final AccountHandler accountHandler;
+    private final ProPayCircuitBreaker circuitBreaker;
+    private final ProPayConfig config;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+
+    /**
+     * Ids of entries, which are currently processed by a worker of this instance. Saves the claims
+     * of entries, which are already in progress here.
+     */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Autowired constructor.
+     */
+    @Autowired
+    public ReservationOutboxWorker(final PpOutboxRepository outboxRepository,
+            final PpTransactionRepository ppTransactionRepository,
+            final CaseRepository caseRepository, final ReservationHandler reservationHandler,
+            final AccountHandler accountHandler, final ProPayCircuitBreaker circuitBreaker,
+            final ProPayConfig config, final PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.ppTransactionRepository = ppTransactionRepository;
+        this.caseRepository = caseRepository;
+        this.reservationHandler = reservationHandler;
+        this.accountHandler = accountHandler;
+        this.circuitBreaker = circuitBreaker;
+        this.config = config;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = Executors.newFixedThreadPool(config.getOutboxWorkers(),
+                new CustomizableThreadFactory("propay-outbox-"));
+    }
+
+    /**
+     * Hands all due entries to the workers.
+     */
+    @Scheduled(fixedDelayString = "${propay.outboxPollMillis:1000}")
+    public void drain() {
+        if (!circuitBreaker.isAvailable()) {
+            return;
+        }
+
+        final List<PpOutboxEntry> dueEntries = outboxRepository.findDueEntries(
+                System.currentTimeMillis(), PageRequest.of(0, config.getOutboxBatchSize()));
+        for (final PpOutboxEntry entry : dueEntries) {
+            if (inFlight.add(entry.getId())) {
+                workers.execute(() -> {
+                    try {
+                        process(entry.getId());
+                    } finally {
+                        inFlight.remove(entry.getId());
+                    }
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Claims an entry, sends its remaining steps and records the outcome.
+     */
+    void process(final Long entryId) {
+        final long now = System.currentTimeMillis();
+        final Integer claimed = transactionTemplate.execute(status -> outboxRepository
+                .claim(entryId, now, now + config.getOutboxLeaseMillis()));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+        final PpOutboxEntry entry = outboxRepository.findById(entryId).orElse(null);
+        if (entry == null) {
+            return;
+        }
+
+        try {
+            final Payment payment = transactionTemplate.execute(status -> loadPayment(entry));
+            switch (entry.getOperation()) {
+                case RESERVE:
+                    reserve(entry, payment);
+                    break;
+                case ACCEPT:
+                    accept(entry, payment);
+                    break;
+                case PUNISH:
+                    punish(entry, payment);
+                    break;
+                default:
+                    release(entry, payment);
+            }
+            finish(entry, PpOutboxEntry.DONE, null);
+        } catch (OptimisticLockingFailureException e) {
+            LOGGER.warn("Lease of {} for case {} expired, it was claimed by another worker.",
+                    entry.getOperation(), entry.getCaseId());
+        } catch (HttpClientErrorException e) {
+            LOGGER.warn("ProPay refused {} for case {}: {}", entry.getOperation(),
+                    entry.getCaseId(), e.getMessage());
+            finish(entry, PpOutboxEntry.FAILED, e.getMessage());
+        } catch (RuntimeException e) {
+            retryLater(entry, e);
+        }
+    }
+
+    private void reserve(final PpOutboxEntry entry, final Payment payment) {
+        if (entry.getCompletedSteps() < 1) {
+            completeStep(entry, reservationHandler.createReservation(payment.receiver,
+                    payment.owner, payment.deposit + payment.lendingCost));
+        }
+    }
+
+    private void accept(final PpOutboxEntry entry, final Payment payment) {
+        if (entry.getCompletedSteps() < 1) {
+            releaseIfReserved(payment);
+            completeStep(entry, NO_RESERVATION);
+        }
+        if (entry.getCompletedSteps() < 2) {
+            accountHandler.transferFunds(payment.receiver, payment.owner, payment.lendingCost);
+            completeStep(entry, null);
+        }
+        if (entry.getCompletedSteps() < 3) {
+            completeStep(entry, reservationHandler
+                    .createReservation(payment.receiver, payment.owner, payment.deposit));
+        }
+    }
+
+    private void release(final PpOutboxEntry entry, final Payment payment) {
+        if (entry.getCompletedSteps() < 1) {
+            releaseIfReserved(payment);
+            completeStep(entry, NO_RESERVATION);
+        }
+    }
+
+    private void punish(final PpOutboxEntry entry, final Payment payment) {
+        if (entry.getCompletedSteps() < 1) {
+            if (isReserved(payment)) {
+                reservationHandler.punishReservation(payment.receiver, payment.reservationId);
+            }
+            completeStep(entry, NO_RESERVATION);
+        }
+    }
+
+    private void releaseIfReserved(final Payment payment) {
+        if (isReserved(payment)) {
+            reservationHandler.releaseReservation(payment.receiver, payment.reservationId);
+        }
+    }
+
+    private static boolean isReserved(final Payment payment) {
+        return payment.reservationId != null && !NO_RESERVATION.equals(payment.reservationId);
+    }
+
+    /**
+     * Saves a completed step together with the reservation it created or released.
+     *
+     * @param reservationId new reservation of the transaction, null to keep the old one
+     */
+    private void completeStep(final PpOutboxEntry entry, final Long reservationId) {
+        entry.setCompletedSteps(entry.getCompletedSteps() + 1);
+        transactionTemplate.execute(status -> {
+            if (reservationId != null) {
+                ppTransactionRepository
+                        .updateReservationId(entry.getPpTransactionId(), reservationId);
+            }
+            saveEntry(entry);
+            return null;
+        });
+    }
+
+    private void finish(final PpOutboxEntry entry, final int status, final String error) {
+        entry.setStatus(status);
+        entry.setLastError(error);
+        transactionTemplate.execute(transactionStatus -> {
+            saveEntry(entry);
+            if (status == PpOutboxEntry.FAILED) {
+                ppTransactionRepository.updatePaymentStatus(entry.getPpTransactionId(),
+                        PpTransaction.PAYMENT_FAILED);
+            } else if (!outboxRepository.existsByPpTransactionIdAndStatus(
+                    entry.getPpTransactionId(), PpOutboxEntry.PENDING)) {
+                ppTransactionRepository.updatePaymentStatus(entry.getPpTransactionId(),
+                        PpTransaction.PAYMENT_DONE);
+            }
+            return null;
+        });
+    }
+
+    private void retryLater(final PpOutboxEntry entry, final RuntimeException cause) {
+        entry.setAttempts(entry.getAttempts() + 1);
+        if (entry.getAttempts() >= config.getOutboxMaxAttempts()) {
+            LOGGER.error("Giving up {} for case {} after {} attempts.", entry.getOperation(),
+                    entry.getCaseId(), entry.getAttempts(), cause);
+            finish(entry, PpOutboxEntry.FAILED, cause.getMessage());
+            return;
+        }
+
+        LOGGER.warn("{} for case {} failed, retrying later: {}", entry.getOperation(),
+                entry.getCaseId(), cause.getMessage());
+        entry.setNextAttemptAt(System.currentTimeMillis() + backoffMillis(entry.getAttempts()));
+        entry.setLastError(cause.getMessage());
+        transactionTemplate.execute(status -> {
+            saveEntry(entry);
+            return null;
+        });
+    }
+
+    /**
+     * Saves the entry and takes over its new version, so that the next save of this worker passes
+     * the version check.
+     */
+    private void saveEntry(final PpOutboxEntry entry) {
+        entry.setVersion(outboxRepository.save(entry).getVersion());
+    }
+
+    /**
+     * Delay before the next attempt. Doubled for every failed attempt up to the maximum.
+     */
+    long backoffMillis(final int attempts) {
+        final int exponent = Math.min(attempts - 1, 30);
+        return Math.min(config.getOutboxMaxBackoffMillis(),
+                config.getOutboxInitialBackoffMillis() << exponent);
+    }
+
+    private Payment loadPayment(final PpOutboxEntry entry) {
+        final Case aCase = caseRepository.findById(entry.getCaseId())
+                .orElseThrow(NoSuchElementException::new);
+        final PpTransaction ppTransaction = ppTransactionRepository
+                .findById(entry.getPpTransactionId()).orElseThrow(NoSuchElementException::new);
+        return new Payment(aCase.getReceiver().getUsername(), aCase.getOwner().getUsername(),
+                aCase.getDeposit(), ppTransaction.getLendingCost(),
+                ppTransaction.getReservationId());
+    }
+
+    /**
+     * Accounts and amounts of a case, read before the calls are sent.
+     */
+    private static final class Payment {
+
+        private final String receiver;
+        private final String owner;
+        private final double deposit;
+        private final double lendingCost;
+        private final Long reservationId;
+
+        private Payment(final String receiver, final String owner, final double deposit,
+                final double lendingCost, final Long reservationId) {
+            this.receiver = receiver;
+            this.owner = owner;
+            this.deposit = deposit;
+            this.lendingCost = lendingCost;
+            this.reservationId = reservationId;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package de.propra2.ausleiherino24.propayhandler.model;
+
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Result of a bulk request for several accounts. Accounts, which ProPay did not answer in time or
+ * answered with an error, are listed as unavailable instead of failing the whole request.
+ */
+@Data
+@AllArgsConstructor
+public class AccountSummaries {
+
+    /**
+     * account name -> summary, in the order the accounts were requested.
+     */
+    Map<String, AccountSummary> summaries;
+
+    List<String> unavailableAccounts;
+
+    public boolean isComplete() {
+        return unavailableAccounts.isEmpty();
+    }
+}
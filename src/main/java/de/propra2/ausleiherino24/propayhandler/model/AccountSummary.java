@@ -0,0 +1,30 @@
+package de.propra2.ausleiherino24.propayhandler.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Balance of a ProPay account, summarized for admin and report views.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountSummary {
+
+    String account;
+    double freeFunds;
+    double reservedFunds;
+    int reservationCount;
+
+    /**
+     * Summarizes the amount and the reservations of an account.
+     */
+    public static AccountSummary of(final PpAccount ppAccount) {
+        final int reservationCount =
+                ppAccount.getReservations() == null ? 0 : ppAccount.getReservations().size();
+        final double reserved = reservationCount == 0 ? 0 : ppAccount.reservationAmount();
+        return new AccountSummary(ppAccount.getAccount(), ppAccount.getAmount() - reserved,
+                reserved, reservationCount);
+    }
+}
@@ -0,0 +1,25 @@
+package de.propra2.ausleiherino24.propayhandler.model;
+
+/**
+ * Calls to ProPay, which are sent in the background after a case changed.
+ */
+public enum PpOperation {
+    /**
+     * Reserves lending cost and deposit, when a case is requested.
+     */
+    RESERVE,
+    /**
+     * Releases the reservation of the request, transfers the lending cost to the owner and
+     * reserves the deposit, when a request is accepted.
+     */
+    ACCEPT,
+    /**
+     * Releases the reservation, when a request is declined or not possible, or when a conflict is
+     * solved for the receiver.
+     */
+    RELEASE,
+    /**
+     * Transfers the reserved deposit to the owner, when a conflict is solved for the owner.
+     */
+    PUNISH
+}
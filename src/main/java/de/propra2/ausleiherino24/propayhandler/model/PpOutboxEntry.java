@@ -0,0 +1,89 @@
+package de.propra2.ausleiherino24.propayhandler.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A call to ProPay, which is saved in the same transaction as the case and sent later by the
+ * ReservationOutboxWorker. Operations with several calls remember the completed steps, so that a
+ * retry only repeats the step, which was interrupted.
+ *
+ * <p>An entry is claimed by a worker before its calls are sent, by moving nextAttemptAt behind a
+ * lease. The version makes sure, that a worker, whose lease expired meanwhile, can't overwrite the
+ * progress of the worker, which claimed the entry after it.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(indexes = @Index(columnList = "status, nextAttemptAt"))
+public class PpOutboxEntry {
+
+    public static final int PENDING = 1;
+    public static final int DONE = 2;
+    public static final int FAILED = 3;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    Long id;
+
+    /**
+     * Case and operation. Makes sure, that an operation is enqueued only once per case, even if
+     * a form is submitted twice.
+     */
+    @Column(unique = true, nullable = false)
+    String idempotencyKey;
+
+    Long caseId;
+
+    /**
+     * Transaction with the reservation to release or to create. Saved separately, because a
+     * declined case gets a new transaction.
+     */
+    Long ppTransactionId;
+
+    @Enumerated(EnumType.STRING)
+    PpOperation operation;
+
+    int status;
+
+    int completedSteps;
+
+    int attempts;
+
+    Long nextAttemptAt;
+
+    Long createdAt;
+
+    String lastError;
+
+    @Version
+    long version;
+
+    /**
+     * Creates a pending entry, which is due immediately.
+     */
+    public PpOutboxEntry(final Long caseId, final Long ppTransactionId,
+            final PpOperation operation, final long now) {
+        this.idempotencyKey = idempotencyKey(caseId, operation);
+        this.caseId = caseId;
+        this.ppTransactionId = ppTransactionId;
+        this.operation = operation;
+        this.status = PENDING;
+        this.nextAttemptAt = now;
+        this.createdAt = now;
+    }
+
+    public static String idempotencyKey(final Long caseId, final PpOperation operation) {
+        return "case-" + caseId + ":" + operation;
+    }
+}
@@ -21,6 +21,14 @@ import lombok.ToString;
 @ToString(exclude = "acase")
 public class PpTransaction {
 
+    /**
+     * Payment state of the transaction. The calls to ProPay are sent in the background by the
+     * ReservationOutboxWorker, until then the payment is pending.
+     */
+    public static final int PAYMENT_DONE = 0;
+    public static final int PAYMENT_PENDING = 1;
+    public static final int PAYMENT_FAILED = 2;
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     Long id;
@@ -36,6 +44,8 @@ public class PpTransaction {
 
     Long reservationId;
 
+    int paymentStatus;
+
     /**
      * Gets total payment. Either lendingCosts + deposit or just the lendingCosts.
      */
@@ -47,7 +47,8 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
                 .antMatchers("/", "/index", "/login", "/signUp", "/categories",
                         "/registerNewUser", "/search", "/css/**", "/img/**", "/vendor/**", "/js/**",
                         "/Pokemon/images/**", "/Pokemon/names/**", "/images/**").permitAll()
-                .antMatchers("/conflicts").hasRole("admin")
+                .antMatchers("/actuator/health").hasAnyRole("admin", "user")
+                .antMatchers("/conflicts", "/actuator/**").hasRole("admin")
                 .antMatchers("/**").hasAnyRole("admin", "user")
                 .and()
                 .formLogin()
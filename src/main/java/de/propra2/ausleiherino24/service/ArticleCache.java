@@ -0,0 +1,44 @@
+package de.propra2.ausleiherino24.service;
+
+import de.propra2.ausleiherino24.data.ArticleRepository;
+import de.propra2.ausleiherino24.model.Article;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of articles by id, configured in {@link ArticleCacheConfig}. Cached articles are detached
+ * and shared between requests: only their columns and their owner may be read. Their cases are
+ * not loaded, and they must not be modified or attached to new cases.
+ *
+ * <p>A separate bean, so that ArticleService can evict entries from its package-private methods,
+ * which are not intercepted by the cache proxy.
+ */
+@Component
+@CacheConfig(cacheNames = ArticleCache.CACHE_NAME)
+public class ArticleCache {
+
+    public static final String CACHE_NAME = "articles";
+
+    private final ArticleRepository articleRepository;
+
+    @Autowired
+    public ArticleCache(final ArticleRepository articleRepository) {
+        this.articleRepository = articleRepository;
+    }
+
+    /**
+     * Returns the article with its owner, or null, if it does not exist.
+     */
+    @Cacheable(unless = "#result == null")
+    public Article findById(final Long articleId) {
+        return articleRepository.findWithOwnerById(articleId).orElse(null);
+    }
+
+    @CacheEvict
+    public void evict(final Long articleId) {
+        // entry is removed by the cache proxy
+    }
+}
@@ -0,0 +1,39 @@
+package de.propra2.ausleiherino24.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.propra2.ausleiherino24.model.Article;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bounds the caches of the application by weight and age. The weight of an article grows with
+ * the length of its description, which can be several megabytes long. Statistics are recorded, so
+ * that hits and misses show up in the actuator metrics as "cache.gets".
+ */
+@Configuration
+@EnableCaching
+public class ArticleCacheConfig {
+
+    private static final int BYTES_PER_WEIGHT = 1024;
+
+    @Bean
+    public Caffeine<Object, Object> caffeine(
+            @Value("${articleCache.maximumWeight:16384}") final long maximumWeight,
+            @Value("${articleCache.expireAfterWriteMinutes:10}") final long expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .<Object, Object>weigher((key, value) -> weigh(value))
+                .expireAfterWrite(expireAfterWrite, TimeUnit.MINUTES)
+                .recordStats();
+    }
+
+    static int weigh(final Object value) {
+        if (!(value instanceof Article) || ((Article) value).getDescription() == null) {
+            return 1;
+        }
+        return 1 + ((Article) value).getDescription().length() / BYTES_PER_WEIGHT;
+    }
+}
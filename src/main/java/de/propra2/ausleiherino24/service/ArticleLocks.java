@@ -0,0 +1,70 @@
+package de.propra2.ausleiherino24.service;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Striped locks keyed by article id. Bookings of one article are serialized, bookings of
+ * different articles run in parallel unless their ids share a stripe. The number of stripes is
+ * rounded up to a power of two, so that a stripe is selected by masking the spread hash of the id.
+ *
+ * <p>The locks only serialize this application instance. The version of the article still guards
+ * against concurrent bookings from other instances.
+ */
+@Component
+public class ArticleLocks {
+
+    private final Lock[] stripes;
+    private final int mask;
+
+    /**
+     * Autowired constructor.
+     *
+     * @param stripes minimal number of stripes
+     */
+    @Autowired
+    public ArticleLocks(@Value("${cases.articleLockStripes:256}") final int stripes) {
+        final int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Runs the action while holding the lock of the article. The action should contain the whole
+     * transaction, so that the next booking of the article sees its commit.
+     *
+     * @param articleId id of the article. null shares the first stripe.
+     */
+    public <T> T withLock(final Long articleId, final Supplier<T> action) {
+        final Lock lock = lockOf(articleId);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int stripeOf(final Long articleId) {
+        if (articleId == null) {
+            return 0;
+        }
+        final int hash = Long.hashCode(articleId);
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    int size() {
+        return stripes.length;
+    }
+
+    private Lock lockOf(final Long articleId) {
+        return stripes[stripeOf(articleId)];
+    }
+}
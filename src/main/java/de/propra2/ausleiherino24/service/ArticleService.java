@@ -1,18 +1,28 @@
 package de.propra2.ausleiherino24.service;
 
+import de.propra2.ausleiherino24.data.ArticleListing;
+import de.propra2.ausleiherino24.data.ArticleListingSlice;
 import de.propra2.ausleiherino24.data.ArticleRepository;
 import de.propra2.ausleiherino24.features.category.Category;
 import de.propra2.ausleiherino24.features.imageupload.ImageService;
+import de.propra2.ausleiherino24.features.search.ArticleSearchIndex;
+import de.propra2.ausleiherino24.features.search.SearchPage;
+import de.propra2.ausleiherino24.features.search.SearchResult;
 import de.propra2.ausleiherino24.model.Article;
 import de.propra2.ausleiherino24.model.User;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -21,21 +31,33 @@ public class ArticleService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ArticleService.class);
 
+    static final int LISTING_PAGE_SIZE = 24;
+    static final int SEARCH_PAGE_SIZE = 24;
+
     private final ArticleRepository articleRepository;
     private final ImageService imageService;
+    private final ArticleSearchIndex articleSearchIndex;
+    private final ArticleCache articleCache;
 
     @Autowired
     public ArticleService(final ArticleRepository articleRepository,
-            final ImageService imageService) {
+            final ImageService imageService, final ArticleSearchIndex articleSearchIndex,
+            final ArticleCache articleCache) {
         this.articleRepository = articleRepository;
         this.imageService = imageService;
+        this.articleSearchIndex = articleSearchIndex;
+        this.articleCache = articleCache;
     }
 
     /**
-     * Saves the given article in the database.
+     * Saves the given article in the database and updates the search index and the cache.
      */
     public void saveArticle(final Article article, final String msg) {
         articleRepository.save(article);
+        articleSearchIndex.index(article);
+        if (article.getId() != null) {
+            articleCache.evict(article.getId());
+        }
         LOGGER.info("{} article '{}' {}.", msg, article.getName(), article.getId());
     }
 
@@ -54,6 +76,31 @@ public class ArticleService {
         return article.get();
     }
 
+    /**
+     * Locks the article for the current transaction. Its version is incremented on commit, so that
+     * only one of several concurrent transactions locking the same article commits. The commit
+     * fails as well, if the article was changed after it was loaded in this transaction.
+     */
+    void lockArticle(final Long articleId) {
+        articleRepository.findAndLockById(articleId);
+    }
+
+    /**
+     * Finds an article and its owner by id in the cache. The returned article is shared and
+     * must only be read, see {@link ArticleCache}. Throws NoSuchElementException in cases, the
+     * article is not present.
+     */
+    public Article findCachedArticleById(final Long articleId) {
+        final Article article = articleCache.findById(articleId);
+
+        if (article == null) {
+            LOGGER.warn("Couldn't find article {} in ArticleRepository.", articleId);
+            throw new NoSuchElementException("Couldn't find article in ArticleRepository.");
+        }
+
+        return article;
+    }
+
     public List<Article> findAllActiveByUser(final User user) {
         return articleRepository.findAllActiveByUser(user);
     }
@@ -73,35 +120,75 @@ public class ArticleService {
     }
 
     /**
-     * Filters articles and checks whether they are included in given category.
+     * Returns one page of listings of articles which have active=true and forRental=true.
      *
-     * @return all Articles, which are not reserved and are of given category
+     * @param before cursor of the requested page, as returned by the previous page. null for the
+     *     first page.
      */
-    public List<Article> findAllArticlesByCategory(final Category category) {
-        return findAllActiveAndForRentalArticles().stream()
-                .filter(article -> article.getCategory() == category)
-                .collect(Collectors.toCollection(ArrayList::new));
+    public ArticleListingSlice findActiveAndForRentalListings(final Long before) {
+        return toSlice(articleRepository
+                .findActiveForRentalListingsBefore(cursorOrFirst(before), nextPageRequest()));
     }
 
     /**
-     * Returns all active articles.
+     * Returns one page of listings of active articles for rental in the given category.
      *
-     * @return all active articles.
+     * @param before cursor of the requested page, as returned by the previous page. null for the
+     *     first page.
      */
-    List<Article> findAllActiveArticles() {
-        return articleRepository.findAllActive().isEmpty() ? new ArrayList<>()
-                : articleRepository.findAllActive();
+    public ArticleListingSlice findListingsByCategory(final Category category, final Long before) {
+        return toSlice(articleRepository.findActiveForRentalListingsByCategoryBefore(category,
+                cursorOrFirst(before), nextPageRequest()));
+    }
+
+    private static Long cursorOrFirst(final Long before) {
+        return before == null ? Long.MAX_VALUE : before;
     }
 
     /**
-     * Finds all article which have active=true and forRental=true.
+     * One more row than shown is read to find out, whether there is a following page.
+     */
+    private static Pageable nextPageRequest() {
+        return PageRequest.of(0, LISTING_PAGE_SIZE + 1);
+    }
+
+    private static ArticleListingSlice toSlice(final List<ArticleListing> listings) {
+        if (listings.size() <= LISTING_PAGE_SIZE) {
+            return new ArticleListingSlice(listings, null);
+        }
+
+        final List<ArticleListing> page = new ArrayList<>(listings.subList(0, LISTING_PAGE_SIZE));
+        return new ArticleListingSlice(page, page.get(page.size() - 1).getId());
+    }
+
+    /**
+     * Searches name, description, category and location of all active articles.
      *
-     * @return all non-active, not rented articles.
+     * @param searchString search string entered by the user.
+     * @param page number of the requested page, starting at 0.
+     * @return listing columns of the matching articles on the page, ordered by relevance.
      */
-    public List<Article> findAllActiveAndForRentalArticles() {
-        return findAllActiveArticles()
-                .stream()
-                .filter(Article::isForRental)
+    public SearchPage searchListings(final String searchString, final int page) {
+        final int firstPage = Math.max(0, page);
+        final SearchResult result = articleSearchIndex
+                .search(searchString, firstPage * SEARCH_PAGE_SIZE, SEARCH_PAGE_SIZE);
+
+        final List<ArticleListing> articles = findListingsInOrder(result.getArticleIds());
+        final boolean lastPage = (firstPage + 1) * SEARCH_PAGE_SIZE >= result.getTotalHits();
+        return new SearchPage(articles, firstPage, result.getTotalHits(), lastPage);
+    }
+
+    private List<ArticleListing> findListingsInOrder(final List<Long> articleIds) {
+        if (articleIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Map<Long, ArticleListing> listingsById = articleRepository
+                .findAllListingsByIdIn(articleIds).stream()
+                .collect(Collectors.toMap(ArticleListing::getId, Function.identity()));
+        return articleIds.stream()
+                .map(listingsById::get)
+                .filter(listing -> listing != null)
                 .collect(Collectors.toList());
     }
 
@@ -127,6 +214,8 @@ public class ArticleService {
 
         article.setActive(false);
         articleRepository.save(article);
+        articleSearchIndex.remove(articleId);
+        articleCache.evict(articleId);
         LOGGER.info("Deactivated article {} [ID={}]", article.getName(), articleId);
         return true;
     }
@@ -154,14 +243,6 @@ public class ArticleService {
         saveArticle(originalArticle, "Update");
     }
 
-    /**
-     * Returns List of all articles, which name contains the given search string. Case of letters is
-     * ignored.
-     */
-    public List<Article> findAllArticlesByName(final String searchString) {
-        return articleRepository.findByActiveTrueAndNameContainsIgnoreCase(searchString);
-    }
-
     /**
      * Sets forSale-flag in article and saves in database.
      *
@@ -172,6 +253,7 @@ public class ArticleService {
         final Article article = findArticleById(articleId);
         article.setForSale(status);
         articleRepository.save(article);
+        articleCache.evict(articleId);
     }
 
 
@@ -0,0 +1,144 @@
+package de.propra2.ausleiherino24.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import de.propra2.ausleiherino24.data.CaseInterval;
+import de.propra2.ausleiherino24.data.CaseRepository;
+import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the accepted cases of every article in a {@link ReservedIntervals} index, so that overlap
+ * checks do not have to scan the whole case history of an article. The index of an article is
+ * loaded from the database on first use and maintained by {@link #update(Case)} afterwards.
+ * Changes made within a transaction are applied after its commit, so the index never contains
+ * cases of rolled back transactions.
+ *
+ * <p>Only the indexes of recently used articles are kept, and every index is dropped a while
+ * after it was loaded. Cases accepted by other instances, or changed while the index was loaded,
+ * are therefore missing for a limited time only. The index is a pre-check; bookings are confirmed
+ * by the database.
+ */
+@Service
+public class AvailabilityIndex {
+
+    private static final int MAX_ARTICLES = 10000;
+    private static final long EXPIRE_AFTER_WRITE_MINUTES = 10;
+
+    private final CaseRepository caseRepository;
+    private final Cache<Long, ReservedIntervals> intervalsByArticle;
+
+    @Autowired
+    public AvailabilityIndex(final CaseRepository caseRepository) {
+        this(caseRepository, Ticker.systemTicker());
+    }
+
+    AvailabilityIndex(final CaseRepository caseRepository, final Ticker ticker) {
+        this.caseRepository = caseRepository;
+        this.intervalsByArticle = Caffeine.newBuilder()
+                .maximumSize(MAX_ARTICLES)
+                .expireAfterWrite(EXPIRE_AFTER_WRITE_MINUTES, TimeUnit.MINUTES)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Checks, whether the article is not reserved by an accepted case in the given time.
+     *
+     * @param excludedCaseId case, which is ignored during the check. May be null.
+     * @return true: article is free in the given time. false: otherwise.
+     */
+    public boolean isFree(final Article article, final Long startTime, final Long endTime,
+            final Long excludedCaseId) {
+        return !intervalsOf(article).overlaps(startTime, endTime, excludedCaseId);
+    }
+
+    /**
+     * Drops the index of the article. It is read from the database again on next use. Has to be
+     * called, when the index turned out to be stale, e.g. because the article was changed by
+     * another instance.
+     */
+    public void evict(final Long articleId) {
+        intervalsByArticle.invalidate(articleId);
+    }
+
+    /**
+     * Has to be called after the status of a case was changed and saved. Accepted cases are added
+     * to the index of their article, all other cases are removed from it.
+     */
+    public void update(final Case changedCase) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(changedCase);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        apply(changedCase);
+                    }
+                });
+    }
+
+    private void apply(final Case changedCase) {
+        if (changedCase.getId() == null || changedCase.getArticle() == null
+                || changedCase.getArticle().getId() == null) {
+            return;
+        }
+
+        final ReservedIntervals intervals = intervalsByArticle
+                .getIfPresent(changedCase.getArticle().getId());
+        if (intervals == null) {
+            // not loaded yet, will be read from the database on first use
+            return;
+        }
+
+        if (changedCase.getRequestStatus() == Case.REQUEST_ACCEPTED) {
+            intervals.add(changedCase.getId(), changedCase.getStartTime(),
+                    changedCase.getEndTime());
+        } else {
+            intervals.remove(changedCase.getId());
+        }
+    }
+
+    private ReservedIntervals intervalsOf(final Article article) {
+        if (article.getId() == null) {
+            // an unsaved article can't have any cases yet
+            return new ReservedIntervals();
+        }
+        return intervalsOf(article.getId());
+    }
+
+    /**
+     * The database is queried outside of the cache, so a slow query doesn't block other articles.
+     * If two threads load the same article at once, the first index stored wins.
+     */
+    private ReservedIntervals intervalsOf(final Long articleId) {
+        final ReservedIntervals cached = intervalsByArticle.getIfPresent(articleId);
+        if (cached != null) {
+            return cached;
+        }
+
+        final ReservedIntervals loaded = load(articleId);
+        final ReservedIntervals stored = intervalsByArticle.asMap()
+                .putIfAbsent(articleId, loaded);
+        return stored == null ? loaded : stored;
+    }
+
+    private ReservedIntervals load(final Long articleId) {
+        final ReservedIntervals intervals = new ReservedIntervals();
+        for (final CaseInterval acceptedCase : caseRepository
+                .findIntervalsByArticleIdAndRequestStatus(articleId, Case.REQUEST_ACCEPTED)) {
+            intervals.add(acceptedCase.getId(), acceptedCase.getStartTime(),
+                    acceptedCase.getEndTime());
+        }
+        return intervals;
+    }
+}
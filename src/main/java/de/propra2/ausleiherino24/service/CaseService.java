@@ -1,43 +1,58 @@
 package de.propra2.ausleiherino24.service;
 
 import de.propra2.ausleiherino24.data.CaseRepository;
+import de.propra2.ausleiherino24.data.CaseTimeSpan;
+import de.propra2.ausleiherino24.data.ConflictQueueSlice;
+import de.propra2.ausleiherino24.features.calendar.ReservedPeriod;
 import de.propra2.ausleiherino24.model.Article;
 import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.User;
 import de.propra2.ausleiherino24.propayhandler.data.AccountHandler;
-import de.propra2.ausleiherino24.propayhandler.data.ReservationHandler;
+import de.propra2.ausleiherino24.propayhandler.data.ReservationOutbox;
+import de.propra2.ausleiherino24.propayhandler.model.PpOperation;
 import de.propra2.ausleiherino24.propayhandler.model.PpTransaction;
 import java.security.Principal;
-import java.time.Instant;
 import java.time.LocalDate;
-import java.time.Period;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class CaseService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CaseService.class);
+    static final int CONFLICT_PAGE_SIZE = 20;
 
     private final CaseRepository caseRepository;
     private final ArticleService articleService;
     private final PersonService personService;
     private final UserService userService;
     private final AccountHandler accountHandler;
-    private final ReservationHandler reservationHandler;
+    private final ReservationOutbox reservationOutbox;
+    private final AvailabilityIndex availabilityIndex;
+    private final CaseStateMachine caseStateMachine;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final ArticleLocks articleLocks;
 
     /**
      * Autowired constructor.
@@ -45,13 +60,19 @@ public class CaseService {
     @Autowired
     public CaseService(final CaseRepository caseRepository, final ArticleService articleService,
             final PersonService personService, final UserService userService,
-            final AccountHandler accountHandler, final ReservationHandler reservationHandler) {
+            final AccountHandler accountHandler, final ReservationOutbox reservationOutbox,
+            final AvailabilityIndex availabilityIndex, final CaseStateMachine caseStateMachine,
+            final OptimisticLockRetry optimisticLockRetry, final ArticleLocks articleLocks) {
         this.caseRepository = caseRepository;
         this.articleService = articleService;
         this.personService = personService;
         this.userService = userService;
         this.accountHandler = accountHandler;
-        this.reservationHandler = reservationHandler;
+        this.reservationOutbox = reservationOutbox;
+        this.availabilityIndex = availabilityIndex;
+        this.caseStateMachine = caseStateMachine;
+        this.optimisticLockRetry = optimisticLockRetry;
+        this.articleLocks = articleLocks;
     }
 
     /**
@@ -141,28 +162,52 @@ public class CaseService {
     }
 
     /**
-     * Creates ppTransaction and Case for request.
+     * Creates ppTransaction and Case for request. The reservation is sent to ProPay in the
+     * background. Requests and acceptances of the same article are serialized by
+     * {@link ArticleLocks}. The funds are requested from ProPay before the article is locked, so
+     * that a slow answer holds neither the lock nor a database connection.
      *
      * @return true, if param username has valid funds. else, otherwise.
      */
     public boolean requestArticle(final Long articleId, final Long startTime, final Long endTime,
             final String username) {
-        final Double totalCost = getCostForAllDays(articleId, startTime, endTime);
+        final Article article = articleService.findArticleById(articleId);
+        final double checkedFunds = getCostForAllDays(article, startTime, endTime)
+                + article.getDeposit();
+        if (!accountHandler.hasValidFunds(username, checkedFunds)) {
+            return false;
+        }
 
-        if (accountHandler.hasValidFunds(username,
-                totalCost + articleService.findArticleById(articleId).getDeposit())
-                && articleNotRented(articleService.findArticleById(articleId), startTime,
-                endTime) && new Date().getTime() - 86000000 < startTime && startTime < endTime
-                && !articleService.findArticleById(articleId).getOwner().getUsername()
-                .equals(username) && accountHandler.checkAvailability()) {
+        return articleLocks.withLock(articleId, () -> optimisticLockRetry.execute(
+                () -> requestArticleOnce(articleId, startTime, endTime, username, checkedFunds)));
+    }
+
+    /**
+     * Creates the request, unless the article was rented meanwhile.
+     *
+     * @param checkedFunds the receiver is known to have at least these funds. The request fails,
+     *     if the price was raised meanwhile.
+     */
+    private boolean requestArticleOnce(final Long articleId, final Long startTime,
+            final Long endTime, final String username, final double checkedFunds) {
+        final Article article = articleService.findArticleById(articleId);
+        final Double totalCost = getCostForAllDays(article, startTime, endTime);
+
+        if (totalCost + article.getDeposit() <= checkedFunds
+                && articleNotRented(article, startTime, endTime)
+                && noAcceptedCaseOverlaps(articleId, startTime, endTime)
+                && new Date().getTime() - 86000000 < startTime && startTime < endTime
+                && !article.getOwner().getUsername().equals(username)
+                && accountHandler.checkAvailability()) {
 
             final PpTransaction ppTransaction = new PpTransaction();
             ppTransaction.setLendingCost(totalCost);
             ppTransaction.setCautionPaid(false);
             ppTransaction.setDate(new Date().getTime());
+            ppTransaction.setReservationId(-1L);
 
             final Case aCase = new Case();
-            aCase.setArticle(articleService.findArticleById(articleId));
+            aCase.setArticle(article);
             aCase.setStartTime(startTime);
             aCase.setEndTime(endTime);
             aCase.setDeposit(aCase.getArticle().getDeposit());
@@ -173,7 +218,7 @@ public class CaseService {
 
             caseRepository.save(aCase);
 
-            reservationHandler.handleReservedMoney(aCase);
+            reservationOutbox.enqueue(aCase, PpOperation.RESERVE);
 
             return true;
         }
@@ -181,14 +226,14 @@ public class CaseService {
     }
 
     /**
-     * gets cost for all days for time and articleid.
+     * gets cost for all days for time and article.
      *
      * @return the total cost for lending the article in the given time.
      */
-    private Double getCostForAllDays(final Long articleId, final Long startTime,
+    private Double getCostForAllDays(final Article article, final Long startTime,
             final Long endTime) {
 
-        final Double dailyCost = articleService.findArticleById(articleId).getCostPerDay();
+        final Double dailyCost = article.getCostPerDay();
         final Date startDate = new Date(startTime);
         final Date endDate = new Date(endTime);
 
@@ -199,34 +244,71 @@ public class CaseService {
 
 
     /**
-     * Checks, if article request is ok.
+     * Checks, if article request is ok. The payment is sent to ProPay in the background.
+     *
+     * <p>Accepting a request increments the version of the article, so that two overlapping
+     * requests can't be accepted concurrently. The loser of a collision is repeated and then finds
+     * the article rented. Declining a request leaves the article alone. Within this instance,
+     * requests and acceptances of the same article are serialized by {@link ArticleLocks}, so
+     * that collisions are rare.
+     *
+     * <p>As in {@link #acceptArticleRequests(List, Principal)}, the funds are requested from
+     * ProPay before the article is locked, so that a slow answer holds neither the lock nor a
+     * database connection. The payment of a request doesn't change, so the answer stays valid.
      *
-     * @return 0: not found 1: ok 2: already rented 3: not enough Funds 4: Propay unavailable
+     * @return 0: not found or not requested anymore 1: ok 2: already rented 3: not enough Funds 4:
+     *     Propay unavailable
      */
     public int acceptArticleRequest(final Long id) {
+        final List<Case> requested = caseRepository.findAllByIdIn(Collections.singletonList(id));
+        if (requested.isEmpty()) {
+            return 0;
+        }
+        if (!accountHandler.checkAvailability()) {
+            return 4;
+        }
+        final boolean hasFunds = accountHandler.hasValidFundsByCase(requested.get(0));
+
+        return articleLocks.withLock(requested.get(0).getArticle().getId(),
+                () -> optimisticLockRetry.execute(() -> acceptArticleRequestOnce(id, hasFunds)));
+    }
 
+    /**
+     * Decides the request. Everything but the funds is read again in this transaction.
+     */
+    private int acceptArticleRequestOnce(final Long id, final boolean hasFunds) {
         final Optional<Case> optCase = caseRepository.findById(id);
         if (!optCase.isPresent()) {
             return 0;
         }
         final Case currentCase = optCase.get();
 
-        if (!accountHandler.checkAvailability()) {
-            return 4;
+        if (!caseStateMachine.canTransition(currentCase, Case.REQUEST_ACCEPTED)) {
+            LOGGER.warn("Case {} can't be accepted in status {}.", id,
+                    currentCase.getRequestStatus());
+            return 0;
         }
 
+        // reads the version of the article, which is verified on commit if the request is accepted
+        final Long articleId = currentCase.getArticle().getId();
+        articleService.findArticleById(articleId);
+
         //Check whether the article is not reserved in this period of time
-        final boolean articleRented = articleNotRented(id);
+        final boolean articleRented = articleNotRented(id) && noAcceptedCaseOverlaps(articleId,
+                currentCase.getStartTime(), currentCase.getEndTime());
 
-        if (articleRented && accountHandler.hasValidFundsByCase(currentCase)) {
-            currentCase.setRequestStatus(Case.REQUEST_ACCEPTED);
-            reservationHandler.handleReservedMoney(currentCase);
+        if (articleRented && hasFunds) {
+            articleService.lockArticle(articleId);
+            caseStateMachine.transition(currentCase, Case.REQUEST_ACCEPTED);
+            reservationOutbox.enqueue(currentCase, PpOperation.ACCEPT);
             caseRepository.save(currentCase);
+            availabilityIndex.update(currentCase);
             return 1;
         } else {
-            currentCase.setRequestStatus(Case.RENTAL_NOT_POSSIBLE);
-            reservationHandler.releaseReservationByCase(currentCase);
+            caseStateMachine.transition(currentCase, Case.RENTAL_NOT_POSSIBLE);
+            reservationOutbox.enqueue(currentCase, PpOperation.RELEASE);
             caseRepository.save(currentCase);
+            availabilityIndex.update(currentCase);
             if (articleRented) {
                 return 3;
             } else {
@@ -247,36 +329,32 @@ public class CaseService {
             return false;
         }
 
-        final Article article = currentCase.get().getArticle();
-        final List<Case> cases = article.getCases().stream()
-                .filter(caseList -> caseList.getRequestStatus() == Case.REQUEST_ACCEPTED)
-                .collect(Collectors.toList());
-        cases.remove(currentCase.get());
+        return availabilityIndex.isFree(currentCase.get().getArticle(),
+                currentCase.get().getStartTime(), currentCase.get().getEndTime(),
+                currentCase.get().getId());
+    }
 
-        for (final Case ca : cases) {
-            if (!(ca.getStartTime() > currentCase.get().getEndTime()
-                    || ca.getEndTime() < currentCase.get()
-                    .getStartTime())) {
-                return false;
-            }
+    /**
+     * The index is updated after commits of this instance only, so it may miss a case accepted a
+     * moment ago or by another instance. While the article is locked, the database has the final
+     * say. An index found to be stale is dropped and read again on next use.
+     */
+    private boolean noAcceptedCaseOverlaps(final Long articleId, final Long startTime,
+            final Long endTime) {
+        final boolean free = caseRepository.countByArticleAndRequestStatusInWindow(articleId,
+                Case.REQUEST_ACCEPTED, startTime, endTime) == 0;
+        if (!free) {
+            LOGGER.info("Availability index of article {} is stale.", articleId);
+            availabilityIndex.evict(articleId);
         }
-        return true;
+        return free;
     }
 
     /**
      * Overloaded method for views.
      */
     boolean articleNotRented(final Article article, final Long startTime, final Long endTime) {
-        final List<Case> cases = article.getCases().stream()
-                .filter(reqcase -> reqcase.getRequestStatus() == Case.REQUEST_ACCEPTED)
-                .collect(Collectors.toList());
-
-        for (final Case ca : cases) {
-            if (!(ca.getStartTime() > endTime || ca.getEndTime() < startTime)) {
-                return false;
-            }
-        }
-        return true;
+        return availabilityIndex.isFree(article, startTime, endTime, null);
     }
 
     /**
@@ -288,18 +366,226 @@ public class CaseService {
         if (!accountHandler.checkAvailability()) {
             return false;
         }
+        return optimisticLockRetry.execute(() -> declineArticleRequestOnce(id));
+    }
+
+    private boolean declineArticleRequestOnce(final Long id) {
         final Optional<Case> optCase = caseRepository.findById(id);
         if (!optCase.isPresent()) {
             return false;
         }
         final Case currentCase = optCase.get();
-        currentCase.setRequestStatus(Case.REQUEST_DECLINED);
-        reservationHandler.releaseReservationByCase(currentCase);
+        if (!caseStateMachine.canTransition(currentCase, Case.REQUEST_DECLINED)) {
+            LOGGER.warn("Case {} can't be declined in status {}.", id,
+                    currentCase.getRequestStatus());
+            return false;
+        }
+        caseStateMachine.transition(currentCase, Case.REQUEST_DECLINED);
+        reservationOutbox.enqueue(currentCase, PpOperation.RELEASE);
         currentCase.setPpTransaction(new PpTransaction());
         caseRepository.save(currentCase);
+        availabilityIndex.update(currentCase);
         return true;
     }
 
+    /**
+     * Accepts several requests at once, e.g. all open requests of an owner. Every case gets the
+     * result {@link #acceptArticleRequest(Long)} would give, but
+     *
+     * <ul>
+     * <li>the funds of all receivers are requested from ProPay in parallel, once per receiver,</li>
+     * <li>the accepted periods of an article are read once for all of its requests,</li>
+     * <li>the requests of one article are changed in one transaction, whose updates and outbox
+     * entries are written in JDBC batches.</li>
+     * </ul>
+     *
+     * <p>Overlapping requests of one article are decided in the order of their start time, so the
+     * earliest one wins. The payments of accepted requests are subtracted from the free funds of
+     * their receiver, so that a receiver can't get more requests accepted than they can pay. The
+     * articles are locked one after another, never together, so that bulk and single acceptances
+     * can't deadlock.
+     *
+     * @param ids ids of the cases to accept. Duplicates are accepted once. Cases of articles,
+     *     which the principal doesn't own, are left alone.
+     * @param principal owner of the articles
+     * @return case id -> result of {@link #acceptArticleRequest(Long)}, in the order of the ids
+     */
+    public Map<Long, Integer> acceptArticleRequests(final List<Long> ids,
+            final Principal principal) {
+        final Map<Long, Integer> results = new LinkedHashMap<>();
+        ids.forEach(id -> results.put(id, 0));
+        if (!accountHandler.checkAvailability()) {
+            results.replaceAll((id, result) -> 4);
+            return results;
+        }
+
+        final Map<Long, List<Long>> requestsByArticle = new TreeMap<>();
+        final Set<String> receivers = new LinkedHashSet<>();
+        for (final Case requested : caseRepository.findAllByIdIn(results.keySet())) {
+            if (isOwnedBy(requested, principal)
+                    && caseStateMachine.canTransition(requested, Case.REQUEST_ACCEPTED)) {
+                requestsByArticle.computeIfAbsent(requested.getArticle().getId(),
+                        articleId -> new ArrayList<>()).add(requested.getId());
+                receivers.add(requested.getReceiver().getUsername());
+            }
+        }
+        final Map<String, Double> freeFunds = new HashMap<>();
+        accountHandler.getAccountSummaries(receivers).getSummaries()
+                .forEach((receiver, summary) -> freeFunds.put(receiver, summary.getFreeFunds()));
+
+        requestsByArticle.forEach((articleId, requestIds) -> {
+            final Map<String, Double> balances = new HashMap<>();
+            results.putAll(articleLocks.withLock(articleId, () -> optimisticLockRetry.execute(
+                    () -> {
+                        // a repeated attempt starts again from the funds left by the others
+                        balances.clear();
+                        balances.putAll(freeFunds);
+                        return acceptArticleRequestsOnce(articleId, requestIds, balances);
+                    })));
+            freeFunds.putAll(balances);
+        });
+        return results;
+    }
+
+    /**
+     * Decides the requests of one article. The funds were requested before the article was
+     * locked, everything else is read again in this transaction.
+     *
+     * @param balances receiver -> free funds. The payments of accepted requests are subtracted.
+     *     Receivers, whose funds are unknown, are missing.
+     */
+    private Map<Long, Integer> acceptArticleRequestsOnce(final Long articleId,
+            final List<Long> ids, final Map<String, Double> balances) {
+        final Map<Long, Integer> results = new HashMap<>();
+        final List<Case> requests = new ArrayList<>(caseRepository.findAllByIdIn(ids));
+        requests.removeIf(request -> {
+            if (caseStateMachine.canTransition(request, Case.REQUEST_ACCEPTED)) {
+                return false;
+            }
+            LOGGER.warn("Case {} can't be accepted in status {}.", request.getId(),
+                    request.getRequestStatus());
+            return true;
+        });
+        if (requests.isEmpty()) {
+            return results;
+        }
+        requests.sort(Comparator.comparing(Case::getStartTime).thenComparing(Case::getId));
+
+        // reads the version of the article, which is verified on commit if a request is accepted
+        articleService.findArticleById(articleId);
+        final List<Case> accepted = new ArrayList<>();
+        final List<Case> notPossible = new ArrayList<>();
+        final List<long[]> rented = findAcceptedPeriods(articleId, requests);
+
+        for (final Case request : requests) {
+            final String receiver = request.getReceiver().getUsername();
+            final Double balance = balances.get(receiver);
+            if (balance == null) {
+                results.put(request.getId(), 4);
+                continue;
+            }
+
+            final double payment = request.getPpTransaction().getTotalPayment();
+            final boolean articleFree = rented.stream().noneMatch(period ->
+                    period[0] <= request.getEndTime() && period[1] >= request.getStartTime());
+            if (articleFree && balance >= payment) {
+                balances.put(receiver, balance - payment);
+                caseStateMachine.transition(request, Case.REQUEST_ACCEPTED);
+                rented.add(new long[]{request.getStartTime(), request.getEndTime()});
+                accepted.add(request);
+                results.put(request.getId(), 1);
+            } else {
+                caseStateMachine.transition(request, Case.RENTAL_NOT_POSSIBLE);
+                notPossible.add(request);
+                results.put(request.getId(), articleFree ? 3 : 2);
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            articleService.lockArticle(articleId);
+        }
+        reservationOutbox.enqueueAll(accepted, PpOperation.ACCEPT);
+        reservationOutbox.enqueueAll(notPossible, PpOperation.RELEASE);
+        final List<Case> decided = new ArrayList<>(accepted);
+        decided.addAll(notPossible);
+        caseRepository.saveAll(decided);
+        decided.forEach(availabilityIndex::update);
+        return results;
+    }
+
+    /**
+     * Reads the periods of the accepted cases of the article, which overlap any of the requests,
+     * with one query. While the article is locked, the database has the final say.
+     */
+    private List<long[]> findAcceptedPeriods(final Long articleId, final List<Case> requests) {
+        final long from = requests.stream().mapToLong(Case::getStartTime).min().getAsLong();
+        final long to = requests.stream().mapToLong(Case::getEndTime).max().getAsLong();
+        try (Stream<CaseTimeSpan> timeSpans = caseRepository
+                .streamTimeSpansByArticleAndRequestStatusInWindow(articleId,
+                        Case.REQUEST_ACCEPTED, from, to)) {
+            return timeSpans.map(timeSpan -> new long[]{timeSpan.getStartTime(),
+                    timeSpan.getEndTime()}).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Declines several requests at once in one transaction, whose updates and outbox entries are
+     * written in JDBC batches.
+     *
+     * @param ids ids of the cases to decline. Duplicates are declined once. Cases of articles,
+     *     which the principal doesn't own, are left alone.
+     * @param principal owner of the articles
+     * @return case id -> true, if the request was declined. In the order of the ids.
+     */
+    public Map<Long, Boolean> declineArticleRequests(final List<Long> ids,
+            final Principal principal) {
+        final Map<Long, Boolean> results = new LinkedHashMap<>();
+        ids.forEach(id -> results.put(id, false));
+        if (!accountHandler.checkAvailability()) {
+            return results;
+        }
+        results.putAll(optimisticLockRetry
+                .execute(() -> declineArticleRequestsOnce(ids, principal)));
+        return results;
+    }
+
+    private Map<Long, Boolean> declineArticleRequestsOnce(final List<Long> ids,
+            final Principal principal) {
+        final Map<Long, Boolean> results = new HashMap<>();
+        final List<Case> declined = new ArrayList<>();
+        for (final Case request : caseRepository.findAllByIdIn(ids)) {
+            if (!isOwnedBy(request, principal)) {
+                continue;
+            }
+            if (caseStateMachine.canTransition(request, Case.REQUEST_DECLINED)) {
+                caseStateMachine.transition(request, Case.REQUEST_DECLINED);
+                declined.add(request);
+                results.put(request.getId(), true);
+            } else {
+                LOGGER.warn("Case {} can't be declined in status {}.", request.getId(),
+                        request.getRequestStatus());
+            }
+        }
+        if (declined.isEmpty()) {
+            return results;
+        }
+
+        reservationOutbox.enqueueAll(declined, PpOperation.RELEASE);
+        declined.forEach(request -> request.setPpTransaction(new PpTransaction()));
+        caseRepository.saveAll(declined);
+        declined.forEach(availabilityIndex::update);
+        return results;
+    }
+
+    private static boolean isOwnedBy(final Case aCase, final Principal principal) {
+        if (aCase.getOwner().getUsername().equals(principal.getName())) {
+            return true;
+        }
+        LOGGER.warn("{} tried to change case {} of another owner.", principal.getName(),
+                aCase.getId());
+        return false;
+    }
+
     /**
      * Finds all expired cases, where requestStatus in {RUNNING, FINISHED, OPEN_CONFLICT}.
      */
@@ -313,12 +599,7 @@ public class CaseService {
      * @param id id of the case, where the status should be changed.
      */
     void conflictOpened(final Long id) {
-        final Optional<Case> opt = caseRepository.findById(id);
-        if (opt.isPresent()) {
-            final Case currentCase = opt.get();
-            currentCase.setRequestStatus(Case.OPEN_CONFLICT);
-            caseRepository.save(currentCase);
-        }
+        optimisticLockRetry.execute(() -> changeStatus(id, Case.OPEN_CONFLICT));
     }
 
     /**
@@ -330,12 +611,29 @@ public class CaseService {
         if (!accountHandler.checkAvailability()) {
             return false;
         }
+        optimisticLockRetry.execute(() -> changeStatus(id, Case.FINISHED));
+        return true;
+    }
+
+    /**
+     * Changes the status of the case, if it exists and the change is allowed.
+     *
+     * @return true, if the status was changed.
+     */
+    private boolean changeStatus(final Long id, final int requestStatus) {
         final Optional<Case> opt = caseRepository.findById(id);
-        if (opt.isPresent()) {
-            final Case currentCase = opt.get();
-            currentCase.setRequestStatus(Case.FINISHED);
-            caseRepository.save(currentCase);
+        if (!opt.isPresent()) {
+            return false;
+        }
+        final Case currentCase = opt.get();
+        if (!caseStateMachine.canTransition(currentCase, requestStatus)) {
+            LOGGER.warn("Case {} can't change from status {} to {}.", id,
+                    currentCase.getRequestStatus(), requestStatus);
+            return false;
         }
+        caseStateMachine.transition(currentCase, requestStatus);
+        caseRepository.save(currentCase);
+        availabilityIndex.update(currentCase);
         return true;
     }
 
@@ -349,36 +647,47 @@ public class CaseService {
     }
 
     /**
-     * Finds all days where an article is reserved.
+     * Finds all periods, in which an article is reserved by an accepted case, within the given
+     * window. Only cases overlapping the window are read from the database, which has the final
+     * say also about cases accepted by other instances. Overlapping and adjacent periods are
+     * merged and clipped to the window.
      *
      * @param id articleId
+     * @param from first visible day
+     * @param to last visible day
      */
-    public List<LocalDate> findAllReservedDaysByArticle(final Long id) {
-        return caseRepository
-                .findAllByArticleAndRequestStatus(articleService.findArticleById(id), 2)
-                .stream()
-                .map(caseStream -> {
-                    final LocalDate start = Instant.ofEpochMilli(caseStream.getStartTime())
-                            .atZone(ZoneId.systemDefault()).toLocalDate();
-                    final LocalDate end = Instant.ofEpochMilli(caseStream.getEndTime())
-                            .atZone(ZoneId.systemDefault()).toLocalDate();
-                    final int daysInBetween = Period.between(start, end).getDays();
-                    return IntStream
-                            .range(0, daysInBetween + 1)
-                            .mapToObj(start::plusDays);
-                })
-                .flatMap(Function.identity())
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<ReservedPeriod> findReservedPeriodsByArticle(final Long id, final LocalDate from,
+            final LocalDate to) {
+        final ZoneId zone = ZoneId.systemDefault();
+        try (Stream<CaseTimeSpan> timeSpans = caseRepository
+                .streamTimeSpansByArticleAndRequestStatusInWindow(id, Case.REQUEST_ACCEPTED,
+                        from.atStartOfDay(zone).toInstant().toEpochMilli(),
+                        to.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1)) {
+            return ReservedPeriod.within(timeSpans, from, to, zone);
+        }
     }
 
     /**
-     * Finds all cases with open conflicts.
+     * Returns one page of the cases with open conflicts, ordered by end time.
+     *
+     * @param afterEndTime cursor of the requested page, as returned by the previous page. null for
+     *     the first page.
+     * @param afterId cursor of the requested page, as returned by the previous page. null for the
+     *     first page.
      */
-    public List<Case> findAllCasesWithOpenConflicts() {
-        return caseRepository.findAll().stream()
-                .filter(cases -> cases.getRequestStatus() == Case.OPEN_CONFLICT)
-                .sorted(Comparator.comparing(Case::getEndTime))
-                .collect(Collectors.toList());
+    public ConflictQueueSlice findOpenConflicts(final Long afterEndTime, final Long afterId) {
+        final List<Case> conflicts = caseRepository.findByRequestStatusAfter(Case.OPEN_CONFLICT,
+                afterEndTime == null ? Long.MIN_VALUE : afterEndTime,
+                afterId == null ? Long.MIN_VALUE : afterId,
+                PageRequest.of(0, CONFLICT_PAGE_SIZE + 1));
+        if (conflicts.size() <= CONFLICT_PAGE_SIZE) {
+            return new ConflictQueueSlice(conflicts, null, null);
+        }
+
+        final List<Case> page = new ArrayList<>(conflicts.subList(0, CONFLICT_PAGE_SIZE));
+        final Case last = page.get(page.size() - 1);
+        return new ConflictQueueSlice(page, last.getEndTime(), last.getId());
     }
 
     /**
@@ -396,8 +705,7 @@ public class CaseService {
             return false;
         }
 
-        if (accountHandler.hasValidFunds(costumer.getUsername(),
-                articleService.findArticleById(articleId).getCostPerDay())) {
+        if (accountHandler.hasValidFunds(costumer.getUsername(), article.getCostPerDay())) {
             final Case currentCase = new Case();
             currentCase.setRequestStatus(Case.FINISHED);
             currentCase.setDeposit(0d);
@@ -0,0 +1,64 @@
+package de.propra2.ausleiherino24.service;
+
+import de.propra2.ausleiherino24.model.Case;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+
+/**
+ * Legal changes of the request status of a case:
+ *
+ * <pre>
+ * REQUESTED         -&gt; REQUEST_ACCEPTED, REQUEST_DECLINED, RENTAL_NOT_POSSIBLE
+ * REQUEST_ACCEPTED  -&gt; RUNNING, OPEN_CONFLICT, FINISHED
+ * RUNNING           -&gt; RUNNING_EMAILSENT, OPEN_CONFLICT, FINISHED
+ * RUNNING_EMAILSENT -&gt; OPEN_CONFLICT, FINISHED
+ * OPEN_CONFLICT     -&gt; FINISHED
+ * </pre>
+ *
+ * <p>REQUEST_DECLINED, RENTAL_NOT_POSSIBLE and FINISHED are final. New cases start as REQUESTED,
+ * or as FINISHED when an article is sold.
+ */
+@Component
+public class CaseStateMachine {
+
+    private static final Map<Integer, Set<Integer>> TRANSITIONS = new HashMap<>();
+
+    static {
+        allow(Case.REQUESTED, Case.REQUEST_ACCEPTED, Case.REQUEST_DECLINED,
+                Case.RENTAL_NOT_POSSIBLE);
+        allow(Case.REQUEST_ACCEPTED, Case.RUNNING, Case.OPEN_CONFLICT, Case.FINISHED);
+        allow(Case.RUNNING, Case.RUNNING_EMAILSENT, Case.OPEN_CONFLICT, Case.FINISHED);
+        allow(Case.RUNNING_EMAILSENT, Case.OPEN_CONFLICT, Case.FINISHED);
+        allow(Case.OPEN_CONFLICT, Case.FINISHED);
+    }
+
+    private static void allow(final int from, final Integer... to) {
+        TRANSITIONS.put(from, new HashSet<>(Arrays.asList(to)));
+    }
+
+    /**
+     * Checks, whether the status of the case may be changed to the given status.
+     */
+    public boolean canTransition(final Case aCase, final int requestStatus) {
+        return TRANSITIONS.getOrDefault(aCase.getRequestStatus(), Collections.emptySet())
+                .contains(requestStatus);
+    }
+
+    /**
+     * Changes the status of the case. The case still has to be saved.
+     *
+     * @throws IllegalStateException if the change is not allowed.
+     */
+    public void transition(final Case aCase, final int requestStatus) {
+        if (!canTransition(aCase, requestStatus)) {
+            throw new IllegalStateException("Case " + aCase.getId() + " can't change from status "
+                    + aCase.getRequestStatus() + " to " + requestStatus + ".");
+        }
+        aCase.setRequestStatus(requestStatus);
+    }
+}
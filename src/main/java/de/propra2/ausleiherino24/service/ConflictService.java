@@ -6,6 +6,8 @@ import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.Conflict;
 import de.propra2.ausleiherino24.model.User;
 import de.propra2.ausleiherino24.propayhandler.data.ReservationHandler;
+import de.propra2.ausleiherino24.propayhandler.data.ReservationOutbox;
+import de.propra2.ausleiherino24.propayhandler.model.PpOperation;
 import java.nio.file.AccessDeniedException;
 import java.util.Arrays;
 import java.util.List;
@@ -13,6 +15,7 @@ import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class ConflictService {
@@ -21,6 +24,8 @@ public class ConflictService {
     private final ConflictRepository conflictRepository;
     private final EmailSender emailSender;
     private final ReservationHandler reservationHandler;
+    private final ReservationOutbox reservationOutbox;
+    private final CaseStateMachine caseStateMachine;
 
     /**
      * Autowired constructor.
@@ -28,11 +33,14 @@ public class ConflictService {
     @Autowired
     public ConflictService(final ConflictRepository conflictRepository,
             final EmailSender emailSender, final ReservationHandler reservationHandler,
-            final CaseService caseService) {
+            final ReservationOutbox reservationOutbox, final CaseService caseService,
+            final CaseStateMachine caseStateMachine) {
         this.conflictRepository = conflictRepository;
         this.emailSender = emailSender;
         this.reservationHandler = reservationHandler;
+        this.reservationOutbox = reservationOutbox;
         this.caseService = caseService;
+        this.caseStateMachine = caseStateMachine;
     }
 
     /**
@@ -61,7 +69,6 @@ public class ConflictService {
     }
 
     void sendConflictEmail(final Conflict conflict) {
-        emailSender.configureMailSender();
         emailSender.sendConflictEmail(conflict);
     }
 
@@ -82,7 +89,7 @@ public class ConflictService {
                 .setConflictDescription("Conflict with id: " + theConflictToDeactivate.getId()
                         + " was deactivated by :" + user.getUsername());
         sendConflictEmail(theConflictToDeactivate);
-        theConflictToDeactivate.getConflictedCase().setRequestStatus(Case.FINISHED);
+        caseStateMachine.transition(theConflictToDeactivate.getConflictedCase(), Case.FINISHED);
         deleteConflictById(id, theConflictToDeactivate);
     }
 
@@ -149,13 +156,16 @@ public class ConflictService {
     }
 
     /**
-     * Solves a conflict. The depositReceiver gets the whole deposit.
+     * Solves a conflict. The depositReceiver gets the whole deposit. The deposit is punished or
+     * released by the outbox after the calls, which are still pending for the case, so that the
+     * current reservation of the case is used.
      *
      * @param conflictToSolve the conflict
      * @param user person, who solved the conflict
      * @param depositReceiver person, who gets the deposit
      * @throws AccessDeniedException if user has no permissions to solve a conflict
      */
+    @Transactional
     public boolean solveConflict(final Conflict conflictToSolve, final User user,
             final User depositReceiver) throws AccessDeniedException {
 
@@ -166,14 +176,19 @@ public class ConflictService {
             throw new AccessDeniedException("No permission!");
         }
         if (depositReceiver.equals(conflictToSolve.getOwner())) {
-            reservationHandler.punishReservationByCase(conflictToSolve.getConflictedCase());
+            reservationOutbox.enqueue(conflictToSolve.getConflictedCase(), PpOperation.PUNISH);
             return true;
         }
-        reservationHandler.releaseReservationByCase(conflictToSolve.getConflictedCase());
+        reservationOutbox.enqueue(conflictToSolve.getConflictedCase(), PpOperation.RELEASE);
         return true;
     }
 
+    /**
+     * Returns the number of open conflicts. Conflicts are deleted when they are deactivated, so
+     * they are counted in the database. The CaseStatusCounters of this instance may lag behind
+     * changes made by other instances.
+     */
     public int size() {
-        return conflictRepository.findAll().size();
+        return (int) conflictRepository.count();
     }
 }
@@ -0,0 +1,71 @@
+package de.propra2.ausleiherino24.service;
+
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs an action in a transaction of its own and repeats it, if the transaction failed because a
+ * concurrent transaction changed the same case or article. Every attempt reads the current state
+ * again. Must not be called within a transaction, because that transaction couldn't be repeated.
+ */
+@Component
+public class OptimisticLockRetry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OptimisticLockRetry.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    /**
+     * Autowired constructor.
+     *
+     * @param maxAttempts number of attempts, before the exception is thrown
+     * @param backoffMillis delay before the second attempt, which grows linearly with every further
+     *     attempt
+     */
+    @Autowired
+    public OptimisticLockRetry(final PlatformTransactionManager transactionManager,
+            @Value("${cases.optimisticLockAttempts:5}") final int maxAttempts,
+            @Value("${cases.optimisticLockBackoffMillis:10}") final long backoffMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * Runs the action until a transaction commits or the attempts are used up.
+     *
+     * @throws OptimisticLockingFailureException if the last attempt failed, too.
+     */
+    public <T> T execute(final Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                LOGGER.debug("Concurrent change detected, attempt {} of {}: {}", attempt,
+                        maxAttempts, e.getMessage());
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    private void backoff(final int attempt, final OptimisticLockingFailureException cause) {
+        try {
+            Thread.sleep(backoffMillis * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
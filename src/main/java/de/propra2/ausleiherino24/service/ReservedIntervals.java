@@ -0,0 +1,123 @@
+package de.propra2.ausleiherino24.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Sorted map of non-overlapping segments, which covers all accepted cases of one article. Every
+ * segment remembers the cases it was merged from, so that single cases can be removed again.
+ * Intervals are closed, i.e. [start, end], as in the original overlap check of CaseService.
+ */
+final class ReservedIntervals {
+
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<Long, long[]> intervalsByCase = new HashMap<>();
+
+    /**
+     * Adds the interval of a case. If the case is already known, its old interval is replaced.
+     */
+    synchronized void add(final Long caseId, final long start, final long end) {
+        if (intervalsByCase.containsKey(caseId)) {
+            remove(caseId);
+        }
+        intervalsByCase.put(caseId, new long[]{start, end});
+        insert(caseId, start, end);
+    }
+
+    /**
+     * Removes the interval of a case. Unknown cases are ignored.
+     */
+    synchronized void remove(final Long caseId) {
+        final long[] interval = intervalsByCase.remove(caseId);
+        if (interval == null) {
+            return;
+        }
+
+        final Entry<Long, Segment> entry = segments.floorEntry(interval[0]);
+        if (entry == null || !entry.getValue().caseIds.contains(caseId)) {
+            return;
+        }
+
+        segments.remove(entry.getKey());
+        for (final Long remainingId : entry.getValue().caseIds) {
+            if (!remainingId.equals(caseId)) {
+                final long[] remaining = intervalsByCase.get(remainingId);
+                insert(remainingId, remaining[0], remaining[1]);
+            }
+        }
+    }
+
+    /**
+     * Checks, whether any stored interval overlaps [start, end].
+     *
+     * @param excludedCaseId case, which is ignored during the check. May be null.
+     */
+    synchronized boolean overlaps(final long start, final long end, final Long excludedCaseId) {
+        Entry<Long, Segment> entry = segments.floorEntry(end);
+
+        while (entry != null && entry.getValue().end >= start) {
+            if (entry.getValue().overlaps(start, end, excludedCaseId)) {
+                return true;
+            }
+            entry = segments.lowerEntry(entry.getKey());
+        }
+        return false;
+    }
+
+    /**
+     * Inserts an interval and merges it with every segment it overlaps.
+     */
+    private void insert(final Long caseId, final long start, final long end) {
+        final Segment merged = new Segment(start, end);
+        merged.caseIds.add(caseId);
+
+        Entry<Long, Segment> entry = segments.floorEntry(end);
+        while (entry != null && entry.getValue().end >= start) {
+            final Segment overlapping = entry.getValue();
+            merged.start = Math.min(merged.start, overlapping.start);
+            merged.end = Math.max(merged.end, overlapping.end);
+            merged.caseIds.addAll(overlapping.caseIds);
+            segments.remove(entry.getKey());
+            entry = segments.floorEntry(end);
+        }
+
+        segments.put(merged.start, merged);
+    }
+
+    private final class Segment {
+
+        private final Set<Long> caseIds = new HashSet<>();
+        private long start;
+        private long end;
+
+        private Segment(final long start, final long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * A segment is the gapless union of its cases. Therefore only the excluded case requires
+         * a look at the single intervals.
+         */
+        private boolean overlaps(final long queryStart, final long queryEnd,
+                final Long excludedCaseId) {
+            if (excludedCaseId == null || !caseIds.contains(excludedCaseId)) {
+                return true;
+            }
+
+            for (final Long caseId : caseIds) {
+                final long[] interval = intervalsByCase.get(caseId);
+                if (!caseId.equals(excludedCaseId)
+                        && !(interval[0] > queryEnd || interval[1] < queryStart)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
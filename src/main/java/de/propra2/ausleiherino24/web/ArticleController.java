@@ -11,9 +11,12 @@ import de.propra2.ausleiherino24.service.ArticleService;
 import de.propra2.ausleiherino24.service.CustomerReviewService;
 import de.propra2.ausleiherino24.service.UserService;
 import java.security.Principal;
+import java.time.LocalDate;
 import java.util.List;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -33,6 +36,8 @@ import org.springframework.web.servlet.ModelAndView;
 @RequestMapping("/article")
 public class ArticleController {
 
+    private static final long DEFAULT_WINDOW_MONTHS = 6;
+
     private final ArticleService articleService;
     private final ImageService imageService;
     private final UserService userService;
@@ -70,7 +75,7 @@ public class ArticleController {
     @GetMapping("")
     public ModelAndView displayArticle(final @RequestParam(value = "id") Long id,
             final Principal principal) {
-        final Article article = articleService.findArticleById(id);
+        final Article article = articleService.findCachedArticleById(id);
         final List<CustomerReview> allReviews = customerReviewService.findAllReviews();
 
         final ModelAndView mav = new ModelAndView("/shop/item");
@@ -180,12 +185,22 @@ public class ArticleController {
 
     /**
      * Return CalendarEvents as JSON for the calendar which shows all non available dates of an
-     * article.
+     * article. Only the visible window is returned, as requested by the FullCalendar, whose end
+     * is exclusive. Without a window, the next {@value #DEFAULT_WINDOW_MONTHS} months are used.
+     *
+     * @param start first visible day
+     * @param end day after the last visible day
      */
     @GetMapping("/events")
     @ResponseBody
-    private List<CalendarEvent> getEventsForCalendar(final @RequestParam Long id) {
-        return calendarEventService.getAllEventsFromOneArticle(id);
+    private List<CalendarEvent> getEventsForCalendar(final @RequestParam Long id,
+            final @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate start,
+            final @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate end) {
+        final LocalDate windowStart = start == null ? LocalDate.now() : start;
+        final LocalDate windowEnd = end == null ? windowStart.plusMonths(DEFAULT_WINDOW_MONTHS)
+                : end.minusDays(1);
+
+        return calendarEventService.getEventsFromOneArticle(id, windowStart, windowEnd);
     }
 
     /**
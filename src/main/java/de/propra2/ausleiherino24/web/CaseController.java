@@ -1,5 +1,6 @@
 package de.propra2.ausleiherino24.web;
 
+import de.propra2.ausleiherino24.features.calendar.ReservedPeriod;
 import de.propra2.ausleiherino24.features.category.Category;
 import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.CustomerReview;
@@ -11,10 +12,14 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -32,6 +37,7 @@ import org.springframework.web.bind.annotation.ResponseBody;
 public class CaseController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CaseController.class);
+    private static final long DEFAULT_WINDOW_MONTHS = 6;
 
     private final CaseService caseService;
     private final CustomerReviewService customerReviewService;
@@ -45,11 +51,22 @@ public class CaseController {
 
     /**
      * Method is needed, so that the calender shows, on which days the article is already reserved.
+     * Only the periods within the visible window are returned. Without a window, the next
+     * {@value #DEFAULT_WINDOW_MONTHS} months are used.
+     *
+     * @param id articleId
+     * @param from first visible day
+     * @param to last visible day
      */
     @GetMapping("/api/events")
     @ResponseBody
-    public List<LocalDate> test() {
-        return caseService.findAllReservedDaysByArticle((long) 3);
+    public List<ReservedPeriod> getReservedPeriods(final @RequestParam Long id,
+            final @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+            final @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to) {
+        final LocalDate windowStart = from == null ? LocalDate.now() : from;
+        final LocalDate windowEnd = to == null ? windowStart.plusMonths(DEFAULT_WINDOW_MONTHS) : to;
+
+        return caseService.findReservedPeriodsByArticle(id, windowStart, windowEnd);
     }
 
     /**
@@ -129,6 +146,54 @@ public class CaseController {
         return "redirect:/myOverview?request&propayUnavailable";
     }
 
+    /**
+     * Accepts several requests at once, e.g. for owners with many requests. The result of every
+     * case is named like the parameters of the redirects of {@link #acceptCase(Long)}. Cases of
+     * other owners are reported as "error".
+     *
+     * @param ids caseIds
+     * @return caseId -> "accepted", "alreadyRented", "receiverOutOfMoney", "propayUnavailable" or
+     *     "error"
+     */
+    @PostMapping("/acceptCases")
+    @ResponseBody
+    public Map<Long, String> acceptCases(final @RequestParam List<Long> ids,
+            final Principal principal) {
+        final Map<Long, String> results = new LinkedHashMap<>();
+        caseService.acceptArticleRequests(ids, principal).forEach((id, result) -> {
+            switch (result) {
+                case 1:
+                    results.put(id, "accepted");
+                    break;
+                case 2:
+                    results.put(id, "alreadyRented");
+                    break;
+                case 3:
+                    results.put(id, "receiverOutOfMoney");
+                    break;
+                case 4:
+                    results.put(id, "propayUnavailable");
+                    break;
+                default:
+                    results.put(id, "error");
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Declines several requests at once. Cases of other owners are not declined.
+     *
+     * @param ids caseIds
+     * @return caseId -> true, if the request was declined
+     */
+    @PostMapping("/declineCases")
+    @ResponseBody
+    public Map<Long, Boolean> declineCases(final @RequestParam List<Long> ids,
+            final Principal principal) {
+        return caseService.declineArticleRequests(ids, principal);
+    }
+
     /**
      * accepts the return of a Case.
      */
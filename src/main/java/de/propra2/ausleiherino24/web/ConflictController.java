@@ -1,15 +1,19 @@
 package de.propra2.ausleiherino24.web;
 
+import de.propra2.ausleiherino24.data.ConflictQueueSlice;
 import de.propra2.ausleiherino24.features.category.Category;
 import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.Conflict;
 import de.propra2.ausleiherino24.model.User;
+import de.propra2.ausleiherino24.propayhandler.data.AccountHandler;
 import de.propra2.ausleiherino24.service.CaseService;
 import de.propra2.ausleiherino24.service.ConflictService;
 import de.propra2.ausleiherino24.service.UserService;
 import java.nio.file.AccessDeniedException;
 import java.security.Principal;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -24,16 +28,18 @@ public class ConflictController {
     private final CaseService caseService;
     private final ConflictService conflictService;
     private final UserService userService;
+    private final AccountHandler accountHandler;
 
     /**
      * Autowired constructor.
      */
     @Autowired
     public ConflictController(final CaseService caseService, final ConflictService conflictService,
-            final UserService userService) {
+            final UserService userService, final AccountHandler accountHandler) {
         this.caseService = caseService;
         this.conflictService = conflictService;
         this.userService = userService;
+        this.accountHandler = accountHandler;
     }
 
     /**
@@ -104,17 +110,35 @@ public class ConflictController {
     }
 
     /**
-     * Mapping for admins to show all open conflicts.
+     * Mapping for admins to show the open conflicts, one page at a time, together with the ProPay
+     * balances of owners and receivers. The oldest conflicts are shown first.
+     *
+     * @param afterEndTime Cursor of the page, as linked by the previous page. Empty for the first
+     *     page.
+     * @param afterId Cursor of the page, as linked by the previous page. Empty for the first
+     *     page.
      */
     @GetMapping("/conflicts")
-    public ModelAndView solveConflicts(final Principal principal) {
+    public ModelAndView solveConflicts(final Principal principal,
+            final @RequestParam(required = false) Long afterEndTime,
+            final @RequestParam(required = false) Long afterId) {
         final ModelAndView mav = new ModelAndView("/admin/conflict");
 
         final User currentUser = userService.findUserByPrincipal(principal);
-        final List<Case> conflicts = caseService.findAllCasesWithOpenConflicts();
+        final ConflictQueueSlice queue = caseService.findOpenConflicts(afterEndTime, afterId);
+        final List<Case> conflicts = queue.getCases();
+        final Set<String> accountNames = new LinkedHashSet<>();
+        for (final Case conflict : conflicts) {
+            accountNames.add(conflict.getOwner().getUsername());
+            accountNames.add(conflict.getReceiver().getUsername());
+        }
 
         mav.addObject(USER_STRING, currentUser);
         mav.addObject("conflicts", conflicts);
+        mav.addObject("openConflicts", conflictService.size());
+        mav.addObject("nextEndTime", queue.getNextEndTime());
+        mav.addObject("nextId", queue.getNextId());
+        mav.addObject("accounts", accountHandler.getAccountSummaries(accountNames));
         mav.addObject("categories", Category.getAllCategories());
         return mav;
     }
@@ -1,7 +1,9 @@
 package de.propra2.ausleiherino24.web;
 
+import de.propra2.ausleiherino24.data.ArticleListing;
+import de.propra2.ausleiherino24.data.ArticleListingSlice;
 import de.propra2.ausleiherino24.features.category.Category;
-import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.features.search.SearchPage;
 import de.propra2.ausleiherino24.model.Person;
 import de.propra2.ausleiherino24.model.User;
 import de.propra2.ausleiherino24.service.ArticleService;
@@ -36,17 +38,21 @@ public class MainController {
     }
 
     /**
-     * Displays the main page. Here you can see all articles offered by users.
+     * Displays the main page. Here you can see all articles offered by users, one page at a time.
      *
+     * @param before Cursor of the page, as linked by the previous page. Empty for the first page.
      * @param principal Current user.
      * @return Main page / "index.html".
      */
     @GetMapping(value = {"/", "/index"})
-    public ModelAndView getIndex(final Principal principal) {
-        final List<Article> allArticles = articleService.findAllActiveAndForRentalArticles();
+    public ModelAndView getIndex(final @RequestParam(required = false) Long before,
+            final Principal principal) {
+        final ArticleListingSlice allArticles = articleService
+                .findActiveAndForRentalListings(before);
 
         final ModelAndView mav = new ModelAndView(INDEX_STRING);
-        addStandardModelAttributes(mav, principal, allArticles, "all");
+        addStandardModelAttributes(mav, principal, allArticles.getArticles(), "all");
+        mav.addObject("nextCursor", allArticles.getNextCursor());
         return mav;
     }
 
@@ -92,38 +98,43 @@ public class MainController {
     }
 
     /**
-     * Visitors can browse all articles in database by a simple search query.
+     * Visitors can browse all articles in database by a simple search query. Name, description,
+     * category and location are searched, results are ordered by relevance.
      *
-     * @param searchString Article name, that the current visitor is looking for.
+     * @param searchString Search string, that the current visitor is looking for.
+     * @param page Number of the result page, starting at 0.
      * @param principal Current user.
      * @return View of all query-related articles.
      */
     @GetMapping("/search")
     public ModelAndView getIndexBySearchString(final @RequestParam String searchString,
-            final Principal principal) {
-        final List<Article> allArticlesWithNameLikeSearchStr = articleService
-                .findAllArticlesByName(searchString);
+            final @RequestParam(defaultValue = "0") int page, final Principal principal) {
+        final SearchPage searchPage = articleService.searchListings(searchString, page);
 
         final ModelAndView mav = new ModelAndView(INDEX_STRING);
-        addStandardModelAttributes(mav, principal, allArticlesWithNameLikeSearchStr, "");
+        addStandardModelAttributes(mav, principal, searchPage.getArticles(), "");
+        mav.addObject("searchString", searchString);
+        mav.addObject("searchPage", searchPage);
         return mav;
     }
 
     /**
-     * Visitors can browse all articles by category.
+     * Visitors can browse all articles by category, one page at a time.
      *
      * @param category Category selected by the user.
+     * @param before Cursor of the page, as linked by the previous page. Empty for the first page.
      * @param principal Current user.
      * @return View of all category-related articles.
      */
     @GetMapping("/categories")
     public ModelAndView getIndexByCategory(final @RequestParam String category,
-            final Principal principal) {
-        final List<Article> allArticlesInCategory = articleService
-                .findAllArticlesByCategory(Category.valueOf(category.toUpperCase(Locale.ENGLISH)));
+            final @RequestParam(required = false) Long before, final Principal principal) {
+        final ArticleListingSlice allArticlesInCategory = articleService.findListingsByCategory(
+                Category.valueOf(category.toUpperCase(Locale.ENGLISH)), before);
 
         final ModelAndView mav = new ModelAndView(INDEX_STRING);
-        addStandardModelAttributes(mav, principal, allArticlesInCategory, category);
+        addStandardModelAttributes(mav, principal, allArticlesInCategory.getArticles(), category);
+        mav.addObject("nextCursor", allArticlesInCategory.getNextCursor());
         return mav;
     }
 
@@ -136,7 +147,7 @@ public class MainController {
      * @param category Category to be displayed.
      */
     private void addStandardModelAttributes(final ModelAndView mav, final Principal principal,
-            final List<Article> allArticles, final String category) {
+            final List<ArticleListing> allArticles, final String category) {
         final User currentUser = userService.findUserByPrincipal(principal);
         final List<Category> allCategories = Category.getAllCategories();
 
@@ -1,5 +1,6 @@
 package de.propra2.ausleiherino24.web;
 
+import de.propra2.ausleiherino24.data.CaseStatusCounters;
 import de.propra2.ausleiherino24.features.category.Category;
 import de.propra2.ausleiherino24.model.Article;
 import de.propra2.ausleiherino24.model.Case;
@@ -11,6 +12,7 @@ import de.propra2.ausleiherino24.service.CaseService;
 import de.propra2.ausleiherino24.service.UserService;
 import java.security.Principal;
 import java.util.List;
+import java.util.Map;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +23,7 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 
 @Controller
@@ -33,6 +36,7 @@ public class UserController {
     private final ArticleService articleService;
     private final CaseService caseService;
     private final UserService userService;
+    private final CaseStatusCounters caseStatusCounters;
     private final List<Category> allCategories = Category.getAllCategories();
 
     /**
@@ -40,11 +44,13 @@ public class UserController {
      */
     @Autowired
     public UserController(final UserService userService, final ArticleService articleService,
-            final AccountHandler accountHandler, final CaseService caseService) {
+            final AccountHandler accountHandler, final CaseService caseService,
+            final CaseStatusCounters caseStatusCounters) {
         this.accountHandler = accountHandler;
         this.articleService = articleService;
         this.caseService = caseService;
         this.userService = userService;
+        this.caseStatusCounters = caseStatusCounters;
     }
 
     /**
@@ -127,6 +133,17 @@ public class UserController {
         return mav;
     }
 
+    /**
+     * Number of cases of the current user's articles per request status, polled by the badges of
+     * myOverview.
+     */
+    @GetMapping("/myOverview/badges")
+    @ResponseBody
+    public Map<String, Long> getMyOverviewBadges(final Principal principal) {
+        final User currentUser = userService.findUserByPrincipal(principal);
+        return caseStatusCounters.countsOfOwner(currentUser.getId());
+    }
+
     /**
      * create new Item.
      */
@@ -2,15 +2,23 @@ package de.propra2.ausleiherino24.data;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import de.propra2.ausleiherino24.features.category.Category;
 import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.User;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -25,6 +33,9 @@ public class ArticleRepositoryTest {
     @Autowired
     private ArticleRepository articles;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private Article article1;
     private Article article2;
 
@@ -104,10 +115,16 @@ public class ArticleRepositoryTest {
     }
 
     @Test
-    public void customQueryFindAllActiveShouldReturnFirstArticle() {
-        final List<Article> us = articles.findAllActive();
-        assertThat(us.size()).isEqualTo(1);
-        assertThat(us.get(0)).isEqualTo(article1);
+    public void streamActiveSearchFieldsShouldReturnFirstArticle() {
+        final List<ArticleSearchFields> fields;
+        try (Stream<ArticleSearchFields> stream = articles.streamActiveSearchFields()) {
+            fields = stream.collect(Collectors.toList());
+        }
+        assertThat(fields.size()).isEqualTo(1);
+        assertThat(fields.get(0).getId()).isEqualTo(article1.getId());
+        assertThat(fields.get(0).getName()).isEqualTo(article1.getName());
+        assertThat(fields.get(0).getDescription()).isEqualTo(article1.getDescription());
+        assertThat(fields.get(0).getCategory()).isEqualTo(article1.getCategory());
     }
 
     @Test
@@ -124,4 +141,57 @@ public class ArticleRepositoryTest {
         assertThat(us.size()).isEqualTo(1);
         assertThat(us.get(0)).isEqualTo(article1);
     }
+
+    @Test
+    public void keysetQueryShouldReturnNewestRentalArticlesBelowCursor() {
+        final List<Article> rental = saveRentalArticles(Category.TOOLS, Category.TOYS,
+                Category.TOOLS);
+
+        final List<ArticleListing> firstPage = articles
+                .findActiveForRentalListingsBefore(Long.MAX_VALUE, PageRequest.of(0, 2));
+        assertThat(firstPage).extracting(ArticleListing::getId)
+                .containsExactly(rental.get(2).getId(), rental.get(1).getId());
+
+        final List<ArticleListing> secondPage = articles
+                .findActiveForRentalListingsBefore(rental.get(1).getId(), PageRequest.of(0, 2));
+        assertThat(secondPage).extracting(ArticleListing::getId)
+                .containsExactly(rental.get(0).getId());
+    }
+
+    @Test
+    public void keysetQueryShouldFilterByCategory() {
+        final List<Article> rental = saveRentalArticles(Category.TOOLS, Category.TOYS,
+                Category.TOOLS);
+
+        final List<ArticleListing> tools = articles.findActiveForRentalListingsByCategoryBefore(
+                Category.TOOLS, Long.MAX_VALUE, PageRequest.of(0, 10));
+        assertThat(tools).extracting(ArticleListing::getId)
+                .containsExactly(rental.get(2).getId(), rental.get(0).getId());
+    }
+
+    @Test
+    public void addingCaseDoesNotLoadTheCasesOfTheArticle() {
+        entityManager.flush();
+        entityManager.clear();
+        final Article article = articles.findById(article1.getId()).get();
+
+        final Case newCase = new Case();
+        newCase.setArticle(article);
+
+        assertThat(newCase.getArticle()).isSameAs(article);
+        assertThat(Hibernate.isInitialized(article.getCases())).isFalse();
+    }
+
+    private List<Article> saveRentalArticles(final Category... categories) {
+        final List<Article> rental = new ArrayList<>();
+        for (final Category category : categories) {
+            final Article article = new Article();
+            article.setName(category.getName());
+            article.setActive(true);
+            article.setForRental(true);
+            article.setCategory(category);
+            rental.add(articles.save(article));
+        }
+        return rental;
+    }
 }
@@ -7,12 +7,16 @@ import de.propra2.ausleiherino24.model.User;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -77,19 +81,21 @@ public class CaseRepositoryTest {
     }
 
     @Test
-    public void queryFindByArticleAndRequestStatusShouldReturnCaseWithCorrespondingArticleIfStatusIsMatching() {
+    public void queryFindIntervalsByArticleIdShouldReturnCaseIfStatusIsMatching() {
         case2.setRequestStatus(Case.RUNNING);
-        final List<Case> expectedCases = cases
-                .findAllByArticleAndRequestStatus(case2.getArticle(), Case.RUNNING);
+        final List<CaseInterval> expectedCases = cases
+                .findIntervalsByArticleIdAndRequestStatus(case2.getArticle().getId(), Case.RUNNING);
         Assertions.assertThat(expectedCases.size()).isOne();
-        Assertions.assertThat(expectedCases.get(0)).isEqualTo(case2);
+        Assertions.assertThat(expectedCases.get(0).getId()).isEqualTo(case2.getId());
+        Assertions.assertThat(expectedCases.get(0).getStartTime()).isEqualTo(10022019L);
+        Assertions.assertThat(expectedCases.get(0).getEndTime()).isEqualTo(15022019L);
     }
 
     @Test
-    public void queryFindByArticleAndRequestStatusShouldReturnNoCaseWithCorrespondingArticleIfStatusIsNotMatching() {
+    public void queryFindIntervalsByArticleIdShouldReturnNoCaseIfStatusIsNotMatching() {
         case2.setRequestStatus(Case.RUNNING);
-        final List<Case> expectedCases = cases
-                .findAllByArticleAndRequestStatus(case2.getArticle(), Case.REQUEST_ACCEPTED);
+        final List<CaseInterval> expectedCases = cases.findIntervalsByArticleIdAndRequestStatus(
+                case2.getArticle().getId(), Case.REQUEST_ACCEPTED);
         Assertions.assertThat(expectedCases.size()).isZero();
     }
 
@@ -292,4 +298,129 @@ public class CaseRepositoryTest {
 
         Assertions.assertThat(actualCases).isEqualTo(expectedCases);
     }
+
+    @Test
+    public void streamTimeSpansShouldReturnAcceptedCasesOverlappingTheWindowOrderedByStartTime() {
+        case1.setRequestStatus(Case.REQUEST_ACCEPTED);
+        case2.setRequestStatus(Case.REQUEST_ACCEPTED);
+        case2.setArticle(case1.getArticle());
+
+        final List<Long> startTimes;
+        try (Stream<CaseTimeSpan> timeSpans = cases
+                .streamTimeSpansByArticleAndRequestStatusInWindow(case1.getArticle().getId(),
+                        Case.REQUEST_ACCEPTED, 11000000L, 13000000L)) {
+            startTimes = timeSpans.map(CaseTimeSpan::getStartTime).collect(Collectors.toList());
+        }
+
+        Assertions.assertThat(startTimes).containsExactly(10022019L, 12022019L);
+    }
+
+    @Test
+    public void streamTimeSpansShouldReturnCasesWithAnyOfTheGivenStatuses() {
+        case1.setRequestStatus(Case.RUNNING);
+        case2.setRequestStatus(Case.REQUESTED);
+        case2.setArticle(case1.getArticle());
+
+        final List<Long> startTimes;
+        try (Stream<CaseTimeSpan> timeSpans = cases
+                .streamTimeSpansByArticleAndRequestStatusesInWindow(case1.getArticle().getId(),
+                        Arrays.asList(Case.REQUEST_ACCEPTED, Case.RUNNING), 11000000L,
+                        13000000L)) {
+            startTimes = timeSpans.map(CaseTimeSpan::getStartTime).collect(Collectors.toList());
+        }
+
+        Assertions.assertThat(startTimes).containsExactly(12022019L);
+    }
+
+    @Test
+    public void streamTimeSpansShouldIgnoreCasesOutsideTheWindowOrWithOtherStatus() {
+        case1.setRequestStatus(Case.REQUEST_ACCEPTED);
+        case2.setRequestStatus(Case.REQUEST_ACCEPTED);
+        case2.setArticle(case1.getArticle());
+
+        final List<Long> startTimes;
+        try (Stream<CaseTimeSpan> timeSpans = cases
+                .streamTimeSpansByArticleAndRequestStatusInWindow(case1.getArticle().getId(),
+                        Case.REQUEST_ACCEPTED, 16000000L, 20000000L)) {
+            startTimes = timeSpans.map(CaseTimeSpan::getStartTime).collect(Collectors.toList());
+        }
+        case1.setRequestStatus(Case.REQUESTED);
+        final long acceptedCount;
+        try (Stream<CaseTimeSpan> timeSpans = cases
+                .streamTimeSpansByArticleAndRequestStatusInWindow(case1.getArticle().getId(),
+                        Case.REQUEST_ACCEPTED, 16000000L, 20000000L)) {
+            acceptedCount = timeSpans.count();
+        }
+
+        Assertions.assertThat(startTimes).containsExactly(12022019L);
+        Assertions.assertThat(acceptedCount).isZero();
+    }
+
+    @Test
+    public void findAllByRequestStatusAndEndTimeInRangeShouldExcludeUpperBound() {
+        case1.setRequestStatus(Case.RUNNING);
+        case2.setRequestStatus(Case.RUNNING);
+
+        final List<Case> endingCases = cases
+                .findAllByRequestStatusAndEndTimeInRange(Case.RUNNING, 15022019L, 19022019L);
+
+        Assertions.assertThat(endingCases).containsExactly(case2);
+    }
+
+    @Test
+    public void findAllByRequestStatusAndEndTimeInRangeShouldIgnoreOtherStatus() {
+        case1.setRequestStatus(Case.RUNNING_EMAILSENT);
+        case2.setRequestStatus(Case.RUNNING);
+
+        final List<Case> endingCases = cases
+                .findAllByRequestStatusAndEndTimeInRange(Case.RUNNING, 0L, 20000000L);
+
+        Assertions.assertThat(endingCases).containsExactly(case2);
+    }
+
+    @Test
+    public void findNextEndTimeShouldReturnEarliestEndTimeFromGivenTime() {
+        case1.setRequestStatus(Case.RUNNING);
+        case2.setRequestStatus(Case.RUNNING);
+
+        Assertions.assertThat(cases.findNextEndTime(Case.RUNNING, 0L)).isEqualTo(15022019L);
+        Assertions.assertThat(cases.findNextEndTime(Case.RUNNING, 15022020L))
+                .isEqualTo(19022019L);
+        Assertions.assertThat(cases.findNextEndTime(Case.RUNNING, 19022020L)).isNull();
+    }
+
+    @Test
+    public void findByRequestStatusAfterShouldContinueAfterCursor() {
+        final Case case3 = new Case();
+        case3.setEndTime(15022019L);
+        case3.setRequestStatus(Case.OPEN_CONFLICT);
+        cases.save(case3);
+        case1.setRequestStatus(Case.OPEN_CONFLICT);
+        case2.setRequestStatus(Case.OPEN_CONFLICT);
+        final Case first = case2.getId() < case3.getId() ? case2 : case3;
+        final Case second = first == case2 ? case3 : case2;
+
+        final List<Case> firstPage = cases.findByRequestStatusAfter(Case.OPEN_CONFLICT,
+                Long.MIN_VALUE, Long.MIN_VALUE, PageRequest.of(0, 2));
+        final List<Case> secondPage = cases.findByRequestStatusAfter(Case.OPEN_CONFLICT,
+                second.getEndTime(), second.getId(), PageRequest.of(0, 2));
+
+        Assertions.assertThat(firstPage).containsExactly(first, second);
+        Assertions.assertThat(secondPage).containsExactly(case1);
+    }
+
+    @Test
+    public void findStatusCountsShouldCountCasesPerStatus() {
+        case1.setRequestStatus(Case.OPEN_CONFLICT);
+        case2.setRequestStatus(Case.RUNNING);
+        final Case case3 = new Case();
+        case3.setRequestStatus(Case.OPEN_CONFLICT);
+        cases.save(case3);
+
+        final Map<Integer, Long> counts = cases.findStatusCounts().stream().collect(Collectors
+                .toMap(CaseStatusCount::getRequestStatus, CaseStatusCount::getCount));
+
+        Assertions.assertThat(counts).containsEntry(Case.OPEN_CONFLICT, 2L)
+                .containsEntry(Case.RUNNING, 1L).hasSize(2);
+    }
 }
@@ -0,0 +1,133 @@
+package de.propra2.ausleiherino24.data;
+
+import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.model.User;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The counters are maintained after commits, so the repository calls of these tests are not
+ * wrapped in a test transaction.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@ActiveProfiles(profiles = "test")
+@Import(CaseStatusCounters.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CaseStatusCountersTest {
+
+    @Autowired
+    private CaseRepository cases;
+
+    @Autowired
+    private ArticleRepository articles;
+
+    @Autowired
+    private UserRepository users;
+
+    @Autowired
+    private CaseStatusCounters counters;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void clean() {
+        cases.deleteAll();
+        articles.deleteAll();
+        users.deleteAll();
+    }
+
+    @Test
+    void countersAreLoadedFromDatabase() {
+        cases.save(caseWithStatus(Case.OPEN_CONFLICT));
+        cases.save(caseWithStatus(Case.RUNNING));
+
+        Assertions.assertThat(counters.count(Case.OPEN_CONFLICT)).isOne();
+        Assertions.assertThat(counters.count(Case.FINISHED)).isZero();
+    }
+
+    @Test
+    void countersFollowInsertsUpdatesAndDeletes() {
+        Assertions.assertThat(counters.count(Case.OPEN_CONFLICT)).isZero();
+
+        final Case conflicted = cases.save(caseWithStatus(Case.RUNNING));
+        conflicted.setRequestStatus(Case.OPEN_CONFLICT);
+        cases.save(conflicted);
+        cases.save(caseWithStatus(Case.OPEN_CONFLICT));
+        Assertions.assertThat(counters.count(Case.OPEN_CONFLICT)).isEqualTo(2);
+        Assertions.assertThat(counters.count(Case.RUNNING)).isZero();
+
+        cases.delete(conflicted);
+        Assertions.assertThat(counters.count(Case.OPEN_CONFLICT)).isOne();
+    }
+
+    @Test
+    void rolledBackChangesAreNotCounted() {
+        Assertions.assertThat(counters.count(Case.OPEN_CONFLICT)).isZero();
+
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.execute(status -> {
+            cases.save(caseWithStatus(Case.OPEN_CONFLICT));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        Assertions.assertThat(counters.count(Case.OPEN_CONFLICT)).isZero();
+    }
+
+    @Test
+    void countersOfOwnerOnlyCountCasesOfTheirArticles() {
+        final User owner = new User();
+        owner.setUsername("owner");
+        final Article article = new Article();
+        article.setOwner(owner);
+        final Case requested = caseWithStatus(Case.REQUESTED);
+        requested.setArticle(article);
+        cases.save(requested);
+        cases.save(caseWithStatus(Case.REQUESTED));
+        final Long ownerId = owner.getId();
+        Assertions.assertThat(counters.countsOfOwner(ownerId)).containsEntry("requested", 1L);
+
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.execute(status -> {
+            final Case running = caseWithStatus(Case.RUNNING);
+            running.setArticle(articles.findById(article.getId()).get());
+            return cases.save(running);
+        });
+        cases.save(caseWithStatus(Case.RUNNING));
+        Assertions.assertThat(counters.countsOfOwner(ownerId)).containsEntry("requested", 1L)
+                .containsEntry("running", 1L).containsEntry("finished", 0L);
+        Assertions.assertThat(counters.counts()).containsEntry("running", 2L);
+    }
+
+    @Test
+    void countersFollowChangesAfterReload() {
+        cases.save(caseWithStatus(Case.OPEN_CONFLICT));
+        Assertions.assertThat(counters.count(Case.OPEN_CONFLICT)).isOne();
+
+        counters.reload();
+        cases.save(caseWithStatus(Case.OPEN_CONFLICT));
+
+        Assertions.assertThat(counters.count(Case.OPEN_CONFLICT)).isEqualTo(2);
+    }
+
+    private Case caseWithStatus(final int requestStatus) {
+        final Case aCase = new Case();
+        aCase.setEndTime(19022019L);
+        aCase.setRequestStatus(requestStatus);
+        return aCase;
+    }
+}
@@ -0,0 +1,100 @@
+package de.propra2.ausleiherino24.data;
+
+import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.model.Conversation;
+import de.propra2.ausleiherino24.model.ConversationMessage;
+import de.propra2.ausleiherino24.model.User;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@ActiveProfiles(profiles = "test")
+class ConversationRepositoryTest {
+
+    @Autowired
+    private ConversationRepository conversations;
+
+    @Autowired
+    private ConversationMessageRepository messages;
+
+    @Autowired
+    private CaseRepository cases;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Case aCase;
+    private Conversation conversation;
+
+    @BeforeEach
+    void init() {
+        final User owner = new User();
+        owner.setUsername("owner");
+        final User receiver = new User();
+        receiver.setUsername("receiver");
+        final Article article = new Article();
+        article.setOwner(owner);
+        aCase = new Case();
+        aCase.setArticle(article);
+        aCase.setReceiver(receiver);
+        cases.save(aCase);
+
+        conversation = conversations.save(new Conversation(aCase));
+    }
+
+    @Test
+    void conversationShouldBeFoundByCaseWithParticipants() {
+        entityManager.flush();
+        entityManager.clear();
+
+        final Conversation found = conversations.findByConversationCaseId(aCase.getId())
+                .orElseThrow(AssertionError::new);
+
+        Assertions.assertThat(found.getOwnerUsername()).isEqualTo("owner");
+        Assertions.assertThat(found.getReceiverUsername()).isEqualTo("receiver");
+        Assertions.assertThat(found.isParticipant("receiver")).isTrue();
+        Assertions.assertThat(found.isParticipant("other")).isFalse();
+    }
+
+    @Test
+    void acknowledgementShouldOnlyMoveForward() {
+        conversations.acknowledgeByOwner(conversation.getId(), 5L);
+        conversations.acknowledgeByOwner(conversation.getId(), 3L);
+        conversations.acknowledgeByReceiver(conversation.getId(), 2L);
+        entityManager.clear();
+
+        final Conversation found = conversations.findById(conversation.getId())
+                .orElseThrow(AssertionError::new);
+        Assertions.assertThat(found.getOwnerAckedMessageId()).isEqualTo(5L);
+        Assertions.assertThat(found.getReceiverAckedMessageId()).isEqualTo(2L);
+    }
+
+    @Test
+    void messagesShouldBeFoundAfterGivenMessageInOrder() {
+        final ConversationMessage first = messages.save(
+                new ConversationMessage(conversation.getId(), "owner", "c1", "Hallo", 1L));
+        final ConversationMessage second = messages.save(
+                new ConversationMessage(conversation.getId(), "receiver", "c1", "Hi", 2L));
+        final ConversationMessage third = messages.save(
+                new ConversationMessage(conversation.getId(), "owner", "c2", "Morgen?", 3L));
+
+        final List<ConversationMessage> after = messages
+                .findAllByConversationIdAndIdGreaterThanOrderByIdAsc(conversation.getId(),
+                        first.getId(), PageRequest.of(0, 10));
+
+        Assertions.assertThat(after).containsExactly(second, third);
+        Assertions.assertThat(messages.findByConversationIdAndSenderAndClientMessageId(
+                conversation.getId(), "owner", "c2")).contains(third);
+    }
+}
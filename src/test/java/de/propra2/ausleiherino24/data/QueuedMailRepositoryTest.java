@@ -0,0 +1,94 @@
+package de.propra2.ausleiherino24.data;
+
+import de.propra2.ausleiherino24.model.QueuedMail;
+import java.util.Arrays;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@ActiveProfiles(profiles = "test")
+class QueuedMailRepositoryTest {
+
+    @Autowired
+    private QueuedMailRepository mails;
+
+    private QueuedMail mail1;
+    private QueuedMail mail2;
+    private QueuedMail retried;
+
+    @BeforeEach
+    void init() {
+        mail1 = new QueuedMail("smtp.test", message("a@mail.de"), 100L);
+        mail2 = new QueuedMail("smtp.test", message("b@mail.de"), 100L);
+        retried = new QueuedMail("smtp.test", message("c@mail.de"), 100L);
+        retried.setNextAttemptAt(500L);
+
+        mails.saveAll(Arrays.asList(mail1, mail2, retried));
+    }
+
+    @Test
+    void dueMailsAreReturnedOldestFirst() {
+        Assertions.assertThat(due(200L)).containsExactly(mail1, mail2);
+    }
+
+    @Test
+    void sentMailIsNotDue() {
+        mail1.setStatus(QueuedMail.SENT);
+        mails.save(mail1);
+
+        Assertions.assertThat(due(200L)).containsExactly(mail2);
+        Assertions.assertThat(mails.countByStatus(QueuedMail.PENDING)).isEqualTo(2);
+    }
+
+    @Test
+    void retriedMailIsDueAfterBackoff() {
+        Assertions.assertThat(due(499L)).doesNotContain(retried);
+        Assertions.assertThat(due(500L)).contains(retried);
+    }
+
+    @Test
+    void mailIsClaimedOnlyOnceUntilTheLeaseExpires() {
+        Assertions.assertThat(mails.claim(mail1.getId(), 200L, 1200L)).isEqualTo(1);
+        Assertions.assertThat(mails.claim(mail1.getId(), 300L, 1300L)).isEqualTo(0);
+        Assertions.assertThat(mails.claim(mail1.getId(), 1200L, 2200L)).isEqualTo(1);
+    }
+
+    @Test
+    void onlyDuePendingMailsAreClaimed() {
+        mail2.setStatus(QueuedMail.SENT);
+        mails.save(mail2);
+
+        Assertions.assertThat(mails.claim(mail2.getId(), 200L, 1200L)).isEqualTo(0);
+        Assertions.assertThat(mails.claim(retried.getId(), 200L, 1200L)).isEqualTo(0);
+    }
+
+    @Test
+    void queuedMailShouldKeepMessage() {
+        final QueuedMail loaded = mails.findById(mail1.getId()).orElseThrow(AssertionError::new);
+
+        Assertions.assertThat(loaded.toMessage()).isEqualTo(message("a@mail.de"));
+    }
+
+    private List<QueuedMail> due(final long now) {
+        return mails.findDueMails(now, PageRequest.of(0, 10));
+    }
+
+    private SimpleMailMessage message(final String recipient) {
+        final SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("ausleiherino24@gmail.com");
+        message.setTo(recipient);
+        message.setSubject("Subject");
+        message.setText("Text");
+        return message;
+    }
+}
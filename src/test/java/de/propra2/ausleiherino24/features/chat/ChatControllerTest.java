@@ -0,0 +1,76 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.propra2.ausleiherino24.model.User;
+import de.propra2.ausleiherino24.service.UserService;
+import java.security.Principal;
+import java.util.HashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class ChatControllerTest {
+
+    private UserService userServiceMock;
+    private SimpMessagingTemplate messagingTemplateMock;
+    private ChatSenderCache senders;
+    private ChatController chatController;
+    private SimpMessageHeaderAccessor headerAccessor;
+
+    @BeforeEach
+    void init() {
+        userServiceMock = mock(UserService.class);
+        messagingTemplateMock = mock(SimpMessagingTemplate.class);
+        senders = new ChatSenderCache(userServiceMock);
+        chatController = new ChatController(senders, messagingTemplateMock);
+
+        final Principal principal = () -> "user1";
+        final User user = new User();
+        user.setUsername("user1");
+        when(userServiceMock.findUserByPrincipal(principal)).thenReturn(user);
+
+        headerAccessor = SimpMessageHeaderAccessor.create();
+        headerAccessor.setSessionAttributes(new HashMap<>());
+        headerAccessor.setUser(principal);
+    }
+
+    @Test
+    void sendMessageShouldSetSender() {
+        final ChatMessage message = chatController.sendMessage(new ChatMessage(), headerAccessor);
+
+        assertEquals("user1", message.getSender());
+    }
+
+    @Test
+    void senderShouldBeLookedUpOncePerSession() {
+        chatController.addUser(new ChatMessage(), headerAccessor);
+        chatController.sendMessage(new ChatMessage(), headerAccessor);
+        chatController.sendMessage(new ChatMessage(), headerAccessor);
+
+        verify(userServiceMock, times(1)).findUserByPrincipal(any());
+        assertEquals("user1", headerAccessor.getSessionAttributes().get(ChatSenderCache.SENDER));
+    }
+
+    @Test
+    void sendSpecificShouldSendToReceiver() {
+        final ChatMessage message = new ChatMessage();
+        message.setReceiver("user2");
+        message.setContent("Hallo");
+
+        chatController.sendSpecific(message, headerAccessor);
+
+        assertEquals("user1", message.getSender());
+        verify(messagingTemplateMock).convertAndSendToUser("user2", "/queue/specific-user",
+                message);
+    }
+}
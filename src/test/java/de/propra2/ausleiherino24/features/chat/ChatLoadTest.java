@@ -0,0 +1,253 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * Connects 10000 in-memory web socket sessions to the STOMP handler of one node, subscribes them
+ * to their conversation queue and sends messages to all users. One percent of the clients are
+ * slow. The other clients have to receive all messages in time, while the slow clients only lose
+ * their oldest messages.
+ */
+@Tag("slow")
+@SpringBootTest(properties = {"chat.overflowPolicy=DROP", "chat.sendBufferSizeLimit=16384",
+        "chat.sendThreads=32"})
+@ActiveProfiles(profiles = "test")
+@ExtendWith(SpringExtension.class)
+class ChatLoadTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatLoadTest.class);
+
+    private static final int SESSIONS = 10000;
+    private static final int SLOW_EVERY = 100;
+    private static final long SLOW_SEND_MILLIS = 5;
+    private static final int ROUNDS = 5;
+    private static final int SLOW_BURST = 200;
+    private static final long TIMEOUT_MILLIS = 120000;
+
+    @Autowired
+    private SubProtocolWebSocketHandler subProtocolWebSocketHandler;
+
+    @Autowired
+    private ChatSendBuffers sendBuffers;
+
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Test
+    void fastClientsAreNotHeldBackBySlowClients() throws Exception {
+        final WebSocketHandler handler = sendBuffers.decorate(subProtocolWebSocketHandler);
+        final List<LoadTestSession> sessions = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            final LoadTestSession session = new LoadTestSession(i, i % SLOW_EVERY == 0);
+            sessions.add(session);
+            handler.afterConnectionEstablished(session);
+            handler.handleMessage(session, frame("CONNECT\naccept-version:1.2\nheart-beat:0,0"));
+            handler.handleMessage(session, frame(
+                    "SUBSCRIBE\nid:sub-0\ndestination:/user/queue/conversation"));
+        }
+        awaitUntil(() -> userRegistry.findSubscriptions(s -> true).size() == SESSIONS);
+
+        final String payload = new String(new char[200]).replace('\0', 'x');
+        final long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (final LoadTestSession session : sessions) {
+                messagingTemplate.convertAndSendToUser(session.getPrincipal().getName(),
+                        ConversationController.CONVERSATION_QUEUE, payload);
+            }
+        }
+        for (final LoadTestSession session : sessions) {
+            if (session.slow) {
+                for (int i = 0; i < SLOW_BURST; i++) {
+                    messagingTemplate.convertAndSendToUser(session.getPrincipal().getName(),
+                            ConversationController.CONVERSATION_QUEUE, payload);
+                }
+            }
+        }
+
+        awaitUntil(() -> sessions.stream().filter(s -> !s.slow)
+                .allMatch(s -> s.received.get() == ROUNDS));
+        final long fastMillis = (System.nanoTime() - start) / 1000000;
+        final int slowReceived = sessions.stream().filter(s -> s.slow)
+                .mapToInt(s -> s.received.get()).sum();
+
+        LOGGER.info("{} sessions: fast clients received {} messages each after {} ms, "
+                        + "slow clients {} of {} messages so far.", SESSIONS, ROUNDS, fastMillis,
+                slowReceived, (SESSIONS / SLOW_EVERY) * (ROUNDS + SLOW_BURST));
+        assertTrue(sessions.stream().allMatch(LoadTestSession::isOpen));
+        awaitUntil(() -> sessions.stream().filter(s -> s.slow).allMatch(s -> s.idle()));
+        assertTrue(sessions.stream().filter(s -> s.slow)
+                .allMatch(s -> s.received.get() < ROUNDS + SLOW_BURST));
+    }
+
+    private static TextMessage frame(final String command) {
+        return new TextMessage(command + "\n\n\0");
+    }
+
+    private static void awaitUntil(final Condition condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.isMet()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+    }
+
+    private interface Condition {
+
+        boolean isMet();
+    }
+
+    /**
+     * Session without network, which counts the received messages. Slow sessions need some
+     * time for every message.
+     */
+    private static final class LoadTestSession implements WebSocketSession {
+
+        private final String id;
+        private final Principal principal;
+        private final boolean slow;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private final AtomicInteger received = new AtomicInteger();
+        private volatile long lastSend = System.currentTimeMillis();
+        private volatile boolean open = true;
+        private int textMessageSizeLimit = 64 * 1024;
+        private int binaryMessageSizeLimit = 64 * 1024;
+
+        private LoadTestSession(final int number, final boolean slow) {
+            this.id = "session" + number;
+            this.principal = () -> "user" + number;
+            this.slow = slow;
+        }
+
+        private boolean idle() {
+            return System.currentTimeMillis() - lastSend > 10 * SLOW_SEND_MILLIS;
+        }
+
+        @Override
+        public void sendMessage(final WebSocketMessage<?> message) {
+            lastSend = System.currentTimeMillis();
+            if (slow) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(SLOW_SEND_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (message.getPayload().toString().startsWith("MESSAGE")) {
+                received.incrementAndGet();
+            }
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public URI getUri() {
+            return URI.create("ws://localhost/ws");
+        }
+
+        @Override
+        public HttpHeaders getHandshakeHeaders() {
+            return new HttpHeaders();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return principal;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return new InetSocketAddress("localhost", 8080);
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return new InetSocketAddress("localhost", 40000);
+        }
+
+        @Override
+        public String getAcceptedProtocol() {
+            return null;
+        }
+
+        @Override
+        public void setTextMessageSizeLimit(final int messageSizeLimit) {
+            this.textMessageSizeLimit = messageSizeLimit;
+        }
+
+        @Override
+        public int getTextMessageSizeLimit() {
+            return textMessageSizeLimit;
+        }
+
+        @Override
+        public void setBinaryMessageSizeLimit(final int messageSizeLimit) {
+            this.binaryMessageSizeLimit = messageSizeLimit;
+        }
+
+        @Override
+        public int getBinaryMessageSizeLimit() {
+            return binaryMessageSizeLimit;
+        }
+
+        @Override
+        public List<WebSocketExtension> getExtensions() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        @Override
+        public void close(final CloseStatus status) {
+            open = false;
+        }
+    }
+}
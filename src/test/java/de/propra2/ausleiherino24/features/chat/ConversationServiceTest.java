@@ -0,0 +1,117 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.propra2.ausleiherino24.data.ConversationMessageRepository;
+import de.propra2.ausleiherino24.data.ConversationRepository;
+import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.model.Conversation;
+import de.propra2.ausleiherino24.model.ConversationMessage;
+import de.propra2.ausleiherino24.model.User;
+import de.propra2.ausleiherino24.service.CaseService;
+import java.nio.file.AccessDeniedException;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class ConversationServiceTest {
+
+    private static final Long CASE_ID = 1L;
+
+    private ConversationRepository conversationsMock;
+    private ConversationMessageRepository messagesMock;
+    private CaseService caseServiceMock;
+    private ConversationService conversationService;
+    private Conversation conversation;
+
+    @BeforeEach
+    void init() {
+        conversationsMock = mock(ConversationRepository.class);
+        messagesMock = mock(ConversationMessageRepository.class);
+        caseServiceMock = mock(CaseService.class);
+        conversationService = new ConversationService(conversationsMock, messagesMock,
+                caseServiceMock);
+
+        final User owner = new User();
+        owner.setUsername("owner");
+        final User receiver = new User();
+        receiver.setUsername("receiver");
+        final Article article = new Article();
+        article.setOwner(owner);
+        final Case aCase = new Case();
+        aCase.setId(CASE_ID);
+        aCase.setArticle(article);
+        aCase.setReceiver(receiver);
+        conversation = new Conversation(aCase);
+        conversation.setId(2L);
+        conversation.setOwnerAckedMessageId(4L);
+        conversation.setReceiverAckedMessageId(7L);
+    }
+
+    @Test
+    void findConversationShouldCreateMissingConversation() throws AccessDeniedException {
+        when(conversationsMock.findByConversationCaseId(CASE_ID))
+                .thenReturn(Optional.empty(), Optional.of(conversation));
+        when(caseServiceMock.findCaseById(CASE_ID)).thenReturn(conversation.getConversationCase());
+
+        assertSame(conversation, conversationService.findConversation(CASE_ID, "owner"));
+        verify(conversationsMock).save(any(Conversation.class));
+    }
+
+    @Test
+    void findConversationShouldDenyOtherUsers() {
+        when(conversationsMock.findByConversationCaseId(CASE_ID))
+                .thenReturn(Optional.of(conversation));
+
+        assertThrows(AccessDeniedException.class,
+                () -> conversationService.findConversation(CASE_ID, "other"));
+    }
+
+    @Test
+    void postShouldReturnSavedMessageIfSentAgain() {
+        final ConversationMessage saved = new ConversationMessage(2L, "owner", "c1", "Hallo", 1L);
+        when(messagesMock.findByConversationIdAndSenderAndClientMessageId(2L, "owner", "c1"))
+                .thenReturn(Optional.of(saved));
+
+        assertSame(saved, conversationService.post(conversation, "owner", "c1", "Hallo"));
+        verify(messagesMock, never()).save(any());
+    }
+
+    @Test
+    void acknowledgeShouldUpdateAcknowledgementOfReceiver() throws AccessDeniedException {
+        when(conversationsMock.findByConversationCaseId(CASE_ID))
+                .thenReturn(Optional.of(conversation));
+
+        conversationService.acknowledge(CASE_ID, "receiver", 9L);
+
+        verify(conversationsMock).acknowledgeByReceiver(2L, 9L);
+        verify(conversationsMock, never()).acknowledgeByOwner(any(), any());
+    }
+
+    @Test
+    void findMessagesAfterShouldStartAfterLastAcknowledgedMessage()
+            throws AccessDeniedException {
+        when(conversationsMock.findByConversationCaseId(CASE_ID))
+                .thenReturn(Optional.of(conversation));
+
+        conversationService.findMessagesAfter(CASE_ID, "owner", null);
+        conversationService.findMessagesAfter(CASE_ID, "receiver", 1L);
+
+        verify(messagesMock).findAllByConversationIdAndIdGreaterThanOrderByIdAsc(eq(2L), eq(4L),
+                any(PageRequest.class));
+        verify(messagesMock).findAllByConversationIdAndIdGreaterThanOrderByIdAsc(eq(2L), eq(1L),
+                any(PageRequest.class));
+    }
+}
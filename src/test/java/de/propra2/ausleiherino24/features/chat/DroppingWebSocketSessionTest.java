@@ -0,0 +1,111 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+@ExtendWith(SpringExtension.class)
+class DroppingWebSocketSessionTest {
+
+    private WebSocketSession delegate;
+    private List<Runnable> pendingFlushes;
+    private List<String> sent;
+    private DroppingWebSocketSession session;
+
+    @BeforeEach
+    void init() throws IOException {
+        delegate = mock(WebSocketSession.class);
+        when(delegate.isOpen()).thenReturn(true);
+        sent = new ArrayList<>();
+        doAnswer(invocation -> sent.add(
+                ((WebSocketMessage<?>) invocation.getArgument(0)).getPayload().toString()))
+                .when(delegate).sendMessage(any());
+        pendingFlushes = new ArrayList<>();
+        final Executor executor = pendingFlushes::add;
+        session = new DroppingWebSocketSession(delegate, 10, executor);
+    }
+
+    @Test
+    void messagesAreSentInOrder() {
+        session.sendMessage(new TextMessage("abc"));
+        session.sendMessage(new TextMessage("def"));
+        runFlushes();
+
+        assertEquals(2, sent.size());
+        assertEquals("abc", sent.get(0));
+        assertEquals("def", sent.get(1));
+        assertEquals(0, session.getBufferSize());
+    }
+
+    @Test
+    void oldestMessagesAreDroppedWhenBufferIsFull() {
+        session.sendMessage(new TextMessage("1234"));
+        session.sendMessage(new TextMessage("5678"));
+        session.sendMessage(new TextMessage("9012"));
+
+        assertEquals(8, session.getBufferSize());
+        assertEquals(1, session.getDropped());
+        runFlushes();
+        assertEquals("5678", sent.get(0));
+        assertEquals("9012", sent.get(1));
+    }
+
+    @Test
+    void onlyOneFlushIsScheduledAtOnce() {
+        session.sendMessage(new TextMessage("a"));
+        session.sendMessage(new TextMessage("b"));
+
+        assertEquals(1, pendingFlushes.size());
+        runFlushes();
+        session.sendMessage(new TextMessage("c"));
+        assertEquals(1, pendingFlushes.size());
+    }
+
+    @Test
+    void flushIsScheduledAgainAfterMessagesPerFlush() {
+        session = new DroppingWebSocketSession(delegate, 1000, pendingFlushes::add);
+        for (int i = 0; i < DroppingWebSocketSession.MESSAGES_PER_FLUSH + 4; i++) {
+            session.sendMessage(new TextMessage("m" + i));
+        }
+
+        runFlushes();
+        assertEquals(DroppingWebSocketSession.MESSAGES_PER_FLUSH, sent.size());
+        assertEquals(1, pendingFlushes.size());
+        runFlushes();
+        assertEquals(DroppingWebSocketSession.MESSAGES_PER_FLUSH + 4, sent.size());
+    }
+
+    @Test
+    void sessionIsClosedIfSendFails() throws IOException {
+        doAnswer(invocation -> {
+            throw new IOException("broken pipe");
+        }).when(delegate).sendMessage(any());
+
+        session.sendMessage(new TextMessage("a"));
+        runFlushes();
+
+        verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private void runFlushes() {
+        final List<Runnable> flushes = new ArrayList<>(pendingFlushes);
+        pendingFlushes.clear();
+        flushes.forEach(Runnable::run);
+    }
+}
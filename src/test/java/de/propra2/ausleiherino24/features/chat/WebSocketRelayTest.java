@@ -0,0 +1,105 @@
+package de.propra2.ausleiherino24.features.chat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.activemq.broker.BrokerService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.stomp.ReactorNettyTcpStompClient;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Starts the application with the broker relay against an embedded ActiveMQ broker. A second
+ * STOMP client, which stands for another node, has to receive the messages of the application.
+ */
+@Tag("slow")
+@SpringBootTest(properties = {"chat.relayEnabled=true",
+        "chat.relayPort=" + WebSocketRelayTest.PORT})
+@ActiveProfiles(profiles = "test")
+@ExtendWith(SpringExtension.class)
+class WebSocketRelayTest {
+
+    static final int PORT = 61623;
+
+    private static BrokerService broker;
+
+    @Autowired
+    private SimpMessageSendingOperations messagingTemplate;
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.addConnector("stomp://localhost:" + PORT);
+        broker.start();
+        broker.waitUntilStarted();
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        broker.stop();
+        broker.waitUntilStopped();
+    }
+
+    @Test
+    void messagesReachClientsOfOtherNodes() throws Exception {
+        final ReactorNettyTcpStompClient otherNode = new ReactorNettyTcpStompClient("localhost",
+                PORT);
+        otherNode.setMessageConverter(new MappingJackson2MessageConverter());
+        final StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.setLogin("guest");
+        connectHeaders.setPasscode("guest");
+        final StompSession session = otherNode
+                .connect(connectHeaders, new StompSessionHandlerAdapter() {
+                }).get(5, TimeUnit.SECONDS);
+
+        final BlockingQueue<ChatMessage> received = new LinkedBlockingQueue<>();
+        session.subscribe("/topic/public", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(final StompHeaders headers) {
+                return ChatMessage.class;
+            }
+
+            @Override
+            public void handleFrame(final StompHeaders headers, final Object payload) {
+                received.add((ChatMessage) payload);
+            }
+        });
+
+        final ChatMessage message = new ChatMessage();
+        message.setType(ChatMessage.MessageType.CHAT);
+        message.setSender("user1");
+        message.setContent("Hallo");
+
+        // the relay connects asynchronously, messages are dropped until it is connected
+        ChatMessage result = null;
+        for (int attempt = 0; attempt < 20 && result == null; attempt++) {
+            messagingTemplate.convertAndSend("/topic/public", message);
+            result = received.poll(500, TimeUnit.MILLISECONDS);
+        }
+
+        session.disconnect();
+        otherNode.shutdown();
+        assertNotNull(result);
+        assertEquals("Hallo", result.getContent());
+        assertEquals("user1", result.getSender());
+    }
+}
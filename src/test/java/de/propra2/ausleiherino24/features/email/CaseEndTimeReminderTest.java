@@ -1,80 +1,149 @@
 package de.propra2.ausleiherino24.features.email;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
 import de.propra2.ausleiherino24.data.CaseRepository;
 import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.service.CaseStateMachine;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(SpringExtension.class)
 class CaseEndTimeReminderTest {
 
-    private DateTimeFormatter formatter;
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+
     private EmailSender es;
     private Case a;
     private CaseEndTimeReminder r;
     private LocalDateTime today;
+    private LocalDateTime now;
     private CaseRepository caseRepository;
+    private TaskScheduler taskScheduler;
 
     @BeforeEach
     void init() {
-        formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+        today = LocalDate.of(2019, 3, 20).atStartOfDay();
+        now = today.plusHours(23).plusMinutes(30);
+        final Clock clock = Clock.fixed(now.atZone(ZONE).toInstant(), ZONE);
         es = Mockito.mock(EmailSender.class);
         caseRepository = Mockito.mock(CaseRepository.class);
+        taskScheduler = Mockito.mock(TaskScheduler.class);
         a = Mockito.mock(Case.class);
         Mockito.when(a.getRequestStatus()).thenReturn(Case.RUNNING);
-        Mockito.when(caseRepository.findAll()).thenReturn(Arrays.asList(a));
-        r = new CaseEndTimeReminder(caseRepository, es);
-        today = LocalDate.parse(LocalDateTime.now().format(formatter), formatter).atStartOfDay();
+        Mockito.when(caseRepository.findAllByRequestStatusAndEndTimeInRange(
+                eq(Case.RUNNING), anyLong(), anyLong())).thenAnswer(invocation -> {
+                    final long from = invocation.getArgument(1);
+                    final long to = invocation.getArgument(2);
+                    return a.getRequestStatus() == Case.RUNNING && a.getEndTime() >= from
+                            && a.getEndTime() < to
+                            ? Collections.singletonList(a) : Collections.emptyList();
+                });
+        r = new CaseEndTimeReminder(caseRepository, es, taskScheduler, new CaseStateMachine(),
+                Mockito.mock(PlatformTransactionManager.class), clock);
     }
 
     @Test
     void sendRemindingEmailShouldSendEmailIfCaseEndTimeIsTomorrow() {
-        final LocalDateTime tomorrow = today.plusDays(1L);
-        final String s = tomorrow.format(formatter);
-        Mockito.when(a.getFormattedEndTime()).thenReturn(s);
+        Mockito.when(a.getEndTime()).thenReturn(millis(today.plusDays(1L).plusHours(12)));
         r.getRunningCasesOneDayBeforeEndTime();
 
-        Mockito.verify(es, Mockito.times(1)).sendRemindingEmail(a);
+        Mockito.verify(es, Mockito.times(1)).sendRemindingEmails(Collections.singletonList(a));
     }
 
     @Test
     void sendRemindingEmailShouldNotSendEmailIfCaseEndTimeIsToday() {
-        final String s = today.format(formatter);
-        Mockito.when(a.getFormattedEndTime()).thenReturn(s);
+        Mockito.when(a.getEndTime()).thenReturn(millis(today.plusHours(12)));
         r.getRunningCasesOneDayBeforeEndTime();
 
-        Mockito.verify(es, Mockito.times(0)).sendRemindingEmail(a);
+        Mockito.verify(es, Mockito.times(0)).sendRemindingEmails(Mockito.any());
     }
 
     @Test
     void sendRemindingEmailShouldNotSendEmailIfCaseEndTimeWasYesterday() {
-        final LocalDateTime yesterday = today.minusDays(1L);
-        final String s = yesterday.format(formatter);
-        Mockito.when(a.getFormattedEndTime()).thenReturn(s);
+        Mockito.when(a.getEndTime()).thenReturn(millis(today.minusDays(1L)));
         r.getRunningCasesOneDayBeforeEndTime();
 
-        Mockito.verify(es, Mockito.times(0)).sendRemindingEmail(a);
+        Mockito.verify(es, Mockito.times(0)).sendRemindingEmails(Mockito.any());
     }
 
     @Test
     void sendRemindingEmailShouldSendOnlyOneEmailIfCaseEndTimeIsTomorrow() {
-        final LocalDateTime tomorrow = today.plusDays(1L);
-        final String s = tomorrow.format(formatter);
-        Mockito.when(a.getFormattedEndTime()).thenReturn(s);
+        Mockito.when(a.getEndTime()).thenReturn(millis(today.plusDays(1L)));
         r.getRunningCasesOneDayBeforeEndTime();
         Mockito.when(a.getRequestStatus()).thenReturn(Case.RUNNING_EMAILSENT);
         r.getRunningCasesOneDayBeforeEndTime();
 
         Mockito.verify(a, Mockito.times(1)).setRequestStatus(Case.RUNNING_EMAILSENT);
         Mockito.verify(caseRepository, Mockito.times(1)).save(a);
-        Mockito.verify(es, Mockito.times(1)).sendRemindingEmail(a);
+        Mockito.verify(es, Mockito.times(1)).sendRemindingEmails(Collections.singletonList(a));
+    }
+
+    @Test
+    void noReminderIsQueuedIfCaseWasChangedMeanwhile() {
+        Mockito.when(a.getEndTime()).thenReturn(millis(today.plusDays(1L)));
+        Mockito.when(caseRepository.save(a))
+                .thenThrow(new OptimisticLockingFailureException("returned meanwhile"));
+        r.getRunningCasesOneDayBeforeEndTime();
+
+        Mockito.verify(es, Mockito.times(0)).sendRemindingEmails(Mockito.any());
+        assertEquals(millis(now) + CaseEndTimeReminder.MAX_SLEEP_MILLIS,
+                scheduledRun().getTime());
     }
 
+    @Test
+    void nextRunIsScheduledOneDayBeforeNextEndTime() {
+        Mockito.when(caseRepository.findNextEndTime(eq(Case.RUNNING), anyLong()))
+                .thenReturn(millis(today.plusDays(2L).plusMinutes(30)));
+        r.getRunningCasesOneDayBeforeEndTime();
+
+        assertEquals(millis(today.plusDays(1L)), scheduledRun().getTime());
+    }
+
+    @Test
+    void nextRunIsNotLaterThanMaxSleep() {
+        Mockito.when(caseRepository.findNextEndTime(eq(Case.RUNNING), anyLong()))
+                .thenReturn(null);
+        r.getRunningCasesOneDayBeforeEndTime();
+
+        assertEquals(millis(now) + CaseEndTimeReminder.MAX_SLEEP_MILLIS,
+                scheduledRun().getTime());
+    }
+
+    @Test
+    void failedRunIsRetried() {
+        Mockito.when(caseRepository.findNextEndTime(eq(Case.RUNNING), anyLong()))
+                .thenThrow(new RecoverableDataAccessException("connection lost"));
+        r.getRunningCasesOneDayBeforeEndTime();
+
+        assertEquals(millis(now) + CaseEndTimeReminder.RETRY_DELAY_MILLIS,
+                scheduledRun().getTime());
+    }
+
+    private Date scheduledRun() {
+        final ArgumentCaptor<Date> startTime = ArgumentCaptor.forClass(Date.class);
+        Mockito.verify(taskScheduler).schedule(any(Runnable.class), startTime.capture());
+        return startTime.getValue();
+    }
+
+    private long millis(final LocalDateTime time) {
+        return time.atZone(ZONE).toInstant().toEpochMilli();
+    }
 }
@@ -0,0 +1,144 @@
+package de.propra2.ausleiherino24.features.email;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import de.propra2.ausleiherino24.data.QueuedMailRepository;
+import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.model.QueuedMail;
+import de.propra2.ausleiherino24.model.User;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Queues thousands of reminders from many threads at once and delivers them to a local GreenMail
+ * server. Every mail has to reach its own receiver with the subject of its own article.
+ */
+@Tag("slow")
+@ExtendWith(SpringExtension.class)
+class EmailSenderConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int MAILS_PER_THREAD = 250;
+    private static final int MAILS = THREADS * MAILS_PER_THREAD;
+    private static final long TIMEOUT_MILLIS = 60000;
+
+    private GreenMail greenMail;
+    private List<QueuedMail> queue;
+    private EmailSender emailSender;
+    private MailDeliveryWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+
+        queue = Collections.synchronizedList(new ArrayList<>());
+        final AtomicLong ids = new AtomicLong();
+        final QueuedMailRepository mails = Mockito.mock(QueuedMailRepository.class);
+        Mockito.when(mails.saveAll(any())).thenAnswer(invocation -> {
+            final Iterable<QueuedMail> saved = invocation.getArgument(0);
+            saved.forEach(mail -> {
+                if (mail.getId() == null) {
+                    mail.setId(ids.incrementAndGet());
+                    queue.add(mail);
+                }
+            });
+            return saved;
+        });
+        Mockito.when(mails.findDueMails(anyLong(), any())).thenAnswer(invocation -> {
+            synchronized (queue) {
+                return queue.stream().filter(mail -> mail.getStatus() == QueuedMail.PENDING)
+                        .collect(Collectors.toList());
+            }
+        });
+
+        final EmailConfig emailConfig = new EmailConfig();
+        emailConfig.setHost("localhost");
+        emailConfig.setPort(ServerSetupTest.SMTP.getPort());
+        emailSender = new EmailSender(emailConfig, mails);
+
+        final MailQueueConfig config = new MailQueueConfig();
+        config.setBatchSize(MAILS);
+        config.setBurst(MAILS);
+        config.setDefaultRatePerSecond(MAILS);
+        config.setWorkers(8);
+        config.setMailsPerSession(50);
+        worker = new MailDeliveryWorker(mails, emailConfig, new JavaMailSenderImpl(), config);
+        worker.configureMailSender();
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+        greenMail.stop();
+    }
+
+    @Test
+    void parallelRemindersReachTheirOwnReceivers() throws Exception {
+        final ExecutorService senders = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            results.add(senders.submit(() -> {
+                start.await();
+                for (int i = 0; i < MAILS_PER_THREAD; i++) {
+                    emailSender.sendRemindingEmails(Collections
+                            .singletonList(createCase(thread * MAILS_PER_THREAD + i)));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (final Future<?> result : results) {
+            result.get();
+        }
+        senders.shutdown();
+        assertEquals(MAILS, queue.size());
+
+        worker.drain();
+
+        assertTrue(greenMail.waitForIncomingEmail(TIMEOUT_MILLIS, MAILS));
+        final MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(MAILS, received.length);
+        for (final MimeMessage message : received) {
+            final String receiver = message.getAllRecipients()[0].toString();
+            final String number = receiver.substring("user".length(), receiver.indexOf('@'));
+            assertEquals("Reminder: Article: article" + number + " has to be returned tomorrow!",
+                    message.getSubject());
+        }
+    }
+
+    private Case createCase(final int number) {
+        final User receiver = new User();
+        receiver.setEmail("user" + number + "@localhost");
+        final Article article = new Article();
+        article.setName("article" + number);
+        final Case aCase = new Case();
+        aCase.setReceiver(receiver);
+        aCase.setArticle(article);
+        return aCase;
+    }
+}
@@ -1,21 +1,26 @@
 package de.propra2.ausleiherino24.features.email;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import de.propra2.ausleiherino24.data.QueuedMailRepository;
 import de.propra2.ausleiherino24.model.Article;
 import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.Conflict;
+import de.propra2.ausleiherino24.model.QueuedMail;
 import de.propra2.ausleiherino24.model.User;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.springframework.mail.MailSendException;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @ExtendWith(SpringExtension.class)
@@ -23,15 +28,15 @@ class EmailSenderTest {
 
     private final static String USER_EMAIL = "test@mail.de";
     private final static String SERVICE_EMAIL = "ausleiherino24@gmail.com";
-    private JavaMailSenderImpl javaMailSenderMock;
+    private QueuedMailRepository queuedMailRepositoryMock;
     private EmailSender emailSender;
     private Conflict conflict;
 
     @BeforeEach
     void init() {
         EmailConfig emailConfigMock = mock(EmailConfig.class);
-        javaMailSenderMock = mock(JavaMailSenderImpl.class);
-        emailSender = new EmailSender(emailConfigMock, javaMailSenderMock, new SimpleMailMessage());
+        queuedMailRepositoryMock = mock(QueuedMailRepository.class);
+        emailSender = new EmailSender(emailConfigMock, queuedMailRepositoryMock);
         User otherUser = new User();
         otherUser.setEmail("test@mail.de");
         final Article art = new Article();
@@ -56,7 +61,7 @@ class EmailSenderTest {
     }
 
     @Test
-    void sendConflictEmailShouldSendCorrectMail() {
+    void sendConflictEmailShouldQueueCorrectMail() {
         final SimpleMailMessage expectedMessage = new SimpleMailMessage();
         expectedMessage.setFrom(EmailSenderTest.USER_EMAIL);
         expectedMessage.setTo(EmailSenderTest.SERVICE_EMAIL);
@@ -66,33 +71,48 @@ class EmailSenderTest {
 
         emailSender.sendConflictEmail(conflict);
 
-        verify(javaMailSenderMock).send(expectedMessage);
+        final ArgumentCaptor<QueuedMail> queuedMail = ArgumentCaptor.forClass(QueuedMail.class);
+        verify(queuedMailRepositoryMock).save(queuedMail.capture());
+        assertEquals(expectedMessage, queuedMail.getValue().toMessage());
+        assertEquals("TestHost", queuedMail.getValue().getProvider());
+        assertEquals(QueuedMail.PENDING, queuedMail.getValue().getStatus());
     }
 
     @Test
-    void configureMailSenderShouldSetCorrectMailConfig() {
-        emailSender.configureMailSender();
-        verify(javaMailSenderMock).setHost("TestHost");
-        verify(javaMailSenderMock).setPort(4321);
-        verify(javaMailSenderMock).setUsername("TestUsername");
-        verify(javaMailSenderMock).setPassword("password");
+    void sendConflictEmailShouldThrowExceptionIfMailCannotBeQueued() {
+        when(queuedMailRepositoryMock.save(any(QueuedMail.class)))
+                .thenThrow(new DataAccessResourceFailureException(""));
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> emailSender.sendConflictEmail(conflict));
     }
 
     @Test
-    void sendConflictEmailShouldThrowException() {
-
-        assertThrows(MailSendException.class, () -> {
-            final SimpleMailMessage expectedMessage = new SimpleMailMessage();
-            expectedMessage.setFrom(EmailSenderTest.USER_EMAIL);
-            expectedMessage.setTo(EmailSenderTest.SERVICE_EMAIL);
-            expectedMessage.setSubject("Conflicting Case id: 1");
-            expectedMessage.setText(
-                    "Dies hier ist ein einfacher Test. | Email sent from: test@mail.de. | Other participant: test@mail.de");
+    void sendRemindingEmailsShouldQueueOneMailPerCase() {
+        final Case case2 = new Case();
+        final User receiver2 = new User();
+        receiver2.setEmail("other@mail.de");
+        final Article article2 = new Article();
+        article2.setName("otherArticle");
+        case2.setReceiver(receiver2);
+        case2.setArticle(article2);
 
-            doThrow(new MailSendException("")).when(javaMailSenderMock).send(expectedMessage);
-            emailSender.sendConflictEmail(conflict);
-        });
+        emailSender.sendRemindingEmails(Arrays.asList(conflict.getConflictedCase(), case2));
 
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<QueuedMail>> queuedMails = ArgumentCaptor
+                .forClass((Class) List.class);
+        verify(queuedMailRepositoryMock).saveAll(queuedMails.capture());
+        assertEquals(2, queuedMails.getValue().size());
+        final SimpleMailMessage first = queuedMails.getValue().get(0).toMessage();
+        assertEquals(USER_EMAIL, first.getTo()[0]);
+        assertEquals(SERVICE_EMAIL, first.getFrom());
+        assertEquals("Reminder: Article: testArticle has to be returned tomorrow!",
+                first.getSubject());
+        final SimpleMailMessage second = queuedMails.getValue().get(1).toMessage();
+        assertEquals("other@mail.de", second.getTo()[0]);
+        assertEquals("Reminder: Article: otherArticle has to be returned tomorrow!",
+                second.getSubject());
     }
 
 }
@@ -0,0 +1,114 @@
+package de.propra2.ausleiherino24.features.email;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import de.propra2.ausleiherino24.data.QueuedMailRepository;
+import de.propra2.ausleiherino24.model.QueuedMail;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Delivers queued mails to a local GreenMail SMTP server, once with one connection per mail and
+ * once with several mails per connection.
+ */
+@Tag("slow")
+@ExtendWith(SpringExtension.class)
+class MailDeliveryWorkerSmtpTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MailDeliveryWorkerSmtpTest.class);
+
+    private static final int MAILS = 200;
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    private GreenMail greenMail;
+    private List<QueuedMail> queue;
+    private QueuedMailRepository mails;
+    private EmailConfig emailConfig;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+
+        queue = Collections.synchronizedList(new ArrayList<>());
+        mails = Mockito.mock(QueuedMailRepository.class);
+        Mockito.when(mails.findDueMails(anyLong(), any())).thenAnswer(invocation -> {
+            synchronized (queue) {
+                return queue.stream().filter(mail -> mail.getStatus() == QueuedMail.PENDING)
+                        .collect(Collectors.toList());
+            }
+        });
+
+        emailConfig = new EmailConfig();
+        emailConfig.setHost("localhost");
+        emailConfig.setPort(ServerSetupTest.SMTP.getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        greenMail.stop();
+    }
+
+    @Test
+    void sessionsWithSeveralMailsAreFaster() throws InterruptedException {
+        final long singleMillis = deliverAll(1);
+        greenMail.reset();
+        final long batchedMillis = deliverAll(20);
+
+        LOGGER.info("{} mails: one per connection {} ms, 20 per connection {} ms.", MAILS,
+                singleMillis, batchedMillis);
+        assertTrue(batchedMillis < singleMillis);
+    }
+
+    private long deliverAll(final int mailsPerSession) throws InterruptedException {
+        queue.clear();
+        for (int i = 0; i < MAILS; i++) {
+            final SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom("ausleiherino24@gmail.com");
+            message.setTo("user" + i + "@localhost");
+            message.setSubject("Reminder " + i);
+            message.setText("Please do not forget to return the article on time!");
+            final QueuedMail mail = new QueuedMail("localhost", message, 0L);
+            mail.setId((long) i);
+            queue.add(mail);
+        }
+
+        final MailQueueConfig config = new MailQueueConfig();
+        config.setBatchSize(MAILS);
+        config.setBurst(MAILS);
+        config.setDefaultRatePerSecond(MAILS);
+        config.setWorkers(4);
+        config.setMailsPerSession(mailsPerSession);
+        final MailDeliveryWorker worker = new MailDeliveryWorker(mails, emailConfig,
+                new JavaMailSenderImpl(), config);
+        worker.configureMailSender();
+
+        final long start = System.nanoTime();
+        worker.drain();
+        final boolean received = greenMail.waitForIncomingEmail(TIMEOUT_MILLIS, MAILS);
+        final long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        worker.shutdown();
+
+        assertTrue(received);
+        assertEquals(MAILS, greenMail.getReceivedMessages().length);
+        return elapsedMillis;
+    }
+}
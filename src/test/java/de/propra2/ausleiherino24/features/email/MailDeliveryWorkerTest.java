@@ -0,0 +1,219 @@
+package de.propra2.ausleiherino24.features.email;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.propra2.ausleiherino24.data.QueuedMailRepository;
+import de.propra2.ausleiherino24.model.QueuedMail;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class MailDeliveryWorkerTest {
+
+    private QueuedMailRepository mailsMock;
+    private EmailConfig emailConfig;
+    private RecordingMailSender mailSender;
+    private MailQueueConfig config;
+    private MailDeliveryWorker worker;
+
+    @BeforeEach
+    void init() {
+        mailsMock = mock(QueuedMailRepository.class);
+        emailConfig = new EmailConfig();
+        emailConfig.setHost("TestHost");
+        emailConfig.setPort(4321);
+        emailConfig.setUsername("TestUsername");
+        emailConfig.setPassword("password");
+        emailConfig.setProperties(Collections.singletonMap("mail.smtp.auth", "true"));
+        mailSender = new RecordingMailSender();
+        config = new MailQueueConfig();
+        worker = new MailDeliveryWorker(mailsMock, emailConfig, mailSender, config);
+        when(mailsMock.claim(anyLong(), anyLong(), anyLong())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void configureMailSenderShouldSetCorrectMailConfig() {
+        worker.configureMailSender();
+
+        assertEquals("TestHost", mailSender.getHost());
+        assertEquals(4321, mailSender.getPort());
+        assertEquals("TestUsername", mailSender.getUsername());
+        assertEquals("password", mailSender.getPassword());
+        assertEquals("true", mailSender.getJavaMailProperties().getProperty("mail.smtp.auth"));
+    }
+
+    @Test
+    void deliverSendsAllMailsInOneSession() {
+        final List<QueuedMail> session = mails(3);
+
+        worker.deliver(session);
+
+        assertEquals(1, mailSender.sessions.size());
+        assertEquals(3, mailSender.sessions.get(0).length);
+        session.forEach(mail -> assertEquals(QueuedMail.SENT, mail.getStatus()));
+        verify(mailsMock).saveAll(session);
+    }
+
+    @Test
+    void rejectedMailFailsAndOthersAreSent() {
+        final List<QueuedMail> session = mails(2);
+        mailSender.failure = messages -> {
+            final Map<Object, Exception> failed = new LinkedHashMap<>();
+            failed.put(messages[1], new SendFailedException("Invalid Addresses"));
+            return new MailSendException(failed);
+        };
+
+        worker.deliver(session);
+
+        assertEquals(QueuedMail.SENT, session.get(0).getStatus());
+        assertEquals(QueuedMail.FAILED, session.get(1).getStatus());
+        assertEquals(0, session.get(1).getAttempts());
+    }
+
+    @Test
+    void unreachableServerIsRetriedWithBackoff() {
+        final List<QueuedMail> session = mails(2);
+        mailSender.failure = messages -> {
+            final Map<Object, Exception> failed = new LinkedHashMap<>();
+            Arrays.stream(messages).forEach(
+                    message -> failed.put(message, new MessagingException("Connection refused")));
+            return new MailSendException(failed);
+        };
+        final long before = System.currentTimeMillis();
+
+        worker.deliver(session);
+
+        session.forEach(mail -> {
+            assertEquals(QueuedMail.PENDING, mail.getStatus());
+            assertEquals(1, mail.getAttempts());
+            assertTrue(mail.getNextAttemptAt() >= before + config.getInitialBackoffMillis());
+        });
+    }
+
+    @Test
+    void mailFailsAfterMaxAttempts() {
+        final List<QueuedMail> session = mails(1);
+        session.get(0).setAttempts(config.getMaxAttempts() - 1);
+        mailSender.failure = messages -> new MailSendException("Connection refused");
+
+        worker.deliver(session);
+
+        assertEquals(QueuedMail.FAILED, session.get(0).getStatus());
+    }
+
+    @Test
+    void drainSendsOnlyAsManyMailsAsRateLimitAllows() {
+        config.setBurst(3);
+        config.setDefaultRatePerSecond(0.001);
+        config.setMailsPerSession(2);
+        when(mailsMock.findDueMails(anyLong(), any())).thenReturn(mails(5));
+
+        worker.drain();
+
+        verify(mailsMock, timeout(1000).times(2)).saveAll(any());
+        assertEquals(3, mailSender.sessions.stream().mapToInt(s -> s.length).sum());
+    }
+
+    @Test
+    void drainSharesRateLimitAmongInstances() {
+        config.setBurst(6);
+        config.setInstances(3);
+        config.setDefaultRatePerSecond(0.001);
+        when(mailsMock.findDueMails(anyLong(), any())).thenReturn(mails(5));
+
+        worker.drain();
+
+        verify(mailsMock, timeout(1000)).saveAll(any());
+        assertEquals(2, mailSender.sessions.stream().mapToInt(s -> s.length).sum());
+    }
+
+    @Test
+    void mailsClaimedByAnotherInstanceAreNotSent() {
+        final List<QueuedMail> due = mails(3);
+        when(mailsMock.findDueMails(anyLong(), any())).thenReturn(due);
+        when(mailsMock.claim(eq(1L), anyLong(), anyLong())).thenReturn(0);
+
+        worker.drain();
+
+        verify(mailsMock, timeout(1000)).saveAll(Arrays.asList(due.get(0), due.get(2)));
+        assertEquals(1, mailSender.sessions.size());
+        assertEquals(2, mailSender.sessions.get(0).length);
+    }
+
+    @Test
+    void backoffIsDoubledUpToMaximum() {
+        config.setInitialBackoffMillis(1000);
+        config.setMaxBackoffMillis(5000);
+
+        assertEquals(1000, worker.backoffMillis(1));
+        assertEquals(2000, worker.backoffMillis(2));
+        assertEquals(4000, worker.backoffMillis(3));
+        assertEquals(5000, worker.backoffMillis(4));
+        assertEquals(5000, worker.backoffMillis(40));
+    }
+
+    private List<QueuedMail> mails(final int count) {
+        final List<QueuedMail> mails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom("ausleiherino24@gmail.com");
+            message.setTo("user" + i + "@mail.de");
+            message.setSubject("Subject");
+            message.setText("Text");
+            final QueuedMail mail = new QueuedMail("TestHost", message, 0L);
+            mail.setId((long) i);
+            mails.add(mail);
+        }
+        return mails;
+    }
+
+    /**
+     * Records the messages of every session instead of connecting to a server.
+     */
+    private static class RecordingMailSender extends JavaMailSenderImpl {
+
+        private final List<SimpleMailMessage[]> sessions = Collections
+                .synchronizedList(new ArrayList<>());
+        private Failure failure;
+
+        @Override
+        public void send(final SimpleMailMessage... messages) {
+            sessions.add(messages);
+            if (failure != null) {
+                throw failure.of(messages);
+            }
+        }
+    }
+
+    private interface Failure {
+
+        RuntimeException of(SimpleMailMessage[] messages);
+    }
+}
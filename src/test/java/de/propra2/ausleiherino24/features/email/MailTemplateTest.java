@@ -0,0 +1,53 @@
+package de.propra2.ausleiherino24.features.email;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class MailTemplateTest {
+
+    @Test
+    void createShouldInsertArgumentsForPlaceholders() {
+        final MailTemplate template = new MailTemplate("Case {0}", "{1} wrote: {2}. Case {0}");
+
+        final SimpleMailMessage message = template.create("from@mail.de", "to@mail.de", 7L,
+                "user", "Hello");
+
+        assertEquals("from@mail.de", message.getFrom());
+        assertEquals("to@mail.de", message.getTo()[0]);
+        assertEquals("Case 7", message.getSubject());
+        assertEquals("user wrote: Hello. Case 7", message.getText());
+    }
+
+    @Test
+    void createShouldKeepTextWithoutPlaceholders() {
+        final MailTemplate template = new MailTemplate("Reminder", "Please return it.");
+
+        assertEquals("Please return it.", template.create("a", "b").getText());
+    }
+
+    @Test
+    void createShouldReturnNewMessageEveryTime() {
+        final MailTemplate template = new MailTemplate("Case {0}", "Text");
+
+        final SimpleMailMessage first = template.create("a", "b", 1);
+        final SimpleMailMessage second = template.create("a", "c", 2);
+
+        assertNotSame(first, second);
+        assertEquals("Case 1", first.getSubject());
+        assertEquals("b", first.getTo()[0]);
+    }
+
+    @Test
+    void createShouldThrowIfArgumentIsMissing() {
+        final MailTemplate template = new MailTemplate("Case {0}", "{1}");
+
+        assertThrows(IllegalArgumentException.class, () -> template.create("a", "b", 1));
+    }
+}
@@ -0,0 +1,47 @@
+package de.propra2.ausleiherino24.features.email;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class TokenBucketTest {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void fullBucketGrantsBurst() {
+        final TokenBucket bucket = new TokenBucket(10, 2, 0L);
+
+        assertEquals(10, bucket.tryAcquire(25, 0L));
+        assertEquals(0, bucket.tryAcquire(1, 0L));
+    }
+
+    @Test
+    void bucketIsRefilledWithRate() {
+        final TokenBucket bucket = new TokenBucket(10, 2, 0L);
+        bucket.tryAcquire(10, 0L);
+
+        assertEquals(1, bucket.tryAcquire(10, ONE_SECOND / 2));
+        assertEquals(4, bucket.tryAcquire(10, 5 * ONE_SECOND / 2));
+    }
+
+    @Test
+    void bucketIsNotFilledAboveCapacity() {
+        final TokenBucket bucket = new TokenBucket(10, 2, 0L);
+
+        assertEquals(10, bucket.tryAcquire(25, 60 * ONE_SECOND));
+    }
+
+    @Test
+    void fractionalRateGrantsAfterSeveralSeconds() {
+        final TokenBucket bucket = new TokenBucket(1, 0.4, 0L);
+        bucket.tryAcquire(1, 0L);
+
+        assertEquals(0, bucket.tryAcquire(1, 2 * ONE_SECOND));
+        assertEquals(1, bucket.tryAcquire(1, 3 * ONE_SECOND));
+    }
+}
@@ -0,0 +1,147 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Compares the throughput of the former 1 KB stream copy with storeFile and the parallel
+ * directory import for a few hundred Pokémon-sized images.
+ */
+@Tag("slow")
+@ExtendWith(SpringExtension.class)
+class ImageImportBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageImportBenchmarkTest.class);
+
+    private static final int IMAGES = 400;
+    private static final int IMAGE_BYTES = 256 * 1024;
+    private static final String PATH = "imageImportBenchmark";
+
+    private Path sourceDirectory;
+    private Path legacyDirectory;
+    private ImageService imageService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        sourceDirectory = Files.createTempDirectory("imageImportSource");
+        legacyDirectory = Files.createTempDirectory("imageImportLegacy");
+        final Random random = new Random(42);
+        final byte[] content = new byte[IMAGE_BYTES];
+        for (int i = 0; i < IMAGES; i++) {
+            random.nextBytes(content);
+            Files.write(sourceDirectory.resolve(i + ".jpg"), content);
+        }
+
+        final ImageConfig config = new ImageConfig();
+        config.setImportThreads(4);
+        imageService = new ImageService(PATH, config, mock(ThumbnailGenerator.class),
+                new LocalImageStorage(ImageService.uploadDirectory(PATH)));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        delete(sourceDirectory);
+        delete(legacyDirectory);
+        delete(ImageService.uploadDirectory(PATH));
+    }
+
+    @Test
+    void importThroughput() throws Exception {
+        final List<Path> sources = sourceFiles();
+
+        final long legacyStart = System.nanoTime();
+        for (final Path source : sources) {
+            legacyCopy(source.toFile(), legacyDirectory.resolve(source.getFileName()).toFile());
+        }
+        final long legacyMillis = (System.nanoTime() - legacyStart) / 1000000;
+
+        final Map<String, String> serial = new LinkedHashMap<>();
+        final long serialStart = System.nanoTime();
+        for (final Path source : sources) {
+            serial.put(source.getFileName().toString(), imageService.storeFile(source.toFile(),
+                    null));
+        }
+        final long serialMillis = (System.nanoTime() - serialStart) / 1000000;
+
+        final long storedStart = System.nanoTime();
+        for (final Path source : sources) {
+            imageService.storeFile(source.toFile(), null);
+        }
+        final long storedMillis = (System.nanoTime() - storedStart) / 1000000;
+
+        delete(ImageService.uploadDirectory(PATH));
+        imageService.createUploadDirectoryIfNotExists();
+        final long parallelStart = System.nanoTime();
+        final Map<String, String> parallel = imageService.importDirectory(sourceDirectory, null);
+        final long parallelMillis = (System.nanoTime() - parallelStart) / 1000000;
+
+        LOGGER.info("{} images of {} KB: legacy copy {} ms ({} MB/s), storeFile {} ms ({} MB/s), "
+                        + "already stored {} ms, parallel import {} ms ({} MB/s).", IMAGES,
+                IMAGE_BYTES / 1024, legacyMillis, throughput(legacyMillis), serialMillis,
+                throughput(serialMillis), storedMillis, parallelMillis,
+                throughput(parallelMillis));
+        assertEquals(serial, parallel);
+        assertEquals(IMAGES, parallel.size());
+        assertTrue(storedMillis < serialMillis);
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            assertTrue(parallelMillis < serialMillis);
+        }
+    }
+
+    /**
+     * The copy loop storeFile used before it was based on FileChannel.
+     */
+    private void legacyCopy(final File inputFile, final File outputFile) throws IOException {
+        try (InputStream inputStream = new FileInputStream(inputFile);
+                OutputStream outputStream = new FileOutputStream(outputFile)) {
+            final byte[] buffer = new byte[1024];
+            int length;
+            while ((length = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, length);
+            }
+        }
+    }
+
+    private long throughput(final long millis) {
+        return (long) IMAGES * IMAGE_BYTES * 1000 / (1024 * 1024) / Math.max(1, millis);
+    }
+
+    private List<Path> sourceFiles() throws IOException {
+        try (Stream<Path> files = Files.list(sourceDirectory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private void delete(final Path directory) throws IOException {
+        if (Files.exists(directory)) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+}
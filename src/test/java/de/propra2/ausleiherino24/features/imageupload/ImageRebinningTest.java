@@ -0,0 +1,106 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class ImageRebinningTest {
+
+    private final String path = "imageRebinningTest";
+
+    private ImageService imageService;
+    private ImageRebinning imageRebinning;
+    private Path uploadDirectory;
+
+    @BeforeEach
+    void init() {
+        final ImageConfig config = new ImageConfig();
+        imageService = new ImageService(path, config, mock(ThumbnailGenerator.class),
+                new LocalImageStorage(ImageService.uploadDirectory(path)));
+        imageRebinning = new ImageRebinning(imageService, config);
+        uploadDirectory = new File(imageService.getUploadDirectoryPath()).toPath();
+    }
+
+    @AfterEach
+    void clean() throws IOException {
+        Files.walk(uploadDirectory).sorted(Comparator.reverseOrder()).map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    @Test
+    void flatImagesAreMovedIntoShards() throws IOException, InterruptedException {
+        for (int i = 0; i < 1200; i++) {
+            write(uploadDirectory.resolve(String.format("%04x", i * 7) + "-image.jpg"), "" + i);
+        }
+
+        assertEquals(1200, imageRebinning.rebin());
+
+        assertEquals("7", read(uploadDirectory.resolve("00/07/0007-image.jpg")));
+        assertEquals("1199", read(uploadDirectory.resolve("20/c9/20c9-image.jpg")));
+        assertTrue(Files.list(uploadDirectory).allMatch(Files::isDirectory));
+    }
+
+    @Test
+    void flatThumbnailsAreMovedIntoShards() throws IOException, InterruptedException {
+        final Path small = uploadDirectory.resolve("thumbnails/small");
+        Files.createDirectories(small);
+        write(small.resolve("abcd.jpg.jpg"), "thumbnail");
+
+        imageRebinning.rebin();
+
+        assertEquals("thumbnail", read(small.resolve("ab/cd/abcd.jpg.jpg")));
+    }
+
+    @Test
+    void imagesAreStillFoundAfterRebinning() throws IOException, InterruptedException {
+        write(uploadDirectory.resolve("abcd.jpg"), "image");
+        assertTrue(imageService.getFile("abcd.jpg", null).exists());
+
+        imageRebinning.rebin();
+
+        assertEquals(uploadDirectory.resolve("ab/cd/abcd.jpg").toFile(),
+                imageService.getFile("abcd.jpg", null));
+    }
+
+    @Test
+    void flatCopyOfShardedImageIsDeleted() throws IOException {
+        Files.createDirectories(uploadDirectory.resolve("ab/cd"));
+        write(uploadDirectory.resolve("ab/cd/abcd.jpg"), "image");
+        write(uploadDirectory.resolve("abcd.jpg"), "image");
+
+        imageRebinning.move(uploadDirectory.resolve("abcd.jpg"));
+
+        assertFalse(Files.exists(uploadDirectory.resolve("abcd.jpg")));
+        assertEquals("image", read(uploadDirectory.resolve("ab/cd/abcd.jpg")));
+    }
+
+    @Test
+    void temporaryUploadsAreNotMoved() throws IOException, InterruptedException {
+        write(uploadDirectory.resolve("upload123.tmp"), "partial");
+
+        assertEquals(0, imageRebinning.rebin());
+        assertTrue(Files.exists(uploadDirectory.resolve("upload123.tmp")));
+    }
+
+    private void write(final Path file, final String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(final Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,181 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class ImageResponderTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+    private File file;
+    private ImageConfig config;
+    private ImageResponder imageResponder;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void init() throws IOException {
+        file = File.createTempFile("image", ".jpg");
+        Files.write(file.toPath(), CONTENT);
+        config = new ImageConfig();
+        imageResponder = new ImageResponder(config);
+        request = new MockHttpServletRequest("GET", "/images/" + file.getName());
+        response = new MockHttpServletResponse();
+    }
+
+    @AfterEach
+    void clean() {
+        file.delete();
+    }
+
+    @Test
+    void wholeImageIsSentWithCachingHeaders() throws IOException {
+        imageResponder.send(file, "abc", true, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals("\"abc\"", response.getHeader("ETag"));
+        assertEquals("max-age=31536000, public, immutable", response.getHeader("Cache-Control"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals(CONTENT.length, response.getContentLength());
+    }
+
+    @Test
+    void matchingEtagIsNotModified() throws IOException {
+        request.addHeader("If-None-Match", "\"abc\"");
+
+        imageResponder.send(file, "abc", true, request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void otherEtagIsSent() throws IOException {
+        request.addHeader("If-None-Match", "\"other\"");
+
+        imageResponder.send(file, "abc", true, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void unknownHashGivesWeakEtag() throws IOException {
+        imageResponder.send(file, null, true, request, response);
+
+        assertTrue(response.getHeader("ETag").startsWith("W/\""));
+    }
+
+    @Test
+    void notImmutableImageMustBeRevalidated() throws IOException {
+        imageResponder.send(file, "abc", false, request, response);
+
+        assertEquals("no-cache", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void rangeIsSentPartially() throws IOException {
+        request.addHeader("Range", "bytes=2-5");
+
+        imageResponder.send(file, "abc", true, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 2, 6), response.getContentAsByteArray());
+    }
+
+    @Test
+    void rangeOfLargeImageIsTransferredFromFile() throws IOException {
+        config.setCacheMaxEntryBytes(4);
+        request.addHeader("Range", "bytes=-3");
+
+        imageResponder.send(file, "abc", true, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 7-9/10", response.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 7, 10), response.getContentAsByteArray());
+    }
+
+    @Test
+    void unsatisfiableRange() throws IOException {
+        request.addHeader("Range", "bytes=20-");
+
+        imageResponder.send(file, "abc", true, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void rangeIsIgnoredIfImageChanged() throws IOException {
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", "\"old\"");
+
+        imageResponder.send(file, "abc", true, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void largeImageIsSentWithSendfile() throws IOException {
+        config.setCacheMaxEntryBytes(4);
+        config.setSendfileMinBytes(4);
+        request.setAttribute(ImageResponder.SENDFILE_SUPPORT, Boolean.TRUE);
+
+        imageResponder.send(file, "abc", true, request, response);
+
+        assertEquals(file.getCanonicalPath(),
+                request.getAttribute(ImageResponder.SENDFILE_FILENAME));
+        assertEquals(0L, request.getAttribute(ImageResponder.SENDFILE_START));
+        assertEquals(10L, request.getAttribute(ImageResponder.SENDFILE_END));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void smallImageIsSentFromMemory() throws IOException {
+        imageResponder.send(file, "abc", true, request, response);
+        Files.write(file.toPath(), "changed!!!".getBytes(StandardCharsets.UTF_8));
+        final MockHttpServletResponse second = new MockHttpServletResponse();
+
+        imageResponder.send(file, "abc", true, request, second);
+
+        assertArrayEquals(CONTENT, second.getContentAsByteArray());
+        assertNull(request.getAttribute(ImageResponder.SENDFILE_FILENAME));
+    }
+
+    @Test
+    void redirectIsCachedPrivatelyForHalfTheExpiry() throws IOException {
+        imageResponder.redirect(new URL("http://s3/images/abcd.jpg?Signature=x"), true, response);
+
+        assertEquals(302, response.getStatus());
+        assertEquals("http://s3/images/abcd.jpg?Signature=x", response.getRedirectedUrl());
+        assertEquals("max-age=1800, private", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void uncacheableRedirectIsRevalidated() throws IOException {
+        imageResponder.redirect(new URL("http://s3/images/abcd.jpg?Signature=x"), false, response);
+
+        assertEquals("no-cache", response.getHeader("Cache-Control"));
+    }
+}
@@ -3,35 +3,64 @@ package de.propra2.ausleiherino24.features.imageupload;
 import static org.junit.Assert.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 @ExtendWith(SpringExtension.class)
 class ImageServiceTest {
 
+    private static final String ABC_SHA256 =
+            "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
     private ImageService imageService;
+    private ThumbnailGenerator thumbnailGenerator;
+    private LocalImageStorage storage;
     private String path = "imageStoreTest";
+    private Path sourceDirectory;
 
     @BeforeEach
     void init() {
-        imageService = spy(new ImageService(path));
+        thumbnailGenerator = mock(ThumbnailGenerator.class);
+        storage = new LocalImageStorage(ImageService.uploadDirectory(path));
+        imageService = spy(new ImageService(path, new ImageConfig(), thumbnailGenerator,
+                storage));
     }
 
     @AfterEach
     void clean() {
         cleanDir(new File(path));
+        if (sourceDirectory != null) {
+            cleanDir(sourceDirectory.toFile());
+        }
     }
 
     @Test
@@ -165,12 +194,185 @@ class ImageServiceTest {
 
     @Test
     void storeMultipartFile() throws IOException {
-        final MultipartFile file = mock(MultipartFile.class);
-        when(file.getOriginalFilename()).thenReturn("test.txt");
-        when(imageService.generateFilePath("0", "txt")).thenReturn(path + "/0/test.txt");
+        final MultipartFile file = upload("test.txt", "abc");
+
+        assertEquals(ABC_SHA256 + ".txt", imageService.store(file, 100L));
+        assertTrue(new File(path + "/0/" + ABC_SHA256 + ".txt").exists());
+        assertEquals(1, new File(path + "/0").listFiles().length);
+    }
+
+    @Test
+    void sameContentIsStoredOnce() throws IOException {
+        final String first = imageService.store(upload("first.TXT", "abc"), null);
+        final String second = imageService.store(upload("second.txt", "abc"), null);
+
+        assertEquals(first, second);
+        assertEquals(1, new File(path).listFiles().length);
+    }
+
+    @Test
+    void differentContentIsStoredTwice() throws IOException {
+        final String first = imageService.store(upload("test.txt", "abc"), null);
+        final String second = imageService.store(upload("test.txt", "abd"), null);
+
+        assertNotEquals(first, second);
+        assertEquals(2, new File(path).listFiles().length);
+    }
+
+    @Test
+    void storingGeneratesThumbnails() throws IOException {
+        final String fileName = imageService.store(upload("test.jpg", "abc"), null);
+
+        verify(thumbnailGenerator).generateAsync(eq(fileName), any(),
+                eq(imageService.thumbnailTargets(fileName)));
+    }
+
+    @Test
+    void thumbnailOfUnknownSizeIsNull() {
+        assertNull(imageService.getThumbnail("test.jpg", "huge"));
+        verifyZeroInteractions(thumbnailGenerator);
+    }
+
+    @Test
+    void missingThumbnailIsGenerated() throws IOException {
+        new File(path + "/test.jpg").createNewFile();
+        when(imageService.getUploadDirectoryPath()).thenReturn(path);
+
+        assertNull(imageService.getThumbnail("test.jpg", "small"));
+        verify(thumbnailGenerator).generateAsync(eq("test.jpg"), any(),
+                eq(imageService.thumbnailTargets("test.jpg")));
+    }
+
+    @Test
+    void existingThumbnailIsFound() throws IOException {
+        final File thumbnail = imageService
+                .shardedPath(Paths.get(path, "thumbnails", "small"), "test.jpg.jpg").toFile();
+        thumbnail.getParentFile().mkdirs();
+        thumbnail.createNewFile();
+
+        assertEquals(thumbnail.getAbsoluteFile(), imageService.getThumbnail("test.jpg", "small"));
+        verifyZeroInteractions(thumbnailGenerator);
+    }
+
+    @Test
+    void thumbnailsAreGeneratedFromStoredContent() throws Exception {
+        final String fileName = imageService.store(upload("test.jpg", "abc"), null);
+        final ArgumentCaptor<InputStreamSource> original = ArgumentCaptor
+                .forClass(InputStreamSource.class);
+        verify(thumbnailGenerator).generateAsync(eq(fileName), original.capture(), any());
+
+        try (InputStream content = original.getValue().getInputStream()) {
+            assertEquals("abc", StreamUtils.copyToString(content, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void localStorageHasNoDownloadUrl() throws IOException {
+        final String fileName = imageService.store(upload("test.jpg", "abc"), null);
+
+        assertFalse(imageService.getDownloadUrl(fileName, null).isPresent());
+    }
 
-        assertEquals("test.txt", imageService.store(file, 100L));
-        verify(file).transferTo(new File(path + "/0/test.txt"));
+    @Test
+    void downloadUrlOfStorage() throws Exception {
+        final ImageStorage remote = mock(ImageStorage.class);
+        final URL url = new URL("http://storage/ba/78/test.jpg");
+        when(remote.exists("ba/78/ba78.jpg")).thenReturn(true);
+        when(remote.downloadUrl("ba/78/ba78.jpg")).thenReturn(Optional.of(url));
+        imageService = new ImageService(path, new ImageConfig(), thumbnailGenerator, remote);
+
+        assertEquals(Optional.of(url), imageService.getDownloadUrl("ba78.jpg", null));
+        assertFalse(imageService.getDownloadUrl("ba78.jpg", "small").isPresent());
+        assertFalse(imageService.getDownloadUrl("ba78.jpg", "huge").isPresent());
+    }
+
+    @Test
+    void storeFile() throws IOException {
+        final File source = source("test.TXT", "abc");
+
+        assertEquals(ABC_SHA256 + ".txt", imageService.storeFile(source, null));
+        assertEquals("abc", read(new File(path + "/ba/78/" + ABC_SHA256 + ".txt")));
+        assertTrue(source.exists());
+    }
+
+    @Test
+    void storedContentIsNotCopiedAgain() throws IOException {
+        final ImageStorage remote = mock(ImageStorage.class);
+        when(remote.exists("ba/78/" + ABC_SHA256 + ".jpg")).thenReturn(true);
+        imageService = new ImageService(path, new ImageConfig(), thumbnailGenerator, remote);
+
+        assertEquals(ABC_SHA256 + ".jpg", imageService.storeFile(source("a.jpg", "abc"), null));
+        verify(remote, never()).store(any(), any());
+    }
+
+    @Test
+    void directoryIsImported() throws Exception {
+        source("a.jpg", "abc");
+        source("b.jpg", "abd");
+        source("c.jpg", "abc");
+        new File(sourceDirectory.toFile(), "subdirectory").mkdir();
+
+        final Map<String, String> imported = imageService.importDirectory(sourceDirectory, null);
+
+        assertEquals(3, imported.size());
+        assertEquals(ABC_SHA256 + ".jpg", imported.get("a.jpg"));
+        assertEquals(imported.get("a.jpg"), imported.get("c.jpg"));
+        assertEquals("abd", read(imageService.getFile(imported.get("b.jpg"), null)));
+    }
+
+    @Test
+    void storedFileIsSharded() throws IOException {
+        final String fileName = imageService.store(upload("test.txt", "abc"), null);
+
+        assertTrue(new File(path + "/ba/78/" + fileName).exists());
+        assertEquals(new File(path + "/ba/78/" + fileName).getAbsoluteFile(),
+                imageService.getFile(fileName, null));
+    }
+
+    @Test
+    void shardOfHexName() {
+        assertEquals(Paths.get("x", "0b", "8f", "0b8f2c4e.jpg"),
+                imageService.shardedPath(Paths.get("x"), "0b8f2c4e.jpg"));
+    }
+
+    @Test
+    void shardOfOtherNameIsDeterministic() {
+        final Path shard = imageService.shardedPath(Paths.get("x"), "Test.jpg");
+
+        assertEquals(shard, imageService.shardedPath(Paths.get("x"), "Test.jpg"));
+        assertEquals(Paths.get("x"), shard.getParent().getParent().getParent());
+        assertEquals(2, shard.getParent().getFileName().toString().length());
+    }
+
+    @Test
+    void contentHashOfStoredFile() {
+        assertEquals(ABC_SHA256, imageService.contentHash(ABC_SHA256 + ".jpg"));
+        assertEquals(ABC_SHA256, imageService.contentHash(ABC_SHA256));
+    }
+
+    @Test
+    void noContentHashOfRandomName() {
+        assertNull(imageService.contentHash("0b8f2c4e-5a0e-4c7b-9a3d-2f1e6d7c8b9a.jpg"));
+    }
+
+    private File source(final String name, final String content) throws IOException {
+        if (sourceDirectory == null) {
+            sourceDirectory = Files.createTempDirectory("imageSource");
+        }
+        return Files.write(sourceDirectory.resolve(name), content.getBytes(StandardCharsets.UTF_8))
+                .toFile();
+    }
+
+    private String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private MultipartFile upload(final String name, final String content) throws IOException {
+        final MultipartFile file = mock(MultipartFile.class);
+        when(file.getOriginalFilename()).thenReturn(name);
+        when(file.getInputStream())
+                .thenReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        return file;
     }
 
 
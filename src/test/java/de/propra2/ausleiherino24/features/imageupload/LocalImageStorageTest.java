@@ -0,0 +1,71 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.StreamUtils;
+
+@ExtendWith(SpringExtension.class)
+class LocalImageStorageTest {
+
+    private Path directory;
+    private LocalImageStorage storage;
+
+    @BeforeEach
+    void init() throws IOException {
+        directory = Files.createTempDirectory("localImageStorageTest");
+        storage = new LocalImageStorage(directory);
+    }
+
+    @AfterEach
+    void clean() throws IOException {
+        Files.walk(directory).sorted(Comparator.reverseOrder()).map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    @Test
+    void storedFileIsMovedToItsKey() throws IOException {
+        final Path upload = file("upload.tmp", "image");
+
+        storage.store("ab/cd/abcd.jpg", upload);
+
+        assertFalse(Files.exists(upload));
+        assertTrue(storage.exists("ab/cd/abcd.jpg"));
+        assertEquals(directory.resolve("ab/cd/abcd.jpg").toFile(),
+                storage.localFile("ab/cd/abcd.jpg").get());
+        try (InputStream content = storage.open("ab/cd/abcd.jpg")) {
+            assertEquals("image", StreamUtils.copyToString(content, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void missingKey() {
+        assertFalse(storage.exists("ab/cd/abcd.jpg"));
+        assertFalse(storage.localFile("ab/cd/abcd.jpg").isPresent());
+        assertFalse(storage.downloadUrl("ab/cd/abcd.jpg").isPresent());
+    }
+
+    @Test
+    void keysOutsideOfTheDirectoryAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> storage.exists("../secret.txt"));
+        assertThrows(IllegalArgumentException.class, () -> storage.exists("ab/../../x.jpg"));
+    }
+
+    private Path file(final String name, final String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,147 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.services.s3.AmazonS3;
+import io.findify.s3mock.S3Mock;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Stores images in an in-memory S3 server, which stands in for MinIO.
+ */
+@Tag("slow")
+@ExtendWith(SpringExtension.class)
+class S3ImageStorageTest {
+
+    private static final String KEY = "ab/cd/abcd.jpg";
+    private static final int MEGABYTE = 1024 * 1024;
+
+    private S3Mock s3Server;
+    private AmazonS3 client;
+    private ImageConfig.S3 settings;
+    private S3ImageStorage storage;
+    private Path directory;
+
+    @BeforeEach
+    void init() throws IOException {
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        s3Server = new S3Mock.Builder().withPort(port).withInMemoryBackend().build();
+        s3Server.start();
+
+        settings = new ImageConfig.S3();
+        settings.setEndpoint("http://localhost:" + port);
+        settings.setRegion("us-east-1");
+        settings.setBucket("images");
+        settings.setAccessKey("access");
+        settings.setSecretKey("secret");
+        settings.setMultipartThresholdBytes(6 * MEGABYTE);
+        settings.setMultipartPartBytes(5 * MEGABYTE);
+        client = ImageStorageConfig.s3Client(settings);
+        client.createBucket(settings.getBucket());
+        storage = new S3ImageStorage(client, settings, 3600);
+        directory = Files.createTempDirectory("s3ImageStorageTest");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storage.shutdown();
+        s3Server.shutdown();
+        Files.walk(directory).sorted(Comparator.reverseOrder()).map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    @Test
+    void storedImageCanBeRead() throws IOException {
+        final byte[] content = randomBytes(1000);
+
+        storage.store(KEY, file(content));
+
+        assertTrue(storage.exists(KEY));
+        assertFalse(storage.localFile(KEY).isPresent());
+        try (InputStream stored = storage.open(KEY)) {
+            assertArrayEquals(content, StreamUtils.copyToByteArray(stored));
+        }
+        assertEquals("image/jpeg", client.getObjectMetadata("images", KEY).getContentType());
+    }
+
+    @Test
+    void largeImageIsUploadedInParts() throws IOException {
+        final byte[] content = randomBytes(12 * MEGABYTE);
+
+        storage.store(KEY, file(content));
+
+        try (InputStream stored = storage.open(KEY)) {
+            assertArrayEquals(content, StreamUtils.copyToByteArray(stored));
+        }
+    }
+
+    @Test
+    void imageCanBeDownloadedWithPresignedUrl() throws IOException {
+        final byte[] content = randomBytes(1000);
+        storage.store(KEY, file(content));
+
+        final URL url = storage.downloadUrl(KEY).get();
+
+        assertTrue(url.getQuery().contains("Signature"));
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try (InputStream downloaded = connection.getInputStream()) {
+            assertEquals(200, connection.getResponseCode());
+            assertArrayEquals(content, StreamUtils.copyToByteArray(downloaded));
+        }
+    }
+
+    @Test
+    void missingImage() {
+        assertFalse(storage.exists(KEY));
+    }
+
+    @Test
+    void writeBehindUploadsToS3() throws Exception {
+        final WriteBehindImageStorage writeBehind = new WriteBehindImageStorage(
+                new LocalImageStorage(directory.resolve("spool")), storage, 2, 100);
+        final byte[] content = randomBytes(1000);
+
+        writeBehind.store(KEY, file(content));
+
+        assertTrue(writeBehind.localFile(KEY).isPresent());
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (writeBehind.getPendingUploads() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(storage.exists(KEY));
+        assertFalse(writeBehind.localFile(KEY).isPresent());
+        assertTrue(writeBehind.downloadUrl(KEY).isPresent());
+    }
+
+    private Path file(final byte[] content) throws IOException {
+        return Files.write(Files.createTempFile(directory, "upload", ".tmp"), content);
+    }
+
+    private byte[] randomBytes(final int length) {
+        final byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,149 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class ThumbnailGeneratorTest {
+
+    private File directory;
+    private ImageConfig config;
+    private LocalImageStorage storage;
+    private ThumbnailGenerator thumbnailGenerator;
+
+    @BeforeEach
+    void init() throws IOException {
+        directory = Files.createTempDirectory("thumbnailTest").toFile();
+        config = new ImageConfig();
+        storage = new LocalImageStorage(directory.toPath());
+        thumbnailGenerator = new ThumbnailGenerator(config, storage);
+    }
+
+    @AfterEach
+    void clean() throws IOException {
+        thumbnailGenerator.shutdown();
+        Files.walk(directory.toPath()).sorted(Comparator.reverseOrder()).map(p -> p.toFile())
+                .forEach(File::delete);
+    }
+
+    @Test
+    void thumbnailsAreScaledToTheirSize() throws IOException {
+        final File original = png(1000, 500);
+        final File small = new File(directory, "small/original.png.jpg");
+        final File large = new File(directory, "large/original.png.jpg");
+        final Map<String, Integer> targets = new LinkedHashMap<>();
+        targets.put("small/original.png.jpg", 320);
+        targets.put("large/original.png.jpg", 1600);
+
+        thumbnailGenerator.generate("original.png", source(original), targets);
+
+        final BufferedImage smallImage = ImageIO.read(small);
+        assertEquals(320, smallImage.getWidth());
+        assertEquals(160, smallImage.getHeight());
+        final BufferedImage largeImage = ImageIO.read(large);
+        assertEquals(1000, largeImage.getWidth());
+        assertEquals(500, largeImage.getHeight());
+    }
+
+    @Test
+    void transparencyBecomesWhite() throws IOException {
+        final File thumbnail = new File(directory, "small/original.png.jpg");
+
+        thumbnailGenerator.generate("original.png", source(png(100, 100)),
+                singleTarget("small/original.png.jpg", 50));
+
+        final Color corner = new Color(ImageIO.read(thumbnail).getRGB(0, 0));
+        assertTrue(corner.getRed() > 240 && corner.getGreen() > 240 && corner.getBlue() > 240);
+    }
+
+    @Test
+    void existingThumbnailsAreKept() throws IOException {
+        final File thumbnail = new File(directory, "small.jpg");
+        Files.write(thumbnail.toPath(), "old".getBytes(StandardCharsets.UTF_8));
+
+        thumbnailGenerator.generate("original.png", source(png(100, 100)),
+                singleTarget("small.jpg", 50));
+
+        assertEquals("old", new String(Files.readAllBytes(thumbnail.toPath()),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void noThumbnailsForOtherFiles() throws IOException {
+        final File text = new File(directory, "text.txt");
+        Files.write(text.toPath(), "no image".getBytes(StandardCharsets.UTF_8));
+        final File thumbnail = new File(directory, "small/text.txt.jpg");
+
+        thumbnailGenerator.generate("text.txt", source(text),
+                singleTarget("small/text.txt.jpg", 50));
+
+        assertFalse(thumbnail.exists());
+    }
+
+    @Test
+    void qualityIsLoweredToMeetSizeCap() throws IOException {
+        final BufferedImage noise = noise(400, 400);
+        final int uncapped = thumbnailGenerator.encode(noise).length;
+
+        config.setMaxThumbnailBytes(uncapped / 2);
+
+        assertTrue(thumbnailGenerator.encode(noise).length < uncapped);
+    }
+
+    private Map<String, Integer> singleTarget(final String key, final int size) {
+        final Map<String, Integer> targets = new LinkedHashMap<>();
+        targets.put(key, size);
+        return targets;
+    }
+
+    private InputStreamSource source(final File file) {
+        return () -> new FileInputStream(file);
+    }
+
+    /**
+     * Writes a PNG with a transparent border and a red center.
+     */
+    private File png(final int width, final int height) throws IOException {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(width / 4, height / 4, width / 2, height / 2);
+        graphics.dispose();
+
+        final File file = new File(directory, "original.png");
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    private BufferedImage noise(final int width, final int height) {
+        final Random random = new Random(42);
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,138 @@
+package de.propra2.ausleiherino24.features.imageupload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class WriteBehindImageStorageTest {
+
+    private static final String KEY = "ab/cd/abcd.jpg";
+
+    private Path directory;
+    private LocalImageStorage spool;
+    private LocalImageStorage remote;
+    private WriteBehindImageStorage storage;
+
+    @BeforeEach
+    void init() throws IOException {
+        directory = Files.createTempDirectory("writeBehindTest");
+        spool = new LocalImageStorage(directory.resolve("spool"));
+        remote = new LocalImageStorage(directory.resolve("remote"));
+    }
+
+    @AfterEach
+    void clean() throws IOException {
+        if (storage != null) {
+            storage.shutdown();
+        }
+        Files.walk(directory).sorted(Comparator.reverseOrder()).map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    @Test
+    void storedImageIsUploadedInBackground() throws Exception {
+        final CountDownLatch uploadStarted = new CountDownLatch(1);
+        final CountDownLatch releaseUpload = new CountDownLatch(1);
+        final ImageStorage slowRemote = new LocalImageStorage(directory.resolve("remote")) {
+            @Override
+            public void store(final String key, final Path file) throws IOException {
+                uploadStarted.countDown();
+                try {
+                    releaseUpload.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.store(key, file);
+            }
+        };
+        storage = new WriteBehindImageStorage(spool, slowRemote, 1, 10);
+
+        storage.store(KEY, upload());
+
+        assertTrue(uploadStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(storage.exists(KEY));
+        assertTrue(storage.localFile(KEY).isPresent());
+        releaseUpload.countDown();
+        awaitUploads();
+        assertTrue(remote.exists(KEY));
+        assertFalse(spool.exists(KEY));
+        assertTrue(storage.exists(KEY));
+    }
+
+    @Test
+    void spooledImageIsNotRedirected() throws Exception {
+        final ImageStorage blockedRemote = mock(ImageStorage.class);
+        doThrow(new IOException("unavailable")).when(blockedRemote).store(anyString(), any());
+        when(blockedRemote.downloadUrl(KEY)).thenReturn(Optional.of(new URL("http://s3/x")));
+        storage = new WriteBehindImageStorage(spool, blockedRemote, 1, 60000);
+
+        storage.store(KEY, upload());
+
+        assertFalse(storage.downloadUrl(KEY).isPresent());
+    }
+
+    @Test
+    void failedUploadIsRetried() throws Exception {
+        final ImageStorage flakyRemote = mock(ImageStorage.class);
+        doThrow(new IOException("unavailable")).doNothing().when(flakyRemote)
+                .store(eq(KEY), any());
+        storage = new WriteBehindImageStorage(spool, flakyRemote, 1, 10);
+
+        storage.store(KEY, upload());
+
+        verify(flakyRemote, timeout(5000).times(2)).store(eq(KEY), any());
+        awaitUploads();
+        assertFalse(spool.exists(KEY));
+    }
+
+    @Test
+    void spooledImagesAreUploadedAfterRestart() throws Exception {
+        spool.store(KEY, upload());
+        Files.write(spool.getRoot().resolve("upload1.tmp"), new byte[1]);
+        storage = new WriteBehindImageStorage(spool, remote, 2, 10);
+
+        storage.resumePending();
+
+        awaitUploads();
+        assertTrue(remote.exists(KEY));
+        assertFalse(remote.exists("upload1.tmp"));
+    }
+
+    private Path upload() throws IOException {
+        return Files.write(Files.createTempFile(directory, "upload", ".tmp"),
+                "image".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void awaitUploads() throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (storage.getPendingUploads() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, storage.getPendingUploads());
+    }
+}
@@ -0,0 +1,188 @@
+package de.propra2.ausleiherino24.features.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import de.propra2.ausleiherino24.data.ArticleRepository;
+import de.propra2.ausleiherino24.data.ArticleSearchFields;
+import de.propra2.ausleiherino24.features.category.Category;
+import de.propra2.ausleiherino24.model.Article;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class ArticleSearchIndexTest {
+
+    private ArticleRepository articleRepositoryMock;
+    private ArticleSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        articleRepositoryMock = mock(ArticleRepository.class);
+        index = new ArticleSearchIndex(articleRepositoryMock);
+
+        index.index(createArticle(1L, "Mountainbike", "Fast bike with 21 gears",
+                "Duesseldorf", Category.BICYCLE));
+        index.index(createArticle(2L, "Circular saw", "Saw for wood, used for one bike rack",
+                "Koeln", Category.TOOLS));
+        index.index(createArticle(3L, "Lego castle", "Big castle with knights",
+                "Duesseldorf", Category.TOYS));
+    }
+
+    @Test
+    void findsArticlesByDescriptionAndLocation() {
+        assertEquals(Collections.singletonList(3L), search("knights"));
+        assertEquals(Collections.singletonList(2L), search("koeln"));
+    }
+
+    @Test
+    void findsArticlesByCategory() {
+        assertEquals(Collections.singletonList(2L), search("tools"));
+    }
+
+    @Test
+    void nameRanksHigherThanDescription() {
+        index.index(createArticle(4L, "Bike", "", "", null));
+
+        assertEquals(Arrays.asList(4L, 2L), search("bike").subList(0, 2));
+    }
+
+    @Test
+    void articlesMatchingMoreTokensRankFirst() {
+        assertEquals(Arrays.asList(1L, 3L, 2L), search("duesseldorf bike"));
+    }
+
+    @Test
+    void matchesPrefixes() {
+        assertEquals(Collections.singletonList(1L), search("mount"));
+    }
+
+    @Test
+    void matchesTyposWithinOneEdit() {
+        assertEquals(Collections.singletonList(3L), search("casle"));
+        assertEquals(Collections.singletonList(3L), search("knigts"));
+    }
+
+    @Test
+    void matchesInsertionsDeletionsAndReplacements() {
+        assertEquals(Collections.singletonList(3L), search("castlle"));
+        assertEquals(Collections.singletonList(3L), search("casxle"));
+        assertEquals(Collections.singletonList(3L), search("castlo"));
+    }
+
+    @Test
+    void doesNotMatchTyposBeyondOneEditOrInTheFirstLetter() {
+        assertTrue(search("catsle").isEmpty());
+        assertTrue(search("cstl").isEmpty());
+        assertTrue(search("xastle").isEmpty());
+    }
+
+    @Test
+    void pagesThroughResults() {
+        final SearchResult firstPage = index.search("duesseldorf", 0, 1);
+        final SearchResult secondPage = index.search("duesseldorf", 1, 1);
+
+        assertEquals(2, firstPage.getTotalHits());
+        assertEquals(1, firstPage.getArticleIds().size());
+        assertEquals(1, secondPage.getArticleIds().size());
+        assertFalse(firstPage.getArticleIds().equals(secondPage.getArticleIds()));
+    }
+
+    @Test
+    void pagesConcatenateToTheFullRanking() {
+        for (long id = 10; id < 40; id++) {
+            index.index(createArticle(id, "Tent " + id, id % 3 == 0 ? "tent" : "",
+                    id % 2 == 0 ? "Tent" : "", Category.TOYS));
+        }
+        final List<Long> all = index.search("tent", 0, 100).getArticleIds();
+
+        final List<Long> paged = new ArrayList<>();
+        for (int offset = 0; offset < all.size(); offset += 7) {
+            final SearchResult page = index.search("tent", offset, 7);
+            assertEquals(30, page.getTotalHits());
+            paged.addAll(page.getArticleIds());
+        }
+
+        assertEquals(30, all.size());
+        assertEquals(all, paged);
+    }
+
+    @Test
+    void pageBehindTheLastHitIsEmpty() {
+        final SearchResult page = index.search("duesseldorf", 5, 10);
+
+        assertTrue(page.getArticleIds().isEmpty());
+        assertEquals(2, page.getTotalHits());
+    }
+
+    @Test
+    void deactivatedArticleIsRemoved() {
+        final Article article = createArticle(3L, "Lego castle", "", "", Category.TOYS);
+        article.setActive(false);
+
+        index.index(article);
+
+        assertTrue(search("castle").isEmpty());
+    }
+
+    @Test
+    void updatedArticleLosesOldTerms() {
+        index.index(createArticle(3L, "Playmobil pirate ship", "", "", Category.TOYS));
+
+        assertTrue(search("castle").isEmpty());
+        assertEquals(Collections.singletonList(3L), search("pirate"));
+    }
+
+    @Test
+    void removedArticleIsNotFound() {
+        index.remove(1L);
+
+        assertTrue(search("mountainbike").isEmpty());
+    }
+
+    @Test
+    void rebuildReplacesIndexByDatabaseContent() {
+        final ArticleSearchFields canoe = mock(ArticleSearchFields.class);
+        when(canoe.getId()).thenReturn(5L);
+        when(canoe.getName()).thenReturn("Canoe");
+        when(canoe.getCategory()).thenReturn(Category.BOAT);
+        when(articleRepositoryMock.streamActiveSearchFields()).thenReturn(Stream.of(canoe));
+
+        index.rebuild();
+
+        assertTrue(search("castle").isEmpty());
+        assertEquals(Collections.singletonList(5L), search("canoe"));
+        assertEquals(Collections.singletonList(5L), search("boat"));
+    }
+
+    @Test
+    void emptyQueryFindsNothing() {
+        assertEquals(0, index.search(" ,. ", 0, 10).getTotalHits());
+    }
+
+    private List<Long> search(final String query) {
+        return index.search(query, 0, 10).getArticleIds();
+    }
+
+    private Article createArticle(final Long id, final String name, final String description,
+            final String location, final Category category) {
+        final Article article = new Article();
+        article.setId(id);
+        article.setName(name);
+        article.setDescription(description);
+        article.setLocation(location);
+        article.setCategory(category);
+        article.setActive(true);
+        return article;
+    }
+}
@@ -0,0 +1,139 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import de.propra2.ausleiherino24.propayhandler.model.AccountSummaries;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Compares a serial loop over getAccountData with the bulk request against a local ProPay stub,
+ * which answers every account with a fixed latency and accounts named "slow..." much later.
+ */
+@Tag("slow")
+@ExtendWith(SpringExtension.class)
+class AccountHandlerBulkLoadTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountHandlerBulkLoadTest.class);
+
+    private static final int ACCOUNTS = 64;
+    private static final long PROPAY_LATENCY_MILLIS = 50;
+    private static final long SLOW_ACCOUNT_LATENCY_MILLIS = 3000;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private CloseableHttpClient httpClient;
+    private AccountHandler accountHandler;
+    private ProPayConfig config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 128);
+        server.createContext("/account/", exchange -> {
+            final String account = exchange.getRequestURI().getPath().substring(9);
+            try {
+                Thread.sleep(account.startsWith("slow")
+                        ? SLOW_ACCOUNT_LATENCY_MILLIS : PROPAY_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] body = ("{\"account\":\"" + account + "\",\"amount\":100.0,"
+                    + "\"reservations\":[{\"id\":1,\"amount\":30.0}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(32);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        config = new ProPayConfig();
+        config.setReadTimeoutMillis(10000);
+        config.setBulkParallelism(8);
+        config.setBulkTimeoutMillis(1000);
+        httpClient = ProPayClientConfig.createHttpClient(config);
+        final ProPayCircuitBreaker circuitBreaker = Mockito.mock(ProPayCircuitBreaker.class);
+        Mockito.when(circuitBreaker.isAvailable()).thenReturn(true);
+        accountHandler = new AccountHandler(
+                new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient)),
+                "http://localhost:" + server.getAddress().getPort() + "/account",
+                circuitBreaker, config);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        accountHandler.shutdown();
+        httpClient.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void bulkRequestIsFasterThanSerialLoop() {
+        final List<String> accounts = accountNames("user");
+
+        final long serialStart = System.nanoTime();
+        for (final String account : accounts) {
+            accountHandler.getAccountData(account);
+        }
+        final long serialMillis = (System.nanoTime() - serialStart) / 1000000;
+
+        final long bulkStart = System.nanoTime();
+        final AccountSummaries result = accountHandler.getAccountSummaries(accounts);
+        final long bulkMillis = (System.nanoTime() - bulkStart) / 1000000;
+
+        LOGGER.info("{} accounts: serial {} ms, bulk {} ms.", ACCOUNTS, serialMillis, bulkMillis);
+        assertTrue(result.isComplete());
+        assertEquals(70.0, result.getSummaries().get("user0").getFreeFunds(), 0.001);
+        assertTrue(bulkMillis * 4 < serialMillis);
+    }
+
+    @Test
+    void slowAccountsDoNotDelayTheOthers() {
+        final List<String> accounts = accountNames("user");
+        accounts.add(3, "slow1");
+        accounts.add("slow2");
+
+        final long start = System.nanoTime();
+        final AccountSummaries result = accountHandler.getAccountSummaries(accounts);
+        final long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        LOGGER.info("Partial result after {} ms, unavailable: {}.", elapsedMillis,
+                result.getUnavailableAccounts());
+        assertEquals(ACCOUNTS, result.getSummaries().size());
+        assertTrue(result.getUnavailableAccounts().contains("slow1"));
+        assertTrue(result.getUnavailableAccounts().contains("slow2"));
+        assertTrue(elapsedMillis < config.getBulkTimeoutMillis() + 500);
+    }
+
+    private List<String> accountNames(final String prefix) {
+        final List<String> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(prefix + i);
+        }
+        return accounts;
+    }
+}
@@ -2,10 +2,13 @@ package de.propra2.ausleiherino24.propayhandler.data;
 
 import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.User;
+import de.propra2.ausleiherino24.propayhandler.model.AccountSummaries;
+import de.propra2.ausleiherino24.propayhandler.model.AccountSummary;
 import de.propra2.ausleiherino24.propayhandler.model.PpAccount;
 import de.propra2.ausleiherino24.propayhandler.model.PpTransaction;
 import de.propra2.ausleiherino24.propayhandler.model.Reservation;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,7 +17,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 @ExtendWith(SpringExtension.class)
@@ -24,6 +30,7 @@ class AccountHandlerTest {
     @Value("${PP_ACCOUNT_URL}")
     private String ACCOUNT_URL;
     private AccountHandler accountHandler;
+    private ProPayCircuitBreaker circuitBreaker;
     @MockBean
     private RestTemplate restTemplate;
 
@@ -34,7 +41,9 @@ class AccountHandlerTest {
     @BeforeEach
     void initialize() {
         restTemplate = Mockito.mock(RestTemplate.class);
-        accountHandler = new AccountHandler(restTemplate, ACCOUNT_URL);
+        circuitBreaker = Mockito.mock(ProPayCircuitBreaker.class);
+        accountHandler = new AccountHandler(restTemplate, ACCOUNT_URL, circuitBreaker,
+                new ProPayConfig());
         User user = Mockito.mock(User.class);
         User user2 = Mockito.mock(User.class);
         PpTransaction ppTransaction = Mockito.mock(PpTransaction.class);
@@ -127,8 +136,8 @@ class AccountHandlerTest {
 
         accountHandler.addFunds("Acc1", amount);
         Mockito.verify(restTemplate, Mockito.times(1))
-                .postForLocation(ACCOUNT_URL + ACCOUNT_DEFAULT + "?amount=" + amount.toString(),
-                        null, "Acc1");
+                .postForLocation(ACCOUNT_URL + ACCOUNT_DEFAULT + "?amount={amount}", null,
+                        "Acc1", amount);
 
     }
 
@@ -137,9 +146,90 @@ class AccountHandlerTest {
         accountHandler.transferFundsByCase(aCase);
         Mockito.verify(restTemplate, Mockito.times(1))
                 .postForLocation(
-                        ACCOUNT_URL + "/{sourceAccount}/transfer/{targetAccount}" + "?amount="
-                                + amount
-                                .toString(), null, "user", "user2");
+                        ACCOUNT_URL + "/{sourceAccount}/transfer/{targetAccount}?amount={amount}",
+                        null, "user", "user2", amount);
     }
 
+    @Test
+    void checkAvailabilityAnswersFromCircuitBreaker() {
+        Mockito.when(circuitBreaker.isAvailable()).thenReturn(true);
+
+        Assertions.assertThat(accountHandler.checkAvailability()).isTrue();
+        Mockito.verifyZeroInteractions(restTemplate);
+    }
+
+    @Test
+    void successfulCallIsReportedToCircuitBreaker() {
+        accountHandler.getAccountData("Acc1");
+
+        Mockito.verify(circuitBreaker).recordSuccess();
+    }
+
+    @Test
+    void unreachableProPayIsReportedToCircuitBreaker() {
+        Mockito.when(restTemplate.getForObject(ACCOUNT_URL + "/{account}", PpAccount.class, "Acc1"))
+                .thenThrow(new ResourceAccessException("timeout"));
+
+        Assertions.assertThatThrownBy(() -> accountHandler.getAccountData("Acc1"))
+                .isInstanceOf(ResourceAccessException.class);
+        Mockito.verify(circuitBreaker).recordFailure();
+    }
+
+    @Test
+    void clientErrorIsNoFailureOfProPay() {
+        Mockito.when(restTemplate.getForObject(ACCOUNT_URL + "/{account}", PpAccount.class, "Acc1"))
+                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        Assertions.assertThatThrownBy(() -> accountHandler.getAccountData("Acc1"))
+                .isInstanceOf(HttpClientErrorException.class);
+        Mockito.verify(circuitBreaker, Mockito.never()).recordFailure();
+    }
+
+    @Test
+    void bulkRequestSummarizesAllAccounts() {
+        Mockito.when(circuitBreaker.isAvailable()).thenReturn(true);
+
+        final AccountSummaries result = accountHandler
+                .getAccountSummaries(Arrays.asList("Acc1", "Acc2"));
+
+        Assertions.assertThat(result.isComplete()).isTrue();
+        Assertions.assertThat(result.getSummaries().keySet()).containsExactly("Acc1", "Acc2");
+        Assertions.assertThat(result.getSummaries().get("Acc2"))
+                .isEqualTo(new AccountSummary("Acc2", 40.0, 960.0, 2));
+    }
+
+    @Test
+    void bulkRequestReturnsPartialResultIfAccountFails() {
+        Mockito.when(circuitBreaker.isAvailable()).thenReturn(true);
+        Mockito.when(restTemplate.getForObject(ACCOUNT_URL + "/{account}", PpAccount.class, "Acc3"))
+                .thenThrow(new ResourceAccessException("timeout"));
+
+        final AccountSummaries result = accountHandler
+                .getAccountSummaries(Arrays.asList("Acc1", "Acc3"));
+
+        Assertions.assertThat(result.isComplete()).isFalse();
+        Assertions.assertThat(result.getSummaries().keySet()).containsExactly("Acc1");
+        Assertions.assertThat(result.getUnavailableAccounts()).containsExactly("Acc3");
+    }
+
+    @Test
+    void bulkRequestAsksForEveryAccountOnce() {
+        Mockito.when(circuitBreaker.isAvailable()).thenReturn(true);
+
+        accountHandler.getAccountSummaries(Arrays.asList("Acc1", "Acc1"));
+
+        Mockito.verify(restTemplate, Mockito.times(1))
+                .getForObject(ACCOUNT_URL + "/{account}", PpAccount.class, "Acc1");
+    }
+
+    @Test
+    void bulkRequestDoesNotCallUnavailableProPay() {
+        Mockito.when(circuitBreaker.isAvailable()).thenReturn(false);
+
+        final AccountSummaries result = accountHandler
+                .getAccountSummaries(Arrays.asList("Acc1", "Acc2"));
+
+        Assertions.assertThat(result.getUnavailableAccounts()).containsExactly("Acc1", "Acc2");
+        Mockito.verifyZeroInteractions(restTemplate);
+    }
 }
@@ -0,0 +1,113 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import de.propra2.ausleiherino24.propayhandler.model.PpOperation;
+import de.propra2.ausleiherino24.propayhandler.model.PpOutboxEntry;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@ActiveProfiles(profiles = "test")
+class PpOutboxRepoTest {
+
+    @Autowired
+    private PpOutboxRepository outboxRepository;
+
+    private PpOutboxEntry reserve1;
+    private PpOutboxEntry accept1;
+    private PpOutboxEntry reserve2;
+    private PpOutboxEntry retry3;
+
+    @BeforeEach
+    void init() {
+        reserve1 = new PpOutboxEntry(1L, 11L, PpOperation.RESERVE, 100L);
+        accept1 = new PpOutboxEntry(1L, 11L, PpOperation.ACCEPT, 100L);
+        reserve2 = new PpOutboxEntry(2L, 12L, PpOperation.RESERVE, 100L);
+        retry3 = new PpOutboxEntry(3L, 13L, PpOperation.RESERVE, 100L);
+        retry3.setNextAttemptAt(500L);
+
+        outboxRepository.saveAll(Arrays.asList(reserve1, accept1, reserve2, retry3));
+    }
+
+    @Test
+    void onlyOldestPendingEntryOfCaseIsDue() {
+        Assertions.assertThat(dueCaseIds(200L)).containsExactly(1L, 2L);
+        Assertions.assertThat(due(200L).get(0).getOperation()).isEqualTo(PpOperation.RESERVE);
+    }
+
+    @Test
+    void nextEntryOfCaseIsDueWhenPreviousIsDone() {
+        reserve1.setStatus(PpOutboxEntry.DONE);
+        outboxRepository.save(reserve1);
+
+        Assertions.assertThat(due(200L)).extracting(PpOutboxEntry::getOperation)
+                .containsExactly(PpOperation.ACCEPT, PpOperation.RESERVE);
+    }
+
+    @Test
+    void retriedEntryIsDueAfterBackoff() {
+        Assertions.assertThat(dueCaseIds(499L)).doesNotContain(3L);
+        Assertions.assertThat(dueCaseIds(500L)).contains(3L);
+    }
+
+    @Test
+    void entryIsClaimedOnlyOnceUntilTheLeaseExpires() {
+        Assertions.assertThat(outboxRepository.claim(reserve1.getId(), 200L, 1200L)).isEqualTo(1);
+        Assertions.assertThat(outboxRepository.claim(reserve1.getId(), 300L, 1300L)).isEqualTo(0);
+        Assertions.assertThat(outboxRepository.claim(reserve1.getId(), 1200L, 2200L))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void onlyDuePendingEntriesAreClaimed() {
+        reserve2.setStatus(PpOutboxEntry.DONE);
+        outboxRepository.save(reserve2);
+
+        Assertions.assertThat(outboxRepository.claim(reserve2.getId(), 200L, 1200L)).isEqualTo(0);
+        Assertions.assertThat(outboxRepository.claim(retry3.getId(), 200L, 1200L)).isEqualTo(0);
+    }
+
+    @Test
+    void pendingStateOfTransaction() {
+        Assertions.assertThat(outboxRepository
+                .existsByPpTransactionIdAndStatus(11L, PpOutboxEntry.PENDING)).isTrue();
+        Assertions.assertThat(outboxRepository
+                .existsByPpTransactionIdAndStatus(14L, PpOutboxEntry.PENDING)).isFalse();
+    }
+
+    @Test
+    void idempotencyKeyIdentifiesCaseAndOperation() {
+        Assertions.assertThat(outboxRepository.existsByIdempotencyKey(
+                PpOutboxEntry.idempotencyKey(1L, PpOperation.ACCEPT))).isTrue();
+        Assertions.assertThat(outboxRepository.existsByIdempotencyKey(
+                PpOutboxEntry.idempotencyKey(2L, PpOperation.ACCEPT))).isFalse();
+    }
+
+    @Test
+    void enqueuedKeysAreFoundTogether() {
+        Assertions.assertThat(outboxRepository.findIdempotencyKeysIn(Arrays.asList(
+                PpOutboxEntry.idempotencyKey(1L, PpOperation.ACCEPT),
+                PpOutboxEntry.idempotencyKey(2L, PpOperation.ACCEPT),
+                PpOutboxEntry.idempotencyKey(2L, PpOperation.RESERVE))))
+                .containsExactlyInAnyOrder(PpOutboxEntry.idempotencyKey(1L, PpOperation.ACCEPT),
+                        PpOutboxEntry.idempotencyKey(2L, PpOperation.RESERVE));
+    }
+
+    private List<PpOutboxEntry> due(final long now) {
+        return outboxRepository.findDueEntries(now, PageRequest.of(0, 10));
+    }
+
+    private List<Long> dueCaseIds(final long now) {
+        return due(now).stream().map(PpOutboxEntry::getCaseId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,188 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Runs the circuit breaker against a local stub of ProPay, which can be made slow or broken.
+ */
+@ExtendWith(SpringExtension.class)
+class ProPayCircuitBreakerTest {
+
+    private static final String ACCOUNT_JSON =
+            "{\"account\":\"AvailabilityAcc\",\"amount\":0.0,\"reservations\":[]}";
+
+    private HttpServer server;
+    private volatile int status;
+    private volatile long delayMillis;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private ProPayConfig config;
+    private ProPayCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        status = 200;
+        delayMillis = 0;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/account", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] body = ACCOUNT_JSON.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        config = new ProPayConfig();
+        config.setConnectTimeoutMillis(200);
+        config.setReadTimeoutMillis(200);
+        config.setFailureThreshold(2);
+        config.setOpenMillis(60000);
+        circuitBreaker = createCircuitBreaker();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void healthyProPayIsAvailable() {
+        circuitBreaker.probe();
+
+        assertTrue(circuitBreaker.isAvailable());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void serverErrorsOpenTheCircuitAfterThreshold() {
+        status = 503;
+
+        circuitBreaker.probe();
+        assertTrue(circuitBreaker.isAvailable());
+
+        circuitBreaker.probe();
+        assertFalse(circuitBreaker.isAvailable());
+        assertEquals(ProPayCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void slowProPayOpensTheCircuit() {
+        delayMillis = 1000;
+
+        final long start = System.nanoTime();
+        circuitBreaker.probe();
+        circuitBreaker.probe();
+        final long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertFalse(circuitBreaker.isAvailable());
+        assertTrue(elapsedMillis < 2 * delayMillis, "probe must give up after read timeout");
+    }
+
+    @Test
+    void unreachableProPayOpensTheCircuit() {
+        server.stop(0);
+
+        circuitBreaker.probe();
+        circuitBreaker.probe();
+
+        assertFalse(circuitBreaker.isAvailable());
+    }
+
+    @Test
+    void openCircuitSendsNoProbesUntilOpenTimeHasPassed() {
+        status = 503;
+        circuitBreaker.probe();
+        circuitBreaker.probe();
+        status = 200;
+
+        circuitBreaker.probe();
+
+        assertEquals(2, requests.get());
+        assertFalse(circuitBreaker.isAvailable());
+    }
+
+    @Test
+    void successfulHalfOpenProbeClosesTheCircuit() {
+        config.setOpenMillis(0);
+        circuitBreaker = createCircuitBreaker();
+        status = 503;
+        circuitBreaker.probe();
+        circuitBreaker.probe();
+        assertFalse(circuitBreaker.isAvailable());
+
+        status = 200;
+        circuitBreaker.probe();
+
+        assertTrue(circuitBreaker.isAvailable());
+    }
+
+    @Test
+    void failedHalfOpenProbeOpensTheCircuitAgain() {
+        config.setOpenMillis(0);
+        circuitBreaker = createCircuitBreaker();
+        status = 503;
+        circuitBreaker.probe();
+        circuitBreaker.probe();
+
+        circuitBreaker.probe();
+
+        assertEquals(3, requests.get());
+        assertEquals(ProPayCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void failuresOfRealCallsOpenTheCircuit() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        assertFalse(circuitBreaker.isAvailable());
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+
+        assertTrue(circuitBreaker.isAvailable());
+    }
+
+    @Test
+    void availabilityCheckDoesNotCallProPay() {
+        delayMillis = 1000;
+
+        for (int i = 0; i < 1000; i++) {
+            circuitBreaker.isAvailable();
+        }
+
+        assertEquals(0, requests.get());
+    }
+
+    private ProPayCircuitBreaker createCircuitBreaker() {
+        return new ProPayCircuitBreaker(new RestTemplateBuilder(),
+                "http://localhost:" + server.getAddress().getPort() + "/account", config);
+    }
+}
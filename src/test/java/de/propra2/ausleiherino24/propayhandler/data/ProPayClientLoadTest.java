@@ -0,0 +1,134 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Sends reservations from several threads to a local ProPay stub, once with the default
+ * RestTemplate and once with the pooled client of {@link ProPayClientConfig}, and compares
+ * throughput and the number of opened connections.
+ */
+@Tag("slow")
+@ExtendWith(SpringExtension.class)
+class ProPayClientLoadTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProPayClientLoadTest.class);
+
+    private static final int THREADS = 16;
+    private static final int REQUESTS_PER_THREAD = 200;
+    private static final long PROPAY_LATENCY_MILLIS = 2;
+    private static final String RESERVATION_JSON = "{\"id\":1,\"amount\":300.0}";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+    private String reservationUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 128);
+        server.createContext("/reservation", exchange -> {
+            requests.incrementAndGet();
+            connections.add(exchange.getRemoteAddress());
+            try {
+                Thread.sleep(PROPAY_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] body = RESERVATION_JSON.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(4 * THREADS);
+        server.setExecutor(serverExecutor);
+        server.start();
+        reservationUrl = "http://localhost:" + server.getAddress().getPort() + "/reservation";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void pooledClientReusesConnectionsUnderLoad() throws Exception {
+        final double defaultThroughput = measureThroughput(new RestTemplate());
+        final int defaultConnections = connections.size();
+        connections.clear();
+        requests.set(0);
+
+        final ProPayConfig config = new ProPayConfig();
+        final double pooledThroughput;
+        try (CloseableHttpClient httpClient = ProPayClientConfig.createHttpClient(config)) {
+            pooledThroughput = measureThroughput(
+                    new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient)));
+        }
+        final int pooledConnections = connections.size();
+
+        LOGGER.info("Default client: {} reservations/s over {} connections.",
+                Math.round(defaultThroughput), defaultConnections);
+        LOGGER.info("Pooled client: {} reservations/s over {} connections.",
+                Math.round(pooledThroughput), pooledConnections);
+
+        assertEquals(THREADS * REQUESTS_PER_THREAD, requests.get());
+        assertTrue(pooledConnections <= config.getMaxConnectionsPerRoute());
+        assertTrue(pooledConnections < defaultConnections);
+    }
+
+    private double measureThroughput(final RestTemplate restTemplate) throws Exception {
+        final ReservationHandler reservationHandler = new ReservationHandler(restTemplate,
+                reservationUrl, new AccountHandler(restTemplate, reservationUrl,
+                        Mockito.mock(ProPayCircuitBreaker.class), new ProPayConfig()));
+
+        final ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+        final List<Future<?>> results = new ArrayList<>();
+        final long start = System.nanoTime();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(clients.submit(() -> {
+                for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+                    reservationHandler.createReservation("receiver", "owner", 300D);
+                }
+            }));
+        }
+        for (final Future<?> result : results) {
+            result.get();
+        }
+        final long elapsedNanos = System.nanoTime() - start;
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.SECONDS);
+
+        return THREADS * REQUESTS_PER_THREAD / (elapsedNanos / 1e9);
+    }
+}
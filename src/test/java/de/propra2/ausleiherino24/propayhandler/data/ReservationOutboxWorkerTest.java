@@ -0,0 +1,290 @@
+package de.propra2.ausleiherino24.propayhandler.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import de.propra2.ausleiherino24.data.CaseRepository;
+import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.model.User;
+import de.propra2.ausleiherino24.propayhandler.model.PpOperation;
+import de.propra2.ausleiherino24.propayhandler.model.PpOutboxEntry;
+import de.propra2.ausleiherino24.propayhandler.model.PpTransaction;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+@ExtendWith(SpringExtension.class)
+class ReservationOutboxWorkerTest {
+
+    private static final Long CASE_ID = 1L;
+    private static final Long TRANSACTION_ID = 2L;
+
+    private PpOutboxRepository outboxRepositoryMock;
+    private PpTransactionRepository ppTransactionRepositoryMock;
+    private ReservationHandler reservationHandlerMock;
+    private AccountHandler accountHandlerMock;
+    private ProPayCircuitBreaker circuitBreakerMock;
+    private ProPayConfig config;
+    private ReservationOutboxWorker worker;
+    private PpTransaction ppTransaction;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepositoryMock = mock(PpOutboxRepository.class);
+        ppTransactionRepositoryMock = mock(PpTransactionRepository.class);
+        final CaseRepository caseRepositoryMock = mock(CaseRepository.class);
+        reservationHandlerMock = mock(ReservationHandler.class);
+        accountHandlerMock = mock(AccountHandler.class);
+        circuitBreakerMock = mock(ProPayCircuitBreaker.class);
+        config = new ProPayConfig();
+        worker = new ReservationOutboxWorker(outboxRepositoryMock, ppTransactionRepositoryMock,
+                caseRepositoryMock, reservationHandlerMock, accountHandlerMock,
+                circuitBreakerMock, config, mock(PlatformTransactionManager.class));
+
+        final User owner = new User();
+        owner.setUsername("owner");
+        final User receiver = new User();
+        receiver.setUsername("receiver");
+        final Article article = new Article();
+        article.setOwner(owner);
+        final Case aCase = new Case();
+        aCase.setId(CASE_ID);
+        aCase.setArticle(article);
+        aCase.setReceiver(receiver);
+        aCase.setDeposit(200D);
+        ppTransaction = new PpTransaction();
+        ppTransaction.setId(TRANSACTION_ID);
+        ppTransaction.setLendingCost(100D);
+        ppTransaction.setReservationId(-1L);
+
+        when(caseRepositoryMock.findById(CASE_ID)).thenReturn(Optional.of(aCase));
+        when(ppTransactionRepositoryMock.findById(TRANSACTION_ID))
+                .thenReturn(Optional.of(ppTransaction));
+        when(reservationHandlerMock.createReservation(anyString(), anyString(), anyDouble()))
+                .thenReturn(7L);
+        when(circuitBreakerMock.isAvailable()).thenReturn(true);
+        when(outboxRepositoryMock.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void reserveReservesLendingCostAndDeposit() {
+        final PpOutboxEntry entry = givenEntry(PpOperation.RESERVE);
+
+        worker.process(entry.getId());
+
+        verify(reservationHandlerMock).createReservation("receiver", "owner", 300D);
+        verify(ppTransactionRepositoryMock).updateReservationId(TRANSACTION_ID, 7L);
+        verify(ppTransactionRepositoryMock)
+                .updatePaymentStatus(TRANSACTION_ID, PpTransaction.PAYMENT_DONE);
+        assertEquals(PpOutboxEntry.DONE, entry.getStatus());
+    }
+
+    @Test
+    void acceptReleasesTransfersAndReservesDeposit() {
+        ppTransaction.setReservationId(5L);
+        final PpOutboxEntry entry = givenEntry(PpOperation.ACCEPT);
+
+        worker.process(entry.getId());
+
+        verify(reservationHandlerMock).releaseReservation("receiver", 5L);
+        verify(accountHandlerMock).transferFunds("receiver", "owner", 100D);
+        verify(reservationHandlerMock).createReservation("receiver", "owner", 200D);
+        verify(ppTransactionRepositoryMock).updateReservationId(TRANSACTION_ID, 7L);
+        assertEquals(3, entry.getCompletedSteps());
+        assertEquals(PpOutboxEntry.DONE, entry.getStatus());
+    }
+
+    @Test
+    void retryContinuesAfterLastCompletedStep() {
+        final PpOutboxEntry entry = givenEntry(PpOperation.ACCEPT);
+        entry.setCompletedSteps(2);
+
+        worker.process(entry.getId());
+
+        verify(accountHandlerMock, never()).transferFunds(anyString(), anyString(), anyDouble());
+        verify(reservationHandlerMock, never()).releaseReservation(anyString(), anyLong());
+        verify(reservationHandlerMock).createReservation("receiver", "owner", 200D);
+        assertEquals(PpOutboxEntry.DONE, entry.getStatus());
+    }
+
+    @Test
+    void punishPunishesReservation() {
+        ppTransaction.setReservationId(5L);
+        final PpOutboxEntry entry = givenEntry(PpOperation.PUNISH);
+
+        worker.process(entry.getId());
+
+        verify(reservationHandlerMock).punishReservation("receiver", 5L);
+        verify(ppTransactionRepositoryMock).updateReservationId(TRANSACTION_ID, -1L);
+        assertEquals(PpOutboxEntry.DONE, entry.getStatus());
+    }
+
+    @Test
+    void releaseWithoutReservationSendsNothing() {
+        final PpOutboxEntry entry = givenEntry(PpOperation.RELEASE);
+
+        worker.process(entry.getId());
+
+        verify(reservationHandlerMock, never()).releaseReservation(anyString(), anyLong());
+        assertEquals(PpOutboxEntry.DONE, entry.getStatus());
+    }
+
+    @Test
+    void unreachableProPayIsRetriedWithBackoff() {
+        when(reservationHandlerMock.createReservation(anyString(), anyString(), anyDouble()))
+                .thenThrow(new ResourceAccessException("timeout"));
+        final PpOutboxEntry entry = givenEntry(PpOperation.RESERVE);
+        final long before = System.currentTimeMillis();
+
+        worker.process(entry.getId());
+
+        assertEquals(PpOutboxEntry.PENDING, entry.getStatus());
+        assertEquals(1, entry.getAttempts());
+        assertTrue(entry.getNextAttemptAt() >= before + config.getOutboxInitialBackoffMillis());
+        verify(ppTransactionRepositoryMock, never()).updatePaymentStatus(any(), anyInt());
+    }
+
+    @Test
+    void entryFailsAfterMaxAttempts() {
+        when(reservationHandlerMock.createReservation(anyString(), anyString(), anyDouble()))
+                .thenThrow(new ResourceAccessException("timeout"));
+        final PpOutboxEntry entry = givenEntry(PpOperation.RESERVE);
+        entry.setAttempts(config.getOutboxMaxAttempts() - 1);
+
+        worker.process(entry.getId());
+
+        assertEquals(PpOutboxEntry.FAILED, entry.getStatus());
+        verify(ppTransactionRepositoryMock)
+                .updatePaymentStatus(TRANSACTION_ID, PpTransaction.PAYMENT_FAILED);
+    }
+
+    @Test
+    void refusedCallIsNotRetried() {
+        when(reservationHandlerMock.createReservation(anyString(), anyString(), anyDouble()))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+        final PpOutboxEntry entry = givenEntry(PpOperation.RESERVE);
+
+        worker.process(entry.getId());
+
+        assertEquals(PpOutboxEntry.FAILED, entry.getStatus());
+        assertEquals(0, entry.getAttempts());
+    }
+
+    @Test
+    void finishedEntryIsNotSentAgain() {
+        final PpOutboxEntry entry = givenEntry(PpOperation.RESERVE);
+        entry.setStatus(PpOutboxEntry.DONE);
+
+        worker.process(entry.getId());
+
+        verifyZeroInteractions(reservationHandlerMock);
+    }
+
+    @Test
+    void entryClaimedByAnotherWorkerIsNotSent() {
+        final PpOutboxEntry entry = givenEntry(PpOperation.RESERVE);
+        when(outboxRepositoryMock.claim(eq(10L), anyLong(), anyLong())).thenReturn(0);
+
+        worker.process(entry.getId());
+
+        verifyZeroInteractions(reservationHandlerMock);
+        verify(outboxRepositoryMock, never()).save(any());
+    }
+
+    @Test
+    void entryIsClaimedForTheLease() {
+        config.setOutboxLeaseMillis(60000);
+        final PpOutboxEntry entry = givenEntry(PpOperation.RESERVE);
+        final long before = System.currentTimeMillis();
+
+        worker.process(entry.getId());
+
+        final ArgumentCaptor<Long> now = ArgumentCaptor.forClass(Long.class);
+        final ArgumentCaptor<Long> leaseUntil = ArgumentCaptor.forClass(Long.class);
+        verify(outboxRepositoryMock).claim(eq(10L), now.capture(), leaseUntil.capture());
+        assertTrue(now.getValue() >= before);
+        assertEquals(now.getValue() + 60000, (long) leaseUntil.getValue());
+    }
+
+    @Test
+    void workerStopsAfterItsLeaseWasTakenOver() {
+        final PpOutboxEntry entry = givenEntry(PpOperation.RESERVE);
+        when(outboxRepositoryMock.save(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(PpOutboxEntry.class, 10L));
+
+        worker.process(entry.getId());
+
+        verify(reservationHandlerMock).createReservation("receiver", "owner", 300D);
+        verify(ppTransactionRepositoryMock, never()).updatePaymentStatus(any(), anyInt());
+        assertEquals(PpOutboxEntry.PENDING, entry.getStatus());
+        assertEquals(0, entry.getAttempts());
+    }
+
+    @Test
+    void paymentStaysPendingWhileOtherEntriesArePending() {
+        final PpOutboxEntry entry = givenEntry(PpOperation.RESERVE);
+        when(outboxRepositoryMock
+                .existsByPpTransactionIdAndStatus(TRANSACTION_ID, PpOutboxEntry.PENDING))
+                .thenReturn(true);
+
+        worker.process(entry.getId());
+
+        verify(ppTransactionRepositoryMock, never()).updatePaymentStatus(any(), anyInt());
+    }
+
+    @Test
+    void outboxIsNotPolledWhileProPayIsUnavailable() {
+        when(circuitBreakerMock.isAvailable()).thenReturn(false);
+
+        worker.drain();
+
+        verifyZeroInteractions(outboxRepositoryMock);
+    }
+
+    @Test
+    void backoffIsDoubledUpToMaximum() {
+        config.setOutboxInitialBackoffMillis(1000);
+        config.setOutboxMaxBackoffMillis(5000);
+
+        assertEquals(1000, worker.backoffMillis(1));
+        assertEquals(2000, worker.backoffMillis(2));
+        assertEquals(4000, worker.backoffMillis(3));
+        assertEquals(5000, worker.backoffMillis(4));
+        assertEquals(5000, worker.backoffMillis(40));
+    }
+
+    private PpOutboxEntry givenEntry(final PpOperation operation) {
+        final PpOutboxEntry entry = new PpOutboxEntry(CASE_ID, TRANSACTION_ID, operation, 0L);
+        entry.setId(10L);
+        when(outboxRepositoryMock.findById(10L)).thenReturn(Optional.of(entry));
+        when(outboxRepositoryMock.claim(eq(10L), anyLong(), anyLong())).thenAnswer(
+                invocation -> entry.getStatus() == PpOutboxEntry.PENDING ? 1 : 0);
+        return entry;
+    }
+}
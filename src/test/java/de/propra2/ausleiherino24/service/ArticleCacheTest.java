@@ -0,0 +1,107 @@
+package de.propra2.ausleiherino24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.propra2.ausleiherino24.data.ArticleRepository;
+import de.propra2.ausleiherino24.model.Article;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = ArticleCacheTest.CacheTestConfig.class)
+class ArticleCacheTest {
+
+    @Autowired
+    private ArticleCache articleCache;
+
+    @Autowired
+    private ArticleRepository articleRepositoryMock;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Article article;
+
+    @BeforeEach
+    void setUp() {
+        reset(articleRepositoryMock);
+        cacheManager.getCache(ArticleCache.CACHE_NAME).clear();
+
+        article = new Article();
+        article.setId(1L);
+        when(articleRepositoryMock.findWithOwnerById(1L)).thenReturn(Optional.of(article));
+        when(articleRepositoryMock.findWithOwnerById(2L)).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void secondLookupIsServedFromCache() {
+        assertEquals(article, articleCache.findById(1L));
+        assertEquals(article, articleCache.findById(1L));
+
+        verify(articleRepositoryMock, times(1)).findWithOwnerById(1L);
+    }
+
+    @Test
+    void evictedArticleIsLoadedAgain() {
+        articleCache.findById(1L);
+        articleCache.evict(1L);
+        articleCache.findById(1L);
+
+        verify(articleRepositoryMock, times(2)).findWithOwnerById(1L);
+    }
+
+    @Test
+    void missingArticleIsNotCached() {
+        assertNull(articleCache.findById(2L));
+        assertNull(articleCache.findById(2L));
+
+        verify(articleRepositoryMock, times(2)).findWithOwnerById(2L);
+    }
+
+    @Test
+    void longDescriptionsWeighMore() {
+        assertEquals(1, ArticleCacheConfig.weigh(article));
+
+        article.setDescription(new String(new char[10 * 1024]));
+        assertEquals(11, ArticleCacheConfig.weigh(article));
+    }
+
+    @Configuration
+    @EnableCaching
+    static class CacheTestConfig {
+
+        @Bean
+        ArticleRepository articleRepository() {
+            return mock(ArticleRepository.class);
+        }
+
+        @Bean
+        ArticleCache articleCache(final ArticleRepository articleRepository) {
+            return new ArticleCache(articleRepository);
+        }
+
+        @Bean
+        CacheManager cacheManager() {
+            final CaffeineCacheManager cacheManager =
+                    new CaffeineCacheManager(ArticleCache.CACHE_NAME);
+            cacheManager.setCaffeine(new ArticleCacheConfig().caffeine(100, 10));
+            return cacheManager;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package de.propra2.ausleiherino24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Measures the throughput of bookings with 1, 8 and 64 threads. Every booking holds its lock for
+ * about as long as the check-then-act transaction of CaseService waits for the database. Bookings
+ * are spread over many articles and compared with a single global lock and with all threads
+ * booking the same article.
+ */
+@Tag("slow")
+@ExtendWith(SpringExtension.class)
+class ArticleLocksBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArticleLocksBenchmarkTest.class);
+
+    private static final int BOOKINGS = 4096;
+    private static final int ARTICLES = 1024;
+    private static final long BOOKING_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Test
+    void throughputScalesWithArticles() throws Exception {
+        final int[] threadCounts = {1, 8, 64};
+        final long[] striped = new long[threadCounts.length];
+        final long[] global = new long[threadCounts.length];
+        for (int i = 0; i < threadCounts.length; i++) {
+            striped[i] = bookingsPerSecond(new ArticleLocks(256), threadCounts[i], ARTICLES);
+            global[i] = bookingsPerSecond(new ArticleLocks(1), threadCounts[i], ARTICLES);
+            final long sameArticle = bookingsPerSecond(new ArticleLocks(256), threadCounts[i], 1);
+            LOGGER.info("{} threads: {} bookings/s striped, {} bookings/s with a global lock, "
+                            + "{} bookings/s on one article.", threadCounts[i], striped[i],
+                    global[i], sameArticle);
+        }
+
+        assertTrue(striped[1] > 2 * global[1]);
+        assertTrue(striped[2] > striped[0]);
+    }
+
+    private long bookingsPerSecond(final ArticleLocks locks, final int threads,
+            final int articles) throws Exception {
+        final long[] bookingsPerArticle = new long[articles];
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < BOOKINGS / threads; i++) {
+                    final int article = ThreadLocalRandom.current().nextInt(articles);
+                    locks.withLock((long) article, () -> {
+                        // unsynchronized on purpose, the lock has to serialize the article
+                        bookingsPerArticle[article]++;
+                        LockSupport.parkNanos(BOOKING_NANOS);
+                        return null;
+                    });
+                }
+                return null;
+            }));
+        }
+
+        final long begin = System.nanoTime();
+        start.countDown();
+        for (final Future<?> result : results) {
+            result.get();
+        }
+        final long nanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        long total = 0;
+        for (final long bookings : bookingsPerArticle) {
+            total += bookings;
+        }
+        assertEquals(BOOKINGS / threads * threads, total);
+        return total * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+}
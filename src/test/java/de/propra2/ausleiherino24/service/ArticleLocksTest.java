@@ -0,0 +1,101 @@
+package de.propra2.ausleiherino24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class ArticleLocksTest {
+
+    private ArticleLocks locks;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        locks = new ArticleLocks(100);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void stripesAreRoundedUpToPowerOfTwo() {
+        assertEquals(128, locks.size());
+        assertEquals(1, new ArticleLocks(0).size());
+        assertEquals(64, new ArticleLocks(64).size());
+    }
+
+    @Test
+    void sameArticleAlwaysUsesSameStripe() {
+        assertEquals(locks.stripeOf(4711L), locks.stripeOf(4711L));
+        assertNotEquals(locks.stripeOf(1L), locks.stripeOf(2L));
+        assertEquals(0, locks.stripeOf(null));
+    }
+
+    @Test
+    void bookingsOfOneArticleAreSerialized() throws Exception {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean secondRan = new AtomicBoolean();
+
+        final Future<?> first = executor.submit(() -> locks.withLock(1L, () -> {
+            locked.countDown();
+            await(release);
+            return null;
+        }));
+        locked.await();
+        final Future<?> second = executor.submit(() -> locks.withLock(1L, () -> {
+            secondRan.set(true);
+            return null;
+        }));
+
+        Thread.sleep(100);
+        assertFalse(secondRan.get());
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertTrue(secondRan.get());
+    }
+
+    @Test
+    void bookingsOfDifferentArticlesRunInParallel() throws Exception {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Future<?> first = executor.submit(() -> locks.withLock(1L, () -> {
+            locked.countDown();
+            await(release);
+            return null;
+        }));
+        locked.await();
+
+        assertEquals("done", executor.submit(() -> locks.withLock(2L, () -> "done"))
+                .get(5, TimeUnit.SECONDS));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
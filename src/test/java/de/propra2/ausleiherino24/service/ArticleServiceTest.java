@@ -4,13 +4,20 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import de.propra2.ausleiherino24.data.ArticleListing;
+import de.propra2.ausleiherino24.data.ArticleListingSlice;
 import de.propra2.ausleiherino24.data.ArticleRepository;
 import de.propra2.ausleiherino24.features.category.Category;
 import de.propra2.ausleiherino24.features.imageupload.ImageService;
+import de.propra2.ausleiherino24.features.search.ArticleSearchIndex;
+import de.propra2.ausleiherino24.features.search.SearchPage;
+import de.propra2.ausleiherino24.features.search.SearchResult;
 import de.propra2.ausleiherino24.model.Article;
 import de.propra2.ausleiherino24.model.Case;
 import java.util.ArrayList;
@@ -22,6 +29,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -30,6 +38,8 @@ class ArticleServiceTest {
 
     private ArticleService articleService;
     private ArticleRepository articleRepositoryMock;
+    private ArticleSearchIndex articleSearchIndexMock;
+    private ArticleCache articleCacheMock;
     private List<Article> articles;
 
     private Article article01;
@@ -40,7 +50,10 @@ class ArticleServiceTest {
     @BeforeEach
     void setUp() {
         articleRepositoryMock = mock(ArticleRepository.class);
-        articleService = new ArticleService(articleRepositoryMock, mock(ImageService.class));
+        articleSearchIndexMock = mock(ArticleSearchIndex.class);
+        articleCacheMock = mock(ArticleCache.class);
+        articleService = new ArticleService(articleRepositoryMock, mock(ImageService.class),
+                articleSearchIndexMock, articleCacheMock);
 
         articles = new ArrayList<>();
         article01 = new Article(0L, "", "", "", 0D, 0D, "",
@@ -58,98 +71,7 @@ class ArticleServiceTest {
         articleService.saveArticle(new Article(), "");
 
         verify(articleRepositoryMock).save(new Article());
-    }
-
-    @Test
-    void tripleArticle() {
-        article02.setActive(false);
-        article03.setActive(false);
-
-        articles.add(article01);
-        articles.add(article01);
-        articles.add(article01);
-
-        when(articleRepositoryMock.findAllActive()).thenReturn(articles);
-
-        articles.remove(1);
-        articles.remove(1);
-
-        assertEquals(articles, articleService.findAllActiveArticles());
-    }
-
-    @Test
-    void twoArticlesForRental() {
-        final Case c = new Case();
-        c.setRequestStatus(Case.RUNNING);  //requestStatus = RUNNING
-        article03.setCases(Arrays.asList(c));
-
-        articles.add(article01);
-        articles.add(article02);
-        articles.add(article03);
-
-        when(articleRepositoryMock.findAllActive()).thenReturn(articles);
-
-        articles.remove(2);
-
-        assertEquals(articles, articleService.findAllActiveAndForRentalArticles());
-    }
-
-    @Test
-    void threeToys() {
-        articles.add(article01);
-        articles.add(article02);
-        articles.add(article03);
-
-        when(articleRepositoryMock.findAllActive()).thenReturn(articles);
-
-        assertEquals(articles, articleService.findAllArticlesByCategory(Category.TOYS));
-    }
-
-    @Test
-    void threeToys2() {
-        articles.add(article01);
-        articles.add(article02);
-        articles.add(article03);
-
-        when(articleRepositoryMock.findAllActive()).thenReturn(articles);
-
-        assertTrue(articleService.findAllArticlesByCategory(Category.TOOLS).isEmpty());
-    }
-
-    @Test
-    void twoToysTwoTools() {
-        article02.setCategory(Category.TOOLS);
-        article04.setCategory(Category.TOOLS);
-
-        articles.add(article01);
-        articles.add(article02);
-        articles.add(article03);
-        articles.add(article04);
-
-        when(articleRepositoryMock.findAllActive()).thenReturn(articles);
-
-        articles.remove(3);
-        articles.remove(1);
-
-        assertEquals(articles, articleService.findAllArticlesByCategory(Category.TOYS));
-    }
-
-    @Test
-    void twoToysTwoTools2() {
-        article02.setCategory(Category.TOOLS);
-        article04.setCategory(Category.TOOLS);
-
-        articles.add(article01);
-        articles.add(article02);
-        articles.add(article03);
-        articles.add(article04);
-
-        when(articleRepositoryMock.findAllActive()).thenReturn(articles);
-
-        articles.remove(2);
-        articles.remove(0);
-
-        assertEquals(articles, articleService.findAllArticlesByCategory(Category.TOOLS));
+        verify(articleSearchIndexMock).index(new Article());
     }
 
     @Test
@@ -162,6 +84,8 @@ class ArticleServiceTest {
         assertTrue(articleService.deactivateArticle(0L));
         verify(articleRepositoryMock).save(argument.capture());
         assertFalse(argument.getValue().isActive());
+        verify(articleSearchIndexMock).remove(0L);
+        verify(articleCacheMock).evict(0L);
     }
 
     @Test
@@ -201,6 +125,8 @@ class ArticleServiceTest {
         assertTrue(articleService.deactivateArticle(0L));
         verify(articleRepositoryMock).save(argument.capture());
         assertFalse(argument.getValue().isActive());
+        verify(articleSearchIndexMock).remove(0L);
+        verify(articleCacheMock).evict(0L);
     }
 
     @Test
@@ -240,5 +166,88 @@ class ArticleServiceTest {
 
         verify(articleRepositoryMock).save(argument.capture());
         assertFalse(argument.getValue().isForSale());
+        verify(articleCacheMock).evict(0L);
+    }
+
+    @Test
+    void savingAnExistingArticleEvictsItFromTheCache() {
+        articleService.saveArticle(article01, "");
+
+        verify(articleCacheMock).evict(0L);
+    }
+
+    @Test
+    void findCachedArticleByIdReturnsTheCachedArticle() {
+        when(articleCacheMock.findById(0L)).thenReturn(article01);
+
+        assertEquals(article01, articleService.findCachedArticleById(0L));
+    }
+
+    @Test
+    void findCachedArticleByIdThrowsIfArticleIsMissing() {
+        assertThrows(NoSuchElementException.class,
+                () -> articleService.findCachedArticleById(0L));
+    }
+
+    @Test
+    void searchListingsKeepsTheOrderOfTheIndex() {
+        final ArticleListing first = listing(3L);
+        final ArticleListing second = listing(1L);
+        when(articleSearchIndexMock.search("saw", 0, ArticleService.SEARCH_PAGE_SIZE))
+                .thenReturn(new SearchResult(Arrays.asList(3L, 1L), 2));
+        when(articleRepositoryMock.findAllListingsByIdIn(Arrays.asList(3L, 1L)))
+                .thenReturn(Arrays.asList(second, first));
+
+        final SearchPage page = articleService.searchListings("saw", 0);
+
+        assertEquals(Arrays.asList(first, second), page.getArticles());
+        assertEquals(2, page.getTotalHits());
+        assertTrue(page.isFirstPage());
+        assertTrue(page.isLastPage());
+    }
+
+    @Test
+    void searchListingsWithoutHitsDoesNotQueryTheDatabase() {
+        when(articleSearchIndexMock.search("saw", ArticleService.SEARCH_PAGE_SIZE,
+                ArticleService.SEARCH_PAGE_SIZE))
+                .thenReturn(new SearchResult(new ArrayList<>(), 0));
+
+        final SearchPage page = articleService.searchListings("saw", 1);
+
+        assertTrue(page.getArticles().isEmpty());
+        verify(articleRepositoryMock, never()).findAllListingsByIdIn(any());
+    }
+
+    @Test
+    void fullListingPageHasCursorOfItsLastArticle() {
+        final List<ArticleListing> listings = new ArrayList<>();
+        for (long id = ArticleService.LISTING_PAGE_SIZE + 1; id > 0; id--) {
+            listings.add(listing(id));
+        }
+        when(articleRepositoryMock.findActiveForRentalListingsBefore(Long.MAX_VALUE,
+                PageRequest.of(0, ArticleService.LISTING_PAGE_SIZE + 1))).thenReturn(listings);
+
+        final ArticleListingSlice slice = articleService.findActiveAndForRentalListings(null);
+
+        assertEquals(ArticleService.LISTING_PAGE_SIZE, slice.getArticles().size());
+        assertEquals(Long.valueOf(2L), slice.getNextCursor());
+    }
+
+    @Test
+    void lastListingPageHasNoCursor() {
+        final List<ArticleListing> listings = Arrays.asList(listing(2L), listing(1L));
+        when(articleRepositoryMock.findActiveForRentalListingsByCategoryBefore(Category.TOYS, 3L,
+                PageRequest.of(0, ArticleService.LISTING_PAGE_SIZE + 1))).thenReturn(listings);
+
+        final ArticleListingSlice slice = articleService.findListingsByCategory(Category.TOYS, 3L);
+
+        assertEquals(listings, slice.getArticles());
+        assertTrue(slice.isLastPage());
+    }
+
+    private ArticleListing listing(final Long id) {
+        final ArticleListing listing = mock(ArticleListing.class);
+        when(listing.getId()).thenReturn(id);
+        return listing;
     }
 }
@@ -0,0 +1,184 @@
+package de.propra2.ausleiherino24.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.propra2.ausleiherino24.data.CaseInterval;
+import de.propra2.ausleiherino24.data.CaseRepository;
+import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class AvailabilityIndexTest {
+
+    private CaseRepository caseRepositoryMock;
+    private AvailabilityIndex availabilityIndex;
+    private Article article;
+    private List<Case> acceptedCases;
+    private AtomicLong nanos;
+
+    @BeforeEach
+    void setUp() {
+        caseRepositoryMock = mock(CaseRepository.class);
+        nanos = new AtomicLong();
+        availabilityIndex = new AvailabilityIndex(caseRepositoryMock, nanos::get);
+        article = new Article();
+        article.setId(1L);
+        acceptedCases = new ArrayList<>();
+        when(caseRepositoryMock
+                .findIntervalsByArticleIdAndRequestStatus(any(), eq(Case.REQUEST_ACCEPTED)))
+                .thenAnswer(invocation -> acceptedCases.stream()
+                        .map(AvailabilityIndexTest::intervalOf)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void articleWithoutCasesIsFree() {
+        assertTrue(availabilityIndex.isFree(article, 0L, 10L, null));
+    }
+
+    @Test
+    void overlappingCaseBlocksArticle() {
+        acceptedCases.add(createCase(1L, 5L, 10L, Case.REQUEST_ACCEPTED));
+
+        assertFalse(availabilityIndex.isFree(article, 0L, 5L, null));
+        assertFalse(availabilityIndex.isFree(article, 10L, 20L, null));
+        assertFalse(availabilityIndex.isFree(article, 6L, 7L, null));
+        assertTrue(availabilityIndex.isFree(article, 11L, 20L, null));
+        assertTrue(availabilityIndex.isFree(article, 0L, 4L, null));
+    }
+
+    @Test
+    void excludedCaseDoesNotBlockItself() {
+        acceptedCases.add(createCase(1L, 5L, 10L, Case.REQUEST_ACCEPTED));
+
+        assertTrue(availabilityIndex.isFree(article, 5L, 10L, 1L));
+    }
+
+    @Test
+    void excludedCaseInMergedSegmentStillChecksOtherCases() {
+        acceptedCases.add(createCase(1L, 0L, 5L, Case.REQUEST_ACCEPTED));
+        acceptedCases.add(createCase(2L, 5L, 10L, Case.REQUEST_ACCEPTED));
+
+        assertTrue(availabilityIndex.isFree(article, 0L, 4L, 1L));
+        assertFalse(availabilityIndex.isFree(article, 0L, 5L, 1L));
+    }
+
+    @Test
+    void queryCanSpanSeveralSegments() {
+        acceptedCases.add(createCase(1L, 0L, 5L, Case.REQUEST_ACCEPTED));
+        acceptedCases.add(createCase(2L, 20L, 30L, Case.REQUEST_ACCEPTED));
+
+        assertFalse(availabilityIndex.isFree(article, 0L, 30L, 2L));
+        assertTrue(availabilityIndex.isFree(article, 6L, 19L, null));
+    }
+
+    @Test
+    void longCaseIsNotHiddenBehindShorterOne() {
+        acceptedCases.add(createCase(1L, 0L, 100L, Case.REQUEST_ACCEPTED));
+        acceptedCases.add(createCase(2L, 10L, 20L, Case.REQUEST_ACCEPTED));
+
+        assertFalse(availabilityIndex.isFree(article, 50L, 60L, null));
+    }
+
+    @Test
+    void acceptedCaseIsAddedOnUpdate() {
+        assertTrue(availabilityIndex.isFree(article, 0L, 10L, null));
+
+        availabilityIndex.update(createCase(1L, 5L, 10L, Case.REQUEST_ACCEPTED));
+
+        assertFalse(availabilityIndex.isFree(article, 0L, 10L, null));
+    }
+
+    @Test
+    void finishedCaseIsRemovedOnUpdate() {
+        final Case acceptedCase = createCase(1L, 0L, 5L, Case.REQUEST_ACCEPTED);
+        acceptedCases.add(acceptedCase);
+        acceptedCases.add(createCase(2L, 5L, 10L, Case.REQUEST_ACCEPTED));
+        assertFalse(availabilityIndex.isFree(article, 0L, 3L, null));
+
+        acceptedCase.setRequestStatus(Case.FINISHED);
+        availabilityIndex.update(acceptedCase);
+
+        assertTrue(availabilityIndex.isFree(article, 0L, 4L, null));
+        assertFalse(availabilityIndex.isFree(article, 0L, 5L, null));
+    }
+
+    @Test
+    void indexIsLoadedOnlyOnce() {
+        availabilityIndex.isFree(article, 0L, 10L, null);
+        availabilityIndex.isFree(article, 20L, 30L, null);
+
+        verify(caseRepositoryMock, times(1))
+                .findIntervalsByArticleIdAndRequestStatus(any(), eq(Case.REQUEST_ACCEPTED));
+    }
+
+    @Test
+    void evictedIndexIsLoadedAgain() {
+        availabilityIndex.isFree(article, 0L, 10L, null);
+        acceptedCases.add(createCase(1L, 0L, 5L, Case.REQUEST_ACCEPTED));
+
+        availabilityIndex.evict(1L);
+
+        assertFalse(availabilityIndex.isFree(article, 0L, 10L, null));
+        verify(caseRepositoryMock, times(2))
+                .findIntervalsByArticleIdAndRequestStatus(any(), eq(Case.REQUEST_ACCEPTED));
+    }
+
+    @Test
+    void indexExpiresAfterTenMinutes() {
+        assertTrue(availabilityIndex.isFree(article, 0L, 10L, null));
+        acceptedCases.add(createCase(1L, 0L, 5L, Case.REQUEST_ACCEPTED));
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(9));
+        assertTrue(availabilityIndex.isFree(article, 0L, 10L, null));
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertFalse(availabilityIndex.isFree(article, 0L, 10L, null));
+    }
+
+    private Case createCase(final Long id, final Long startTime, final Long endTime,
+            final int requestStatus) {
+        final Case aCase = new Case();
+        aCase.setId(id);
+        aCase.setStartTime(startTime);
+        aCase.setEndTime(endTime);
+        aCase.setRequestStatus(requestStatus);
+        aCase.setArticle(article);
+        return aCase;
+    }
+
+    private static CaseInterval intervalOf(final Case aCase) {
+        return new CaseInterval() {
+            @Override
+            public Long getId() {
+                return aCase.getId();
+            }
+
+            @Override
+            public Long getStartTime() {
+                return aCase.getStartTime();
+            }
+
+            @Override
+            public Long getEndTime() {
+                return aCase.getEndTime();
+            }
+        };
+    }
+}
@@ -1,54 +1,62 @@
 package de.propra2.ausleiherino24.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import de.propra2.ausleiherino24.data.CaseRepository;
+import de.propra2.ausleiherino24.data.CaseTimeSpan;
 import de.propra2.ausleiherino24.features.calendar.CalendarEvent;
 import de.propra2.ausleiherino24.features.calendar.CalendarEventService;
-import de.propra2.ausleiherino24.model.Article;
-import de.propra2.ausleiherino24.model.Case;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @ExtendWith(SpringExtension.class)
 public class CalendarServiceTest {
 
     private CaseRepository caseRepsitory;
-    private ArticleService articleService;
     private CalendarEventService calendarEventService;
 
     @BeforeEach
     public void init() {
         caseRepsitory = mock(CaseRepository.class);
-        articleService = mock(ArticleService.class);
-        this.calendarEventService = new CalendarEventService(caseRepsitory, articleService);
+        this.calendarEventService = new CalendarEventService(caseRepsitory);
     }
 
     @Test
-    public void testIfGetAllEventsFromOneArticleReturnsArrayListWithOneCalendarEventItem() {
-        Article article = new Article();
-        DateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
-        when(articleService.findArticleById(0L)).thenReturn(article);
-        Case acase = new Case();
-        acase.setArticle(article);
-        Date date = new Date();
-        acase.setStartTime(date.getTime());
-        acase.setEndTime(date.getTime() + 87000000);
-        ArrayList<Case> cases = new ArrayList<Case>();
-        cases.add(acase);
-        when(caseRepsitory.findAllByArticleWhereStatusIsGreater7(article)).thenReturn(cases);
-        List<CalendarEvent> cal = calendarEventService.getAllEventsFromOneArticle(0L);
-        assertEquals(formatter.format(date), cal.get(0).getStart());
-        assertEquals(formatter.format(date.getTime() + 87000000) + "T23:59:59.008",
-                cal.get(0).getEnd());
+    public void testIfGetEventsFromOneArticleReturnsMergedEventsWithinTheWindow() {
+        final LocalDate from = LocalDate.of(2019, 3, 1);
+        final LocalDate to = LocalDate.of(2019, 3, 31);
+        when(caseRepsitory.streamTimeSpansByArticleAndRequestStatusesInWindow(eq(0L),
+                ArgumentMatchers.any(), anyLong(), anyLong())).thenReturn(Stream.of(
+                timeSpan(LocalDate.of(2019, 2, 27), LocalDate.of(2019, 3, 2)),
+                timeSpan(LocalDate.of(2019, 3, 3), LocalDate.of(2019, 3, 4)),
+                timeSpan(LocalDate.of(2019, 3, 20), LocalDate.of(2019, 3, 21))));
+
+        final List<CalendarEvent> cal = calendarEventService.getEventsFromOneArticle(0L, from, to);
+
+        assertEquals(2, cal.size());
+        assertEquals("2019-03-01", cal.get(0).getStart());
+        assertEquals("2019-03-04T23:59:59.008", cal.get(0).getEnd());
+        assertEquals("2019-03-20", cal.get(1).getStart());
+        assertEquals("2019-03-21T23:59:59.008", cal.get(1).getEnd());
+    }
+
+    private CaseTimeSpan timeSpan(final LocalDate start, final LocalDate end) {
+        final CaseTimeSpan timeSpan = mock(CaseTimeSpan.class);
+        when(timeSpan.getStartTime()).thenReturn(
+                start.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        when(timeSpan.getEndTime()).thenReturn(
+                end.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        return timeSpan;
     }
 }
@@ -0,0 +1,136 @@
+package de.propra2.ausleiherino24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+
+import de.propra2.ausleiherino24.data.ArticleRepository;
+import de.propra2.ausleiherino24.data.CaseRepository;
+import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.model.User;
+import de.propra2.ausleiherino24.propayhandler.data.AccountHandler;
+import de.propra2.ausleiherino24.propayhandler.data.ReservationOutbox;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Many owners' browser tabs accept overlapping requests for the same article at once. Exactly one
+ * request per article may be accepted, all others have to end as RENTAL_NOT_POSSIBLE.
+ */
+@Tag("slow")
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles(profiles = "test")
+@SpringBootTest
+class CaseAcceptanceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private CaseService caseService;
+    @Autowired
+    private CaseRepository cases;
+    @Autowired
+    private ArticleRepository articles;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @MockBean
+    private AccountHandler accountHandler;
+    @MockBean
+    private ReservationOutbox reservationOutbox;
+
+    private ExecutorService owners;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(accountHandler.checkAvailability()).thenReturn(true);
+        Mockito.when(accountHandler.hasValidFundsByCase(any())).thenReturn(true);
+        owners = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        owners.shutdownNow();
+        cases.deleteAll();
+        articles.deleteAll();
+    }
+
+    @Test
+    void overlappingRequestsAreNeverAcceptedTwice() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            final List<Long> requests = requestArticle(round);
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (final Long id : requests) {
+                results.add(owners.submit(() -> {
+                    start.await();
+                    return caseService.acceptArticleRequest(id);
+                }));
+            }
+            start.countDown();
+
+            int accepted = 0;
+            for (final Future<Integer> result : results) {
+                final int status = result.get();
+                if (status == 1) {
+                    accepted++;
+                } else {
+                    assertEquals(2, status);
+                }
+            }
+            assertEquals(1, accepted);
+            final Long articleId = cases.findById(requests.get(0)).get().getArticle().getId();
+            assertEquals(1, cases.findIntervalsByArticleIdAndRequestStatus(articleId,
+                    Case.REQUEST_ACCEPTED).size());
+            assertEquals(THREADS - 1, cases.findIntervalsByArticleIdAndRequestStatus(articleId,
+                    Case.RENTAL_NOT_POSSIBLE).size());
+        }
+    }
+
+    /**
+     * Creates an article with one overlapping request per thread.
+     */
+    private List<Long> requestArticle(final int round) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            final User owner = new User();
+            owner.setUsername("owner" + round);
+            final Article article = new Article();
+            article.setOwner(owner);
+            article.setActive(true);
+            article.setForRental(true);
+            article.setDeposit(10D);
+            article.setCostPerDay(1D);
+
+            final List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final User receiver = new User();
+                receiver.setUsername("receiver" + round + "-" + i);
+                final Case request = new Case();
+                request.setArticle(article);
+                request.setReceiver(receiver);
+                request.setStartTime(1000L + i);
+                request.setEndTime(5000L + i);
+                request.setRequestStatus(Case.REQUESTED);
+                ids.add(cases.save(request).getId());
+            }
+            return ids;
+        });
+    }
+}
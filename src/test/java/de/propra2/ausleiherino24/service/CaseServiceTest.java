@@ -6,6 +6,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -14,25 +15,44 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import de.propra2.ausleiherino24.data.CaseInterval;
 import de.propra2.ausleiherino24.data.CaseRepository;
+import de.propra2.ausleiherino24.data.CaseTimeSpan;
+import de.propra2.ausleiherino24.data.ConflictQueueSlice;
+import de.propra2.ausleiherino24.features.calendar.ReservedPeriod;
 import de.propra2.ausleiherino24.model.Article;
 import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.Person;
 import de.propra2.ausleiherino24.model.User;
 import de.propra2.ausleiherino24.propayhandler.data.AccountHandler;
-import de.propra2.ausleiherino24.propayhandler.data.ReservationHandler;
+import de.propra2.ausleiherino24.propayhandler.data.ReservationOutbox;
+import de.propra2.ausleiherino24.propayhandler.model.AccountSummaries;
+import de.propra2.ausleiherino24.propayhandler.model.AccountSummary;
+import de.propra2.ausleiherino24.propayhandler.model.PpOperation;
 import de.propra2.ausleiherino24.propayhandler.model.PpTransaction;
+import java.security.Principal;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(SpringExtension.class)
 class CaseServiceTest {
@@ -43,20 +63,26 @@ class CaseServiceTest {
     private UserService userServiceMock;
     private CaseService caseService;
     private AccountHandler accountHandlerMock;
-    private ReservationHandler reservationHandlerMock;
+    private ReservationOutbox reservationOutboxMock;
     private List<Case> cases;
+    private Principal owner;
 
     @BeforeEach
     void setUp() {
         accountHandlerMock = mock(AccountHandler.class);
-        reservationHandlerMock = mock(ReservationHandler.class);
+        reservationOutboxMock = mock(ReservationOutbox.class);
         caseRepositoryMock = mock(CaseRepository.class);
         personServiceMock = mock(PersonService.class);
         articleServiceMock = mock(ArticleService.class);
         userServiceMock = mock(UserService.class);
         caseService = spy(new CaseService(caseRepositoryMock, articleServiceMock, personServiceMock,
-                userServiceMock, accountHandlerMock, reservationHandlerMock));
+                userServiceMock, accountHandlerMock, reservationOutboxMock,
+                new AvailabilityIndex(caseRepositoryMock), new CaseStateMachine(),
+                new OptimisticLockRetry(mock(PlatformTransactionManager.class), 1, 0),
+                new ArticleLocks(1)));
         cases = new ArrayList<>();
+        owner = mock(Principal.class);
+        Mockito.when(owner.getName()).thenReturn("owner");
         Mockito.when(accountHandlerMock.checkAvailability()).thenReturn(true);
     }
 
@@ -131,6 +157,52 @@ class CaseServiceTest {
         assertEquals(new User(), argument.getValue().getReceiver());
         assertEquals(100D, argument.getValue().getDeposit(), 1);
         assertEquals(50D, argument.getValue().getPrice(), 1);
+        verify(reservationOutboxMock).enqueue(argument.getValue(), PpOperation.RESERVE);
+    }
+
+    @Test
+    void requestArticleButPriceWasRaisedAfterFundsWereChecked() {
+        final Long articleId = 0L;
+        final Long st = new Date().getTime();
+        final Long et = st + TimeUnit.DAYS.toMillis(2);
+        final User user = new User();
+        user.setUsername("test");
+        final Article article = new Article();
+        article.setOwner(user);
+        article.setDeposit(100D);
+        article.setCostPerDay(50D);
+        final Article raised = new Article();
+        raised.setOwner(user);
+        raised.setDeposit(100D);
+        raised.setCostPerDay(60D);
+        when(articleServiceMock.findArticleById(articleId)).thenReturn(article, raised);
+        when(accountHandlerMock.hasValidFunds("", 200D)).thenReturn(true);
+        doReturn(true).when(caseService).articleNotRented(any(), eq(st), eq(et));
+
+        assertFalse(caseService.requestArticle(articleId, st, et, ""));
+        verify(accountHandlerMock, times(1)).hasValidFunds(any(), anyDouble());
+        verify(caseRepositoryMock, times(0)).save(any());
+    }
+
+    @Test
+    void requestArticleButOverlappingCaseWasAcceptedByAnotherInstance() {
+        final Long articleId = 0L;
+        final Long st = new Date().getTime() + 100L;
+        final Long et = new Date().getTime() + 200L;
+        final Article article = new Article();
+        article.setId(articleId);
+        final User user = new User();
+        user.setUsername("test");
+        article.setOwner(user);
+        article.setDeposit(100D);
+        article.setCostPerDay(50D);
+        when(articleServiceMock.findArticleById(articleId)).thenReturn(article);
+        when(accountHandlerMock.hasValidFunds(eq(""), Mockito.anyDouble())).thenReturn(true);
+        when(caseRepositoryMock.countByArticleAndRequestStatusInWindow(articleId,
+                Case.REQUEST_ACCEPTED, st, et)).thenReturn(1L);
+
+        assertFalse(caseService.requestArticle(articleId, st, et, ""));
+        verify(caseRepositoryMock, times(0)).save(any());
     }
 
     @Test
@@ -232,17 +304,23 @@ class CaseServiceTest {
     @Test
     void articleAlreadyRequestedInTheTime() {
         final Article article = new Article();
+        article.setId(0L);
         final Case c1 = new Case();
+        c1.setId(1L);
         c1.setRequestStatus(Case.REQUEST_ACCEPTED);
         c1.setStartTime(0L);
         c1.setEndTime(5L);
         c1.setArticle(article);
         final Case c2 = new Case();
+        c2.setId(2L);
         c2.setRequestStatus(Case.REQUEST_ACCEPTED);
         c2.setStartTime(1L);
         c2.setEndTime(4L);
         c2.setArticle(article);
         article.setCases(Arrays.asList(c1, c2));
+        when(caseRepositoryMock
+                .findIntervalsByArticleIdAndRequestStatus(any(), eq(Case.REQUEST_ACCEPTED)))
+                .thenReturn(Arrays.asList(intervalOf(c1), intervalOf(c2)));
         when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(c1));
 
         assertFalse(caseService.articleNotRented(0L));
@@ -251,17 +329,23 @@ class CaseServiceTest {
     @Test
     void articleAlreadyRequestedInTheTime2() {
         final Article article = new Article();
+        article.setId(0L);
         final Case c1 = new Case();
+        c1.setId(1L);
         c1.setRequestStatus(Case.REQUEST_ACCEPTED);
         c1.setStartTime(0L);
         c1.setEndTime(5L);
         c1.setArticle(article);
         final Case c2 = new Case();
+        c2.setId(2L);
         c2.setRequestStatus(Case.REQUEST_ACCEPTED);
         c2.setStartTime(1L);
         c2.setEndTime(4L);
         c2.setArticle(article);
         article.setCases(Arrays.asList(c1, c2));
+        when(caseRepositoryMock
+                .findIntervalsByArticleIdAndRequestStatus(any(), eq(Case.REQUEST_ACCEPTED)))
+                .thenReturn(Arrays.asList(intervalOf(c1), intervalOf(c2)));
         when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(c2));
 
         assertFalse(caseService.articleNotRented(0L));
@@ -270,17 +354,23 @@ class CaseServiceTest {
     @Test
     void articleAlreadyRequestedInTheTime3() {
         final Article article = new Article();
+        article.setId(0L);
         final Case c1 = new Case();
+        c1.setId(1L);
         c1.setRequestStatus(Case.REQUEST_ACCEPTED);
         c1.setStartTime(1L);
         c1.setEndTime(4L);
         c1.setArticle(article);
         final Case c2 = new Case();
+        c2.setId(2L);
         c2.setRequestStatus(Case.REQUEST_ACCEPTED);
         c2.setStartTime(3L);
         c2.setEndTime(5L);
         c2.setArticle(article);
         article.setCases(Arrays.asList(c1, c2));
+        when(caseRepositoryMock
+                .findIntervalsByArticleIdAndRequestStatus(any(), eq(Case.REQUEST_ACCEPTED)))
+                .thenReturn(Arrays.asList(intervalOf(c1), intervalOf(c2)));
         when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(c1));
 
         assertFalse(caseService.articleNotRented(0L));
@@ -289,17 +379,23 @@ class CaseServiceTest {
     @Test
     void articleNotRequestedInTheTime() {
         final Article article = new Article();
+        article.setId(0L);
         final Case c1 = new Case();
+        c1.setId(1L);
         c1.setRequestStatus(Case.REQUEST_ACCEPTED);
         c1.setStartTime(0L);
         c1.setEndTime(1L);
         c1.setArticle(article);
         final Case c2 = new Case();
+        c2.setId(2L);
         c2.setRequestStatus(Case.REQUEST_ACCEPTED);
         c2.setStartTime(2L);
         c2.setEndTime(3L);
         c2.setArticle(article);
         article.setCases(Arrays.asList(c1, c2));
+        when(caseRepositoryMock
+                .findIntervalsByArticleIdAndRequestStatus(any(), eq(Case.REQUEST_ACCEPTED)))
+                .thenReturn(Arrays.asList(intervalOf(c1), intervalOf(c2)));
         when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(c1));
 
         assertTrue(caseService.articleNotRented(0L));
@@ -308,47 +404,102 @@ class CaseServiceTest {
     @Test
     void acceptingRequestPossible() {
         final Article article = new Article();
+        article.setId(0L);
         final Case c1 = new Case();
+        c1.setId(1L);
         c1.setRequestStatus(Case.REQUEST_ACCEPTED);
         c1.setStartTime(0L);
         c1.setEndTime(1L);
         c1.setArticle(article);
         final Case c2 = new Case();
+        c2.setId(2L);
         c2.setRequestStatus(Case.REQUEST_ACCEPTED);
         c2.setStartTime(2L);
         c2.setEndTime(3L);
         c2.setArticle(article);
         article.setCases(Arrays.asList(c1, c2));
+        when(caseRepositoryMock
+                .findIntervalsByArticleIdAndRequestStatus(any(), eq(Case.REQUEST_ACCEPTED)))
+                .thenReturn(Arrays.asList(intervalOf(c1), intervalOf(c2)));
+        c1.setRequestStatus(Case.REQUESTED);
         when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(c1));
+        when(caseRepositoryMock.findAllByIdIn(any()))
+                .thenReturn(Collections.singletonList(c1));
         when(accountHandlerMock.hasValidFundsByCase(any())).thenReturn(true);
         final ArgumentCaptor<Case> argument = ArgumentCaptor.forClass(Case.class);
 
         assertEquals(1, caseService.acceptArticleRequest(0L));
+        verify(articleServiceMock).lockArticle(article.getId());
         verify(caseRepositoryMock).save(argument.capture());
         assertEquals(Case.REQUEST_ACCEPTED, argument.getValue().getRequestStatus());
+        verify(reservationOutboxMock).enqueue(argument.getValue(), PpOperation.ACCEPT);
     }
 
     @Test
     void acceptingRequestNotPossible() {
         final Article article = new Article();
+        article.setId(0L);
         final Case c1 = new Case();
+        c1.setId(1L);
         c1.setRequestStatus(Case.REQUEST_ACCEPTED);
         c1.setStartTime(0L);
         c1.setEndTime(4L);
         c1.setArticle(article);
         final Case c2 = new Case();
+        c2.setId(2L);
         c2.setRequestStatus(Case.REQUEST_ACCEPTED);
         c2.setStartTime(3L);
         c2.setEndTime(5L);
         c2.setArticle(article);
         article.setCases(Arrays.asList(c1, c2));
+        when(caseRepositoryMock
+                .findIntervalsByArticleIdAndRequestStatus(any(), eq(Case.REQUEST_ACCEPTED)))
+                .thenReturn(Arrays.asList(intervalOf(c1), intervalOf(c2)));
+        c1.setRequestStatus(Case.REQUESTED);
         when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(c1));
+        when(caseRepositoryMock.findAllByIdIn(any()))
+                .thenReturn(Collections.singletonList(c1));
         when(accountHandlerMock.hasValidFundsByCase(any())).thenReturn(true);
         final ArgumentCaptor<Case> argument = ArgumentCaptor.forClass(Case.class);
 
         assertEquals(2, caseService.acceptArticleRequest(0L));
         verify(caseRepositoryMock).save(argument.capture());
         assertEquals(Case.RENTAL_NOT_POSSIBLE, argument.getValue().getRequestStatus());
+        verify(reservationOutboxMock).enqueue(argument.getValue(), PpOperation.RELEASE);
+    }
+
+    @Test
+    void acceptingRequestNotPossibleIfOverlappingCaseWasJustAccepted() {
+        final Case c1 = new Case();
+        c1.setId(1L);
+        c1.setRequestStatus(Case.REQUESTED);
+        c1.setStartTime(0L);
+        c1.setEndTime(4L);
+        c1.setArticle(new Article());
+        when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(c1));
+        when(caseRepositoryMock.findAllByIdIn(any()))
+                .thenReturn(Collections.singletonList(c1));
+        when(caseRepositoryMock.countByArticleAndRequestStatusInWindow(any(),
+                eq(Case.REQUEST_ACCEPTED), eq(0L), eq(4L))).thenReturn(1L);
+        when(accountHandlerMock.hasValidFundsByCase(any())).thenReturn(true);
+
+        assertEquals(2, caseService.acceptArticleRequest(0L));
+        assertEquals(Case.RENTAL_NOT_POSSIBLE, c1.getRequestStatus());
+        verify(articleServiceMock, times(0)).lockArticle(any());
+    }
+
+    @Test
+    void acceptingRequestNotPossibleIfNotRequestedAnymore() {
+        final Case c1 = new Case();
+        c1.setRequestStatus(Case.REQUEST_DECLINED);
+        c1.setArticle(new Article());
+        when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(c1));
+        when(caseRepositoryMock.findAllByIdIn(any()))
+                .thenReturn(Collections.singletonList(c1));
+
+        assertEquals(0, caseService.acceptArticleRequest(0L));
+        assertEquals(Case.REQUEST_DECLINED, c1.getRequestStatus());
+        verify(caseRepositoryMock, times(0)).save(any());
     }
 
     @Test
@@ -360,14 +511,15 @@ class CaseServiceTest {
 
     @Test
     void declineRequest() {
-        when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(new Case()));
+        when(caseRepositoryMock.findById(0L))
+                .thenReturn(Optional.of(caseWithStatus(Case.REQUESTED)));
         final ArgumentCaptor<Case> argument = ArgumentCaptor.forClass(Case.class);
 
         caseService.declineArticleRequest(0L);
 
         verify(caseRepositoryMock).save(argument.capture());
         assertEquals(Case.REQUEST_DECLINED, argument.getValue().getRequestStatus());
-        verify(reservationHandlerMock).releaseReservationByCase(argument.getValue());
+        verify(reservationOutboxMock).enqueue(argument.getValue(), PpOperation.RELEASE);
         assertEquals(new PpTransaction(), argument.getValue().getPpTransaction());
     }
 
@@ -380,9 +532,79 @@ class CaseServiceTest {
         verify(caseRepositoryMock, times(0)).save(any());
     }
 
+    @Test
+    void acceptSeveralRequests() {
+        final Article article = articleOf(7L, "owner");
+        final Case first = request(1L, article, 0L, 4L, "alice");
+        final Case overlapping = request(2L, article, 3L, 5L, "alice");
+        final Case poor = request(3L, article, 10L, 11L, "bob");
+        final Case unknown = request(4L, article, 20L, 21L, "carol");
+        final Case tooMany = request(5L, article, 30L, 31L, "alice");
+        final Case foreign = request(6L, articleOf(8L, "other"), 0L, 4L, "alice");
+        whenCasesAreLoaded(unknown, poor, overlapping, first, tooMany, foreign);
+        final Map<String, AccountSummary> summaries = new HashMap<>();
+        summaries.put("alice", new AccountSummary("alice", 15D, 0D, 0));
+        summaries.put("bob", new AccountSummary("bob", 5D, 0D, 0));
+        when(accountHandlerMock.getAccountSummaries(any())).thenReturn(
+                new AccountSummaries(summaries, Collections.singletonList("carol")));
+
+        final Map<Long, Integer> results = caseService
+                .acceptArticleRequests(Arrays.asList(4L, 3L, 2L, 1L, 5L, 6L, 9L), owner);
+
+        assertEquals(Arrays.asList(4L, 3L, 2L, 1L, 5L, 6L, 9L),
+                new ArrayList<>(results.keySet()));
+        assertEquals(Arrays.asList(4, 3, 2, 1, 3, 0, 0), new ArrayList<>(results.values()));
+        assertEquals(Case.REQUEST_ACCEPTED, first.getRequestStatus());
+        assertEquals(Case.RENTAL_NOT_POSSIBLE, overlapping.getRequestStatus());
+        assertEquals(Case.RENTAL_NOT_POSSIBLE, poor.getRequestStatus());
+        assertEquals(Case.REQUESTED, unknown.getRequestStatus());
+        assertEquals(Case.RENTAL_NOT_POSSIBLE, tooMany.getRequestStatus());
+        assertEquals(Case.REQUESTED, foreign.getRequestStatus());
+        verify(accountHandlerMock).getAccountSummaries(any());
+        verify(articleServiceMock).lockArticle(7L);
+        verify(articleServiceMock, times(0)).lockArticle(8L);
+        verify(reservationOutboxMock)
+                .enqueueAll(Collections.singletonList(first), PpOperation.ACCEPT);
+        verify(reservationOutboxMock)
+                .enqueueAll(Arrays.asList(overlapping, poor, tooMany), PpOperation.RELEASE);
+        verify(caseRepositoryMock, times(0)).save(any());
+    }
+
+    @Test
+    void acceptSeveralRequestsWhileProPayIsUnavailable() {
+        when(accountHandlerMock.checkAvailability()).thenReturn(false);
+
+        final Map<Long, Integer> results = caseService
+                .acceptArticleRequests(Arrays.asList(1L, 2L), owner);
+
+        assertEquals(Arrays.asList(4, 4), new ArrayList<>(results.values()));
+        verify(caseRepositoryMock, times(0)).findAllByIdIn(any());
+    }
+
+    @Test
+    void declineSeveralRequests() {
+        final Case requested = request(1L, articleOf(7L, "owner"), 0L, 4L, "alice");
+        final Case running = request(2L, articleOf(7L, "owner"), 0L, 4L, "bob");
+        running.setRequestStatus(Case.RUNNING);
+        final Case foreign = request(3L, articleOf(8L, "other"), 0L, 4L, "bob");
+        whenCasesAreLoaded(requested, running, foreign);
+
+        final Map<Long, Boolean> results = caseService
+                .declineArticleRequests(Arrays.asList(1L, 2L, 3L, 9L), owner);
+
+        assertEquals(Arrays.asList(true, false, false, false),
+                new ArrayList<>(results.values()));
+        assertEquals(Case.REQUEST_DECLINED, requested.getRequestStatus());
+        assertEquals(Case.RUNNING, running.getRequestStatus());
+        assertEquals(Case.REQUESTED, foreign.getRequestStatus());
+        verify(reservationOutboxMock)
+                .enqueueAll(Collections.singletonList(requested), PpOperation.RELEASE);
+        assertEquals(new PpTransaction(), requested.getPpTransaction());
+    }
+
     @Test
     void openConflict() {
-        when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(new Case()));
+        when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(caseWithStatus(Case.RUNNING)));
         final ArgumentCaptor<Case> argument = ArgumentCaptor.forClass(Case.class);
 
         caseService.conflictOpened(0L);
@@ -393,7 +615,7 @@ class CaseServiceTest {
 
     @Test
     void finishCase() {
-        when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(new Case()));
+        when(caseRepositoryMock.findById(0L)).thenReturn(Optional.of(caseWithStatus(Case.RUNNING)));
         final ArgumentCaptor<Case> argument = ArgumentCaptor.forClass(Case.class);
 
         caseService.acceptCaseReturn(0L);
@@ -402,6 +624,16 @@ class CaseServiceTest {
         assertEquals(Case.FINISHED, argument.getValue().getRequestStatus());
     }
 
+    @Test
+    void finishedCaseIsNotFinishedAgain() {
+        when(caseRepositoryMock.findById(0L))
+                .thenReturn(Optional.of(caseWithStatus(Case.FINISHED)));
+
+        assertTrue(caseService.acceptCaseReturn(0L));
+
+        verify(caseRepositoryMock, times(0)).save(any());
+    }
+
     @Test
     void twoUnavailableCases() {
         final Case c1 = new Case();
@@ -445,15 +677,119 @@ class CaseServiceTest {
     }
 
     @Test
-    void twoCasesWithOpenConflicts() {
-        cases.add(new Case(null, 0L, null, 0L, 0D, 0D, Case.OPEN_CONFLICT, null, null, null, null,
-                null));
-        cases.add(new Case(null, 0L, null, 1L, 0D, 0D, 0, null, null, null, null, null));
-        cases.add(new Case(null, 0L, null, 2L, 0D, 0D, Case.OPEN_CONFLICT, null, null, null, null,
+    void firstPageOfOpenConflicts() {
+        for (long i = 0; i <= CaseService.CONFLICT_PAGE_SIZE; i++) {
+            cases.add(new Case(null, i, null, 100L + i, 0D, 0D, Case.OPEN_CONFLICT, null, null,
+                    null, null, null));
+        }
+        when(caseRepositoryMock.findByRequestStatusAfter(Case.OPEN_CONFLICT, Long.MIN_VALUE,
+                Long.MIN_VALUE, PageRequest.of(0, CaseService.CONFLICT_PAGE_SIZE + 1)))
+                .thenReturn(cases);
+
+        final ConflictQueueSlice slice = caseService.findOpenConflicts(null, null);
+
+        assertEquals(cases.subList(0, CaseService.CONFLICT_PAGE_SIZE), slice.getCases());
+        assertEquals(Long.valueOf(119L), slice.getNextEndTime());
+        assertEquals(Long.valueOf(19L), slice.getNextId());
+        assertFalse(slice.isLastPage());
+    }
+
+    @Test
+    void lastPageOfOpenConflicts() {
+        cases.add(new Case(null, 5L, null, 100L, 0D, 0D, Case.OPEN_CONFLICT, null, null, null, null,
                 null));
-        when(caseRepositoryMock.findAll()).thenReturn(cases);
-        cases.remove(1);
+        when(caseRepositoryMock.findByRequestStatusAfter(eq(Case.OPEN_CONFLICT), eq(90L), eq(4L),
+                any())).thenReturn(cases);
+
+        final ConflictQueueSlice slice = caseService.findOpenConflicts(90L, 4L);
+
+        assertEquals(cases, slice.getCases());
+        assertTrue(slice.isLastPage());
+    }
+
+    @Test
+    void reservedPeriodsAreMergedAndClippedToTheWindow() {
+        final LocalDate from = LocalDate.of(2019, 3, 1);
+        final LocalDate to = LocalDate.of(2019, 3, 31);
+        when(caseRepositoryMock.streamTimeSpansByArticleAndRequestStatusInWindow(eq(0L),
+                eq(Case.REQUEST_ACCEPTED), anyLong(), anyLong())).thenReturn(Stream.of(
+                timeSpan(LocalDate.of(2019, 2, 20), LocalDate.of(2019, 3, 2)),
+                timeSpan(LocalDate.of(2019, 3, 3), LocalDate.of(2019, 3, 5)),
+                timeSpan(LocalDate.of(2019, 3, 4), LocalDate.of(2019, 3, 4)),
+                timeSpan(LocalDate.of(2019, 3, 10), LocalDate.of(2019, 5, 1))));
+
+        final List<ReservedPeriod> periods = caseService.findReservedPeriodsByArticle(0L, from, to);
+
+        assertEquals(Arrays.asList(
+                new ReservedPeriod(LocalDate.of(2019, 3, 1), LocalDate.of(2019, 3, 5)),
+                new ReservedPeriod(LocalDate.of(2019, 3, 10), LocalDate.of(2019, 3, 31))),
+                periods);
+    }
+
+    private CaseTimeSpan timeSpan(final LocalDate start, final LocalDate end) {
+        final CaseTimeSpan timeSpan = mock(CaseTimeSpan.class);
+        when(timeSpan.getStartTime()).thenReturn(
+                start.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        when(timeSpan.getEndTime()).thenReturn(
+                end.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        return timeSpan;
+    }
+
+    private static CaseInterval intervalOf(final Case aCase) {
+        return new CaseInterval() {
+            @Override
+            public Long getId() {
+                return aCase.getId();
+            }
+
+            @Override
+            public Long getStartTime() {
+                return aCase.getStartTime();
+            }
+
+            @Override
+            public Long getEndTime() {
+                return aCase.getEndTime();
+            }
+        };
+    }
+
+    private void whenCasesAreLoaded(final Case... loaded) {
+        when(caseRepositoryMock.findAllByIdIn(any())).thenAnswer(invocation -> {
+            final Collection<Long> ids = invocation.getArgument(0);
+            return Arrays.stream(loaded).filter(aCase -> ids.contains(aCase.getId()))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    private static Article articleOf(final Long id, final String ownerName) {
+        final User articleOwner = new User();
+        articleOwner.setUsername(ownerName);
+        final Article article = new Article();
+        article.setId(id);
+        article.setOwner(articleOwner);
+        return article;
+    }
+
+    private static Case request(final Long id, final Article article, final Long startTime,
+            final Long endTime, final String username) {
+        final User receiver = new User();
+        receiver.setUsername(username);
+        final PpTransaction ppTransaction = new PpTransaction();
+        ppTransaction.setLendingCost(10D);
+        final Case aCase = caseWithStatus(Case.REQUESTED);
+        aCase.setId(id);
+        aCase.setArticle(article);
+        aCase.setStartTime(startTime);
+        aCase.setEndTime(endTime);
+        aCase.setReceiver(receiver);
+        aCase.setPpTransaction(ppTransaction);
+        return aCase;
+    }
 
-        assertEquals(cases, caseService.findAllCasesWithOpenConflicts());
+    private static Case caseWithStatus(final int requestStatus) {
+        final Case aCase = new Case();
+        aCase.setRequestStatus(requestStatus);
+        return aCase;
     }
 }
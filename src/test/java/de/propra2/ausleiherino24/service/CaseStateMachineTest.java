@@ -0,0 +1,68 @@
+package de.propra2.ausleiherino24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.propra2.ausleiherino24.model.Case;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class CaseStateMachineTest {
+
+    private final CaseStateMachine stateMachine = new CaseStateMachine();
+
+    @Test
+    void requestedCaseMayBeAcceptedOrDeclined() {
+        final Case aCase = caseWithStatus(Case.REQUESTED);
+
+        assertTrue(stateMachine.canTransition(aCase, Case.REQUEST_ACCEPTED));
+        assertTrue(stateMachine.canTransition(aCase, Case.REQUEST_DECLINED));
+        assertTrue(stateMachine.canTransition(aCase, Case.RENTAL_NOT_POSSIBLE));
+        assertFalse(stateMachine.canTransition(aCase, Case.FINISHED));
+    }
+
+    @Test
+    void transitionChangesStatus() {
+        final Case aCase = caseWithStatus(Case.RUNNING);
+
+        stateMachine.transition(aCase, Case.RUNNING_EMAILSENT);
+
+        assertEquals(Case.RUNNING_EMAILSENT, aCase.getRequestStatus());
+    }
+
+    @Test
+    void acceptedRequestIsNotAcceptedAgain() {
+        final Case aCase = caseWithStatus(Case.REQUEST_ACCEPTED);
+
+        assertThrows(IllegalStateException.class,
+                () -> stateMachine.transition(aCase, Case.REQUEST_ACCEPTED));
+        assertEquals(Case.REQUEST_ACCEPTED, aCase.getRequestStatus());
+    }
+
+    @Test
+    void finalStatusesCanNotBeLeft() {
+        for (final int status : new int[]{Case.REQUEST_DECLINED, Case.RENTAL_NOT_POSSIBLE,
+                Case.FINISHED}) {
+            assertFalse(stateMachine.canTransition(caseWithStatus(status), Case.OPEN_CONFLICT));
+            assertFalse(stateMachine.canTransition(caseWithStatus(status), Case.REQUESTED));
+        }
+    }
+
+    @Test
+    void conflictOnlyEndsFinished() {
+        final Case aCase = caseWithStatus(Case.OPEN_CONFLICT);
+
+        assertFalse(stateMachine.canTransition(aCase, Case.RUNNING));
+        assertTrue(stateMachine.canTransition(aCase, Case.FINISHED));
+    }
+
+    private static Case caseWithStatus(final int requestStatus) {
+        final Case aCase = new Case();
+        aCase.setRequestStatus(requestStatus);
+        return aCase;
+    }
+}
@@ -9,6 +9,8 @@ import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.Conflict;
 import de.propra2.ausleiherino24.model.User;
 import de.propra2.ausleiherino24.propayhandler.data.ReservationHandler;
+import de.propra2.ausleiherino24.propayhandler.data.ReservationOutbox;
+import de.propra2.ausleiherino24.propayhandler.model.PpOperation;
 import java.nio.file.AccessDeniedException;
 import java.util.Arrays;
 import java.util.List;
@@ -28,6 +30,7 @@ class ConflictServiceTest {
     private EmailSender emailSender;
     private ConflictRepository conflictRepository;
     private ReservationHandler reservationHandler;
+    private ReservationOutbox reservationOutbox;
     private ConflictService conflictService;
 
     private User user;
@@ -41,9 +44,10 @@ class ConflictServiceTest {
         emailSender = Mockito.mock(EmailSender.class);
         conflictRepository = Mockito.mock(ConflictRepository.class);
         reservationHandler = Mockito.mock(ReservationHandler.class);
+        reservationOutbox = Mockito.mock(ReservationOutbox.class);
         conflictService = Mockito
                 .spy(new ConflictService(conflictRepository, emailSender, reservationHandler,
-                        caseService));
+                        reservationOutbox, caseService, new CaseStateMachine()));
 
         user = new User();
         user2 = new User();
@@ -164,6 +168,7 @@ class ConflictServiceTest {
         final User admin = new User();
         admin.setRole("admin");
         c1.setId(1L);
+        ca.setRequestStatus(Case.OPEN_CONFLICT);
         Mockito.when(conflictRepository.findById(1L)).thenReturn(Optional.of(c1));
 
         conflictService.deactivateConflict(1L, admin);
@@ -217,8 +222,8 @@ class ConflictServiceTest {
 
         conflictService.solveConflict(conflict, admin, depositReceiver);
 
-        Mockito.verify(reservationHandler).punishReservationByCase(null);
-        Mockito.verify(reservationHandler, Mockito.times(0)).releaseReservationByCase(null);
+        Mockito.verify(reservationOutbox).enqueue(null, PpOperation.PUNISH);
+        Mockito.verify(reservationOutbox, Mockito.times(0)).enqueue(null, PpOperation.RELEASE);
     }
 
     @Test
@@ -232,7 +237,15 @@ class ConflictServiceTest {
 
         conflictService.solveConflict(conflict, admin, depositReceiver);
 
-        Mockito.verify(reservationHandler, Mockito.times(0)).punishReservationByCase(null);
-        Mockito.verify(reservationHandler).releaseReservationByCase(null);
+        Mockito.verify(reservationOutbox, Mockito.times(0)).enqueue(null, PpOperation.PUNISH);
+        Mockito.verify(reservationOutbox).enqueue(null, PpOperation.RELEASE);
+    }
+
+    @Test
+    void sizeIsNumberOfConflictsInDatabase() {
+        Mockito.when(conflictRepository.count()).thenReturn(3L);
+
+        Assertions.assertThat(conflictService.size()).isEqualTo(3);
+        Mockito.verify(conflictRepository, Mockito.times(0)).findAll();
     }
 }
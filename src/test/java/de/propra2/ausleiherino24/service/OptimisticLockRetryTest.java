@@ -0,0 +1,66 @@
+package de.propra2.ausleiherino24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(SpringExtension.class)
+class OptimisticLockRetryTest {
+
+    private PlatformTransactionManager transactionManager;
+    private OptimisticLockRetry retry;
+    private AtomicInteger attempts;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        retry = new OptimisticLockRetry(transactionManager, 3, 0);
+        attempts = new AtomicInteger();
+    }
+
+    @Test
+    void collisionIsRepeatedInNewTransaction() {
+        final String result = retry.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Case", 1L);
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    void lastCollisionIsThrown() {
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> retry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Case", 1L);
+        }));
+
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void otherExceptionsAreNotRepeated() {
+        assertThrows(IllegalStateException.class, () -> retry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException();
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,59 @@
+package de.propra2.ausleiherino24.web;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import de.propra2.ausleiherino24.Ausleiherino24Application;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Only the health endpoint is open to users. Caches, metrics and the case status counters are
+ * reserved for admins.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles(profiles = "test")
+@SpringBootTest(classes = Ausleiherino24Application.class)
+@AutoConfigureMockMvc
+class ActuatorSecurityTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    @WithMockUser(roles = "user")
+    void userSeesHealth() throws Exception {
+        // the status tells, whether the health checks pass, which doesn't matter here
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/health"))
+                .andExpect(result -> assertNotEquals(403, result.getResponse().getStatus()));
+    }
+
+    @Test
+    @WithMockUser(roles = "user")
+    void userCannotClearCaches() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.delete("/actuator/caches"))
+                .andExpect(MockMvcResultMatchers.status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "user")
+    void userCannotReadMetrics() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/metrics"))
+                .andExpect(MockMvcResultMatchers.status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "admin")
+    void adminReadsCaches() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/caches"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+}
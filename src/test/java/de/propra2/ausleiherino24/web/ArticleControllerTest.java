@@ -16,6 +16,7 @@ import de.propra2.ausleiherino24.service.ArticleService;
 import de.propra2.ausleiherino24.service.CustomerReviewService;
 import de.propra2.ausleiherino24.service.UserService;
 import java.security.Principal;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -76,7 +77,7 @@ class ArticleControllerTest {
         final List<CustomerReview> allReviews = new ArrayList<>();
 
         when(userService.findUserByPrincipal(any(Principal.class))).thenReturn(user);
-        when(articleService.findArticleById(1L)).thenReturn(article);
+        when(articleService.findCachedArticleById(1L)).thenReturn(article);
         when(customerReviewService.findAllReviews()).thenReturn(allReviews);
 
         mvc.perform(MockMvcRequestBuilders.get("/article?id=1"))
@@ -190,9 +191,10 @@ class ArticleControllerTest {
         event2.setEnd("1998/02/20");
         event2.setTitle("title2");
         event2.setStart("1998/02/19");
-        Mockito.when(calendarEventService.getAllEventsFromOneArticle(1L))
-                .thenReturn(Arrays.asList(event1, event2));
-        mvc.perform(MockMvcRequestBuilders.get("/article/events?id=1"))
+        Mockito.when(calendarEventService.getEventsFromOneArticle(1L, LocalDate.of(1998, 2, 1),
+                LocalDate.of(1998, 3, 14))).thenReturn(Arrays.asList(event1, event2));
+        mvc.perform(MockMvcRequestBuilders
+                .get("/article/events?id=1&start=1998-02-01&end=1998-03-15"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.[0].end").value("1998/02/18"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.[0].title").value("title1"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.[0].start").value("1998/02/16"))
@@ -1,6 +1,7 @@
 package de.propra2.ausleiherino24.web;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 
 import de.propra2.ausleiherino24.model.Article;
@@ -10,6 +11,9 @@ import de.propra2.ausleiherino24.model.User;
 import de.propra2.ausleiherino24.service.CaseService;
 import de.propra2.ausleiherino24.service.CustomerReviewService;
 import java.security.Principal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -97,6 +101,38 @@ class CaseControllerTest {
     }
 
 
+    @Test
+    @WithMockUser(roles = "user")
+    void acceptCasesReportsResultOfEveryCase() throws Exception {
+        final Map<Long, Integer> results = new LinkedHashMap<>();
+        results.put(1L, 1);
+        results.put(2L, 2);
+        Mockito.when(caseService
+                .acceptArticleRequests(eq(Arrays.asList(1L, 2L)), any(Principal.class)))
+                .thenReturn(results);
+
+        mvc.perform(MockMvcRequestBuilders.post("/acceptCases").param("ids", "1", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.1").value("accepted"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.2").value("alreadyRented"));
+    }
+
+    @Test
+    @WithMockUser(roles = "user")
+    void declineCasesReportsResultOfEveryCase() throws Exception {
+        final Map<Long, Boolean> results = new LinkedHashMap<>();
+        results.put(1L, true);
+        results.put(2L, false);
+        Mockito.when(caseService
+                .declineArticleRequests(eq(Arrays.asList(1L, 2L)), any(Principal.class)))
+                .thenReturn(results);
+
+        mvc.perform(MockMvcRequestBuilders.post("/declineCases").param("ids", "1", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.1").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.2").value(false));
+    }
+
     @Test
     @WithMockUser(roles = "user")
     void successfulRedirectionAcceptCaseReturn() throws Exception {
@@ -4,12 +4,15 @@ import de.propra2.ausleiherino24.model.Article;
 import de.propra2.ausleiherino24.model.Case;
 import de.propra2.ausleiherino24.model.Conflict;
 import de.propra2.ausleiherino24.model.User;
+import de.propra2.ausleiherino24.propayhandler.data.AccountHandler;
+import de.propra2.ausleiherino24.propayhandler.model.AccountSummaries;
 import de.propra2.ausleiherino24.service.CaseService;
 import de.propra2.ausleiherino24.service.ConflictService;
 import de.propra2.ausleiherino24.service.UserService;
 import java.nio.file.AccessDeniedException;
 import java.security.Principal;
 import java.util.Arrays;
+import java.util.Collections;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -41,6 +44,8 @@ class ConflictControllerTest {
     private ConflictService conflictService;
     @MockBean
     private UserService userService;
+    @MockBean
+    private AccountHandler accountHandler;
 
     private User user;
     private User admin;
@@ -196,7 +201,12 @@ class ConflictControllerTest {
     void solveConflicts() throws Exception {
         Mockito.when(userService.findUserByPrincipal(Mockito.any(Principal.class)))
                 .thenReturn(admin);
-        Mockito.when(caseService.findAllCasesWithOpenConflicts()).thenReturn(Arrays.asList(ca));
+        Mockito.when(caseService.findOpenConflicts(null, null))
+                .thenReturn(new ConflictQueueSlice(Arrays.asList(ca), 5L, 1L));
+        Mockito.when(conflictService.size()).thenReturn(21);
+        final AccountSummaries accounts = new AccountSummaries(Collections.emptyMap(),
+                Arrays.asList("user1", "user2"));
+        Mockito.when(accountHandler.getAccountSummaries(Mockito.any())).thenReturn(accounts);
 
         mvc.perform(MockMvcRequestBuilders.get("/conflicts"))
                 .andExpect(MockMvcResultMatchers.status().isOk())
@@ -204,6 +214,28 @@ class ConflictControllerTest {
                         .attribute("user", Matchers.is(Matchers.equalTo(admin))))
                 .andExpect(MockMvcResultMatchers.model()
                         .attribute("conflicts", Matchers.is(Matchers.equalTo(Arrays.asList(ca)))))
+                .andExpect(MockMvcResultMatchers.model()
+                        .attribute("accounts", Matchers.is(Matchers.equalTo(accounts))))
+                .andExpect(MockMvcResultMatchers.model().attribute("openConflicts", 21))
+                .andExpect(MockMvcResultMatchers.model().attribute("nextEndTime", 5L))
+                .andExpect(MockMvcResultMatchers.model().attribute("nextId", 1L))
                 .andExpect(MockMvcResultMatchers.view().name("/admin/conflict"));
     }
+
+    @Test
+    @WithMockUser(roles = "admin")
+    void solveConflictsShowsFollowingPage() throws Exception {
+        Mockito.when(userService.findUserByPrincipal(Mockito.any(Principal.class)))
+                .thenReturn(admin);
+        Mockito.when(caseService.findOpenConflicts(5L, 1L))
+                .thenReturn(new ConflictQueueSlice(Collections.emptyList(), null, null));
+        Mockito.when(accountHandler.getAccountSummaries(Mockito.any())).thenReturn(
+                new AccountSummaries(Collections.emptyMap(), Collections.emptyList()));
+
+        mvc.perform(MockMvcRequestBuilders.get("/conflicts?afterEndTime=5&afterId=1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.model()
+                        .attribute("conflicts", Matchers.empty()))
+                .andExpect(MockMvcResultMatchers.model().attribute("nextId", Matchers.nullValue()));
+    }
 }
@@ -0,0 +1,132 @@
+package de.propra2.ausleiherino24.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import de.propra2.ausleiherino24.Ausleiherino24Application;
+import de.propra2.ausleiherino24.features.category.Category;
+import de.propra2.ausleiherino24.model.Article;
+import de.propra2.ausleiherino24.model.Case;
+import de.propra2.ausleiherino24.model.User;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Counts the SQL statements of the main page with Hibernate statistics. The page must not load
+ * owners, cases or any other association of the listed articles.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles(profiles = "test")
+@SpringBootTest(classes = Ausleiherino24Application.class,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class MainControllerStatementCountTest {
+
+    private static final int NR_OF_ARTICLES = 10;
+    private static final int CASES_PER_ARTICLE = 3;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            for (int i = 0; i < NR_OF_ARTICLES; i++) {
+                final User owner = createUser("owner" + i);
+                final User receiver = createUser("receiver" + i);
+                entityManager.persist(owner);
+                entityManager.persist(receiver);
+
+                final Article article = new Article();
+                article.setName("article" + i);
+                article.setDescription("description" + i);
+                article.setCostPerDay(10D);
+                article.setActive(true);
+                article.setForRental(true);
+                article.setCategory(Category.TOYS);
+                article.setOwner(owner);
+                entityManager.persist(article);
+
+                for (int j = 0; j < CASES_PER_ARTICLE; j++) {
+                    final Case aCase = new Case();
+                    aCase.setStartTime(j * 10L);
+                    aCase.setEndTime(j * 10L + 5L);
+                    aCase.setRequestStatus(Case.REQUEST_ACCEPTED);
+                    aCase.setReceiver(receiver);
+                    aCase.setArticle(article);
+                    entityManager.persist(aCase);
+                }
+            }
+            return null;
+        });
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            entityManager.createQuery("DELETE FROM Case").executeUpdate();
+            entityManager.createQuery("DELETE FROM Article").executeUpdate();
+            entityManager.createQuery("DELETE FROM User").executeUpdate();
+            return null;
+        });
+    }
+
+    @Test
+    void mainPageNeedsOneStatementForAllArticles() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.view().name("index"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+    }
+
+    @Test
+    void categoryPageNeedsOneStatementForAllArticles() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/categories").param("category", "toys"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.view().name("index"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    private User createUser(final String username) {
+        final User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@mail.de");
+        user.setRole("user");
+        return user;
+    }
+}
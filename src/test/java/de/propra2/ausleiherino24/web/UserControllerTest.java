@@ -2,6 +2,7 @@ package de.propra2.ausleiherino24.web;
 
 import static org.mockito.Mockito.mock;
 
+import de.propra2.ausleiherino24.data.CaseStatusCounters;
 import de.propra2.ausleiherino24.features.category.Category;
 import de.propra2.ausleiherino24.model.Article;
 import de.propra2.ausleiherino24.model.Case;
@@ -14,6 +15,7 @@ import de.propra2.ausleiherino24.service.CaseService;
 import de.propra2.ausleiherino24.service.UserService;
 import java.security.Principal;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
@@ -48,6 +50,8 @@ class UserControllerTest {
     private ArticleService articleService;
     @MockBean
     private AccountHandler accountHandler;
+    @MockBean
+    private CaseStatusCounters caseStatusCounters;
 
     private User user1;
     private User user2;
@@ -188,6 +192,19 @@ class UserControllerTest {
                         .model().attribute("outrunning", Matchers.is(Matchers.equalTo(caseList))));
     }
 
+    @Test
+    @WithMockUser(roles = "user", username = "hans")
+    void getMyOverviewBadgesShouldReturnCountsOfCurrentUsersArticles() throws Exception {
+        Mockito.when(userService.findUserByPrincipal(Mockito.any(Principal.class)))
+                .thenReturn(user1);
+        Mockito.when(caseStatusCounters.countsOfOwner(user1.getId()))
+                .thenReturn(Collections.singletonMap("requested", 2L));
+
+        mvc.perform(MockMvcRequestBuilders.get("/myOverview/badges"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.requested").value(2));
+    }
+
     @Test
     @WithMockUser(roles = "user", username = "hans")
     void getNewItemPageShouldGetNewItemPage() throws Exception {